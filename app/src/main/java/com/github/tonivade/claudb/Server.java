@@ -10,6 +10,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.stream.Stream;
 
+import com.github.tonivade.claudb.data.MaxMemoryPolicy;
 import com.github.tonivade.resp.RespServer;
 
 import joptsimple.OptionParser;
@@ -23,11 +24,19 @@ public class Server {
     OptionSpec<Void> help = parser.accepts("help", "print help");
     OptionSpec<Void> verbose = parser.accepts("V", "verbose");
     OptionSpec<Void> persist = parser.accepts("P", "persistence (experimental)");
+    OptionSpec<Void> backgroundSave = parser.accepts("B", "save the RDB file in background (experimental)");
     OptionSpec<Void> offHeap = parser.accepts("O", "off heap memory (experimental)");
     OptionSpec<Void> notifications = parser.accepts("N", "keyspace notifications (experimental)");
     OptionSpec<String> host = parser.accepts("h", "host")
         .withRequiredArg().defaultsTo(DBServerContext.DEFAULT_HOST);
     OptionSpec<String> port = parser.accepts("p", "port").withRequiredArg();
+    OptionSpec<String> mapped = parser.accepts("D", "memory mapped files directory (experimental)")
+        .withRequiredArg();
+    OptionSpec<String> tiered = parser.accepts("T", "tiered storage directory (experimental)")
+        .withRequiredArg();
+    OptionSpec<String> maxMemory = parser.accepts("M", "max memory in bytes").withRequiredArg();
+    OptionSpec<String> maxMemoryPolicy = parser.accepts("E", "max memory policy")
+        .withRequiredArg().defaultsTo(MaxMemoryPolicy.NOEVICTION.text());
 
     OptionSet options = parser.parse(args);
 
@@ -37,8 +46,13 @@ public class Server {
       String optionHost = options.valueOf(host);
       int optionPort = parsePort(options.valueOf(port));
       DBConfig config = parseConfig(options.has(persist),
+                                    options.has(backgroundSave),
                                     options.has(offHeap),
-                                    options.has(notifications));
+                                    options.has(notifications),
+                                    options.valueOf(mapped),
+                                    options.valueOf(tiered),
+                                    options.valueOf(maxMemory),
+                                    options.valueOf(maxMemoryPolicy));
 
       readBanner().forEach(System.out::println);
 
@@ -59,17 +73,32 @@ public class Server {
     return optionPort != null ? Integer.parseInt(optionPort) : DBServerContext.DEFAULT_PORT;
   }
 
-  private static DBConfig parseConfig(boolean persist, boolean offHeap, boolean notifications) {
+  private static DBConfig parseConfig(boolean persist, boolean backgroundSave,
+                                      boolean offHeap, boolean notifications,
+                                      String mapped, String tiered,
+                                      String maxMemory, String maxMemoryPolicy) {
     DBConfig.Builder builder = DBConfig.builder();
     if (persist) {
       builder.withPersistence();
     }
+    if (backgroundSave) {
+      builder.withBackgroundSave();
+    }
     if (offHeap) {
       builder.withOffHeapCache();
     }
     if (notifications) {
       builder.withNotifications();
     }
+    if (mapped != null) {
+      builder.withMappedFiles(mapped);
+    }
+    if (tiered != null) {
+      builder.withTieredStorage(tiered);
+    }
+    if (maxMemory != null) {
+      builder.withMaxMemory(Long.parseLong(maxMemory), MaxMemoryPolicy.from(maxMemoryPolicy));
+    }
     return builder.build();
   }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * GET of a key with expiration. getWithSystemClock does the check the way it was done before,
+ * reading the system clock and building an Instant on every lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ExpirationBenchmark {
+
+  private final DatabaseKey key = safeKey("key");
+
+  private OnHeapDatabase database;
+  private ScanHashMap<DatabaseKey, DatabaseValue> cache;
+
+  @Setup
+  public void setUp() {
+    cache = new ScanHashMap<>();
+    database = new OnHeapDatabase(cache);
+    database.put(key, string("value").expiredAt(3600));
+  }
+
+  @Benchmark
+  public DatabaseValue getWithCoarseClock() {
+    return database.get(key);
+  }
+
+  @Benchmark
+  public DatabaseValue getWithSystemClock() {
+    DatabaseValue value = cache.get(key);
+    return value != null && !value.isExpired(Instant.now()) ? value : null;
+  }
+}
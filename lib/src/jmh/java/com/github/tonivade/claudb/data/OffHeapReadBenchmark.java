@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.entry;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * HLEN and HGET of a large off heap hash. The deserialized variants get the whole value,
+ * the way the commands did it before.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OffHeapReadBenchmark {
+
+  private final DatabaseKey key = safeKey("hash");
+  private final SafeString field = safeString("field500");
+
+  private Database database;
+
+  @Setup
+  public void setUp() {
+    List<Tuple2<SafeString, SafeString>> fields = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      fields.add(entry(safeString("field" + i), safeString("value" + i)));
+    }
+    database = new OffHeapDatabaseFactory().create("benchmark");
+    database.put(key, hash(fields));
+  }
+
+  @Benchmark
+  public int hlenSerialized() {
+    return database.read(key, DatabaseValue.EMPTY_HASH, ValueView::size);
+  }
+
+  @Benchmark
+  public int hlenDeserialized() {
+    return database.get(key).size();
+  }
+
+  @Benchmark
+  public SafeString hgetSerialized() {
+    return database.read(key, DatabaseValue.EMPTY_HASH, hash -> hash.getHashField(field));
+  }
+
+  @Benchmark
+  public SafeString hgetDeserialized() {
+    return database.get(key).getHash().get(field);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Lookups with the key as it comes in a request. Run it with the gc profiler (-prof gc) to
+ * compare the allocation rate of a new key with a lookup by the bytes of the key.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+public class OnHeapDatabaseBenchmark {
+
+  private static final int KEYS = 1024;
+
+  private SafeString[] params;
+  private OnHeapDatabase database;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    database = new OnHeapDatabase(new ScanHashMap<>());
+    params = new SafeString[KEYS];
+    for (int i = 0; i < KEYS; i++) {
+      params[i] = safeString("key:" + i);
+      database.put(safeKey("key:" + i), string("value:" + i));
+    }
+  }
+
+  @Benchmark
+  public DatabaseValue getWithNewKey() {
+    return database.get(safeKey(nextParam()));
+  }
+
+  @Benchmark
+  public DatabaseValue lookup() {
+    return database.lookup(nextParam());
+  }
+
+  private SafeString nextParam() {
+    return params[next++ & (KEYS - 1)];
+  }
+}
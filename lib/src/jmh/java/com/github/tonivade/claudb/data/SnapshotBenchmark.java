@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.entry;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Time the commands are stopped to take the snapshot of a BGSAVE. The pages of buckets of an on
+ * heap database are shared with the snapshot, the off heap entries are pinned.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SnapshotBenchmark {
+
+  private static final int KEYS = 10000;
+
+  @Param({ "onheap", "offheap" })
+  private String store;
+
+  private DatabaseContext context;
+  private Database database;
+
+  @Setup
+  public void setUp() {
+    context = new DatabaseContext();
+    database = "offheap".equals(store)
+        ? new OffHeapDatabaseFactory(context).create("benchmark")
+        : new OnHeapDatabaseFactory(context).create("benchmark");
+    for (int i = 0; i < KEYS; i++) {
+      List<Tuple2<SafeString, SafeString>> fields = new ArrayList<>();
+      for (int j = 0; j < 10; j++) {
+        fields.add(entry(safeString("field" + j), safeString("value" + i + ":" + j)));
+      }
+      database.put(safeKey("key:" + i), hash(fields));
+    }
+  }
+
+  @Benchmark
+  public int snapshot() {
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+      return snapshot.getDatabases().get(0).size();
+    }
+  }
+}
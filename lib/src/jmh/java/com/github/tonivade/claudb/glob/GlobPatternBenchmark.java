@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.glob;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Matching a key with a pattern. The regex variants convert the glob to a regular
+ * expression and the key to a string, the way KEYS and PSUBSCRIBE did it before, the
+ * compiled one is the pattern compiled once per request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GlobPatternBenchmark {
+
+  @Param({ "user:1000:name", "user:*", "*:name", "user:*:n?me", "user:[0-9]*" })
+  private String glob;
+
+  private final SafeString key = safeString("user:1000:name");
+
+  private Pattern regex;
+  private GlobPattern pattern;
+
+  @Setup
+  public void setUp() {
+    regex = Pattern.compile(GlobPattern.convertGlobToRegEx(glob));
+    pattern = new GlobPattern(glob);
+  }
+
+  @Benchmark
+  public boolean regexPerMatch() {
+    return Pattern.compile(GlobPattern.convertGlobToRegEx(glob)).matcher(key.toString()).matches();
+  }
+
+  @Benchmark
+  public boolean regexCompiled() {
+    return regex.matcher(key.toString()).matches();
+  }
+
+  @Benchmark
+  public boolean globCached() {
+    return GlobPattern.compile(glob).match(key);
+  }
+
+  @Benchmark
+  public boolean globCompiled() {
+    return pattern.match(key);
+  }
+}
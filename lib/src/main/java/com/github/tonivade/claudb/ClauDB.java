@@ -13,17 +13,26 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ServerSocket;
+import java.nio.file.Paths;
 import java.time.Instant;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.tonivade.claudb.command.DBCommandSuite;
+import com.github.tonivade.claudb.data.CoarseClock;
+import com.github.tonivade.claudb.data.ConcurrentOnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.DatabaseContext;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseCleaner;
 import com.github.tonivade.claudb.data.DatabaseFactory;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.MappedDatabaseFactory;
 import com.github.tonivade.claudb.data.OffHeapDatabaseFactory;
 import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+import com.github.tonivade.claudb.data.PrefixIndexDatabaseFactory;
+import com.github.tonivade.claudb.data.Snapshot;
+import com.github.tonivade.claudb.data.TieredDatabaseFactory;
 import com.github.tonivade.claudb.event.Event;
 import com.github.tonivade.claudb.event.NotificationManager;
 import com.github.tonivade.claudb.persistence.PersistenceManager;
@@ -44,6 +53,7 @@ import io.reactivex.rxjava3.core.Observable;
 public final class ClauDB extends RespServerContext implements DBServerContext {
 
   private static final String STATE = "state";
+  private static final String DEL_COMMAND = "del";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ClauDB.class);
 
@@ -74,6 +84,7 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
   public void start() {
     super.start();
 
+    CoarseClock.start();
     init();
 
     getState().setMaster(true);
@@ -95,6 +106,8 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
     notifications = null;
     cleaner = null;
 
+    CoarseClock.stop();
+
     super.stop();
   }
 
@@ -132,6 +145,27 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
     })).blockingSubscribe();
   }
 
+  @Override
+  public Snapshot snapshot() {
+    return executeOn(Observable.<Snapshot>create(observable -> {
+      observable.onNext(getState().snapshot());
+      observable.onComplete();
+    })).blockingFirst();
+  }
+
+  /**
+   * The snapshot is not modified by the commands, so it is exported from the calling thread.
+   */
+  @Override
+  public void exportRDB(Snapshot snapshot, OutputStream output) throws IOException {
+    getState().exportRDB(snapshot, output);
+  }
+
+  @Override
+  public boolean backgroundSave() {
+    return persistence.map(PersistenceManager::backgroundSave).getOrElse(false);
+  }
+
   @Override
   public void importRDB(InputStream input) {
     executeOn(Observable.create(observable -> {
@@ -152,8 +186,13 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
 
   @Override
   public void clean(Instant now) {
+    if (isConcurrent()) {
+      // databases are thread safe, no need to stop the world
+      getState().expireCycle(now, config.getExpireCycleBudget());
+      return;
+    }
     executeOn(Observable.create(observable -> {
-      getState().evictExpired(now);
+      getState().expireCycle(now, config.getExpireCycleBudget());
       observable.onComplete();
     })).blockingSubscribe();
   }
@@ -161,6 +200,9 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
   @Override
   protected RedisToken executeCommand(RespCommand command, Request request) {
     if (!isReadOnly(request.getCommand())) {
+      if (!freeMemory(request.getCommand()) && getDBCommands().isDenyOom(request.getCommand())) {
+        return error("OOM command not allowed when used memory > 'maxmemory'");
+      }
       try {
         RedisToken response = command.execute(request);
         replication(request);
@@ -175,20 +217,35 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
     }
   }
 
+  private boolean freeMemory(String command) {
+    return isReadOnlyCommand(command) || getState().freeMemory(this::eviction);
+  }
+
+  /**
+   * An evicted key is deleted in the replicas and the AOF as if a DEL was executed.
+   */
+  private void eviction(int db, DatabaseKey key) {
+    propagate(RedisToken.array(RedisToken.string(valueOf(db)), RedisToken.string(DEL_COMMAND),
+        RedisToken.string(key.getValue())));
+  }
+
   private boolean isReadOnly(String command) {
     return !isMaster() && !isReadOnlyCommand(command);
   }
 
   private void replication(Request request) {
     if (!isReadOnlyCommand(request.getCommand())) {
-      RedisToken array = requestToArray(request);
-      if (hasSlaves()) {
-        getState().append(array);
-      }
-      persistence.ifPresent(manager -> manager.append(array));
+      propagate(requestToArray(request));
     }
   }
 
+  private void propagate(RedisToken array) {
+    if (hasSlaves()) {
+      getState().append(array);
+    }
+    persistence.ifPresent(manager -> manager.append(array));
+  }
+
   private void notification(Request request) {
     if (!isReadOnlyCommand(request.getCommand()) && request.getLength() > 1) {
       notifications.ifPresent(manager -> publishEvent(manager, request));
@@ -263,9 +320,11 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
   }
 
   private void init() {
-    DatabaseFactory factory = initFactory();
+    DatabaseFactory factory = initFactory(new DatabaseContext(config));
 
-    putValue(STATE, new DBServerState(factory, config.getNumDatabases()));
+    DBServerState state = new DBServerState(factory, config.getNumDatabases());
+    state.setMaxMemory(config.getMaxMemory(), config.getMaxMemoryPolicy(), config.getMaxMemorySamples());
+    putValue(STATE, state);
 
     initPersistence();
     initNotifications();
@@ -286,18 +345,36 @@ public final class ClauDB extends RespServerContext implements DBServerContext {
 
   private void initPersistence() {
     if (config.isPersistenceActive()) {
-      this.persistence = Option.some(new PersistenceManager(this, config));
+      this.persistence = Option.some(new PersistenceManager(this, config, getState().getSaveStats()));
     } else {
       this.persistence = Option.none();
     }
   }
 
-  private DatabaseFactory initFactory() {
+  private boolean isConcurrent() {
+    return config.isConcurrentActive() && !config.isOffHeapActive() && !config.isMappedActive()
+        && !config.isTieredActive();
+  }
+
+  private DatabaseFactory initFactory(DatabaseContext context) {
     DatabaseFactory factory;
-    if (config.isOffHeapActive()) {
-      factory = new OffHeapDatabaseFactory();
+    if (config.isMappedActive()) {
+      factory = new MappedDatabaseFactory(Paths.get(config.getMappedDirectory()), context);
+    } else if (config.isTieredActive()) {
+      factory = new TieredDatabaseFactory(Paths.get(config.getTieredDirectory()), config.getTieredHotMemory(), context);
+    } else if (config.isOffHeapActive()) {
+      factory = new OffHeapDatabaseFactory(context);
+    } else if (config.isConcurrentActive()) {
+      factory = new ConcurrentOnHeapDatabaseFactory(context);
     } else {
-      factory = new OnHeapDatabaseFactory();
+      factory = new OnHeapDatabaseFactory(context);
+    }
+    if (config.isPrefixIndexActive()) {
+      if (isConcurrent()) {
+        // the index is updated after the database, it needs the writes to be serialized
+        throw new IllegalArgumentException("prefix index is not supported with the concurrent cache");
+      }
+      factory = new PrefixIndexDatabaseFactory(factory, config.getPrefixIndexDatabases());
     }
     return factory;
   }
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public final class CommandStats {
+
+  private final LongAdder calls = new LongAdder();
+  private final LongAdder lookups = new LongAdder();
+
+  public void record(int lookups) {
+    this.calls.increment();
+    this.lookups.add(lookups);
+  }
+
+  public long getCalls() {
+    return calls.sum();
+  }
+
+  public long getLookups() {
+    return lookups.sum();
+  }
+
+  public double getLookupsPerCall() {
+    long calls = getCalls();
+    return calls > 0 ? (double) getLookups() / calls : 0;
+  }
+}
@@ -4,25 +4,66 @@
  */
 package com.github.tonivade.claudb;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import com.github.tonivade.claudb.data.MaxMemoryPolicy;
+
 public class DBConfig {
 
   private static final int DEFAULT_SYNC_PERIOD = 60;
   private static final int DEFAULT_CLEAN_PERIOD = 30;
+  private static final int DEFAULT_EXPIRE_CYCLE_PERIOD = 100;
+  private static final int DEFAULT_EXPIRE_CYCLE_BUDGET = 1000;
   private static final int DEFAULT_DATABASES = 10;
+  private static final int DEFAULT_HASH_MAX_LISTPACK_ENTRIES = 128;
+  private static final int DEFAULT_HASH_MAX_LISTPACK_VALUE = 64;
+  private static final int DEFAULT_SET_MAX_INTSET_ENTRIES = 512;
+  private static final int DEFAULT_ZSET_MAX_LISTPACK_ENTRIES = 128;
+  private static final int DEFAULT_ZSET_MAX_LISTPACK_VALUE = 64;
+  private static final int DEFAULT_MAX_MEMORY_SAMPLES = 5;
+  private static final long DEFAULT_TIERED_HOT_MEMORY = 64 * 1024 * 1024;
+  private static final int DEFAULT_LAZY_FREE_THRESHOLD = 64;
   private static final String DUMP_FILE = "dump.rdb";
   private static final String REDO_FILE = "redo.aof";
 
   private int numDatabases = DEFAULT_DATABASES;
 
   private boolean persistenceActive;
+  private boolean backgroundSaveActive;
   private boolean notificationsActive;
   private boolean offHeapActive;
+  private boolean concurrentActive;
+  private boolean sharedValuesActive = true;
 
   private String rdbFile;
   private String aofFile;
+  private String mappedDirectory;
+  private String tieredDirectory;
+  private long tieredHotMemory = DEFAULT_TIERED_HOT_MEMORY;
+  private Set<Integer> prefixIndexDatabases = new HashSet<>();
 
   private int syncPeriod = DEFAULT_SYNC_PERIOD;
   private int cleanPeriod = DEFAULT_CLEAN_PERIOD;
+  private int expireCyclePeriod = DEFAULT_EXPIRE_CYCLE_PERIOD;
+  private int expireCycleBudget = DEFAULT_EXPIRE_CYCLE_BUDGET;
+
+  private int offHeapSegments;
+  private int offHeapHashTableSize;
+  private long offHeapCapacity;
+
+  private int hashMaxListpackEntries = DEFAULT_HASH_MAX_LISTPACK_ENTRIES;
+  private int hashMaxListpackValue = DEFAULT_HASH_MAX_LISTPACK_VALUE;
+  private boolean hashOffHeapActive;
+  private int setMaxIntsetEntries = DEFAULT_SET_MAX_INTSET_ENTRIES;
+  private int zsetMaxListpackEntries = DEFAULT_ZSET_MAX_LISTPACK_ENTRIES;
+  private int zsetMaxListpackValue = DEFAULT_ZSET_MAX_LISTPACK_VALUE;
+
+  private long maxMemory;
+  private MaxMemoryPolicy maxMemoryPolicy = MaxMemoryPolicy.NOEVICTION;
+  private int maxMemorySamples = DEFAULT_MAX_MEMORY_SAMPLES;
+
+  private int lazyFreeThreshold = DEFAULT_LAZY_FREE_THRESHOLD;
 
   public boolean isPersistenceActive() {
     return persistenceActive;
@@ -32,6 +73,18 @@ public class DBConfig {
     this.persistenceActive = persistenceActive;
   }
 
+  /**
+   * The RDB file is saved every syncPeriod from a snapshot, without stopping the commands
+   * while it is written.
+   */
+  public boolean isBackgroundSaveActive() {
+    return backgroundSaveActive;
+  }
+
+  public void setBackgroundSaveActive(boolean backgroundSaveActive) {
+    this.backgroundSaveActive = backgroundSaveActive;
+  }
+
   public boolean isNotificationsActive() {
     return notificationsActive;
   }
@@ -48,6 +101,22 @@ public class DBConfig {
     this.offHeapActive = offHeapActive;
   }
 
+  public boolean isConcurrentActive() {
+    return concurrentActive;
+  }
+
+  public void setConcurrentActive(boolean concurrentActive) {
+    this.concurrentActive = concurrentActive;
+  }
+
+  public boolean isSharedValuesActive() {
+    return sharedValuesActive;
+  }
+
+  public void setSharedValuesActive(boolean sharedValuesActive) {
+    this.sharedValuesActive = sharedValuesActive;
+  }
+
   public String getRdbFile() {
     return rdbFile;
   }
@@ -64,6 +133,64 @@ public class DBConfig {
     this.aofFile = aofFile;
   }
 
+  /**
+   * Directory of the memory mapped files, null means databases are not mapped.
+   */
+  public String getMappedDirectory() {
+    return mappedDirectory;
+  }
+
+  public void setMappedDirectory(String mappedDirectory) {
+    this.mappedDirectory = mappedDirectory;
+  }
+
+  public boolean isMappedActive() {
+    return mappedDirectory != null;
+  }
+
+  /**
+   * Directory of the logs of the cold entries, null means databases are not tiered.
+   */
+  public String getTieredDirectory() {
+    return tieredDirectory;
+  }
+
+  public void setTieredDirectory(String tieredDirectory) {
+    this.tieredDirectory = tieredDirectory;
+  }
+
+  public boolean isTieredActive() {
+    return tieredDirectory != null;
+  }
+
+  /**
+   * Bytes of every tiered database kept in the heap, the least recently used entries over it
+   * are spilled to disk.
+   */
+  public long getTieredHotMemory() {
+    return tieredHotMemory;
+  }
+
+  public void setTieredHotMemory(long tieredHotMemory) {
+    this.tieredHotMemory = tieredHotMemory;
+  }
+
+  /**
+   * Databases with an ordered index of their keys, so patterns with a literal prefix only
+   * visit the keys with the prefix.
+   */
+  public Set<Integer> getPrefixIndexDatabases() {
+    return prefixIndexDatabases;
+  }
+
+  public void setPrefixIndexDatabases(Set<Integer> prefixIndexDatabases) {
+    this.prefixIndexDatabases = prefixIndexDatabases;
+  }
+
+  public boolean isPrefixIndexActive() {
+    return !prefixIndexDatabases.isEmpty();
+  }
+
   public int getSyncPeriod() {
     return syncPeriod;
   }
@@ -80,14 +207,172 @@ public class DBConfig {
     this.numDatabases = numDatabases;
   }
 
+  /**
+   * @deprecated expired keys are evicted in short cycles, see {@link #getExpireCyclePeriod()}
+   */
+  @Deprecated
   public long getCleanPeriod() {
     return this.cleanPeriod;
   }
 
+  /**
+   * @deprecated expired keys are evicted in short cycles, see {@link #setExpireCyclePeriod(int)}
+   */
+  @Deprecated
   public void setCleanPeriod(int cleanPeriod) {
     this.cleanPeriod = cleanPeriod;
   }
 
+  /**
+   * Milliseconds between two expire cycles.
+   */
+  public int getExpireCyclePeriod() {
+    return expireCyclePeriod;
+  }
+
+  public void setExpireCyclePeriod(int expireCyclePeriod) {
+    this.expireCyclePeriod = expireCyclePeriod;
+  }
+
+  /**
+   * Maximum time, in microseconds, an expire cycle can spend evicting keys.
+   */
+  public int getExpireCycleBudget() {
+    return expireCycleBudget;
+  }
+
+  public void setExpireCycleBudget(int expireCycleBudget) {
+    this.expireCycleBudget = expireCycleBudget;
+  }
+
+  /**
+   * Number of segments of every off heap database, zero means the OHC default, twice the
+   * number of processors.
+   */
+  public int getOffHeapSegments() {
+    return offHeapSegments;
+  }
+
+  public void setOffHeapSegments(int offHeapSegments) {
+    this.offHeapSegments = offHeapSegments;
+  }
+
+  /**
+   * Initial size of the hash table of every segment, zero means the OHC default.
+   */
+  public int getOffHeapHashTableSize() {
+    return offHeapHashTableSize;
+  }
+
+  public void setOffHeapHashTableSize(int offHeapHashTableSize) {
+    this.offHeapHashTableSize = offHeapHashTableSize;
+  }
+
+  /**
+   * Maximum bytes of every off heap database, zero means the OHC default, 64 MB. OHC does not
+   * evict, a write that does not fit fails.
+   */
+  public long getOffHeapCapacity() {
+    return offHeapCapacity;
+  }
+
+  public void setOffHeapCapacity(long offHeapCapacity) {
+    this.offHeapCapacity = offHeapCapacity;
+  }
+
+  public int getHashMaxListpackEntries() {
+    return hashMaxListpackEntries;
+  }
+
+  public void setHashMaxListpackEntries(int hashMaxListpackEntries) {
+    this.hashMaxListpackEntries = hashMaxListpackEntries;
+  }
+
+  public int getHashMaxListpackValue() {
+    return hashMaxListpackValue;
+  }
+
+  public void setHashMaxListpackValue(int hashMaxListpackValue) {
+    this.hashMaxListpackValue = hashMaxListpackValue;
+  }
+
+  /**
+   * Large hashes keep their fields and values off heap.
+   */
+  public boolean isHashOffHeapActive() {
+    return hashOffHeapActive;
+  }
+
+  public void setHashOffHeapActive(boolean hashOffHeapActive) {
+    this.hashOffHeapActive = hashOffHeapActive;
+  }
+
+  public int getSetMaxIntsetEntries() {
+    return setMaxIntsetEntries;
+  }
+
+  public void setSetMaxIntsetEntries(int setMaxIntsetEntries) {
+    this.setMaxIntsetEntries = setMaxIntsetEntries;
+  }
+
+  public int getZsetMaxListpackEntries() {
+    return zsetMaxListpackEntries;
+  }
+
+  public void setZsetMaxListpackEntries(int zsetMaxListpackEntries) {
+    this.zsetMaxListpackEntries = zsetMaxListpackEntries;
+  }
+
+  public int getZsetMaxListpackValue() {
+    return zsetMaxListpackValue;
+  }
+
+  public void setZsetMaxListpackValue(int zsetMaxListpackValue) {
+    this.zsetMaxListpackValue = zsetMaxListpackValue;
+  }
+
+  /**
+   * Maximum memory in bytes, zero means no limit.
+   */
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  public void setMaxMemory(long maxMemory) {
+    this.maxMemory = maxMemory;
+  }
+
+  public MaxMemoryPolicy getMaxMemoryPolicy() {
+    return maxMemoryPolicy;
+  }
+
+  public void setMaxMemoryPolicy(MaxMemoryPolicy maxMemoryPolicy) {
+    this.maxMemoryPolicy = maxMemoryPolicy;
+  }
+
+  /**
+   * Number of keys sampled to choose every key to evict.
+   */
+  public int getMaxMemorySamples() {
+    return maxMemorySamples;
+  }
+
+  public void setMaxMemorySamples(int maxMemorySamples) {
+    this.maxMemorySamples = maxMemorySamples;
+  }
+
+  /**
+   * Databases with more entries than this are released in the background by FLUSHDB ASYNC
+   * and FLUSHALL ASYNC.
+   */
+  public int getLazyFreeThreshold() {
+    return lazyFreeThreshold;
+  }
+
+  public void setLazyFreeThreshold(int lazyFreeThreshold) {
+    this.lazyFreeThreshold = lazyFreeThreshold;
+  }
+
   public static Builder builder() {
     return new Builder();
   }
@@ -108,11 +393,104 @@ public class DBConfig {
       return this;
     }
 
+    public Builder withBackgroundSave() {
+      config.setBackgroundSaveActive(true);
+      return this;
+    }
+
     public Builder withOffHeapCache() {
       config.setOffHeapActive(true);
       return this;
     }
 
+    public Builder withOffHeapSegments(int segments, int hashTableSize) {
+      config.setOffHeapSegments(segments);
+      config.setOffHeapHashTableSize(hashTableSize);
+      return this;
+    }
+
+    public Builder withOffHeapCapacity(long capacity) {
+      config.setOffHeapCapacity(capacity);
+      return this;
+    }
+
+    public Builder withMappedFiles(String directory) {
+      config.setMappedDirectory(directory);
+      return this;
+    }
+
+    public Builder withTieredStorage(String directory) {
+      config.setTieredDirectory(directory);
+      return this;
+    }
+
+    public Builder withTieredStorage(String directory, long hotMemory) {
+      config.setTieredDirectory(directory);
+      config.setTieredHotMemory(hotMemory);
+      return this;
+    }
+
+    public Builder withPrefixIndex(int... databases) {
+      for (int database : databases) {
+        config.getPrefixIndexDatabases().add(database);
+      }
+      return this;
+    }
+
+    public Builder withConcurrentCache() {
+      config.setConcurrentActive(true);
+      return this;
+    }
+
+    public Builder withoutSharedValues() {
+      config.setSharedValuesActive(false);
+      return this;
+    }
+
+    public Builder withExpireCycle(int periodMillis, int budgetMicros) {
+      config.setExpireCyclePeriod(periodMillis);
+      config.setExpireCycleBudget(budgetMicros);
+      return this;
+    }
+
+    public Builder withHashMaxListpack(int entries, int value) {
+      config.setHashMaxListpackEntries(entries);
+      config.setHashMaxListpackValue(value);
+      return this;
+    }
+
+    public Builder withOffHeapHashes() {
+      config.setHashOffHeapActive(true);
+      return this;
+    }
+
+    public Builder withSetMaxIntsetEntries(int entries) {
+      config.setSetMaxIntsetEntries(entries);
+      return this;
+    }
+
+    public Builder withZsetMaxListpack(int entries, int value) {
+      config.setZsetMaxListpackEntries(entries);
+      config.setZsetMaxListpackValue(value);
+      return this;
+    }
+
+    public Builder withMaxMemory(long maxMemory, MaxMemoryPolicy policy) {
+      config.setMaxMemory(maxMemory);
+      config.setMaxMemoryPolicy(policy);
+      return this;
+    }
+
+    public Builder withMaxMemorySamples(int samples) {
+      config.setMaxMemorySamples(samples);
+      return this;
+    }
+
+    public Builder withLazyFreeThreshold(int entries) {
+      config.setLazyFreeThreshold(entries);
+      return this;
+    }
+
     public Builder withNotifications() {
       config.setNotificationsActive(true);
       return this;
@@ -10,6 +10,7 @@ import java.io.OutputStream;
 import java.time.Instant;
 
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.Snapshot;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.command.ServerContext;
 import com.github.tonivade.resp.protocol.RedisToken;
@@ -23,6 +24,9 @@ public interface DBServerContext extends ServerContext {
   void setMaster(boolean master);
   void importRDB(InputStream input) throws IOException;
   void exportRDB(OutputStream output) throws IOException;
+  Snapshot snapshot();
+  void exportRDB(Snapshot snapshot, OutputStream output) throws IOException;
+  boolean backgroundSave();
   Database getDatabase(int i);
   Database getAdminDatabase();
   void publish(String sourceKey, RedisToken message);
@@ -16,18 +16,28 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseContext;
 import com.github.tonivade.claudb.data.DatabaseFactory;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.Eviction;
+import com.github.tonivade.claudb.data.MaxMemoryPolicy;
+import com.github.tonivade.claudb.data.Snapshot;
 import com.github.tonivade.claudb.persistence.RDBInputStream;
 import com.github.tonivade.claudb.persistence.RDBOutputStream;
+import com.github.tonivade.claudb.persistence.SaveStats;
+import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.purefun.data.ImmutableSet;
@@ -38,6 +48,8 @@ import com.github.tonivade.resp.protocol.SafeString;
 public class DBServerState {
 
   private static final int RDB_VERSION = 6;
+  private static final int EXPIRE_SAMPLE = 20;
+  private static final int EXPIRE_RATIO = 10;
 
   private static final SafeString SLAVES = safeString("slaves");
   private static final DatabaseKey SLAVES_KEY = safeKey("slaves");
@@ -51,6 +63,17 @@ public class DBServerState {
 
   private final Queue<RedisToken> queue = new LinkedList<>();
 
+  private final Map<String, CommandStats> commandStats = new ConcurrentHashMap<>();
+  private final ExpireStats expireStats = new ExpireStats();
+  private final SaveStats saveStats = new SaveStats();
+  private final LongAdder evictedKeys = new LongAdder();
+
+  private int nextDatabase;
+
+  private long maxMemory;
+  private MaxMemoryPolicy maxMemoryPolicy = MaxMemoryPolicy.NOEVICTION;
+  private int maxMemorySamples;
+
   public DBServerState(DatabaseFactory factory, int numDatabases) {
     this.factory = factory;
     this.admin = factory.create("admin");
@@ -79,9 +102,21 @@ public class DBServerState {
     return databases.get(id);
   }
 
+  public int getNumDatabases() {
+    return databases.size();
+  }
+
+  /**
+   * Settings and statistics of the databases of this server.
+   */
+  public DatabaseContext getContext() {
+    return factory.getContext();
+  }
+
   public void clear() {
     databases.clear();
     factory.clear();
+    factory.getContext().close();
   }
 
   public boolean hasSlaves() {
@@ -101,6 +136,34 @@ public class DBServerState {
     rdb.end();
   }
 
+  /**
+   * Takes a snapshot of the databases that is exported later, while the commands keep executing.
+   * Only the time to take it stalls the commands, see {@link Database#capture()} for what every
+   * database copies.
+   */
+  public Snapshot snapshot() {
+    long start = System.nanoTime();
+    Snapshot snapshot = Snapshot.open(factory.getContext());
+    for (int i = 0; i < databases.size(); i++) {
+      Database db = databases.get(i);
+      if (!db.isEmpty()) {
+        snapshot.add(i, db);
+      }
+    }
+    saveStats.stalled(System.nanoTime() - start);
+    return snapshot;
+  }
+
+  public void exportRDB(Snapshot snapshot, OutputStream output) throws IOException {
+    RDBOutputStream rdb = new RDBOutputStream(output);
+    rdb.preamble(RDB_VERSION);
+    for (Map.Entry<Integer, Snapshot.Entries> entry : snapshot.getDatabases().entrySet()) {
+      rdb.select(entry.getKey());
+      rdb.dabatase(entry.getValue());
+    }
+    rdb.end();
+  }
+
   public void importRDB(InputStream input) throws IOException {
     RDBInputStream rdb = new RDBInputStream(input);
 
@@ -112,17 +175,14 @@ public class DBServerState {
 
   public void saveScript(SafeString sha1, SafeString script) {
     DatabaseValue value = hash(entry(sha1, script));
-    admin.merge(SCRIPTS_KEY, value, (oldValue, newValue) -> {
-      Map<SafeString, SafeString> merge = new HashMap<>();
-      merge.putAll(oldValue.getHash().toMap());
-      merge.putAll(newValue.getHash().toMap());
-      return hash(ImmutableMap.from(merge));
-    });
+    admin.merge(SCRIPTS_KEY, value,
+        (oldValue, newValue) -> oldValue.updateHash(scripts -> scripts.putAll(newValue.getHash())));
   }
 
   public Option<SafeString> getScript(SafeString sha1) {
     DatabaseValue value = admin.getOrDefault(SCRIPTS_KEY, EMPTY_HASH);
-    return value.getHash().get(sha1);
+    SafeString script = value.getHash().get(sha1);
+    return script != null ? Option.some(script) : Option.none();
   }
 
   public void cleanScripts() {
@@ -130,17 +190,18 @@ public class DBServerState {
   }
 
   public ImmutableSet<SafeString> getSlaves() {
-    return getAdminDatabase().getSet(SLAVES);
+    // a copy, it's used outside of the server thread
+    return ImmutableSet.from(getAdminDatabase().getSet(SLAVES));
   }
 
   public void addSlave(String id) {
     getAdminDatabase().merge(SLAVES_KEY, set(safeString(id)),
-            (oldValue, newValue) -> set(oldValue.getSet().appendAll(newValue.getSet())));
+            (oldValue, newValue) -> oldValue.updateSet(slaves -> slaves.addAll(newValue.getSet())));
   }
 
   public void removeSlave(String id) {
     getAdminDatabase().merge(SLAVES_KEY, set(safeString(id)),
-            (oldValue, newValue) -> set(oldValue.getSet().difference(newValue.getSet())));
+            (oldValue, newValue) -> oldValue.updateSet(slaves -> slaves.removeAll(newValue.getSet())));
   }
 
   public ImmutableList<RedisToken> getCommandsToReplicate() {
@@ -149,9 +210,125 @@ public class DBServerState {
     return list;
   }
 
+  public void recordCommand(String command, int lookups) {
+    commandStats.computeIfAbsent(command, name -> new CommandStats()).record(lookups);
+  }
+
+  public Map<String, CommandStats> getCommandStats() {
+    return new TreeMap<>(commandStats);
+  }
+
+  public ExpireStats getExpireStats() {
+    return expireStats;
+  }
+
+  public SaveStats getSaveStats() {
+    return saveStats;
+  }
+
+  public void setMaxMemory(long maxMemory, MaxMemoryPolicy policy, int samples) {
+    this.maxMemory = maxMemory;
+    this.maxMemoryPolicy = policy;
+    this.maxMemorySamples = samples;
+  }
+
+  public long getMaxMemory() {
+    return maxMemory;
+  }
+
+  public MaxMemoryPolicy getMaxMemoryPolicy() {
+    return maxMemoryPolicy;
+  }
+
+  public long getEvictedKeys() {
+    return evictedKeys.sum();
+  }
+
+  /**
+   * Returns the memory used by the server.
+   */
+  public long getUsedMemory() {
+    return factory.usedMemory();
+  }
+
+  /**
+   * Returns the estimated memory used by the keys and values of all the databases, from the
+   * running total of the context without the admin database.
+   */
+  public long getUsedMemoryDataset() {
+    return factory.getContext().getUsedMemory() - admin.usedMemory();
+  }
+
   public void evictExpired(Instant now) {
     for (Database database : databases) {
-      database.evictableKeys(now).forEach(database::remove);
+      database.evictExpired(now);
+    }
+  }
+
+  /**
+   * Evicts expired keys in samples until the time budget is spent. A database is sampled
+   * again only while the sample was full and enough of its keys were expired. The next cycle
+   * starts with the database where this one stopped.
+   */
+  public void expireCycle(Instant now, long budgetMicros) {
+    long start = System.nanoTime();
+    long budget = TimeUnit.MICROSECONDS.toNanos(budgetMicros);
+    int scanned = 0;
+    int expired = 0;
+    for (int i = 0; i < databases.size() && System.nanoTime() - start < budget; i++) {
+      Database database = databases.get(nextDatabase);
+      Tuple2<Integer, Integer> sample;
+      do {
+        sample = database.evictExpired(now, EXPIRE_SAMPLE);
+        scanned += sample.get1();
+        expired += sample.get2();
+      } while (sample.get1() == EXPIRE_SAMPLE
+          && sample.get2() * 100 > sample.get1() * EXPIRE_RATIO
+          && System.nanoTime() - start < budget);
+      nextDatabase = (nextDatabase + 1) % databases.size();
+    }
+    expireStats.record(scanned, expired, System.nanoTime() - start);
+  }
+
+  /**
+   * Evicts keys, chosen by the maxmemory policy from a sample of every database, while the
+   * estimated memory used by the databases is over the limit. Every evicted key is given to
+   * evicted with the index of its database, to propagate it. It returns false if the memory
+   * is still over the limit and nothing else can be evicted.
+   */
+  public boolean freeMemory(BiConsumer<Integer, DatabaseKey> evicted) {
+    if (maxMemory <= 0) {
+      return true;
+    }
+    while (getUsedMemoryDataset() > maxMemory) {
+      if (maxMemoryPolicy == MaxMemoryPolicy.NOEVICTION
+          || !evictOne(maxMemoryPolicy, maxMemorySamples, evicted)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean evictOne(MaxMemoryPolicy policy, int samples, BiConsumer<Integer, DatabaseKey> evicted) {
+    int candidate = -1;
+    DatabaseKey candidateKey = null;
+    long candidateScore = Long.MIN_VALUE;
+    for (int i = 0; i < databases.size(); i++) {
+      for (Tuple2<DatabaseKey, DatabaseValue> entry : databases.get(i).sample(samples, policy.isVolatile())) {
+        long score = Eviction.score(policy, entry.get2());
+        if (candidateKey == null || score > candidateScore) {
+          candidate = i;
+          candidateKey = entry.get1();
+          candidateScore = score;
+        }
+      }
+    }
+    if (candidateKey == null) {
+      return false;
     }
+    databases.get(candidate).remove(candidateKey);
+    evictedKeys.increment();
+    evicted.accept(candidate, candidateKey);
+    return true;
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ExpireStats {
+
+  private final LongAdder cycles = new LongAdder();
+  private final LongAdder scanned = new LongAdder();
+  private final LongAdder expired = new LongAdder();
+  private final LongAdder time = new LongAdder();
+
+  private volatile int lastScanned;
+  private volatile int lastExpired;
+  private volatile long lastTime;
+
+  public void record(int scanned, int expired, long timeNanos) {
+    this.cycles.increment();
+    this.scanned.add(scanned);
+    this.expired.add(expired);
+    this.time.add(timeNanos);
+    this.lastScanned = scanned;
+    this.lastExpired = expired;
+    this.lastTime = timeNanos;
+  }
+
+  public long getCycles() {
+    return cycles.sum();
+  }
+
+  public long getScanned() {
+    return scanned.sum();
+  }
+
+  public long getExpired() {
+    return expired.sum();
+  }
+
+  public long getTimeMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(time.sum());
+  }
+
+  public int getLastScanned() {
+    return lastScanned;
+  }
+
+  public int getLastExpired() {
+    return lastExpired;
+  }
+
+  public long getLastTimeMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(lastTime);
+  }
+}
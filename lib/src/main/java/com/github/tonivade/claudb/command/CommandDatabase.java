@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.github.tonivade.claudb.data.DataType;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.ValueView;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database seen by a single command execution. It counts the lookups done by the command
+ * and checks the type of the command key in the same lookup the command does, instead of
+ * doing an extra lookup before the command is executed. If the command touches anything
+ * before reading its own key, the key is checked first, so a command never updates the
+ * database before a {@link WrongTypeException} is thrown.
+ */
+final class CommandDatabase implements Database {
+
+  private final Database db;
+  private final DatabaseKey key;
+  private final DataType type;
+
+  private int lookups;
+  private boolean checked;
+
+  CommandDatabase(Database db, DatabaseKey key, DataType type) {
+    this.db = requireNonNull(db);
+    this.key = key;
+    this.type = type;
+  }
+
+  int getLookups() {
+    return lookups;
+  }
+
+  @Override
+  public int size() {
+    return db.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return db.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    checkFirst(null);
+    lookups++;
+    return db.containsKey(key);
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    checkFirst(key);
+    lookups++;
+    return check(key, db.get(key));
+  }
+
+  @Override
+  public DatabaseValue lookup(SafeString key) {
+    if (type != null && this.key.hasValue(key)) {
+      return get(this.key);
+    }
+    checkFirst(null);
+    lookups++;
+    return db.lookup(key);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    if (!isCommandKey(key)) {
+      checkFirst(key);
+      lookups++;
+      return db.put(key, value);
+    }
+    DatabaseValue[] oldValue = new DatabaseValue[1];
+    compute(key, (k, current) -> {
+      oldValue[0] = current;
+      return value;
+    });
+    return oldValue[0];
+  }
+
+  @Override
+  public void store(DatabaseKey key, DatabaseValue value) {
+    if (isCommandKey(key)) {
+      put(key, value);
+      return;
+    }
+    checkFirst(key);
+    lookups++;
+    db.store(key, value);
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    checkFirst(null);
+    lookups++;
+    return db.remove(key);
+  }
+
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    checkFirst(key);
+    lookups++;
+    return db.compute(key, (k, oldValue) -> remappingFunction.apply(k, check(k, oldValue)));
+  }
+
+  @Override
+  public DatabaseValue merge(DatabaseKey key, DatabaseValue value,
+      BiFunction<DatabaseValue, DatabaseValue, DatabaseValue> remappingFunction) {
+    checkFirst(key);
+    lookups++;
+    return db.merge(key, value, (oldValue, newValue) -> remappingFunction.apply(check(key, oldValue), newValue));
+  }
+
+  @Override
+  public DatabaseValue getOrDefault(DatabaseKey key, DatabaseValue defaultValue) {
+    checkFirst(key);
+    lookups++;
+    return check(key, db.getOrDefault(key, defaultValue));
+  }
+
+  @Override
+  public DatabaseValue putIfAbsent(DatabaseKey key, DatabaseValue value) {
+    checkFirst(key);
+    lookups++;
+    return check(key, db.putIfAbsent(key, value));
+  }
+
+  @Override
+  public <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    checkFirst(key);
+    lookups++;
+    return db.read(key, defaultValue, value -> reader.apply(check(key, value)));
+  }
+
+  @Override
+  public boolean isType(DatabaseKey key, DataType type) {
+    checkFirst(null);
+    lookups++;
+    return db.isType(key, type);
+  }
+
+  @Override
+  public boolean rename(DatabaseKey from, DatabaseKey to) {
+    checkFirst(null);
+    lookups++;
+    return db.rename(from, to);
+  }
+
+  @Override
+  public void clear() {
+    db.clear();
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    return db.keySet();
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    return db.values();
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    return db.entrySet();
+  }
+
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    db.forEach(action);
+  }
+
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return db.scan(cursor, count, action);
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key) {
+    checkFirst(null);
+    lookups++;
+    return db.unlink(key);
+  }
+
+  @Override
+  public void clearLazily() {
+    db.clearLazily();
+  }
+
+  @Override
+  public void forEachWithPrefix(SafeString prefix, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    db.forEachWithPrefix(prefix, action);
+  }
+
+  @Override
+  public long scanWithPrefix(SafeString prefix, long cursor, int count,
+      BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return db.scanWithPrefix(prefix, cursor, count, action);
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> evictableKeys(Instant now) {
+    return db.evictableKeys(now);
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    db.evictExpired(now);
+  }
+
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    return db.evictExpired(now, limit);
+  }
+
+  @Override
+  public long usedMemory() {
+    return db.usedMemory();
+  }
+
+  @Override
+  public Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    checkFirst(null);
+    lookups++;
+    return db.memoryUsage(key, samples);
+  }
+
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    return db.sample(count, onlyVolatile);
+  }
+
+  private <V extends ValueView> V check(DatabaseKey key, V value) {
+    if (isCommandKey(key)) {
+      if (value != null && value.getType() != type) {
+        throw new WrongTypeException();
+      }
+      checked = true;
+    }
+    return value;
+  }
+
+  /**
+   * Checks the command key, unless it is already checked or it is the key about to be read,
+   * that is checked in the same lookup.
+   */
+  private void checkFirst(DatabaseKey next) {
+    if (type == null || checked || isCommandKey(next)) {
+      return;
+    }
+    lookups++;
+    if (!db.isType(key, type)) {
+      throw new WrongTypeException();
+    }
+    checked = true;
+  }
+
+  private boolean isCommandKey(DatabaseKey key) {
+    return type != null && key != null && this.key.equals(key);
+  }
+
+  static final class WrongTypeException extends RuntimeException {
+    private static final long serialVersionUID = -3424311562733557460L;
+  }
+}
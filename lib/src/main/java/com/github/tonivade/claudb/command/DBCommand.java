@@ -50,6 +50,10 @@ public interface DBCommand {
     return DBResponse.convertValue(value);
   }
 
+  default RedisToken convert(long value) {
+    return DBResponse.convertInteger(value);
+  }
+
   default RedisToken convert(Collection<?> list) {
     return DBResponse.convertArray(list);
   }
@@ -9,6 +9,7 @@ import static java.util.Arrays.asList;
 import java.util.HashSet;
 import java.util.Set;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.command.bitset.BitCountCommand;
 import com.github.tonivade.claudb.command.bitset.GetBitCommand;
@@ -22,6 +23,7 @@ import com.github.tonivade.claudb.command.hash.HashLengthCommand;
 import com.github.tonivade.claudb.command.hash.HashMultiGetCommand;
 import com.github.tonivade.claudb.command.hash.HashMultiSetCommand;
 import com.github.tonivade.claudb.command.hash.HashSetCommand;
+import com.github.tonivade.claudb.command.hash.HashScanCommand;
 import com.github.tonivade.claudb.command.hash.HashValuesCommand;
 import com.github.tonivade.claudb.command.key.DeleteCommand;
 import com.github.tonivade.claudb.command.key.ExistsCommand;
@@ -29,9 +31,11 @@ import com.github.tonivade.claudb.command.key.ExpireCommand;
 import com.github.tonivade.claudb.command.key.KeysCommand;
 import com.github.tonivade.claudb.command.key.PersistCommand;
 import com.github.tonivade.claudb.command.key.RenameCommand;
+import com.github.tonivade.claudb.command.key.ScanCommand;
 import com.github.tonivade.claudb.command.key.TimeToLiveMillisCommand;
 import com.github.tonivade.claudb.command.key.TimeToLiveSecondsCommand;
 import com.github.tonivade.claudb.command.key.TypeCommand;
+import com.github.tonivade.claudb.command.key.UnlinkCommand;
 import com.github.tonivade.claudb.command.list.LeftPopCommand;
 import com.github.tonivade.claudb.command.list.LeftPushCommand;
 import com.github.tonivade.claudb.command.list.ListIndexCommand;
@@ -48,9 +52,13 @@ import com.github.tonivade.claudb.command.pubsub.UnsubscribeCommand;
 import com.github.tonivade.claudb.command.scripting.EvalCommand;
 import com.github.tonivade.claudb.command.scripting.EvalShaCommand;
 import com.github.tonivade.claudb.command.scripting.ScriptCommands;
+import com.github.tonivade.claudb.command.server.BackgroundSaveCommand;
 import com.github.tonivade.claudb.command.server.DatabaseSizeCommand;
+import com.github.tonivade.claudb.command.server.FlushAllCommand;
 import com.github.tonivade.claudb.command.server.FlushDBCommand;
 import com.github.tonivade.claudb.command.server.InfoCommand;
+import com.github.tonivade.claudb.command.server.LastSaveCommand;
+import com.github.tonivade.claudb.command.server.MemoryCommand;
 import com.github.tonivade.claudb.command.server.RoleCommand;
 import com.github.tonivade.claudb.command.server.SelectCommand;
 import com.github.tonivade.claudb.command.server.SlaveOfCommand;
@@ -62,6 +70,7 @@ import com.github.tonivade.claudb.command.set.SetIntersectionCommand;
 import com.github.tonivade.claudb.command.set.SetIsMemberCommand;
 import com.github.tonivade.claudb.command.set.SetMembersCommand;
 import com.github.tonivade.claudb.command.set.SetRemoveCommand;
+import com.github.tonivade.claudb.command.set.SetScanCommand;
 import com.github.tonivade.claudb.command.set.SetUnionCommand;
 import com.github.tonivade.claudb.command.string.DecrementByCommand;
 import com.github.tonivade.claudb.command.string.DecrementCommand;
@@ -85,6 +94,7 @@ import com.github.tonivade.claudb.command.zset.SortedSetIncrementByCommand;
 import com.github.tonivade.claudb.command.zset.SortedSetRangeByScoreCommand;
 import com.github.tonivade.claudb.command.zset.SortedSetRangeCommand;
 import com.github.tonivade.claudb.command.zset.SortedSetRemoveCommand;
+import com.github.tonivade.claudb.command.zset.SortedSetScanCommand;
 import com.github.tonivade.claudb.command.zset.SortedSetReverseRangeCommand;
 import com.github.tonivade.resp.command.CommandSuite;
 
@@ -101,9 +111,13 @@ public class DBCommandSuite extends CommandSuite {
 
     // server
     addCommand(FlushDBCommand::new);
+    addCommand(FlushAllCommand::new);
     addCommand(InfoCommand::new);
+    addCommand(MemoryCommand::new);
     addCommand(RoleCommand::new);
     addCommand(DatabaseSizeCommand::new);
+    addCommand(BackgroundSaveCommand::new);
+    addCommand(LastSaveCommand::new);
 
     // strings
     addCommand(GetCommand::new);
@@ -125,10 +139,12 @@ public class DBCommandSuite extends CommandSuite {
 
     // keys
     addCommand(DeleteCommand::new);
+    addCommand(UnlinkCommand::new);
     addCommand(ExistsCommand::new);
     addCommand(TypeCommand::new);
     addCommand(RenameCommand::new);
     addCommand(KeysCommand::new);
+    addCommand(ScanCommand::new);
     addCommand(ExpireCommand::new);
     addCommand(PersistCommand::new);
     addCommand(TimeToLiveMillisCommand::new);
@@ -141,6 +157,7 @@ public class DBCommandSuite extends CommandSuite {
     addCommand(HashExistsCommand::new);
     addCommand(HashDeleteCommand::new);
     addCommand(HashKeysCommand::new);
+    addCommand(HashScanCommand::new);
     addCommand(HashLengthCommand::new);
     addCommand(HashMultiGetCommand::new);
     addCommand(HashMultiSetCommand::new);
@@ -159,6 +176,7 @@ public class DBCommandSuite extends CommandSuite {
     // set
     addCommand(SetAddCommand::new);
     addCommand(SetMembersCommand::new);
+    addCommand(SetScanCommand::new);
     addCommand(SetCardinalityCommand::new);
     addCommand(SetIsMemberCommand::new);
     addCommand(SetRemoveCommand::new);
@@ -171,6 +189,7 @@ public class DBCommandSuite extends CommandSuite {
     addCommand(SortedSetCardinalityCommand::new);
     addCommand(SortedSetRemoveCommand::new);
     addCommand(SortedSetRangeCommand::new);
+    addCommand(SortedSetScanCommand::new);
     addCommand(SortedSetRangeByScoreCommand::new);
     addCommand(SortedSetReverseRangeCommand::new);
     addCommand(SortedSetIncrementByCommand::new);
@@ -196,4 +215,8 @@ public class DBCommandSuite extends CommandSuite {
   public boolean isReadOnly(String command) {
     return COMMAND_BLACK_LIST.contains(command) || isPresent(command, ReadOnly.class);
   }
+
+  public boolean isDenyOom(String command) {
+    return isPresent(command, DenyOom.class);
+  }
 }
@@ -17,7 +17,9 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.command.annotation.TxIgnore;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.command.RespCommand;
@@ -36,9 +38,12 @@ public class DBCommandWrapper implements RespCommand {
   private final boolean readOnly;
 
   private final Object command;
+  private final String name;
 
   public DBCommandWrapper(Object command) {
     this.command = command;
+    Command name = command.getClass().getAnnotation(Command.class);
+    this.name = name != null ? name.value() : command.getClass().getSimpleName();
     ParamLength length = command.getClass().getAnnotation(ParamLength.class);
     if (length != null) {
       this.params = length.value();
@@ -66,12 +71,10 @@ public class DBCommandWrapper implements RespCommand {
 
   @Override
   public RedisToken execute(Request request) {
-    // FIXME: ugly piece of code, please refactor
     Database db = getCurrentDB(request);
+    // FIXME: ugly piece of code, please refactor
     if (request.getLength() < params) {
       return error("ERR wrong number of arguments for '" + request.getCommand() + "' command");
-    } else if (dataType != null && !db.isType(safeKey(request.getParam(0)), dataType)) {
-      return error("WRONGTYPE Operation against a key holding the wrong kind of value");
     } else if (isSubscribed(request) && !pubSubAllowed) {
       return error("ERR only (P)SUBSCRIBE / (P)UNSUBSCRIBE / QUIT allowed in this context");
     } else if (isTxActive(request) && !txIgnore) {
@@ -91,7 +94,22 @@ public class DBCommandWrapper implements RespCommand {
   }
 
   private RedisToken executeDBCommand(Database db, Request request) {
-    return ((DBCommand) command).execute(db, request);
+    CommandDatabase commandDB = new CommandDatabase(db, commandKey(request), dataType);
+    try {
+      return ((DBCommand) command).execute(commandDB, request);
+    } catch (CommandDatabase.WrongTypeException e) {
+      return wrongType();
+    } finally {
+      getServerState(request.getServerContext()).recordCommand(name, commandDB.getLookups());
+    }
+  }
+
+  private DatabaseKey commandKey(Request request) {
+    return dataType != null ? safeKey(request.getParam(0)) : null;
+  }
+
+  private RedisToken wrongType() {
+    return error("WRONGTYPE Operation against a key holding the wrong kind of value");
   }
 
   private void enqueueRequest(Request request) {
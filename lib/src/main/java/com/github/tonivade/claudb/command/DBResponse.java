@@ -10,15 +10,15 @@ import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static java.util.stream.Collectors.toList;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
+import java.util.Set;
 import java.util.stream.Stream;
 
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.Pattern1;
-import com.github.tonivade.purefun.data.ImmutableList;
-import com.github.tonivade.purefun.data.ImmutableMap;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 
@@ -31,14 +31,14 @@ class DBResponse {
           SafeString string = value.getString();
           return RedisToken.string(string);
       case HASH:
-          ImmutableMap<SafeString, SafeString> map = value.getHash();
-          return array(keyValueList(map).toList());
+          Map<SafeString, SafeString> map = value.getHash();
+          return array(keyValueList(map));
       case LIST:
-          ImmutableList<SafeString> list = value.getList();
-          return convertArray(list.toList());
+          List<SafeString> list = value.getList();
+          return convertArray(list);
       case SET:
-          ImmutableSet<SafeString> set = value.getSet();
-          return convertArray(set.toSet());
+          Set<SafeString> set = value.getSet();
+          return convertArray(set);
       case ZSET:
           NavigableSet<Entry<Double, SafeString>> zset = value.getSortedSet();
           return convertArray(serialize(zset));
@@ -49,6 +49,14 @@ class DBResponse {
     return RedisToken.nullString();
   }
 
+  /**
+   * The integer token of resp-server 0.20.0 holds an int, so the commands that can produce a
+   * bigger value, like INCR, must refuse it before it is stored.
+   */
+  static RedisToken convertInteger(long value) {
+    return RedisToken.integer(Math.toIntExact(value));
+  }
+
   static RedisToken convertArray(Collection<?> array) {
     if (array == null) {
       return RedisToken.array();
@@ -77,10 +85,10 @@ class DBResponse {
         .apply(value);
   }
 
-  private static ImmutableList<RedisToken> keyValueList(ImmutableMap<SafeString, SafeString> map) {
-    return ImmutableList.from(map.entries().stream()
-        .flatMap(entry -> Stream.of(entry.get1(), entry.get2()))
-        .map(RedisToken::string));
+  private static List<RedisToken> keyValueList(Map<SafeString, SafeString> map) {
+    return map.entrySet().stream()
+        .flatMap(entry -> Stream.of(entry.getKey(), entry.getValue()))
+        .map(RedisToken::string).collect(toList());
   }
 
   private static Collection<?> serialize(NavigableSet<Entry<Double, SafeString>> set) {
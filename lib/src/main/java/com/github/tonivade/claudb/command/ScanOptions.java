@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command;
+
+import static com.github.tonivade.purefun.Matcher1.instanceOf;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.tonivade.claudb.data.DataType;
+import com.github.tonivade.claudb.glob.GlobPattern;
+import com.github.tonivade.purefun.Pattern1;
+import com.github.tonivade.purefun.type.Try;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Cursor and options of the SCAN family of commands: MATCH pattern, COUNT count and, only
+ * for SCAN, TYPE type. The reply is the cursor of the next call and the items found.
+ */
+public final class ScanOptions {
+
+  private static final int DEFAULT_COUNT = 10;
+
+  private final long cursor;
+  private int count = DEFAULT_COUNT;
+  private GlobPattern pattern;
+  private String type;
+
+  private ScanOptions(long cursor) {
+    this.cursor = cursor;
+  }
+
+  public long cursor() {
+    return cursor;
+  }
+
+  public int count() {
+    return count;
+  }
+
+  public boolean match(SafeString value) {
+    return pattern == null || pattern.match(value);
+  }
+
+  /**
+   * Literal prefix of the MATCH pattern, empty if there is no pattern.
+   */
+  public SafeString prefix() {
+    return pattern != null ? pattern.prefix() : SafeString.EMPTY_STRING;
+  }
+
+  public boolean match(DataType dataType) {
+    return type == null || type.equalsIgnoreCase(dataType.text());
+  }
+
+  /**
+   * Parses the cursor in the param at index and the options after it, the scanner adds the
+   * items to the list and returns the next cursor.
+   */
+  public static RedisToken scan(Request request, int index, boolean withType, Scanner scanner) {
+    return Try.of(() -> parse(request, index, withType))
+        .map(options -> reply(options, scanner))
+        .recover(ScanOptions::onFailure)
+        .get();
+  }
+
+  private static RedisToken reply(ScanOptions options, Scanner scanner) {
+    List<Object> items = new ArrayList<>();
+    long next = scanner.scan(options, items);
+    return array(RedisToken.string(Long.toUnsignedString(next)), DBResponse.convertArray(items));
+  }
+
+  private static ScanOptions parse(Request request, int index, boolean withType) {
+    ScanOptions options = new ScanOptions(parseCursor(request.getParam(index)));
+    for (int i = index + 1; i < request.getLength(); i++) {
+      SafeString option = request.getParam(i);
+      if (i + 1 == request.getLength()) {
+        throw new SyntaxException();
+      }
+      if (match("MATCH", option)) {
+        options.pattern = GlobPattern.compile(request.getParam(++i));
+      } else if (match("COUNT", option)) {
+        options.count = Integer.parseInt(request.getParam(++i).toString());
+        if (options.count < 1) {
+          throw new SyntaxException();
+        }
+      } else if (withType && match("TYPE", option)) {
+        options.type = request.getParam(++i).toString();
+      } else {
+        throw new SyntaxException();
+      }
+    }
+    return options;
+  }
+
+  private static long parseCursor(SafeString param) {
+    try {
+      return Long.parseUnsignedLong(param.toString());
+    } catch (NumberFormatException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  private static boolean match(String string, SafeString option) {
+    return string.equalsIgnoreCase(option.toString());
+  }
+
+  private static RedisToken onFailure(Throwable e) {
+    return Pattern1.<Throwable, RedisToken>build()
+        .when(instanceOf(SyntaxException.class))
+          .returns(error("syntax error"))
+        .when(instanceOf(InvalidCursorException.class))
+          .returns(error("invalid cursor"))
+        .when(instanceOf(NumberFormatException.class))
+          .returns(error("value is not an integer or out of range"))
+        .otherwise()
+          .returns(error("error: " + e.getMessage()))
+        .apply(e);
+  }
+
+  @FunctionalInterface
+  public interface Scanner {
+    long scan(ScanOptions options, List<Object> items);
+  }
+
+  private static class SyntaxException extends RuntimeException {
+    private static final long serialVersionUID = -2917422471306398263L;
+  }
+
+  private static class InvalidCursorException extends RuntimeException {
+    private static final long serialVersionUID = 4385109263845728109L;
+  }
+}
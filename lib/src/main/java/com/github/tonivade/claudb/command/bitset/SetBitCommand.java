@@ -13,6 +13,7 @@ import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.Queue;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -25,6 +26,7 @@ import com.github.tonivade.claudb.data.Database;
 @Command("setbit")
 @ParamLength(3)
 @ParamType(DataType.STRING)
+@DenyOom
 public class SetBitCommand implements DBCommand {
 
   @Override
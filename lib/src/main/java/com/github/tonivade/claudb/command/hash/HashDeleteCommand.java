@@ -15,9 +15,7 @@ import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
-import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -34,14 +32,13 @@ public class HashDeleteCommand implements DBCommand {
     ImmutableList<SafeString> keys = request.getParams().asList().tail();
 
     List<SafeString> removedKeys = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_HASH, (oldValue, newValue) -> {
-      ImmutableMap<SafeString, SafeString> merge = oldValue.getHash();
-      for (SafeString key : keys) {
-        merge.get(key).stream().forEach(removedKeys::add);
-        merge = merge.remove(key);
+    db.computeIfPresent(safeKey(request.getParam(0)), (key, oldValue) -> oldValue.updateHash(hash -> {
+      for (SafeString field : keys) {
+        if (hash.remove(field) != null) {
+          removedKeys.add(field);
+        }
       }
-      return hash(merge);
-    });
+    }));
 
     return integer(!removedKeys.isEmpty());
   }
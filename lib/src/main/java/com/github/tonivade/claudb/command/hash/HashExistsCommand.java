@@ -4,6 +4,7 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
 import com.github.tonivade.claudb.command.DBCommand;
@@ -11,12 +12,11 @@ import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableMap;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.resp.protocol.SafeString;
 
 @ReadOnly
 @Command("hexists")
@@ -26,7 +26,8 @@ public class HashExistsCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
-    return integer(map.containsKey(request.getParam(1)));
+    boolean exists = db.read(safeKey(request.getParam(0)), DatabaseValue.EMPTY_HASH,
+        hash -> hash.getHashField(request.getParam(1)) != null);
+    return integer(exists);
   }
 }
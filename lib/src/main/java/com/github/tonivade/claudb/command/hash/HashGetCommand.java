@@ -4,12 +4,16 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.nullString;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableMap;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -24,9 +28,8 @@ public class HashGetCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
-    return map.get(request.getParam(1))
-        .map(RedisToken::string)
-        .getOrElse(RedisToken::nullString);
+    SafeString value = db.read(safeKey(request.getParam(0)), DatabaseValue.EMPTY_HASH,
+        hash -> hash.getHashField(request.getParam(1)));
+    return value != null ? string(value) : nullString();
   }
 }
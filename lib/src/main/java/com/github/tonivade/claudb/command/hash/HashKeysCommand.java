@@ -4,12 +4,13 @@
  */
 package com.github.tonivade.claudb.command.hash;
 
+import java.util.Map;
+
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -24,7 +25,7 @@ public class HashKeysCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    ImmutableMap<SafeString, SafeString> map = db.getHash(request.getParam(0));
-    return convert(map.keys());
+    Map<SafeString, SafeString> map = db.getHash(request.getParam(0));
+    return convert(map.keySet());
   }
 }
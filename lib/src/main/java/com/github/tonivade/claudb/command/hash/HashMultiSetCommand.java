@@ -5,19 +5,19 @@
 package com.github.tonivade.claudb.command.hash;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableMap;
+import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.entry;
@@ -27,29 +27,20 @@ import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 @Command("hmset")
 @ParamLength(3)
 @ParamType(DataType.HASH)
+@DenyOom
 public class HashMultiSetCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
 
+    List<Tuple2<SafeString, SafeString>> entries = new ArrayList<>();
     for (int paramNumber = 1; paramNumber < request.getParams().size(); paramNumber += 2) {
-
-      SafeString mapKey = request.getParam(paramNumber);
-      SafeString mapVal = request.getParam(paramNumber + 1);
-
-      DatabaseValue value = hash(entry(mapKey, mapVal));
-
-      db.merge(safeKey(request.getParam(0)), value,
-          (oldValue, newValue) -> {
-            Map<SafeString, SafeString> merge = new HashMap<>();
-            merge.putAll(oldValue.getHash().toMap());
-            merge.putAll(newValue.getHash().toMap());
-            return hash(ImmutableMap.from(merge));
-          }
-      );
-
+      entries.add(entry(request.getParam(paramNumber), request.getParam(paramNumber + 1)));
     }
 
+    db.merge(safeKey(request.getParam(0)), hash(entries),
+        (oldValue, newValue) -> oldValue.updateHash(hash -> hash.putAll(newValue.getHash())));
+
     return responseOk();
   }
 }
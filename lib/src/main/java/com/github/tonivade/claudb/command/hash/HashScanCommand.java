@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.hash;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.ScanOptions;
+import com.github.tonivade.claudb.command.annotation.ParamType;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.DataType;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("hscan")
+@ParamLength(2)
+@ParamType(DataType.HASH)
+public class HashScanCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    DatabaseKey key = safeKey(request.getParam(0));
+    return ScanOptions.scan(request, 1, false, (options, items) ->
+      db.read(key, DatabaseValue.EMPTY_HASH, value -> value.scanHash(options.cursor(), options.count(),
+          (field, fieldValue) -> {
+        if (options.match(field)) {
+          items.add(field);
+          items.add(fieldValue);
+        }
+      })));
+  }
+}
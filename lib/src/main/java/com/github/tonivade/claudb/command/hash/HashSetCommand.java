@@ -9,15 +9,15 @@ import static com.github.tonivade.claudb.data.DatabaseValue.entry;
 import static com.github.tonivade.claudb.data.DatabaseValue.hash;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.LinkedList;
+import java.util.List;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -27,22 +27,22 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("hset")
 @ParamLength(3)
 @ParamType(DataType.HASH)
+@DenyOom
 public class HashSetCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     DatabaseValue value = hash(entry(request.getParam(1), request.getParam(2)));
 
-    DatabaseValue resultValue = db.merge(safeKey(request.getParam(0)), value,
-        (oldValue, newValue) -> {
-          Map<SafeString, SafeString> merge = new HashMap<>();
-          merge.putAll(oldValue.getHash().toMap());
-          merge.putAll(newValue.getHash().toMap());
-          return hash(ImmutableMap.from(merge));
-        });
+    List<SafeString> previous = new LinkedList<>();
+    db.merge(safeKey(request.getParam(0)), value,
+        (oldValue, newValue) -> oldValue.updateHash(hash -> {
+          SafeString oldField = hash.put(request.getParam(1), request.getParam(2));
+          if (oldField != null) {
+            previous.add(oldField);
+          }
+        }));
 
-    ImmutableMap<SafeString, SafeString> resultMap = resultValue.getHash();
-
-    return integer(resultMap.get(request.getParam(1)) == null);
+    return integer(previous.isEmpty());
   }
 }
@@ -13,7 +13,6 @@ import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
 import com.github.tonivade.claudb.command.DBCommand;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
 
 @Command("del")
@@ -24,8 +23,7 @@ public class DeleteCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     int removed = 0;
     for (SafeString key : request.getParams()) {
-      DatabaseValue value = db.remove(safeKey(key));
-      if (value != null) {
+      if (db.unlink(safeKey(key))) {
         removed += 1;
       }
     }
@@ -4,17 +4,14 @@
  */
 package com.github.tonivade.claudb.command.key;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.CoarseClock;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseKey;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.glob.GlobPattern;
-import com.github.tonivade.purefun.Matcher1;
-import com.github.tonivade.purefun.Tuple2;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -29,23 +26,17 @@ public class KeysCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     GlobPattern pattern = createPattern(request.getParam(0));
-    ImmutableSet<SafeString> keys = db.entrySet()
-        .filter(matchPattern(pattern))
-        .filter(filterExpired(Instant.now()).negate())
-        .map(Tuple2::get1)
-        .map(DatabaseKey::getValue);
+    long now = CoarseClock.millis();
+    List<SafeString> keys = new ArrayList<>();
+    db.forEachWithPrefix(pattern.prefix(), (key, value) -> {
+      if (!value.isExpired(now) && pattern.match(key.getValue())) {
+        keys.add(key.getValue());
+      }
+    });
     return convert(keys);
   }
 
   private GlobPattern createPattern(SafeString param) {
-    return new GlobPattern(param.toString());
-  }
-
-  private Matcher1<Tuple2<DatabaseKey, DatabaseValue>> filterExpired(Instant now) {
-    return entry -> entry.get2().isExpired(now);
-  }
-
-  private Matcher1<Tuple2<DatabaseKey, DatabaseValue>> matchPattern(GlobPattern pattern) {
-    return entry -> pattern.match(entry.get1().toString());
+    return GlobPattern.compile(param);
   }
 }
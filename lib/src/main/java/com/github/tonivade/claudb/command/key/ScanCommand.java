@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.ScanOptions;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.CoarseClock;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("scan")
+@ParamLength(1)
+public class ScanCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    long now = CoarseClock.millis();
+    return ScanOptions.scan(request, 0, true, (options, keys) ->
+      db.scanWithPrefix(options.prefix(), options.cursor(), options.count(), (key, value) -> {
+        if (!value.isExpired(now) && options.match(value.getType()) && options.match(key.getValue())) {
+          keys.add(key.getValue());
+        }
+      }));
+  }
+}
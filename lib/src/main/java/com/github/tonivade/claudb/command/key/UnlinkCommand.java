@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.resp.protocol.RedisToken.integer;
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.data.Database;
+
+@Command("unlink")
+@ParamLength(1)
+public class UnlinkCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    int removed = 0;
+    for (SafeString key : request.getParams()) {
+      if (db.unlink(safeKey(key))) {
+        removed += 1;
+      }
+    }
+    return integer(removed);
+  }
+}
@@ -8,6 +8,7 @@ import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.list;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
@@ -22,6 +23,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("lpush")
 @ParamLength(2)
 @ParamType(DataType.LIST)
+@DenyOom
 public class LeftPushCommand implements DBCommand {
 
   @Override
@@ -29,7 +31,7 @@ public class LeftPushCommand implements DBCommand {
     ImmutableList<SafeString> values = request.getParams().asList().tail().reverse();
 
     DatabaseValue result = db.merge(safeKey(request.getParam(0)), list(values),
-        (oldValue, newValue) -> list(newValue.getList().appendAll(oldValue.getList())));
+        (oldValue, newValue) -> oldValue.updateList(list -> list.addAll(0, newValue.getList())));
 
     return RedisToken.integer(result.size());
   }
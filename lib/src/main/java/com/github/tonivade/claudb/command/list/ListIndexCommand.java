@@ -4,6 +4,7 @@
  */
 package com.github.tonivade.claudb.command.list;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
@@ -13,7 +14,7 @@ import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -29,19 +30,14 @@ public class ListIndexCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      ImmutableList<SafeString> list = db.getList(request.getParam(0));
-
       int index = Integer.parseInt(request.getParam(1).toString());
-      if (index < 0) {
-        index = list.size() + index;
-      }
 
-      // TODO: fix asArray
-      return string(list.asArray().get(index));
+      SafeString value = db.read(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST,
+          list -> list.getListElement(index < 0 ? list.size() + index : index));
+
+      return value != null ? string(value) : nullString();
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
-    } catch (IndexOutOfBoundsException e) {
-      return nullString();
     }
   }
 }
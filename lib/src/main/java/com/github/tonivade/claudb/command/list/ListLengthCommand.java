@@ -4,6 +4,7 @@
  */
 package com.github.tonivade.claudb.command.list;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
 import com.github.tonivade.claudb.command.DBCommand;
@@ -11,12 +12,12 @@ import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.ValueView;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.resp.protocol.SafeString;
 
 @ReadOnly
 @Command("llen")
@@ -26,7 +27,6 @@ public class ListLengthCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    ImmutableList<SafeString> list = db.getList(request.getParam(0));
-    return integer(list.size());
+    return integer(db.read(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST, ValueView::size));
   }
 }
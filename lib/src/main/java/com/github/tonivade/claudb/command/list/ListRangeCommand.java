@@ -6,6 +6,9 @@ package com.github.tonivade.claudb.command.list;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static java.util.Collections.emptyList;
+
+import java.util.List;
 
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
@@ -13,7 +16,6 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -30,7 +32,7 @@ public class ListRangeCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     try {
       DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST);
-      ImmutableList<SafeString> list = value.getList();
+      List<SafeString> list = value.getList();
 
       int from = Integer.parseInt(request.getParam(1).toString());
       if (from < 0) {
@@ -41,13 +43,13 @@ public class ListRangeCommand implements DBCommand {
         to = list.size() + to;
       }
 
-      int min = Math.min(from, to);
-      int max = Math.max(from, to);
-
-      // TODO: use Array
-      ImmutableList<SafeString> result = ImmutableList.from(list.stream().skip(min).limit((max - min) + 1));
+      int min = Math.max(Math.min(from, to), 0);
+      int max = Math.min(Math.max(from, to) + 1, list.size());
 
-      return convert(result);
+      if (min >= max) {
+        return convert(emptyList());
+      }
+      return convert(list.subList(min, max));
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
     }
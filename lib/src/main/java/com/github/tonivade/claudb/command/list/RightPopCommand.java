@@ -16,8 +16,6 @@ import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -32,12 +30,12 @@ public class RightPopCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_LIST,
-        (oldValue, newValue) -> {
-          ImmutableList<SafeString> list = oldValue.getList();
-          list.reverse().head().stream().forEach(removed::add);
-          return list(list.reverse().tail().reverse());
-        });
+    db.computeIfPresent(safeKey(request.getParam(0)),
+        (key, oldValue) -> oldValue.updateList(list -> {
+          if (!list.isEmpty()) {
+            removed.add(list.remove(list.size() - 1));
+          }
+        }));
 
     if (removed.isEmpty()) {
       return nullString();
@@ -9,6 +9,7 @@ import static com.github.tonivade.claudb.data.DatabaseValue.list;
 import static com.github.tonivade.resp.protocol.RedisToken.integer;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
@@ -23,6 +24,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("rpush")
 @ParamLength(2)
 @ParamType(DataType.LIST)
+@DenyOom
 public class RightPushCommand implements DBCommand {
 
   @Override
@@ -30,7 +32,7 @@ public class RightPushCommand implements DBCommand {
     ImmutableList<SafeString> values = request.getParams().asList().tail();
 
     DatabaseValue result = db.merge(safeKey(request.getParam(0)), list(values),
-        (oldValue, newValue) -> list(oldValue.getList().appendAll(newValue.getList())));
+        (oldValue, newValue) -> oldValue.updateList(list -> list.addAll(newValue.getList())));
 
     return integer(result.size());
   }
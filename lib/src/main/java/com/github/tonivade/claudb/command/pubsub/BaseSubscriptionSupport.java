@@ -10,6 +10,7 @@ import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.resp.protocol.SafeString;
@@ -18,12 +19,15 @@ public interface BaseSubscriptionSupport {
 
   default void addSubscription(String suffix, Database admin, String sessionId, SafeString channel) {
     admin.merge(safeKey(suffix + channel), set(safeString(sessionId)),
-        (oldValue, newValue) -> set(oldValue.getSet().appendAll(newValue.getSet())));
+        (oldValue, newValue) -> oldValue.updateSet(set -> set.addAll(newValue.getSet())));
   }
 
   default void removeSubscription(String suffix, Database admin, String sessionId, SafeString channel) {
       admin.merge(safeKey(suffix + channel), set(safeString(sessionId)),
-        (oldValue, newValue) -> set(oldValue.getSet().removeAll(newValue.getSet())));
+        (oldValue, newValue) -> {
+          DatabaseValue result = oldValue.updateSet(set -> set.removeAll(newValue.getSet()));
+          return result != null ? result : DatabaseValue.EMPTY_SET;
+        });
   }
 
   default int publish(DBServerContext server, ImmutableSet<SafeString> clients, RedisToken message) {
@@ -6,6 +6,7 @@ package com.github.tonivade.claudb.command.pubsub;
 
 import static com.github.tonivade.resp.protocol.RedisToken.array;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.data.Database;
@@ -50,7 +51,7 @@ public interface PatternSubscriptionSupport extends BaseSubscriptionSupport {
   }
 
   static Tuple2<String, ImmutableSet<SafeString>> toPatternEntry(Tuple2<DatabaseKey, DatabaseValue> entry) {
-    return entry.map(PatternSubscriptionSupport::toPattern, DatabaseValue::getSet);
+    return entry.map(PatternSubscriptionSupport::toPattern, value -> ImmutableSet.from(value.getSet()));
   }
 
   static String toPattern(DatabaseKey key) {
@@ -66,6 +67,7 @@ public interface PatternSubscriptionSupport extends BaseSubscriptionSupport {
   }
 
   static Matcher1<Tuple2<String, ImmutableSet<SafeString>>> subscriptionApplyTo(String channel) {
-    return entry -> new GlobPattern(entry.get1()).match(channel);
+    SafeString value = safeString(channel);
+    return entry -> GlobPattern.compile(entry.get1()).match(value);
   }
 }
@@ -46,7 +46,7 @@ public interface SubscriptionSupport extends BaseSubscriptionSupport {
   }
 
   static Tuple2<String, ImmutableSet<SafeString>> toEntry(Tuple2<DatabaseKey, DatabaseValue> entry) {
-    return Tuple.of(toChannel(entry.get1()), entry.get2().getSet());
+    return Tuple.of(toChannel(entry.get1()), ImmutableSet.from(entry.get2().getSet()));
   }
 
   static String toChannel(DatabaseKey key) {
@@ -4,6 +4,7 @@
  */
 package com.github.tonivade.claudb.command.scripting;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -12,6 +13,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 
 @Command("eval")
 @ParamLength(2)
+@DenyOom
 public class EvalCommand extends AbstractEvalCommand {
 
   @Override
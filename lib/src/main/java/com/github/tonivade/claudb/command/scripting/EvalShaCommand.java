@@ -5,6 +5,7 @@
 package com.github.tonivade.claudb.command.scripting;
 
 import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -13,6 +14,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 
 @Command("evalsha")
 @ParamLength(2)
+@DenyOom
 public class EvalShaCommand extends AbstractEvalCommand {
 
   @Override
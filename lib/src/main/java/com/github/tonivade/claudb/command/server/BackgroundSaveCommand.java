@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.status;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("bgsave")
+public class BackgroundSaveCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    if (getServerState(request.getServerContext()).getSaveStats().isInProgress()) {
+      return error("Background save already in progress");
+    }
+    if (!getClauDB(request.getServerContext()).backgroundSave()) {
+      return error("persistence is not active");
+    }
+    return status("Background saving started");
+  }
+}
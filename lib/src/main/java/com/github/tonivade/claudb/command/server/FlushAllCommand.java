@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.command.server.FlushDBCommand.parseAsync;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
+
+import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@Command("flushall")
+public class FlushAllCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    Option<Boolean> async = parseAsync(request);
+    if (async.isEmpty()) {
+      return error("syntax error");
+    }
+    DBServerState state = getServerState(request.getServerContext());
+    for (int i = 0; i < state.getNumDatabases(); i++) {
+      if (async.get()) {
+        state.getDatabase(i).clearLazily();
+      } else {
+        state.getDatabase(i).clear();
+      }
+    }
+    return responseOk();
+  }
+}
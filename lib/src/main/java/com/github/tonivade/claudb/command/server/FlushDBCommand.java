@@ -5,6 +5,7 @@
 
 package com.github.tonivade.claudb.command.server;
 
+import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 
 import com.github.tonivade.resp.annotation.Command;
@@ -12,13 +13,41 @@ import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.purefun.type.Option;
 
 @Command("flushdb")
 public class FlushDBCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    db.clear();
+    Option<Boolean> async = parseAsync(request);
+    if (async.isEmpty()) {
+      return error("syntax error");
+    }
+    if (async.get()) {
+      db.clearLazily();
+    } else {
+      db.clear();
+    }
     return responseOk();
   }
+
+  /**
+   * ASYNC releases the memory of the entries in the background, SYNC or nothing at once.
+   */
+  static Option<Boolean> parseAsync(Request request) {
+    if (request.getLength() == 0) {
+      return Option.some(false);
+    }
+    if (request.getLength() == 1) {
+      String mode = request.getParam(0).toString();
+      if (mode.equalsIgnoreCase("async")) {
+        return Option.some(true);
+      }
+      if (mode.equalsIgnoreCase("sync")) {
+        return Option.some(false);
+      }
+    }
+    return Option.none();
+  }
 }
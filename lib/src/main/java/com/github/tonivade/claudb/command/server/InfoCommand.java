@@ -15,14 +15,23 @@ import static java.util.stream.Collectors.toMap;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
 import java.util.stream.Stream;
 
+import com.github.tonivade.claudb.CommandStats;
+import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.ExpireStats;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.LazyFree;
+import com.github.tonivade.claudb.data.PrefixIndexStats;
+import com.github.tonivade.claudb.data.SharedValues;
+import com.github.tonivade.claudb.data.TieredStats;
+import com.github.tonivade.claudb.persistence.SaveStats;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.command.Request;
@@ -137,17 +146,48 @@ public class InfoCommand implements DBCommand {
   }
 
   private Map<String, String> memory(ServerContext ctx) {
-    return map(entry("used_memory", valueOf(Runtime.getRuntime().totalMemory())));
+    DBServerState state = getServerState(ctx);
+    SharedValues sharedValues = state.getContext().getSharedValues();
+    PrefixIndexStats prefixIndex = state.getContext().getPrefixIndexStats();
+    LazyFree lazyFree = state.getContext().getLazyFree();
+    return map(entry("used_memory", valueOf(state.getUsedMemory())),
+        entry("used_memory_dataset", valueOf(state.getUsedMemoryDataset())),
+        entry("maxmemory", valueOf(state.getMaxMemory())),
+        entry("maxmemory_policy", state.getMaxMemoryPolicy().text()),
+        entry("shared_values_hits", valueOf(sharedValues.getHits())),
+        entry("shared_values_misses", valueOf(sharedValues.getMisses())),
+        entry("shared_values_hit_rate", String.format(Locale.ROOT, "%.2f", sharedValues.getHitRate())),
+        entry("prefix_index_keys", valueOf(prefixIndex.getKeys())),
+        entry("prefix_index_memory", valueOf(prefixIndex.getMemory())),
+        entry("lazyfree_pending_objects", valueOf(lazyFree.getPending())),
+        entry("lazyfreed_objects", valueOf(lazyFree.getFreed())));
   }
 
   private Map<String, String> persistence(ServerContext ctx) {
-    // TODO:
-    return map();
+    SaveStats stats = getServerState(ctx).getSaveStats();
+    return map(entry("rdb_bgsave_in_progress", stats.isInProgress() ? "1" : "0"),
+        entry("rdb_last_save_time", valueOf(stats.getLastSave())),
+        entry("rdb_last_bgsave_status", stats.isLastBackgroundOk() ? "ok" : "err"),
+        entry("rdb_last_save_duration_ms", valueOf(stats.getLastDurationMillis())),
+        entry("rdb_last_save_stall_us", valueOf(stats.getLastStallMicros())));
   }
 
   private Map<String, String> stats(ServerContext ctx) {
-    // TODO:
-    return map();
+    ExpireStats stats = getServerState(ctx).getExpireStats();
+    TieredStats tiered = getServerState(ctx).getContext().getTieredStats();
+    return map(entry("expire_cycles", valueOf(stats.getCycles())),
+        entry("expire_cycle_keys_scanned", valueOf(stats.getScanned())),
+        entry("expired_keys", valueOf(stats.getExpired())),
+        entry("expire_cycle_time_used_us", valueOf(stats.getTimeMicros())),
+        entry("expire_cycle_last_keys_scanned", valueOf(stats.getLastScanned())),
+        entry("expire_cycle_last_keys_expired", valueOf(stats.getLastExpired())),
+        entry("expire_cycle_last_time_us", valueOf(stats.getLastTimeMicros())),
+        entry("evicted_keys", valueOf(getServerState(ctx).getEvictedKeys())),
+        entry("tiered_spilled_keys", valueOf(tiered.getSpilled())),
+        entry("tiered_spill_time_us", valueOf(tiered.getSpillTimeMicros())),
+        entry("tiered_recalled_keys", valueOf(tiered.getRecalled())),
+        entry("tiered_recall_time_us", valueOf(tiered.getRecallTimeMicros())),
+        entry("tiered_recall_avg_us", String.format(Locale.ROOT, "%.2f", tiered.getRecallAverageMicros())));
   }
 
   private Map<String, String> cpu(ServerContext ctx) {
@@ -156,8 +196,17 @@ public class InfoCommand implements DBCommand {
   }
 
   private Map<String, String> commandstats(ServerContext ctx) {
-    // TODO:
-    return map();
+    Map<String, String> stats = new TreeMap<>();
+    for (Entry<String, CommandStats> entry : getServerState(ctx).getCommandStats().entrySet()) {
+      stats.put("cmdstat_" + entry.getKey(), commandstats(entry.getValue()));
+    }
+    return stats;
+  }
+
+  private String commandstats(CommandStats stats) {
+    return "calls=" + stats.getCalls()
+        + ",lookups=" + stats.getLookups()
+        + ",lookups_per_call=" + String.format(Locale.ROOT, "%.2f", stats.getLookupsPerCall());
   }
 
   private Map<String, String> keyspace(ServerContext ctx) {
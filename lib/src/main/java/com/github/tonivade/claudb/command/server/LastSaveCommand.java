@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+
+package com.github.tonivade.claudb.command.server;
+
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("lastsave")
+public class LastSaveCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    return convert(getServerState(request.getServerContext()).getSaveStats().getLastSave());
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.nullString;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import com.github.tonivade.claudb.DBServerState;
+import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.ReadOnly;
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.MemoryEstimator;
+import com.github.tonivade.purefun.Matcher1;
+import com.github.tonivade.purefun.Pattern1;
+import com.github.tonivade.resp.annotation.Command;
+import com.github.tonivade.resp.annotation.ParamLength;
+import com.github.tonivade.resp.command.Request;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@ReadOnly
+@Command("memory")
+@ParamLength(1)
+public class MemoryCommand implements DBCommand {
+
+  @Override
+  public RedisToken execute(Database db, Request request) {
+    return Pattern1.<Request, RedisToken>build()
+        .when(isCommand("usage"))
+          .then(r -> usage(db, r))
+        .when(isCommand("stats"))
+          .then(this::stats)
+        .otherwise()
+          .then(this::unknownCommand)
+        .apply(request);
+  }
+
+  private RedisToken unknownCommand(Request request) {
+    return error("Unknown MEMORY subcommand: " + request.getParam(0));
+  }
+
+  private RedisToken usage(Database db, Request request) {
+    int samples = MemoryEstimator.DEFAULT_SAMPLES;
+    if (request.getLength() == 4 && request.getParam(2).toString().equalsIgnoreCase("samples")) {
+      try {
+        samples = Integer.parseInt(request.getParam(3).toString());
+      } catch (NumberFormatException e) {
+        return error("ERR value is not an integer or out of range");
+      }
+    } else if (request.getLength() != 2) {
+      return error("ERR syntax error");
+    }
+    if (samples < 0) {
+      return error("ERR value is out of range, must be positive");
+    }
+    return db.memoryUsage(safeKey(request.getParam(1)), samples)
+        .map(usage -> convert(usage))
+        .getOrElse(nullString());
+  }
+
+  private RedisToken stats(Request request) {
+    DBServerState state = getServerState(request.getServerContext());
+    long total = state.getUsedMemory();
+    long dataset = state.getUsedMemoryDataset();
+    long keys = 0;
+    List<RedisToken> databases = new ArrayList<>();
+    for (int i = 0; i < state.getNumDatabases(); i++) {
+      Database database = state.getDatabase(i);
+      int size = database.size();
+      if (size > 0) {
+        keys += size;
+        databases.add(string("db." + i));
+        databases.add(array(string("keys.count"), convert(size),
+            string("dataset.bytes"), convert(database.usedMemory())));
+      }
+    }
+    List<RedisToken> stats = new ArrayList<>();
+    stats.add(string("total.allocated"));
+    stats.add(convert(total));
+    stats.add(string("dataset.bytes"));
+    stats.add(convert(dataset));
+    stats.add(string("dataset.percentage"));
+    stats.add(string(percentage(dataset, total)));
+    stats.add(string("keys.count"));
+    stats.add(convert(keys));
+    stats.add(string("keys.bytes-per-key"));
+    stats.add(convert(keys > 0 ? dataset / keys : 0));
+    stats.addAll(databases);
+    return array(stats);
+  }
+
+  private String percentage(long value, long total) {
+    return String.format(Locale.ROOT, "%.2f", total > 0 ? value * 100.0 / total : 0);
+  }
+
+  private Matcher1<Request> isCommand(String command) {
+    return request -> request.getParam(0).toString().toLowerCase().equals(command);
+  }
+}
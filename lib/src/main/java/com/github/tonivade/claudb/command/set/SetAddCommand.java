@@ -12,6 +12,7 @@ import static java.util.stream.Collectors.toList;
 import java.util.List;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
@@ -25,13 +26,14 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("sadd")
 @ParamLength(2)
 @ParamType(DataType.SET)
+@DenyOom
 public class SetAddCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     List<SafeString> values = request.getParams().stream().skip(1).collect(toList());
     DatabaseValue value = db.merge(safeKey(request.getParam(0)), set(values),
-      (oldValue, newValue) -> set(oldValue.getSet().appendAll(newValue.getSet())));
+      (oldValue, newValue) -> oldValue.updateSet(set -> set.addAll(newValue.getSet())));
     return integer(value.size());
   }
 }
@@ -12,14 +12,12 @@ import static com.github.tonivade.resp.protocol.RedisToken.string;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableArray;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -34,13 +32,14 @@ public class SetPopCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET,
-        (oldValue, newValue) -> {
-          ImmutableSet<SafeString> oldSet = oldValue.getSet();
-          SafeString item = getRandomItem(oldSet.asArray());
-          removed.add(item);
-          return set(oldSet.remove(item));
-        });
+    db.computeIfPresent(safeKey(request.getParam(0)),
+        (key, oldValue) -> oldValue.updateSet(set -> {
+          if (!set.isEmpty()) {
+            SafeString item = getRandomItem(set);
+            set.remove(item);
+            removed.add(item);
+          }
+        }));
     if (removed.isEmpty()) {
       return nullString();
     } else {
@@ -48,11 +47,11 @@ public class SetPopCommand implements DBCommand {
     }
   }
 
-  private SafeString getRandomItem(ImmutableArray<SafeString> array) {
-    return array.get(random(array));
+  private SafeString getRandomItem(Set<SafeString> set) {
+    return set.stream().skip(random(set)).findFirst().get();
   }
 
-  private int random(ImmutableArray<?> array) {
-    return new Random().nextInt(array.size());
+  private int random(Set<?> set) {
+    return new Random().nextInt(set.size());
   }
 }
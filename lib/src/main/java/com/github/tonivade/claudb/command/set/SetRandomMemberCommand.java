@@ -4,23 +4,18 @@
  */
 package com.github.tonivade.claudb.command.set;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.set;
 import static com.github.tonivade.resp.protocol.RedisToken.nullString;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Random;
+import java.util.Set;
 
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.data.ImmutableArray;
-import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -35,21 +30,15 @@ public class SetRandomMemberCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    List<SafeString> random = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET,
-        (oldValue, newValue) -> {
-          ImmutableArray<SafeString> merge = oldValue.getSet().asArray();
-          random.add(merge.get(random(merge)));
-          return set(merge);
-        });
-    if (random.isEmpty()) {
+    Set<SafeString> set = db.getSet(request.getParam(0));
+    if (set.isEmpty()) {
       return nullString();
     } else {
-      return string(random.get(0));
+      return string(set.stream().skip(random(set)).findFirst().get());
     }
   }
 
-  private int random(Sequence<?> merge) {
-    return new Random().nextInt(merge.size());
+  private int random(Set<?> set) {
+    return new Random().nextInt(set.size());
   }
 }
@@ -15,9 +15,7 @@ import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.data.ImmutableList;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -33,12 +31,14 @@ public class SetRemoveCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     ImmutableList<SafeString> items = request.getParams().asList().tail();
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_SET,
-        (oldValue, newValue) -> {
-          ImmutableSet<SafeString> oldSet = oldValue.getSet();
-          oldSet.intersection(items.asSet()).stream().forEach(removed::add);
-          return set(oldSet.removeAll(items));
-        });
+    db.computeIfPresent(safeKey(request.getParam(0)),
+        (key, oldValue) -> oldValue.updateSet(set -> {
+          for (SafeString item : items) {
+            if (set.remove(item)) {
+              removed.add(item);
+            }
+          }
+        }));
 
     return integer(removed.size());
   }
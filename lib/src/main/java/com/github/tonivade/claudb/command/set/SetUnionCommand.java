@@ -4,12 +4,14 @@
  */
 package com.github.tonivade.claudb.command.set;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -24,9 +26,9 @@ public class SetUnionCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    ImmutableSet<SafeString> result = db.getSet(request.getParam(0));
+    Set<SafeString> result = new HashSet<>(db.getSet(request.getParam(0)));
     for (SafeString param : request.getParams().asList().tail()) {
-      result = result.union(db.getSet(param));
+      result.addAll(db.getSet(param));
     }
     return convert(result);
   }
@@ -10,6 +10,7 @@ import static com.github.tonivade.resp.protocol.SafeString.append;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -23,6 +24,7 @@ import com.github.tonivade.claudb.data.DatabaseValue;
 @Command("append")
 @ParamLength(1)
 @ParamType(DataType.STRING)
+@DenyOom
 public class AppendCommand implements DBCommand {
 
   @Override
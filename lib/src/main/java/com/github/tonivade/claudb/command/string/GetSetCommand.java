@@ -7,6 +7,7 @@ package com.github.tonivade.claudb.command.string;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -19,6 +20,7 @@ import com.github.tonivade.claudb.data.Database;
 @Command("getset")
 @ParamLength(2)
 @ParamType(DataType.STRING)
+@DenyOom
 public class GetSetCommand implements DBCommand {
 
   @Override
@@ -5,10 +5,10 @@
 package com.github.tonivade.claudb.command.string;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
-import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
-import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.claudb.data.DatabaseValue.number;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -22,20 +22,20 @@ import com.github.tonivade.claudb.data.Database;
 @Command("incrby")
 @ParamLength(2)
 @ParamType(DataType.STRING)
+@DenyOom
 public class IncrementByCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      DatabaseValue value = db.merge(safeKey(request.getParam(0)), string(request.getParam(1)),
-          (oldValue, newValue) -> {
-            int increment = Integer.parseInt(newValue.getString().toString());
-            int current = Integer.parseInt(oldValue.getString().toString());
-            return string(String.valueOf(current + increment));
-          });
-      return integer(Integer.parseInt(value.getString().toString()));
+      int increment = Integer.parseInt(request.getParam(1).toString());
+      DatabaseValue value = db.merge(safeKey(request.getParam(0)), number(increment),
+          (oldValue, newValue) -> oldValue.incrementBy(increment, Integer.MIN_VALUE, Integer.MAX_VALUE));
+      return convert(value.getInteger());
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
+    } catch (ArithmeticException e) {
+      return error("ERR increment or decrement would overflow");
     }
   }
 }
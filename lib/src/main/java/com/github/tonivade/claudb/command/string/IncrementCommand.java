@@ -6,10 +6,10 @@
 package com.github.tonivade.claudb.command.string;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
-import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
-import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.claudb.data.DatabaseValue.number;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -23,19 +23,19 @@ import com.github.tonivade.claudb.data.DatabaseValue;
 @Command("incr")
 @ParamLength(1)
 @ParamType(DataType.STRING)
+@DenyOom
 public class IncrementCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      DatabaseValue value = db.merge(safeKey(request.getParam(0)), string("1"),
-          (oldValue, newValue) -> {
-            int current = Integer.parseInt(oldValue.getString().toString());
-            return string(String.valueOf(current + 1));
-          });
-      return integer(Integer.parseInt(value.getString().toString()));
+      DatabaseValue value = db.merge(safeKey(request.getParam(0)), number(1),
+          (oldValue, newValue) -> oldValue.incrementBy(1, Integer.MIN_VALUE, Integer.MAX_VALUE));
+      return convert(value.getInteger());
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
+    } catch (ArithmeticException e) {
+      return error("ERR increment or decrement would overflow");
     }
   }
 
@@ -8,6 +8,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.status;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -18,6 +19,7 @@ import com.github.tonivade.claudb.data.Database;
 
 @Command("mset")
 @ParamLength(2)
+@DenyOom
 public class MultiSetCommand implements DBCommand {
 
   @Override
@@ -25,7 +27,7 @@ public class MultiSetCommand implements DBCommand {
     SafeString key = null;
     for (SafeString value : request.getParams()) {
       if (key != null) {
-        db.put(safeKey(key), string(value));
+        db.store(safeKey(key), string(value));
         key = null;
       } else {
         key = value;
@@ -13,6 +13,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.purefun.Tuple2;
@@ -24,6 +25,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 
 @Command("msetnx")
 @ParamLength(2)
+@DenyOom
 public class MultiSetIfNotExistsCommand implements DBCommand {
   @Override
   public RedisToken execute(Database db, Request request) {
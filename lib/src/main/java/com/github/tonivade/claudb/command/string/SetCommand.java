@@ -16,6 +16,7 @@ import java.time.Instant;
 import java.time.temporal.TemporalAmount;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
@@ -29,6 +30,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 
 @Command("set")
 @ParamLength(2)
+@DenyOom
 public class SetCommand implements DBCommand {
 
   @Override
@@ -77,7 +79,7 @@ public class SetCommand implements DBCommand {
   }
 
   private DatabaseValue putValue(Database db, DatabaseKey key, DatabaseValue value) {
-    db.put(key, value);
+    db.store(key, value);
     return value;
   }
 
@@ -9,6 +9,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -19,12 +20,13 @@ import com.github.tonivade.claudb.data.Database;
 
 @Command("setex")
 @ParamLength(3)
+@DenyOom
 public class SetExpiredCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      db.put(safeKey(request.getParam(0)), string(request.getParam(2))
+      db.store(safeKey(request.getParam(0)), string(request.getParam(2))
                .expiredAt(parseTtl(request.getParam(1))));
       return responseOk();
     } catch (NumberFormatException e) {
@@ -8,6 +8,7 @@ import static com.github.tonivade.resp.protocol.RedisToken.integer;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -19,6 +20,7 @@ import com.github.tonivade.claudb.data.DatabaseValue;
 
 @Command("setnx")
 @ParamLength(2)
+@DenyOom
 public class SetIfNotExistsCommand implements DBCommand {
   
   @Override
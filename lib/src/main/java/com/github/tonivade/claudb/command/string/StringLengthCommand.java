@@ -12,13 +12,13 @@ import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
 import com.github.tonivade.resp.protocol.RedisToken;
-import com.github.tonivade.resp.protocol.SafeString;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.ValueView;
 
 @ReadOnly
 @Command("strlen")
@@ -28,8 +28,6 @@ public class StringLengthCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
-    DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_STRING);
-    SafeString string = value.getString();
-    return integer(string.length());
+    return integer(db.read(safeKey(request.getParam(0)), DatabaseValue.EMPTY_STRING, ValueView::getStringLength));
   }
 }
@@ -12,9 +12,12 @@ import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static java.lang.Float.parseFloat;
 import static java.util.stream.Collectors.toList;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
 
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
 import com.github.tonivade.resp.command.Request;
@@ -30,29 +33,22 @@ import com.github.tonivade.claudb.data.SortedSet;
 @Command("zadd")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
+@DenyOom
 public class SortedSetAddCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
-      DatabaseValue initial = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
-      DatabaseValue result = db.merge(safeKey(request.getParam(0)), parseInput(request),
-          (oldValue, newValue) -> {
-            Set<Entry<Double, SafeString>> merge = new SortedSet();
-            merge.addAll(oldValue.getSortedSet());
-            merge.addAll(newValue.getSortedSet());
-            return zset(merge);
-          });
-      return integer(changed(initial.getSortedSet(), result.getSortedSet()));
+      DatabaseValue input = parseInput(request);
+      List<Entry<Double, SafeString>> changed = new LinkedList<>(input.getSortedSet());
+      db.merge(safeKey(request.getParam(0)), input,
+          (oldValue, newValue) -> oldValue.updateSortedSet(set -> changed.removeIf(entry -> !set.add(entry))));
+      return integer(changed.size());
     } catch (NumberFormatException e) {
       return error("ERR value is not a valid float");
     }
   }
 
-  private int changed(Set<Entry<Double, SafeString>> input, Set<Entry<Double, SafeString>> result) {
-    return result.size() - input.size();
-  }
-
   private DatabaseValue parseInput(Request request) {
     Set<Entry<Double, SafeString>> set = new SortedSet();
     SafeString score = null;
@@ -10,15 +10,16 @@ import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.string;
 
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 
 import com.github.tonivade.claudb.command.DBCommand;
+import com.github.tonivade.claudb.command.annotation.DenyOom;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.SortedSet;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -29,39 +30,34 @@ import com.github.tonivade.resp.protocol.SafeString;
 @Command("zincrby")
 @ParamLength(3)
 @ParamType(DataType.ZSET)
+@DenyOom
 public class SortedSetIncrementByCommand implements DBCommand {
 
   @Override
   public RedisToken execute(Database db, Request request) {
     try {
       DatabaseKey zkey = safeKey(request.getParam(0));
-      DatabaseValue value = db.getOrDefault(zkey, DatabaseValue.EMPTY_ZSET);
-      NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
-
       SafeString key = request.getParam(2);
       Double increment = Double.parseDouble(request.getParam(1).toString());
 
-      Entry<Double, SafeString> newValue = merge(set, key, increment);
-
-      SortedSet result = new SortedSet();
-      result.addAll(set);
-      result.remove(newValue);
-      result.add(newValue);
-      db.put(zkey, zset(result));
-
-      return string(newValue.getKey().toString());
+      List<Entry<Double, SafeString>> result = new LinkedList<>();
+      result.add(score(increment, key));
+      db.merge(zkey, zset(result.get(0)),
+          (oldValue, newValue) -> oldValue.updateSortedSet(set -> {
+            Entry<Double, SafeString> entry = merge(set, key, increment);
+            set.remove(entry);
+            set.add(entry);
+            result.set(0, entry);
+          }));
+
+      return string(result.get(0).getKey().toString());
     } catch (NumberFormatException e) {
       return error("ERR value is not an integer or out of range");
     }
   }
 
-  private Entry<Double, SafeString>
-          merge(NavigableSet<Entry<Double, SafeString>> set, SafeString key, Double increment) {
-    return score(findByKey(set, key).getKey() + increment, key);
-  }
-
-  private Entry<Double, SafeString> findByKey(NavigableSet<Entry<Double, SafeString>> set, SafeString key) {
-    // TODO: O(n) search, to fix forget the NavigableSet and use directly the SortedSet to get by key
-    return set.stream().filter(entry -> entry.getValue().equals(key)).findFirst().orElse(score(0, key));
+  private Entry<Double, SafeString> merge(SortedSet set, SafeString key, Double increment) {
+    double current = set.contains(score(0, key)) ? set.score(key) : 0;
+    return score(current + increment, key);
   }
 }
@@ -6,15 +6,12 @@ package com.github.tonivade.claudb.command.zset;
 
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
-import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static java.lang.Integer.parseInt;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
 
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
-import java.util.Set;
 import java.util.stream.Stream;
 
 import com.github.tonivade.resp.annotation.Command;
@@ -29,6 +26,7 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.SortedSet;
 
 @ReadOnly
 @Command("zrangebyscore")
@@ -46,29 +44,25 @@ public class SortedSetRangeByScoreCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     try {
       DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
-      NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
+      SortedSet set = value.getSortedSet();
 
-      float from = parseRange(request.getParam(1).toString());
-      float to = parseRange(request.getParam(2).toString());
+      double from = parseRange(request.getParam(1).toString());
+      double to = parseRange(request.getParam(2).toString());
 
       Options options = parseOptions(request);
 
-      Set<Entry<Double, SafeString>> range = set.subSet(
-          score(from, SafeString.EMPTY_STRING), inclusive(request.getParam(1)),
-          score(to, SafeString.EMPTY_STRING), inclusive(request.getParam(2)));
-
       List<Object> result = emptyList();
       if (from <= to) {
+        // the limit is applied while walking the range, so it stops after count elements
+        List<Entry<Double, SafeString>> range = set.rangeByScore(
+            from, inclusive(request.getParam(1)), to, inclusive(request.getParam(2)),
+            options.offset, options.count);
         if (options.withScores) {
           result = range.stream().flatMap(
               entry -> Stream.of(entry.getValue(), entry.getKey())).collect(toList());
         } else {
           result = range.stream().map(Entry::getValue).collect(toList());
         }
-
-        if (options.withLimit) {
-          result = result.stream().skip(options.offset).limit(options.count).collect(toList());
-        }
       }
 
       return convert(result);
@@ -82,7 +76,6 @@ public class SortedSetRangeByScoreCommand implements DBCommand {
     for (int i = 3; i < request.getLength(); i++) {
       String param = request.getParam(i).toString();
       if (param.equalsIgnoreCase(PARAM_LIMIT)) {
-        options.withLimit = true;
         options.offset = parseInt(request.getParam(++i).toString());
         options.count = parseInt(request.getParam(++i).toString());
       } else if (param.equalsIgnoreCase(PARAM_WITHSCORES)) {
@@ -96,24 +89,23 @@ public class SortedSetRangeByScoreCommand implements DBCommand {
     return !param.toString().startsWith(EXCLUSIVE);
   }
 
-  private float parseRange(String param) {
+  private double parseRange(String param) {
     switch (param) {
     case INIFITY:
-      return Float.MAX_VALUE;
+      return Double.POSITIVE_INFINITY;
     case MINUS_INFINITY:
-      return Float.MIN_VALUE;
+      return Double.NEGATIVE_INFINITY;
     default:
       if (param.startsWith(EXCLUSIVE)) {
-        return Float.parseFloat(param.substring(1));
+        return Double.parseDouble(param.substring(1));
       }
-      return Float.parseFloat(param);
+      return Double.parseDouble(param);
     }
   }
 
   private static class Options {
     private boolean withScores;
-    private boolean withLimit;
     private int offset;
-    private int count;
+    private int count = -1;
   }
 }
@@ -11,7 +11,6 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 import java.util.stream.Stream;
 
 import com.github.tonivade.claudb.command.DBCommand;
@@ -20,6 +19,7 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.SortedSet;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -39,7 +39,7 @@ public class SortedSetRangeCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     try {
       DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
-      NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
+      SortedSet set = value.getSortedSet();
 
       int from = Integer.parseInt(request.getParam(1).toString());
       if (from < 0) {
@@ -54,10 +54,10 @@ public class SortedSetRangeCommand implements DBCommand {
       if (from <= to) {
         Option<SafeString> withScores = request.getOptionalParam(3);
         if (withScores.isPresent() && withScores.get().toString().equalsIgnoreCase(PARAM_WITHSCORES)) {
-          result = set.stream().skip(from).limit((to - from) + 1l)
+          result = set.range(from, to).stream()
               .flatMap(entry -> Stream.of(entry.getValue(), entry.getKey())).collect(toList());
         } else {
-          result = set.stream().skip(from).limit((to - from) + 1l)
+          result = set.range(from, to).stream()
               .map(Entry::getValue).collect(toList());
         }
       }
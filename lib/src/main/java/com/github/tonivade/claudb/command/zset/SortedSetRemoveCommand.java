@@ -12,8 +12,6 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
 
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -23,9 +21,7 @@ import com.github.tonivade.resp.protocol.SafeString;
 import com.github.tonivade.claudb.command.DBCommand;
 import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
-import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.claudb.data.Database;
-import com.github.tonivade.claudb.data.SortedSet;
 
 @Command("zrem")
 @ParamLength(2)
@@ -36,17 +32,14 @@ public class SortedSetRemoveCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     List<SafeString> items =  request.getParams().stream().skip(1).collect(toList());
     List<SafeString> removed = new LinkedList<>();
-    db.merge(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET,
-             (oldValue, newValue) -> {
-               Set<Entry<Double, SafeString>> merge = new SortedSet();
-               merge.addAll(oldValue.getSortedSet());
-               for (SafeString item : items) {
-                 if (merge.remove(score(0, item))) {
-                   removed.add(item);
-                 }
-               }
-               return zset(merge);
-             });
+    db.computeIfPresent(safeKey(request.getParam(0)),
+        (key, oldValue) -> oldValue.updateSortedSet(set -> {
+          for (SafeString item : items) {
+            if (set.remove(score(0, item))) {
+              removed.add(item);
+            }
+          }
+        }));
 
     return integer(removed.size());
   }
@@ -12,7 +12,6 @@ import static java.util.stream.Collectors.toList;
 
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 import java.util.stream.Stream;
 
 import com.github.tonivade.claudb.command.DBCommand;
@@ -21,6 +20,7 @@ import com.github.tonivade.claudb.command.annotation.ReadOnly;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.SortedSet;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -40,7 +40,7 @@ public class SortedSetReverseRangeCommand implements DBCommand {
   public RedisToken execute(Database db, Request request) {
     try {
       DatabaseValue value = db.getOrDefault(safeKey(request.getParam(0)), DatabaseValue.EMPTY_ZSET);
-      NavigableSet<Entry<Double, SafeString>> set = value.getSortedSet();
+      SortedSet set = value.getSortedSet();
 
       int from = Integer.parseInt(request.getParam(2).toString());
       if (from < 0) {
@@ -55,10 +55,10 @@ public class SortedSetReverseRangeCommand implements DBCommand {
       if (from <= to) {
         Option<SafeString> withScores = request.getOptionalParam(3);
         if (withScores.isPresent() && withScores.get().toString().equalsIgnoreCase(PARAM_WITHSCORES)) {
-          result = set.stream().skip(from).limit((to - from) + 1l)
+          result = set.range(from, to).stream()
               .flatMap(item -> Stream.of(item.getValue(), item.getKey())).collect(toList());
         } else {
-          result = set.stream().skip(from).limit((to - from) + 1l)
+          result = set.range(from, to).stream()
               .map(Entry::getValue).collect(toList());
         }
       }
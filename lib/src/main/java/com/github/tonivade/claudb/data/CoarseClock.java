@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Current time in milliseconds updated every millisecond by a daemon thread, so reading it
+ * is a volatile read instead of a call to the system clock. It can be a tick behind the
+ * system clock, good enough to check expirations.
+ *
+ * The thread runs while a server is started, every start must be followed by a stop. When
+ * no server is started the system clock is read.
+ */
+public final class CoarseClock {
+
+  private static final long TICK_MILLIS = 1;
+  private static final long STOP_MILLIS = 1000;
+
+  // zero while the ticker is stopped
+  private static volatile long now;
+
+  private static int started;
+  private static ScheduledExecutorService ticker;
+
+  private CoarseClock() {}
+
+  public static long millis() {
+    long millis = now;
+    return millis != 0 ? millis : System.currentTimeMillis();
+  }
+
+  public static synchronized void start() {
+    if (started++ > 0) {
+      return;
+    }
+    now = System.currentTimeMillis();
+    ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "claudb-clock");
+      thread.setDaemon(true);
+      return thread;
+    });
+    ticker.scheduleAtFixedRate(CoarseClock::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  public static synchronized void stop() {
+    if (started == 0 || --started > 0) {
+      return;
+    }
+    ticker.shutdownNow();
+    try {
+      // a tick running now must not update the time after it is reset
+      ticker.awaitTermination(STOP_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    ticker = null;
+    now = 0;
+  }
+
+  static synchronized boolean isStarted() {
+    return ticker != null;
+  }
+
+  private static void tick() {
+    now = System.currentTimeMillis();
+  }
+}
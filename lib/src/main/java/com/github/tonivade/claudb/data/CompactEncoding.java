@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import com.github.tonivade.claudb.DBConfig;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Limits used to decide when a small collection is promoted from the compact encoding
+ * to the full one. A collection is created with the default limits and takes the limits of
+ * the database when it is stored, see {@link DatabaseContext}. Strings that are canonical
+ * integers are stored as a long.
+ */
+public final class CompactEncoding {
+
+  static final CompactEncoding DEFAULT = new CompactEncoding(DBConfig.builder().build());
+
+  private static final int MAX_LONG_LENGTH = 20;
+
+  private final int hashMaxEntries;
+  private final int hashMaxValue;
+  private final boolean hashOffHeap;
+  private final int setMaxIntsetEntries;
+  private final int zsetMaxEntries;
+  private final int zsetMaxValue;
+
+  public CompactEncoding(DBConfig config) {
+    this.hashMaxEntries = config.getHashMaxListpackEntries();
+    this.hashMaxValue = config.getHashMaxListpackValue();
+    this.hashOffHeap = config.isHashOffHeapActive();
+    this.setMaxIntsetEntries = config.getSetMaxIntsetEntries();
+    this.zsetMaxEntries = config.getZsetMaxListpackEntries();
+    this.zsetMaxValue = config.getZsetMaxListpackValue();
+  }
+
+  int hashMaxEntries() {
+    return hashMaxEntries;
+  }
+
+  int hashMaxValue() {
+    return hashMaxValue;
+  }
+
+  boolean hashOffHeap() {
+    return hashOffHeap;
+  }
+
+  int setMaxIntsetEntries() {
+    return setMaxIntsetEntries;
+  }
+
+  int zsetMaxEntries() {
+    return zsetMaxEntries;
+  }
+
+  int zsetMaxValue() {
+    return zsetMaxValue;
+  }
+
+  /**
+   * Returns the value only if the string is the canonical representation of a long, so
+   * the original string can be recovered from the number.
+   */
+  static Long toLong(SafeString value) {
+    byte[] bytes = value.getBytes();
+    if (bytes.length == 0 || bytes.length > MAX_LONG_LENGTH) {
+      return null;
+    }
+    int start = bytes[0] == '-' ? 1 : 0;
+    if (start == bytes.length || (bytes[start] == '0' && bytes.length > 1)) {
+      return null;
+    }
+    for (int i = start; i < bytes.length; i++) {
+      if (bytes[i] < '0' || bytes[i] > '9') {
+        return null;
+      }
+    }
+    try {
+      return Long.parseLong(value.toString());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Hash stored as a list of fields and values packed in a single byte array while it is small,
+ * it is converted to a {@link LargeHash} when it grows past the limits of its {@link CompactEncoding}.
+ */
+public class CompactHash extends AbstractMap<SafeString, SafeString> implements Serializable {
+
+  private static final long serialVersionUID = 6064521404232212437L;
+
+  private ListPack packed = new ListPack();
+  private LargeHash map;
+  private transient CompactEncoding encoding;
+
+  public CompactHash() {
+    // empty hash
+  }
+
+  public CompactHash(Map<SafeString, SafeString> values) {
+    putAll(values);
+  }
+
+  /**
+   * A compact hash is small and it is copied, a large hash shares its slabs and slots with the
+   * copy until one of them writes them, see {@link LargeHash#LargeHash(LargeHash)}.
+   */
+  public CompactHash(CompactHash other) {
+    this.encoding = other.encoding;
+    if (other.packed != null) {
+      putAll(other);
+    } else {
+      this.packed = null;
+      this.map = new LargeHash(other.map);
+    }
+  }
+
+  public boolean isCompact() {
+    return packed != null;
+  }
+
+  @Override
+  public int size() {
+    return packed != null ? packed.size() / 2 : map.size();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (packed != null) {
+      return key instanceof SafeString && find(((SafeString) key).getBytes()) >= 0;
+    }
+    return map.containsKey(key);
+  }
+
+  @Override
+  public SafeString get(Object key) {
+    if (packed != null) {
+      if (key instanceof SafeString) {
+        int offset = find(((SafeString) key).getBytes());
+        if (offset >= 0) {
+          return new SafeString(packed.get(packed.next(offset)));
+        }
+      }
+      return null;
+    }
+    return map.get(key);
+  }
+
+  @Override
+  public SafeString put(SafeString key, SafeString value) {
+    if (packed != null) {
+      byte[] field = key.getBytes();
+      byte[] bytes = value.getBytes();
+      int offset = find(field);
+      if (offset >= 0) {
+        int valueOffset = packed.next(offset);
+        SafeString previous = new SafeString(packed.get(valueOffset));
+        packed.replace(valueOffset, bytes);
+        checkLimits(field, bytes);
+        return previous;
+      }
+      packed.add(field);
+      packed.add(bytes);
+      checkLimits(field, bytes);
+      return null;
+    }
+    return map.put(key, value);
+  }
+
+  @Override
+  public SafeString remove(Object key) {
+    if (packed != null) {
+      if (key instanceof SafeString) {
+        int offset = find(((SafeString) key).getBytes());
+        if (offset >= 0) {
+          SafeString previous = new SafeString(packed.get(packed.next(offset)));
+          packed.remove(offset);
+          packed.remove(offset);
+          return previous;
+        }
+      }
+      return null;
+    }
+    return map.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    if (packed != null) {
+      packed.clear();
+    } else {
+      map.clear();
+    }
+  }
+
+  @Override
+  public Set<Entry<SafeString, SafeString>> entrySet() {
+    if (packed != null) {
+      return new PackedEntrySet();
+    }
+    return map.entrySet();
+  }
+
+  /**
+   * Applies the action to a part of the entries, see {@link LargeHash#scan(long, int, BiConsumer)},
+   * a compact hash is small, so all the entries are returned at once.
+   */
+  public long scan(long cursor, int count, BiConsumer<SafeString, SafeString> action) {
+    if (packed != null) {
+      for (Entry<SafeString, SafeString> entry : entrySet()) {
+        action.accept(entry.getKey(), entry.getValue());
+      }
+      return 0;
+    }
+    return map.scan(cursor, count, action);
+  }
+
+  /**
+   * Estimated bytes used by the hash, a large hash knows the exact size of its slabs, so
+   * samples are not needed.
+   */
+  long memoryUsage(int samples) {
+    long size = HeapSize.object(4 * HeapSize.REFERENCE);
+    if (packed != null) {
+      return size + packed.memoryUsage();
+    }
+    return size + map.memoryUsage();
+  }
+
+  private int find(byte[] field) {
+    int offset = 0;
+    for (int i = 0; i < packed.size(); i += 2) {
+      if (packed.equalsAt(offset, field)) {
+        return offset;
+      }
+      offset = packed.next(packed.next(offset));
+    }
+    return -1;
+  }
+
+  /**
+   * Takes the limits of the database that stores the hash, it is promoted if it does not fit.
+   */
+  void setEncoding(CompactEncoding encoding) {
+    if (this.encoding == encoding) {
+      return;
+    }
+    this.encoding = encoding;
+    if (packed != null) {
+      int maxValue = encoding.hashMaxValue();
+      boolean fits = size() <= encoding.hashMaxEntries();
+      for (int i = 0, offset = 0; fits && i < packed.size(); i++, offset = packed.next(offset)) {
+        fits = packed.get(offset).length <= maxValue;
+      }
+      if (!fits) {
+        promote();
+      }
+    }
+  }
+
+  private CompactEncoding encoding() {
+    return encoding != null ? encoding : CompactEncoding.DEFAULT;
+  }
+
+  private void checkLimits(byte[] field, byte[] value) {
+    CompactEncoding limits = encoding();
+    int maxValue = limits.hashMaxValue();
+    if (size() > limits.hashMaxEntries() || field.length > maxValue || value.length > maxValue) {
+      promote();
+    }
+  }
+
+  private void promote() {
+    LargeHash promoted = new LargeHash(encoding().hashOffHeap());
+    for (Entry<SafeString, SafeString> entry : entrySet()) {
+      promoted.put(entry.getKey(), entry.getValue());
+    }
+    this.map = promoted;
+    this.packed = null;
+  }
+
+  private final class PackedEntrySet extends AbstractSet<Entry<SafeString, SafeString>> {
+
+    @Override
+    public int size() {
+      return CompactHash.this.size();
+    }
+
+    @Override
+    public Iterator<Entry<SafeString, SafeString>> iterator() {
+      return new Iterator<Entry<SafeString, SafeString>>() {
+
+        private int offset;
+        private int last = -1;
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+          return index < packed.size();
+        }
+
+        @Override
+        public Entry<SafeString, SafeString> next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int valueOffset = packed.next(offset);
+          Entry<SafeString, SafeString> entry = new SimpleImmutableEntry<>(
+              new SafeString(packed.get(offset)), new SafeString(packed.get(valueOffset)));
+          last = offset;
+          offset = packed.next(valueOffset);
+          index += 2;
+          return entry;
+        }
+
+        @Override
+        public void remove() {
+          if (last < 0) {
+            throw new IllegalStateException();
+          }
+          packed.remove(last);
+          packed.remove(last);
+          offset = last;
+          index -= 2;
+          last = -1;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Set stored as a sorted array of integers while all the members are integers and it is small,
+ * it is converted to a set of the keys of a {@link ScanHashMap} when it grows past the limits of
+ * {@link CompactEncoding}, so it can be scanned with a stable cursor.
+ */
+public class CompactSet extends AbstractSet<SafeString> implements Serializable {
+
+  private static final long serialVersionUID = -2779480212580377262L;
+
+  private IntSet ints = new IntSet();
+  private transient ScanHashMap<SafeString, Boolean> set;
+  private transient CompactEncoding encoding;
+
+  public CompactSet() {
+    // empty set
+  }
+
+  public CompactSet(Collection<SafeString> values) {
+    addAll(values);
+  }
+
+  /**
+   * A set of integers is small and it is copied, the hash map of a large set is shared with the
+   * copy until one of them writes it, see {@link ScanHashMap#copy()}.
+   */
+  public CompactSet(CompactSet other) {
+    this.encoding = other.encoding;
+    if (other.ints != null) {
+      addAll(other);
+    } else {
+      this.ints = null;
+      this.set = other.set.copy();
+    }
+  }
+
+  public boolean isCompact() {
+    return ints != null;
+  }
+
+  @Override
+  public int size() {
+    return ints != null ? ints.size() : set.size();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    if (ints != null) {
+      Long value = o instanceof SafeString ? CompactEncoding.toLong((SafeString) o) : null;
+      return value != null && ints.contains(value);
+    }
+    return set.containsKey(o);
+  }
+
+  @Override
+  public boolean add(SafeString e) {
+    if (ints != null) {
+      Long value = CompactEncoding.toLong(e);
+      if (value != null && (ints.size() < encoding().setMaxIntsetEntries() || ints.contains(value))) {
+        return ints.add(value);
+      }
+      promote();
+    }
+    return set.put(e, Boolean.TRUE) == null;
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    if (ints != null) {
+      Long value = o instanceof SafeString ? CompactEncoding.toLong((SafeString) o) : null;
+      return value != null && ints.remove(value);
+    }
+    return set.remove(o) != null;
+  }
+
+  @Override
+  public void clear() {
+    ints = new IntSet();
+    set = null;
+  }
+
+  @Override
+  public Iterator<SafeString> iterator() {
+    if (ints != null) {
+      return new IntIterator();
+    }
+    return set.keySet().iterator();
+  }
+
+  /**
+   * Applies the action to a part of the members and returns the cursor of the next call, zero
+   * when all the members have been visited. The cursor is the cursor of the {@link ScanHashMap},
+   * a set of integers is small, so all the members are returned at once.
+   */
+  public long scan(long cursor, int count, Consumer<SafeString> action) {
+    if (ints != null) {
+      forEach(action);
+      return 0;
+    }
+    return set.scan(cursor, count, (member, present) -> action.accept(member));
+  }
+
+  /**
+   * Estimated bytes used in the heap, the members of a hash map are estimated from the first
+   * samples members.
+   */
+  long memoryUsage(int samples) {
+    long size = HeapSize.object(2 * HeapSize.REFERENCE);
+    if (ints != null) {
+      return size + ints.memoryUsage();
+    }
+    return size + HeapSize.HASH_MAP + HeapSize.hashTable(set.size())
+        + HeapSize.sampled(set.keySet().iterator(), set.size(), samples,
+            member -> HeapSize.HASH_NODE + HeapSize.string(member));
+  }
+
+  /**
+   * Takes the limits of the database that stores the set, it is promoted if it does not fit.
+   */
+  void setEncoding(CompactEncoding encoding) {
+    if (this.encoding == encoding) {
+      return;
+    }
+    this.encoding = encoding;
+    if (ints != null && ints.size() > encoding.setMaxIntsetEntries()) {
+      promote();
+    }
+  }
+
+  private CompactEncoding encoding() {
+    return encoding != null ? encoding : CompactEncoding.DEFAULT;
+  }
+
+  private void promote() {
+    ScanHashMap<SafeString, Boolean> promoted = new ScanHashMap<>();
+    for (int i = 0; i < ints.size(); i++) {
+      promoted.put(safeString(String.valueOf(ints.get(i))), Boolean.TRUE);
+    }
+    this.set = promoted;
+    this.ints = null;
+  }
+
+  private void writeObject(ObjectOutputStream output) throws IOException {
+    output.defaultWriteObject();
+    output.writeObject(set != null ? new ArrayList<>(set.keySet()) : null);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
+    List<SafeString> members = (List<SafeString>) input.readObject();
+    if (members != null) {
+      set = new ScanHashMap<>();
+      for (SafeString member : members) {
+        set.put(member, Boolean.TRUE);
+      }
+    }
+  }
+
+  private final class IntIterator implements Iterator<SafeString> {
+
+    private int index;
+    private boolean canRemove;
+
+    @Override
+    public boolean hasNext() {
+      return index < ints.size();
+    }
+
+    @Override
+    public SafeString next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      canRemove = true;
+      return safeString(String.valueOf(ints.get(index++)));
+    }
+
+    @Override
+    public void remove() {
+      if (!canRemove) {
+        throw new IllegalStateException();
+      }
+      ints.remove(ints.get(--index));
+      canRemove = false;
+    }
+  }
+}
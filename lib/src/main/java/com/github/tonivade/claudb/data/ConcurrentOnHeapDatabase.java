@@ -0,0 +1,480 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * On heap database that can be accessed from several threads. The keys are split in segments,
+ * each one with its own map, expiry index and lock, so writes of keys of different segments do
+ * not wait for each other and the index is updated with the map, under the same lock. Only
+ * {@link #rename(DatabaseKey, DatabaseKey)} locks two segments and {@link #clear()} all of them.
+ *
+ * <p>Collections are updated in place while the segment is locked, so the value returned by
+ * {@link #get(DatabaseKey)} can change under a reader of another thread. Use
+ * {@link #read(DatabaseKey, ValueView, Function)} to see a consistent value, it locks the
+ * segment for reading while the reader runs.
+ *
+ * <p>The server dispatches the commands from a single thread, so there the other threads are
+ * only the background tasks, as the expire cycle, that do not stop the commands when this
+ * database is used. Commands of several clients only run in parallel when the database is
+ * used directly by an application.
+ */
+public class ConcurrentOnHeapDatabase implements Database {
+
+  private static final int SEGMENTS = 16;
+  private static final int SEGMENT_SHIFT = Integer.SIZE - Integer.numberOfTrailingZeros(SEGMENTS);
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final KeySampler allKeys = new KeySampler();
+  private final KeySampler volatileKeys = new KeySampler();
+  private final MemoryCounter memory;
+  private final DatabaseContext context;
+  private int nextExpireSegment;
+
+  public ConcurrentOnHeapDatabase() {
+    this(new DatabaseContext());
+  }
+
+  public ConcurrentOnHeapDatabase(DatabaseContext context) {
+    this.context = requireNonNull(context);
+    this.memory = new MemoryCounter(MemoryEstimator.HEAP, context);
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(i);
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    Segment segment = segment(key);
+    DatabaseValue value = segment.get(key);
+    if (value != null) {
+      if (!value.isExpired(CoarseClock.millis())) {
+        context.touch(value);
+        return value;
+      }
+      segment.removeIfSame(key, value);
+    }
+    return null;
+  }
+
+  @Override
+  public DatabaseValue lookup(SafeString key) {
+    Segment segment = segment(key.hashCode());
+    DatabaseValue value = segment.find(key);
+    if (value != null) {
+      if (!value.isExpired(CoarseClock.millis())) {
+        context.touch(value);
+        return value;
+      }
+      segment.removeIfSame(DatabaseKey.safeKey(key), value);
+    }
+    return null;
+  }
+
+  @Override
+  public <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    Segment segment = segment(key);
+    Lock lock = segment.lock.readLock();
+    lock.lock();
+    try {
+      DatabaseValue value = segment.entries.get(key);
+      if (value != null && !value.isExpired(CoarseClock.millis())) {
+        context.touch(value);
+        return reader.apply(value);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return reader.apply(defaultValue);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    requireNonNull(value);
+    Segment segment = segment(key);
+    Lock lock = segment.lock.writeLock();
+    lock.lock();
+    try {
+      return segment.put(key, context.store(null, value));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    Segment segment = segment(key);
+    Lock lock = segment.lock.writeLock();
+    lock.lock();
+    try {
+      return segment.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public DatabaseValue putIfAbsent(DatabaseKey key, DatabaseValue value) {
+    Segment segment = segment(key);
+    Lock lock = segment.lock.writeLock();
+    lock.lock();
+    try {
+      DatabaseValue current = segment.entries.get(key);
+      if (current == null || current.isExpired(CoarseClock.millis())) {
+        segment.put(key, context.store(null, value));
+        return null;
+      }
+      return current;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    Segment segment = segment(key);
+    Lock lock = segment.lock.writeLock();
+    lock.lock();
+    try {
+      // readers of this segment wait for the update to finish
+      DatabaseValue oldValue = segment.entries.get(key);
+      DatabaseValue current = oldValue == null || oldValue.isExpired(CoarseClock.millis()) ? null : oldValue;
+      DatabaseValue newValue = context.store(current, remappingFunction.apply(key, current));
+      if (newValue == null) {
+        segment.remove(key);
+      } else {
+        segment.put(key, newValue);
+      }
+      return newValue;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * The segments of both keys are locked in order, so two renames can not deadlock.
+   */
+  @Override
+  public boolean rename(DatabaseKey from, DatabaseKey to) {
+    Segment source = segment(from);
+    Segment target = segment(to);
+    Lock first = (source.index <= target.index ? source : target).lock.writeLock();
+    Lock second = (source.index <= target.index ? target : source).lock.writeLock();
+    first.lock();
+    second.lock();
+    try {
+      DatabaseValue value = source.entries.get(from);
+      if (value == null || value.isExpired(CoarseClock.millis())) {
+        return false;
+      }
+      source.remove(from);
+      target.put(to, value);
+      return true;
+    } finally {
+      second.unlock();
+      first.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    for (Segment segment : segments) {
+      segment.lock.writeLock().lock();
+    }
+    try {
+      for (Segment segment : segments) {
+        segment.entries.clear();
+        segment.expires.clear();
+      }
+      memory.clear();
+      allKeys.clear();
+      volatileKeys.clear();
+    } finally {
+      for (int i = SEGMENTS - 1; i >= 0; i--) {
+        segments[i].lock.writeLock().unlock();
+      }
+    }
+  }
+
+  @Override
+  public long usedMemory() {
+    return memory.get();
+  }
+
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    KeySampler sampler = onlyVolatile ? volatileKeys : allKeys;
+    return sampler.sample(() -> keys(onlyVolatile), key -> segment(key).get(key), count);
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    return ImmutableSet.from(keys(false));
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>();
+    forEach((key, value) -> values.add(value));
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>();
+    forEach((key, value) -> entries.add(Tuple.of(key, value)));
+    return ImmutableSet.from(entries);
+  }
+
+  /**
+   * Every segment is locked while its pages of buckets are copied, the entries are shared with
+   * the snapshot until a write copies a page, see {@link ScanHashMap#copy()}.
+   */
+  @Override
+  public Snapshot.Entries capture() {
+    List<ScanHashMap<DatabaseKey, DatabaseValue>> copies = new ArrayList<>(SEGMENTS);
+    for (Segment segment : segments) {
+      Lock lock = segment.lock.writeLock();
+      lock.lock();
+      try {
+        copies.add(segment.entries.copy());
+      } finally {
+        lock.unlock();
+      }
+    }
+    return new Snapshot.Entries() {
+      @Override
+      public int size() {
+        return copies.stream().mapToInt(ScanHashMap::size).sum();
+      }
+
+      @Override
+      public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+        copies.forEach(copy -> copy.forEach(action));
+      }
+    };
+  }
+
+  /**
+   * Every segment is locked for reading while its entries are applied to the action.
+   */
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    for (Segment segment : segments) {
+      Lock lock = segment.lock.readLock();
+      lock.lock();
+      try {
+        segment.entries.forEach(action);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * The segment is kept in the high bits of the cursor and the cursor of its map in the low
+   * bits, so the segments are scanned one after the other.
+   */
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    int[] visited = new int[1];
+    BiConsumer<DatabaseKey, DatabaseValue> counter = (key, value) -> {
+      visited[0]++;
+      action.accept(key, value);
+    };
+    for (int index = (int) (cursor >>> Integer.SIZE); index < SEGMENTS; index++) {
+      Segment segment = segments[index];
+      long next;
+      Lock lock = segment.lock.readLock();
+      lock.lock();
+      try {
+        next = segment.entries.scan(cursor & 0xFFFFFFFFL, count - visited[0], counter);
+      } finally {
+        lock.unlock();
+      }
+      if (next != 0) {
+        return (long) index << Integer.SIZE | next;
+      }
+      cursor = 0;
+      if (visited[0] >= count) {
+        return index + 1 < SEGMENTS ? (long) (index + 1) << Integer.SIZE : 0;
+      }
+    }
+    return 0;
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    evictExpired(now, Integer.MAX_VALUE);
+  }
+
+  /**
+   * The segments are polled in turn, from the one after the last polled by the previous call,
+   * so a segment with many expired keys does not starve the others.
+   */
+  @Override
+  public synchronized Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    int checked = 0;
+    int expired = 0;
+    for (int i = 0; i < SEGMENTS && checked < limit; i++) {
+      Segment segment = segments[nextExpireSegment];
+      nextExpireSegment = (nextExpireSegment + 1) % SEGMENTS;
+      Lock lock = segment.lock.writeLock();
+      lock.lock();
+      try {
+        List<DatabaseKey> keys = segment.expires.pollExpired(now, limit - checked);
+        checked += keys.size();
+        for (DatabaseKey key : keys) {
+          DatabaseValue value = segment.entries.get(key);
+          if (value != null && value.isExpired(now)) {
+            segment.entries.remove(key);
+            memory.update(key, value, null);
+            expired++;
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return Tuple.of(checked, expired);
+  }
+
+  private List<DatabaseKey> keys(boolean onlyVolatile) {
+    List<DatabaseKey> keys = new ArrayList<>();
+    for (Segment segment : segments) {
+      Lock lock = segment.lock.readLock();
+      lock.lock();
+      try {
+        keys.addAll(onlyVolatile ? segment.expires.keys() : segment.entries.keySet());
+      } finally {
+        lock.unlock();
+      }
+    }
+    return keys;
+  }
+
+  private Segment segment(DatabaseKey key) {
+    return segment(key.hashCode());
+  }
+
+  private Segment segment(int hash) {
+    // the high bits of another hash, the map of the segment uses the low bits of the hash code
+    return segments[(hash * 0x9E3779B9) >>> SEGMENT_SHIFT];
+  }
+
+  /**
+   * The map and the expiry index of a segment are only used with its lock.
+   */
+  private final class Segment {
+
+    private final int index;
+    private final ScanHashMap<DatabaseKey, DatabaseValue> entries = new ScanHashMap<>();
+    private final ExpiryIndex expires = new ExpiryIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Segment(int index) {
+      this.index = index;
+    }
+
+    private int size() {
+      Lock readLock = lock.readLock();
+      readLock.lock();
+      try {
+        return entries.size();
+      } finally {
+        readLock.unlock();
+      }
+    }
+
+    private DatabaseValue get(DatabaseKey key) {
+      Lock readLock = lock.readLock();
+      readLock.lock();
+      try {
+        return entries.get(key);
+      } finally {
+        readLock.unlock();
+      }
+    }
+
+    private DatabaseValue find(SafeString key) {
+      Lock readLock = lock.readLock();
+      readLock.lock();
+      try {
+        return entries.find(key, DatabaseKey::hasValue);
+      } finally {
+        readLock.unlock();
+      }
+    }
+
+    private DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+      DatabaseValue oldValue = entries.put(key, value);
+      expires.update(key, value);
+      memory.update(key, oldValue, value);
+      return oldValue;
+    }
+
+    private DatabaseValue remove(DatabaseKey key) {
+      DatabaseValue oldValue = entries.remove(key);
+      if (oldValue != null) {
+        expires.remove(key);
+        memory.update(key, oldValue, null);
+      }
+      return oldValue;
+    }
+
+    /**
+     * Removes an expired entry, only if nobody has updated the key in the meantime.
+     */
+    private void removeIfSame(DatabaseKey key, DatabaseValue value) {
+      Lock writeLock = lock.writeLock();
+      writeLock.lock();
+      try {
+        if (entries.get(key) == value) {
+          remove(key);
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+public class ConcurrentOnHeapDatabaseFactory implements DatabaseFactory {
+
+  private final DatabaseContext context;
+
+  public ConcurrentOnHeapDatabaseFactory() {
+    this(new DatabaseContext());
+  }
+
+  public ConcurrentOnHeapDatabaseFactory(DatabaseContext context) {
+    this.context = requireNonNull(context);
+  }
+
+  @Override
+  public Database create(String name) {
+    return new ConcurrentOnHeapDatabase(context);
+  }
+
+  @Override
+  public DatabaseContext getContext() {
+    return context;
+  }
+
+  @Override
+  public void clear() {
+    // nothing to clear
+  }
+}
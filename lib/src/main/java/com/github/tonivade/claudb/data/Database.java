@@ -4,18 +4,25 @@
  */
 package com.github.tonivade.claudb.data;
 
-import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
-
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
+import com.github.tonivade.purefun.Tuple;
 import com.github.tonivade.purefun.Tuple2;
-import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableMap;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public interface Database {
@@ -40,24 +47,117 @@ public interface Database {
 
   ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet();
 
+  /**
+   * Applies the action to every entry, expired entries included. Databases that can iterate
+   * their entries do it without a copy of the whole database.
+   */
+  default void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    for (Tuple2<DatabaseKey, DatabaseValue> entry : entrySet()) {
+      action.accept(entry.get1(), entry.get2());
+    }
+  }
+
+  /**
+   * Captures the entries for a {@link Snapshot}, expired entries included, they are read later
+   * from another thread while this database keeps changing. It must be called from the thread
+   * that owns the database. The default copies the references to the entries, the values stored
+   * before the snapshot was opened are not modified while it is open.
+   */
+  default Snapshot.Entries capture() {
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>(size());
+    forEach((key, value) -> entries.add(Tuple.of(key, value)));
+    return Snapshot.Entries.of(entries);
+  }
+
+  /**
+   * Stores the value without returning the old one, so databases that keep the values
+   * serialized do not need to read it. By default it is the same as put.
+   */
+  default void store(DatabaseKey key, DatabaseValue value) {
+    put(key, value);
+  }
+
+  /**
+   * Removes the key and returns true if it existed. The value is not returned, so databases
+   * that keep the values serialized do not need to read it.
+   */
+  default boolean unlink(DatabaseKey key) {
+    return remove(key) != null;
+  }
+
+  /**
+   * Removes all the keys, the memory of the entries can be released later by {@link LazyFree}.
+   * By default it is the same as clear.
+   */
+  default void clearLazily() {
+    clear();
+  }
+
+  /**
+   * Applies the action to about count entries from the cursor on, expired entries included,
+   * and returns the cursor of the next call, zero when all the entries have been visited.
+   * An entry present during the whole scan is visited at least once, and a call only visits
+   * the positions of the cursor it needs, not the whole database.
+   */
+  long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action);
+
+  /**
+   * Applies the action to the entries whose key starts with the prefix, expired entries
+   * included. By default all the entries are visited.
+   */
+  default void forEachWithPrefix(SafeString prefix, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    forEach((key, value) -> {
+      if (key.startsWith(prefix)) {
+        action.accept(key, value);
+      }
+    });
+  }
+
+  /**
+   * As {@link #scan(long, int, BiConsumer)}, but only the entries whose key starts with the
+   * prefix are applied to the action. By default count is the number of entries visited, with
+   * the prefix or not.
+   */
+  default long scanWithPrefix(SafeString prefix, long cursor, int count,
+      BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return scan(cursor, count, (key, value) -> {
+      if (key.startsWith(prefix)) {
+        action.accept(key, value);
+      }
+    });
+  }
+
+  /**
+   * As {@link #get(DatabaseKey)}, with the key given by its bytes. Databases that can look up
+   * the key without a new {@link DatabaseKey} do not allocate it.
+   */
+  default DatabaseValue lookup(SafeString key) {
+    return get(DatabaseKey.safeKey(key));
+  }
+
   default SafeString getString(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_STRING).getString();
+    DatabaseValue value = lookup(key);
+    return (value != null ? value : DatabaseValue.EMPTY_STRING).getString();
   }
 
-  default ImmutableList<SafeString> getList(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_LIST).getList();
+  default List<SafeString> getList(SafeString key) {
+    DatabaseValue value = lookup(key);
+    return (value != null ? value : DatabaseValue.EMPTY_LIST).getList();
   }
 
-  default ImmutableSet<SafeString> getSet(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_SET).getSet();
+  default Set<SafeString> getSet(SafeString key) {
+    DatabaseValue value = lookup(key);
+    return (value != null ? value : DatabaseValue.EMPTY_SET).getSet();
   }
 
   default NavigableSet<Entry<Double, SafeString>> getSortedSet(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_ZSET).getSortedSet();
+    DatabaseValue value = lookup(key);
+    return (value != null ? value : DatabaseValue.EMPTY_ZSET).getSortedSet();
   }
 
-  default ImmutableMap<SafeString, SafeString> getHash(SafeString key) {
-    return getOrDefault(safeKey(key), DatabaseValue.EMPTY_HASH).getHash();
+  default Map<SafeString, SafeString> getHash(SafeString key) {
+    DatabaseValue value = lookup(key);
+    return (value != null ? value : DatabaseValue.EMPTY_HASH).getHash();
   }
 
   default void putAll(ImmutableMap<? extends DatabaseKey, ? extends DatabaseValue> map) {
@@ -72,21 +172,42 @@ public interface Database {
     return oldValue;
   }
 
-  default DatabaseValue merge(DatabaseKey key, DatabaseValue value,
-      BiFunction<DatabaseValue, DatabaseValue, DatabaseValue> remappingFunction) {
+  default DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
     DatabaseValue oldValue = get(key);
-    DatabaseValue newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
-    if(newValue == null) {
-      remove(key);
+    DatabaseValue newValue = remappingFunction.apply(key, oldValue);
+    if (newValue == null) {
+      if (oldValue != null) {
+        remove(key);
+      }
     } else {
       put(key, newValue);
     }
     return newValue;
   }
 
+  default DatabaseValue computeIfPresent(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    return compute(key, (k, oldValue) -> oldValue == null ? null : remappingFunction.apply(k, oldValue));
+  }
+
+  default DatabaseValue merge(DatabaseKey key, DatabaseValue value,
+      BiFunction<DatabaseValue, DatabaseValue, DatabaseValue> remappingFunction) {
+    return compute(key, (k, oldValue) -> oldValue == null ? value : remappingFunction.apply(oldValue, value));
+  }
+
   default DatabaseValue getOrDefault(DatabaseKey key, DatabaseValue defaultValue) {
     DatabaseValue value = get(key);
-    return (value != null || containsKey(key)) ? value : defaultValue;
+    return value != null ? value : defaultValue;
+  }
+
+  /**
+   * Applies the reader to the value of the key, or to the default value if the key does not
+   * exist. The view is only valid inside the reader, it must not escape it.
+   */
+  default <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    DatabaseValue value = get(key);
+    return reader.apply(value != null ? value : defaultValue);
   }
 
   default boolean isType(DatabaseKey key, DataType type) {
@@ -109,8 +230,60 @@ public interface Database {
   }
 
   default ImmutableSet<DatabaseKey> evictableKeys(Instant now) {
-    return entrySet()
-        .filter(entry -> entry.get2().isExpired(now))
-        .map(Tuple2::get1);
+    Set<DatabaseKey> keys = new HashSet<>();
+    forEach((key, value) -> {
+      if (value.isExpired(now)) {
+        keys.add(key);
+      }
+    });
+    return ImmutableSet.from(keys);
+  }
+
+  default void evictExpired(Instant now) {
+    evictableKeys(now).forEach(this::remove);
+  }
+
+  /**
+   * Evicts up to limit expired keys, it returns the number of keys checked and the number
+   * of keys evicted.
+   */
+  default Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    int expired = 0;
+    for (DatabaseKey key : evictableKeys(now)) {
+      if (expired == limit) {
+        break;
+      }
+      remove(key);
+      expired++;
+    }
+    return Tuple.of(expired, expired);
+  }
+
+  /**
+   * Returns the estimated bytes used by the keys and values of this database.
+   */
+  default long usedMemory() {
+    long used = 0;
+    for (Tuple2<DatabaseKey, DatabaseValue> entry : entrySet()) {
+      used += MemoryEstimator.HEAP.entrySize(entry.get1(), entry.get2(), MemoryEstimator.DEFAULT_SAMPLES);
+    }
+    return used;
+  }
+
+  /**
+   * Returns the estimated bytes used by the key and its value, if the key exists.
+   */
+  default Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    DatabaseValue value = get(key);
+    return value != null ? Option.some(MemoryEstimator.HEAP.entrySize(key, value, samples)) : Option.none();
+  }
+
+  /**
+   * Returns up to count random entries, only the keys with an expiration if onlyVolatile is
+   * true, to choose the keys to evict when the maxmemory limit is reached. Databases that
+   * cannot sample their keys return an empty list, so nothing is evicted.
+   */
+  default List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    return Collections.emptyList();
   }
 }
@@ -31,7 +31,7 @@ public class DatabaseCleaner {
 
   public void start() {
     executor.scheduleWithFixedDelay(this::clean,
-        config.getCleanPeriod(), config.getCleanPeriod(), TimeUnit.SECONDS);
+        config.getExpireCyclePeriod(), config.getExpireCyclePeriod(), TimeUnit.MILLISECONDS);
   }
 
   public void stop() {
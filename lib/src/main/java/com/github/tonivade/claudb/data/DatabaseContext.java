@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.tonivade.claudb.DBConfig;
+
+/**
+ * Settings and statistics of the databases created by a factory, so two servers in the same
+ * JVM never share them. Values are created without a context and take the settings of the
+ * database when they are stored.
+ */
+public final class DatabaseContext {
+
+  private final DBConfig config;
+  private final CompactEncoding encoding;
+  private final SharedValues sharedValues;
+  private final Eviction eviction;
+  private final LazyFree lazyFree;
+  private final TieredStats tieredStats = new TieredStats();
+  private final PrefixIndexStats prefixIndexStats = new PrefixIndexStats();
+  private final LongAdder usedMemory = new LongAdder();
+  private final Snapshot.Epochs epochs = new Snapshot.Epochs();
+
+  public DatabaseContext() {
+    this(DBConfig.builder().build());
+  }
+
+  public DatabaseContext(DBConfig config) {
+    this.config = requireNonNull(config);
+    this.encoding = new CompactEncoding(config);
+    this.sharedValues = new SharedValues(config);
+    this.eviction = new Eviction(config);
+    this.lazyFree = new LazyFree(config);
+  }
+
+  public DBConfig getConfig() {
+    return config;
+  }
+
+  public SharedValues getSharedValues() {
+    return sharedValues;
+  }
+
+  public LazyFree getLazyFree() {
+    return lazyFree;
+  }
+
+  public TieredStats getTieredStats() {
+    return tieredStats;
+  }
+
+  public PrefixIndexStats getPrefixIndexStats() {
+    return prefixIndexStats;
+  }
+
+  /**
+   * Returns the memory used by all the databases of this context, kept as a running total
+   * updated by the databases on every write, so it is not computed database by database.
+   */
+  public long getUsedMemory() {
+    return usedMemory.sum();
+  }
+
+  void addMemory(long delta) {
+    usedMemory.add(delta);
+  }
+
+  Snapshot.Epochs getEpochs() {
+    return epochs;
+  }
+
+  /**
+   * Returns the value to store in a database of this context instead of the old one, a new
+   * value takes the snapshot epoch, the encoding limits and the first access.
+   */
+  DatabaseValue store(DatabaseValue oldValue, DatabaseValue newValue) {
+    if (newValue == null) {
+      return null;
+    }
+    if (newValue == oldValue) {
+      newValue.touch(eviction);
+      return newValue;
+    }
+    DatabaseValue stored = sharedValues.store(newValue);
+    stored.setEpoch(epochs.current());
+    stored.setEncoding(encoding);
+    stored.touch(eviction);
+    return stored;
+  }
+
+  /**
+   * Records a read of a stored value.
+   */
+  void touch(DatabaseValue value) {
+    value.touch(eviction);
+  }
+
+  public void close() {
+    lazyFree.shutdown();
+  }
+}
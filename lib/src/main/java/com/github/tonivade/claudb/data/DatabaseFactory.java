@@ -7,4 +7,17 @@ package com.github.tonivade.claudb.data;
 public interface DatabaseFactory {
   Database create(String name);
   void clear();
+
+  /**
+   * Settings and statistics shared by all the databases created by this factory.
+   */
+  DatabaseContext getContext();
+
+  /**
+   * Returns the memory, in bytes, used by the server, by default the used heap.
+   */
+  default long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
 }
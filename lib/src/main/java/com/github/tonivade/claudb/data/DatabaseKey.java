@@ -7,17 +7,16 @@ package com.github.tonivade.claudb.data;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
 import java.io.Serializable;
-import java.util.Objects;
+import java.nio.ByteBuffer;
 
-import com.github.tonivade.purefun.Equal;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public class DatabaseKey implements Comparable<DatabaseKey>, Serializable {
 
   private static final long serialVersionUID = 7710472090270782053L;
-  private static final Equal<DatabaseKey> EQUAL = Equal.<DatabaseKey>of().comparing(k -> k.value);
 
   private final SafeString value;
+  private transient int hash;
 
   public DatabaseKey(SafeString value) {
     this.value = value;
@@ -34,12 +33,46 @@ public class DatabaseKey implements Comparable<DatabaseKey>, Serializable {
 
   @Override
   public int hashCode() {
-    return Objects.hash(value);
+    int h = hash;
+    if (h == 0) {
+      h = value.hashCode();
+      hash = h;
+    }
+    return h;
   }
 
   @Override
   public boolean equals(Object obj) {
-    return EQUAL.applyTo(this, obj);
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof DatabaseKey)) {
+      return false;
+    }
+    DatabaseKey other = (DatabaseKey) obj;
+    return hashCode() == other.hashCode() && value.equals(other.value);
+  }
+
+  /**
+   * True if the bytes of the key are the same as the string, to look up a key without a new
+   * instance.
+   */
+  public boolean hasValue(SafeString other) {
+    return value.equals(other);
+  }
+
+  public boolean startsWith(SafeString prefix) {
+    if (prefix.length() > value.length()) {
+      return false;
+    }
+    ByteBuffer buffer = value.getBuffer();
+    ByteBuffer other = prefix.getBuffer();
+    for (int i = 0; i < other.remaining(); i++) {
+      if (buffer.get(buffer.position() + i) != other.get(other.position() + i)) {
+        return false;
+      }
+    }
+    return true;
   }
 
   @Override
@@ -6,142 +6,311 @@ package com.github.tonivade.claudb.data;
 
 import static com.github.tonivade.purefun.Matcher1.instanceOf;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
-import static java.time.Instant.now;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toCollection;
 
 import java.io.Serializable;
-import java.time.Duration;
 import java.time.Instant;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.stream.Collector;
-import java.util.stream.Stream;
 
 import com.github.tonivade.purefun.Equal;
 import com.github.tonivade.purefun.Pattern1;
 import com.github.tonivade.purefun.Tuple;
 import com.github.tonivade.purefun.Tuple2;
-import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableMap;
-import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
 import com.github.tonivade.resp.protocol.SafeString;
 
-public class DatabaseValue implements Serializable {
+public class DatabaseValue implements ValueView, Serializable {
 
   private static final long serialVersionUID = -5178953336530559139L;
 
   public static final DatabaseValue EMPTY_STRING = string("");
-  public static final DatabaseValue EMPTY_LIST = list();
-  public static final DatabaseValue EMPTY_SET = set();
-  public static final DatabaseValue EMPTY_ZSET = zset();
-  public static final DatabaseValue EMPTY_HASH = hash();
+  public static final DatabaseValue EMPTY_LIST = shared(list());
+  public static final DatabaseValue EMPTY_SET = shared(set());
+  public static final DatabaseValue EMPTY_ZSET = shared(zset());
+  public static final DatabaseValue EMPTY_HASH = shared(hash());
   public static final DatabaseValue NULL = null;
 
+  private static final long NO_EXPIRATION = Long.MIN_VALUE;
+
   private static final Equal<DatabaseValue> EQUAL =
       Equal.<DatabaseValue>of().comparing(v -> v.type).comparing(v -> v.value);
 
   private final DataType type;
   private final Object value;
-  private final Instant expiredAt;
+  // epoch millis, primitive so expiration checks never allocate
+  private final long expiredAt;
+  private final boolean shared;
+  // last access time or frequency packed by Eviction, only used to evict keys
+  private transient int access;
+  // bytes this value was accounted with by the database that holds it
+  private transient int footprint;
+  // snapshot epoch when it was first stored, it is copied before a write while the snapshot is open
+  private transient Snapshot.Epoch epoch;
 
   private DatabaseValue(DataType type, Object value) {
-    this(type, value, null);
+    this(type, value, NO_EXPIRATION, false);
   }
 
-  private DatabaseValue(DataType type, Object value, Instant expiredAt) {
+  private DatabaseValue(DataType type, Object value, long expiredAt, boolean shared) {
     this.type = requireNonNull(type);
     this.value = requireNonNull(value);
     this.expiredAt = expiredAt;
+    this.shared = shared;
   }
 
+  @Override
   public DataType getType() {
     return type;
   }
 
   public SafeString getString() {
     requiredType(DataType.STRING);
+    if (value instanceof Counter) {
+      return safeString(value.toString());
+    }
     return getValue();
   }
 
-  public ImmutableList<SafeString> getList() {
+  public boolean isInteger() {
+    return value instanceof Counter;
+  }
+
+  public long getInteger() {
+    requiredType(DataType.STRING);
+    if (value instanceof Counter) {
+      return ((Counter) value).value;
+    }
+    throw new IllegalStateException("not an integer");
+  }
+
+  /**
+   * Adds the delta to an integer value, an integer encoded value is updated in place, so it must
+   * be called only from the thread that owns the database. It throws NumberFormatException if
+   * the value is not an integer and ArithmeticException if the result overflows.
+   */
+  public DatabaseValue incrementBy(long delta) {
+    requiredType(DataType.STRING);
+    if (value instanceof Counter && !shared && !isFrozen()) {
+      Counter counter = (Counter) value;
+      counter.value = Math.addExact(counter.value, delta);
+      return this;
+    }
+    Long current = CompactEncoding.toLong(getString());
+    if (current == null) {
+      throw new NumberFormatException("not an integer: " + value);
+    }
+    return new DatabaseValue(DataType.STRING, new Counter(Math.addExact(current, delta)), expiredAt, false)
+        .withAccess(access);
+  }
+
+  /**
+   * Like incrementBy, but it throws NumberFormatException, before the value is changed, if the
+   * result is out of the given range.
+   */
+  public DatabaseValue incrementBy(long delta, long min, long max) {
+    requiredType(DataType.STRING);
+    Long current = value instanceof Counter ? (Long) ((Counter) value).value : CompactEncoding.toLong(getString());
+    if (current == null) {
+      throw new NumberFormatException("not an integer: " + value);
+    }
+    long result = Math.addExact(current, delta);
+    if (result < min || result > max) {
+      throw new NumberFormatException("out of range: " + result);
+    }
+    return incrementBy(delta);
+  }
+
+  public List<SafeString> getList() {
     requiredType(DataType.LIST);
-    return getValue();
+    return Collections.unmodifiableList(getValue());
   }
 
-  public ImmutableSet<SafeString> getSet() {
+  public Set<SafeString> getSet() {
     requiredType(DataType.SET);
-    return getValue();
+    return Collections.unmodifiableSet(getValue());
   }
 
-  public NavigableSet<Entry<Double, SafeString>> getSortedSet() {
+  public SortedSet getSortedSet() {
     requiredType(DataType.ZSET);
-    return getValue();
+    return this.<SortedSet>getValue().unmodifiable();
   }
 
-  public ImmutableMap<SafeString, SafeString> getHash() {
+  public Map<SafeString, SafeString> getHash() {
     requiredType(DataType.HASH);
-    return getValue();
+    return Collections.unmodifiableMap(getValue());
+  }
+
+  @Override
+  public int getStringLength() {
+    return getString().length();
+  }
+
+  @Override
+  public SafeString getListElement(int index) {
+    requiredType(DataType.LIST);
+    List<SafeString> list = getValue();
+    return index >= 0 && index < list.size() ? list.get(index) : null;
+  }
+
+  @Override
+  public SafeString getHashField(SafeString field) {
+    requiredType(DataType.HASH);
+    return this.<Map<SafeString, SafeString>>getValue().get(field);
+  }
+
+  @Override
+  public boolean hasSetMember(SafeString member) {
+    requiredType(DataType.SET);
+    return this.<Set<SafeString>>getValue().contains(member);
+  }
+
+  /**
+   * See {@link CompactSet#scan(long, int, Consumer)}.
+   */
+  @Override
+  public long scanSet(long cursor, int count, Consumer<SafeString> action) {
+    requiredType(DataType.SET);
+    return this.<CompactSet>getValue().scan(cursor, count, action);
+  }
+
+  /**
+   * See {@link CompactHash#scan(long, int, BiConsumer)}.
+   */
+  @Override
+  public long scanHash(long cursor, int count, BiConsumer<SafeString, SafeString> action) {
+    requiredType(DataType.HASH);
+    return this.<CompactHash>getValue().scan(cursor, count, action);
+  }
+
+  /**
+   * See {@link SortedSet#scan(long, int, BiConsumer)}.
+   */
+  @Override
+  public long scanSortedSet(long cursor, int count, BiConsumer<SafeString, Double> action) {
+    requiredType(DataType.ZSET);
+    return this.<SortedSet>getValue().scan(cursor, count, action);
   }
 
+  /**
+   * Collections are updated in place, so they must be called only from the thread that owns
+   * the database. It returns null if the list is empty after the update, so the key is removed.
+   */
+  public DatabaseValue updateList(Consumer<List<SafeString>> update) {
+    requiredType(DataType.LIST);
+    return writable().update(update);
+  }
+
+  public DatabaseValue updateSet(Consumer<Set<SafeString>> update) {
+    requiredType(DataType.SET);
+    return writable().update(update);
+  }
+
+  public DatabaseValue updateSortedSet(Consumer<SortedSet> update) {
+    requiredType(DataType.ZSET);
+    return writable().update(update);
+  }
+
+  public DatabaseValue updateHash(Consumer<Map<SafeString, SafeString>> update) {
+    requiredType(DataType.HASH);
+    return writable().update(update);
+  }
+
+  /**
+   * Returns a deep copy of this value, the collection can be updated without modifying
+   * the original one.
+   */
+  public DatabaseValue copy() {
+    return new DatabaseValue(type, copyOf(value), expiredAt, false).withAccess(access);
+  }
+
+  @Override
   public int size() {
     return Pattern1.<Object, Integer>build()
         .when(instanceOf(Collection.class))
           .then(collection -> ((Collection<?>) collection).size())
-        .when(instanceOf(Sequence.class))
-          .then(sequence -> ((Sequence<?>) sequence).size())
-        .when(instanceOf(ImmutableMap.class))
-          .then(map -> ((ImmutableMap<?, ?>) map).size())
+        .when(instanceOf(Map.class))
+          .then(map -> ((Map<?, ?>) map).size())
         .when(instanceOf(SafeString.class))
           .returns(1)
+        .when(instanceOf(Counter.class))
+          .returns(1)
         .otherwise()
           .returns(0)
         .apply(this.value);
   }
 
   public Instant getExpiredAt() {
+    return isVolatile() ? Instant.ofEpochMilli(expiredAt) : null;
+  }
+
+  /**
+   * Returns true if the value has an expiration.
+   */
+  public boolean isVolatile() {
+    return expiredAt != NO_EXPIRATION;
+  }
+
+  public long getExpiredAtMillis() {
     return expiredAt;
   }
 
   public boolean isExpired(Instant now) {
-    if (expiredAt != null) {
-      return now.isAfter(expiredAt);
-    }
-    return false;
+    return isExpired(now.toEpochMilli());
+  }
+
+  public boolean isExpired(long nowMillis) {
+    return isVolatile() && nowMillis > expiredAt;
   }
 
   public long timeToLiveMillis(Instant now) {
-    if (expiredAt != null) {
+    if (isVolatile()) {
       return timeToLive(now);
     }
     return -1;
   }
 
   public int timeToLiveSeconds(Instant now) {
-    if (expiredAt != null) {
+    if (isVolatile()) {
       return (int) Math.floorDiv(timeToLive(now), 1000L);
     }
     return -1;
   }
 
   public DatabaseValue expiredAt(Instant instant) {
-    return new DatabaseValue(this.type, this.value, instant);
+    return expiredAtMillis(instant != null ? instant.toEpochMilli() : NO_EXPIRATION);
   }
 
   public DatabaseValue expiredAt(int ttlSeconds) {
-    return new DatabaseValue(this.type, this.value, toInstant(toMillis(ttlSeconds)));
+    return expiredAtMillis(CoarseClock.millis() + toMillis(ttlSeconds));
+  }
+
+  public DatabaseValue expiredAtMillis(long epochMillis) {
+    if (epochMillis == expiredAt) {
+      return this;
+    }
+    // the value is not copied, so it is frozen as this one
+    DatabaseValue result = new DatabaseValue(this.type, this.value, epochMillis, this.shared).withAccess(access);
+    result.epoch = epoch;
+    return result;
   }
 
   public DatabaseValue noExpire() {
-    return new DatabaseValue(this.type, this.value);
+    return expiredAtMillis(NO_EXPIRATION);
   }
 
   @Override
@@ -164,61 +333,75 @@ public class DatabaseValue implements Serializable {
   }
 
   public static DatabaseValue string(SafeString value) {
-    return new DatabaseValue(DataType.STRING, value);
+    Long number = CompactEncoding.toLong(requireNonNull(value));
+    if (number != null) {
+      return number(number);
+    }
+    DatabaseValue pooled = SharedValues.string(value);
+    return pooled != null ? pooled : new DatabaseValue(DataType.STRING, value);
+  }
+
+  public static DatabaseValue number(long value) {
+    DatabaseValue pooled = SharedValues.number(value);
+    return pooled != null ? pooled : new DatabaseValue(DataType.STRING, new Counter(value));
   }
 
   public static DatabaseValue list(Sequence<SafeString> values) {
-    return new DatabaseValue(DataType.LIST, values.asList());
+    QuickList list = new QuickList();
+    requireNonNull(values).forEach(list::add);
+    return new DatabaseValue(DataType.LIST, list);
   }
 
   public static DatabaseValue list(Collection<SafeString> values) {
-    return new DatabaseValue(DataType.LIST, ImmutableList.from(requireNonNull(values).stream()));
+    return new DatabaseValue(DataType.LIST, new QuickList(requireNonNull(values)));
   }
 
   public static DatabaseValue list(SafeString... values) {
-    return new DatabaseValue(DataType.LIST, ImmutableList.from(Stream.of(values)));
+    return list(Arrays.asList(values));
   }
 
   public static DatabaseValue set(Sequence<SafeString> values) {
-    return new DatabaseValue(DataType.SET, values.asSet());
+    Set<SafeString> set = new CompactSet();
+    requireNonNull(values).forEach(set::add);
+    return new DatabaseValue(DataType.SET, set);
   }
 
   public static DatabaseValue set(Collection<SafeString> values) {
-    return new DatabaseValue(DataType.SET, ImmutableSet.from(requireNonNull(values).stream()));
+    return new DatabaseValue(DataType.SET, new CompactSet(requireNonNull(values)));
   }
 
   public static DatabaseValue set(SafeString... values) {
-    return new DatabaseValue(DataType.SET, ImmutableSet.from(Stream.of(values)));
+    return set(Arrays.asList(values));
   }
 
   public static DatabaseValue zset(Collection<Entry<Double, SafeString>> values) {
-    return new DatabaseValue(DataType.ZSET,
-        requireNonNull(values).stream().collect(collectingAndThen(toSortedSet(),
-                                                                  Collections::unmodifiableNavigableSet)));
+    return new DatabaseValue(DataType.ZSET, requireNonNull(values).stream().collect(toSortedSet()));
   }
 
   @SafeVarargs
   public static DatabaseValue zset(Entry<Double, SafeString>... values) {
-    return new DatabaseValue(DataType.ZSET,
-        Stream.of(values).collect(collectingAndThen(toSortedSet(),
-                                                    Collections::unmodifiableNavigableSet)));
+    return zset(Arrays.asList(values));
   }
 
   public static DatabaseValue hash(ImmutableMap<SafeString, SafeString> values) {
-    return new DatabaseValue(DataType.HASH, values);
+    return new DatabaseValue(DataType.HASH, new CompactHash(requireNonNull(values).toMap()));
   }
 
   public static DatabaseValue hash(Collection<Tuple2<SafeString, SafeString>> values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(requireNonNull(values).stream()));
+    Map<SafeString, SafeString> hash = new CompactHash();
+    requireNonNull(values).forEach(entry -> hash.put(entry.get1(), entry.get2()));
+    return new DatabaseValue(DataType.HASH, hash);
   }
 
   public static DatabaseValue hash(Sequence<Tuple2<SafeString, SafeString>> values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(requireNonNull(values).stream()));
+    Map<SafeString, SafeString> hash = new CompactHash();
+    requireNonNull(values).forEach(entry -> hash.put(entry.get1(), entry.get2()));
+    return new DatabaseValue(DataType.HASH, hash);
   }
 
   @SafeVarargs
   public static DatabaseValue hash(Tuple2<SafeString, SafeString>... values) {
-    return new DatabaseValue(DataType.HASH, ImmutableMap.from(Stream.of(values)));
+    return hash(Arrays.asList(values));
   }
 
   public static DatabaseValue bitset(int... ones) {
@@ -237,16 +420,137 @@ public class DatabaseValue implements Serializable {
     return new SimpleEntry<>(score, value);
   }
 
-  private static Collector<Entry<Double, SafeString>, ?, NavigableSet<Entry<Double, SafeString>>> toSortedSet() {
+  private static Collector<Entry<Double, SafeString>, ?, SortedSet> toSortedSet() {
     return toCollection(SortedSet::new);
   }
 
-  private long timeToLive(Instant now) {
-    return Duration.between(now, expiredAt).toMillis();
+  static DatabaseValue sharedString(SafeString value) {
+    return new DatabaseValue(DataType.STRING, value, NO_EXPIRATION, true);
+  }
+
+  static DatabaseValue sharedNumber(long value) {
+    return new DatabaseValue(DataType.STRING, new Counter(value), NO_EXPIRATION, true);
   }
 
-  private Instant toInstant(long ttlMillis) {
-    return now().plusMillis(ttlMillis);
+  private static DatabaseValue shared(DatabaseValue value) {
+    return new DatabaseValue(value.type, value.value, NO_EXPIRATION, true);
+  }
+
+  private static Object copyOf(Object value) {
+    return Pattern1.<Object, Object>build()
+        .when(instanceOf(Counter.class))
+          .then(counter -> new Counter(((Counter) counter).value))
+        .when(instanceOf(QuickList.class))
+          .then(list -> new QuickList((QuickList) list))
+        .when(instanceOf(SortedSet.class))
+          .then(zset -> new SortedSet((SortedSet) zset))
+        .when(instanceOf(CompactSet.class))
+          .then(set -> new CompactSet((CompactSet) set))
+        .when(instanceOf(CompactHash.class))
+          .then(map -> new CompactHash((CompactHash) map))
+        .otherwise()
+          .then(object -> object)
+        .apply(value);
+  }
+
+  /**
+   * Records an access to the value, used by the approximated LRU and LFU eviction policies.
+   */
+  void touch(Eviction eviction) {
+    access = eviction.touch(access);
+  }
+
+  /**
+   * The collection takes the limits of the database that stores it, shared values and the
+   * ones in a snapshot take them when they are copied.
+   */
+  void setEncoding(CompactEncoding encoding) {
+    if (shared || isFrozen()) {
+      return;
+    }
+    if (value instanceof CompactHash) {
+      ((CompactHash) value).setEncoding(encoding);
+    } else if (value instanceof CompactSet) {
+      ((CompactSet) value).setEncoding(encoding);
+    } else if (value instanceof SortedSet) {
+      ((SortedSet) value).setEncoding(encoding);
+    }
+  }
+
+  /**
+   * A value keeps the epoch of the first database that stores it, a new one is never frozen.
+   */
+  void setEpoch(Snapshot.Epoch epoch) {
+    if (!shared && this.epoch == null) {
+      this.epoch = epoch;
+    }
+  }
+
+  boolean isShared() {
+    return shared;
+  }
+
+  int getAccess() {
+    return access;
+  }
+
+  int getFootprint() {
+    return footprint;
+  }
+
+  void setFootprint(int footprint) {
+    this.footprint = footprint;
+  }
+
+  /**
+   * Estimated bytes used by this value in the heap, the value of a shared value is not
+   * counted, only the reference to it.
+   */
+  long memoryUsage(int samples) {
+    // type, value, epoch, expiredAt, shared, access and footprint
+    long size = HeapSize.object(3 * HeapSize.REFERENCE + Long.BYTES + 1 + 2 * Integer.BYTES);
+    if (shared) {
+      return size;
+    }
+    return size + Pattern1.<Object, Long>build()
+        .when(instanceOf(Counter.class))
+          .returns(HeapSize.object(Long.BYTES))
+        .when(instanceOf(SafeString.class))
+          .then(string -> HeapSize.string((SafeString) string))
+        .when(instanceOf(QuickList.class))
+          .then(list -> ((QuickList) list).memoryUsage(samples))
+        .when(instanceOf(CompactSet.class))
+          .then(set -> ((CompactSet) set).memoryUsage(samples))
+        .when(instanceOf(CompactHash.class))
+          .then(hash -> ((CompactHash) hash).memoryUsage(samples))
+        .when(instanceOf(SortedSet.class))
+          .then(zset -> ((SortedSet) zset).memoryUsage(samples))
+        .otherwise()
+          .returns(0L)
+        .apply(this.value);
+  }
+
+  private DatabaseValue withAccess(int access) {
+    this.access = access;
+    return this;
+  }
+
+  private boolean isFrozen() {
+    return epoch != null && epoch.isFrozen();
+  }
+
+  private DatabaseValue writable() {
+    // shared values, like the empty ones, and the ones in a snapshot are never modified
+    return shared || isFrozen() ? copy() : this;
+  }
+
+  private <T> DatabaseValue update(Consumer<T> update) {
+    update.accept(getValue());
+    return size() > 0 ? this : null;
+  }
+
+  private long timeToLive(Instant now) {
+    return expiredAt - now.toEpochMilli();
   }
 
   private long toMillis(int ttlSeconds) {
@@ -263,4 +567,33 @@ public class DatabaseValue implements Serializable {
       throw new IllegalStateException("invalid type: " + type);
     }
   }
+
+  /**
+   * Integer encoded string, the value is rendered as a string only when it is read.
+   */
+  private static final class Counter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long value;
+
+    private Counter(long value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(value);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof Counter && ((Counter) obj).value == value;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value);
+    }
+  }
 }
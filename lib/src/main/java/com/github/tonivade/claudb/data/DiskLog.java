@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Log of serialized values in a file, values are appended and read with a single positioned
+ * read. The location of a value packs its offset in the high 40 bits and its length in the low
+ * 24 bits, so the index of the keys only keeps a long for every key. The file is truncated when
+ * it is opened, it only extends the memory of a running server.
+ *
+ * While the log is pinned by a snapshot, the values already written stay where they are, so
+ * the log is not compacted, and it is not truncated when it is cleared.
+ */
+final class DiskLog implements Closeable {
+
+  private static final int LENGTH_BITS = 24;
+  private static final int MAX_LENGTH = (1 << LENGTH_BITS) - 1;
+
+  private final Path path;
+  private final long minCompactBytes;
+  // unpinned from the thread that exports the snapshot
+  private final AtomicInteger pins = new AtomicInteger();
+
+  private FileChannel channel;
+  private long end;
+  private long live;
+
+  /**
+   * The log is compacted when it has more garbage than values, and at least minCompactBytes.
+   */
+  DiskLog(Path path, long minCompactBytes) {
+    this.path = path;
+    this.minCompactBytes = minCompactBytes;
+    this.channel = open(path);
+  }
+
+  static boolean fits(DatabaseValue value) {
+    return SerializedValue.serializedSize(value) <= MAX_LENGTH;
+  }
+
+  static int length(long location) {
+    return (int) (location & MAX_LENGTH);
+  }
+
+  long append(DatabaseValue value) {
+    ByteBuffer buffer = ByteBuffer.allocate(SerializedValue.serializedSize(value));
+    SerializedValue.serialize(value, buffer);
+    buffer.flip();
+    long location = (end << LENGTH_BITS) | buffer.remaining();
+    write(channel, buffer, end);
+    end += length(location);
+    live += length(location);
+    return location;
+  }
+
+  SerializedValue read(long location) {
+    return new SerializedValue(read(channel, location));
+  }
+
+  /**
+   * The value is not in the index anymore, its bytes are garbage until the next compaction.
+   */
+  void release(long location) {
+    live -= length(location);
+  }
+
+  boolean needsCompaction() {
+    long garbage = end - live;
+    return pins.get() == 0 && garbage > minCompactBytes && garbage > live;
+  }
+
+  void pin() {
+    pins.incrementAndGet();
+  }
+
+  void unpin() {
+    pins.decrementAndGet();
+  }
+
+  /**
+   * Copies the values of the index to a new log and updates their locations.
+   */
+  <K> void compact(Map<K, Long> index) {
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    FileChannel target = open(tmp);
+    long position = 0;
+    for (Map.Entry<K, Long> entry : index.entrySet()) {
+      ByteBuffer buffer = read(channel, entry.getValue());
+      write(target, buffer, position);
+      entry.setValue((position << LENGTH_BITS) | length(entry.getValue()));
+      position += length(entry.getValue());
+    }
+    close(channel);
+    try {
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    channel = target;
+    end = position;
+    live = position;
+  }
+
+  /**
+   * A pinned log is not truncated, all its values become garbage.
+   */
+  void clear() {
+    live = 0;
+    if (pins.get() > 0) {
+      return;
+    }
+    try {
+      channel.truncate(0);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    end = 0;
+  }
+
+  @Override
+  public void close() {
+    close(channel);
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static FileChannel open(Path path) {
+    try {
+      return FileChannel.open(path, CREATE, READ, WRITE, TRUNCATE_EXISTING);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void close(FileChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void write(FileChannel channel, ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static ByteBuffer read(FileChannel channel, long location) {
+    ByteBuffer buffer = ByteBuffer.allocate(length(location));
+    long position = location >>> LENGTH_BITS;
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          throw new IOException("unexpected end of file: " + position);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    buffer.flip();
+    return buffer;
+  }
+}
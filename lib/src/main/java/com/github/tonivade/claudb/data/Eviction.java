@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.github.tonivade.claudb.DBConfig;
+
+/**
+ * Access metadata that every value keeps in a single int to choose the keys to evict when
+ * the maxmemory limit is reached. Like redis, for LRU it is a 24 bits clock in seconds, and
+ * for LFU the minute of the last decrement in the high 16 bits and a logarithmic counter
+ * in the low 8 bits. Every server has its own policy, the values are touched by the databases
+ * of the server with it.
+ */
+public final class Eviction {
+
+  private static final int LRU_CLOCK_MAX = (1 << 24) - 1;
+  private static final int LFU_TIME_MAX = (1 << 16) - 1;
+  private static final int LFU_COUNTER_MAX = 255;
+  private static final int LFU_INIT_VAL = 5;
+  private static final int LFU_LOG_FACTOR = 10;
+  private static final int LFU_DECAY_TIME = 1;
+
+  static final Eviction NONE = new Eviction(MaxMemoryPolicy.NOEVICTION);
+
+  private final MaxMemoryPolicy policy;
+
+  public Eviction(DBConfig config) {
+    this(config.getMaxMemory() > 0 ? config.getMaxMemoryPolicy() : MaxMemoryPolicy.NOEVICTION);
+  }
+
+  Eviction(MaxMemoryPolicy policy) {
+    this.policy = requireNonNull(policy);
+  }
+
+  /**
+   * Values that are touched can not be shared by several keys.
+   */
+  boolean tracksAccess() {
+    return policy.isLru() || policy.isLfu();
+  }
+
+  /**
+   * Returns how good a candidate to be evicted the value is, bigger scores are evicted first.
+   */
+  public static long score(MaxMemoryPolicy policy, DatabaseValue value) {
+    switch (policy) {
+      case ALLKEYS_LRU:
+      case VOLATILE_LRU:
+        return idleTime(value.getAccess());
+      case ALLKEYS_LFU:
+        return LFU_COUNTER_MAX - frequency(value.getAccess());
+      case VOLATILE_TTL:
+        return -value.getExpiredAtMillis();
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Returns the access after a new one, a value that was never touched has zero access.
+   */
+  int touch(int access) {
+    if (policy.isLfu()) {
+      return lfu(access == 0 ? LFU_INIT_VAL : increment(frequency(access)));
+    }
+    if (policy.isLru()) {
+      return lruClock();
+    }
+    return access;
+  }
+
+  static long idleTime(int access) {
+    return (lruClock() - access) & LRU_CLOCK_MAX;
+  }
+
+  static int frequency(int access) {
+    int elapsed = (lfuTime() - (access >>> 8)) & LFU_TIME_MAX;
+    int counter = access & LFU_COUNTER_MAX;
+    return Math.max(0, counter - elapsed / LFU_DECAY_TIME);
+  }
+
+  private static int increment(int counter) {
+    if (counter == LFU_COUNTER_MAX) {
+      return counter;
+    }
+    int base = Math.max(0, counter - LFU_INIT_VAL);
+    double probability = 1.0 / (base * LFU_LOG_FACTOR + 1);
+    return ThreadLocalRandom.current().nextDouble() < probability ? counter + 1 : counter;
+  }
+
+  private static int lfu(int counter) {
+    return (lfuTime() << 8) | counter;
+  }
+
+  private static int lruClock() {
+    return (int) (CoarseClock.millis() / 1000) & LRU_CLOCK_MAX;
+  }
+
+  private static int lfuTime() {
+    return (int) (CoarseClock.millis() / 60000) & LFU_TIME_MAX;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Keys with an expiration ordered by the time they expire, so expired keys can be found
+ * without scanning the whole database. A key updated or removed leaves its old entry in
+ * the queue, it is discarded when it reaches the head of the queue.
+ */
+final class ExpiryIndex {
+
+  private static final int MIN_COMPACT_SIZE = 64;
+
+  private final Map<DatabaseKey, Deadline> deadlines = new HashMap<>();
+  private final PriorityQueue<Deadline> queue =
+      new PriorityQueue<>(Comparator.comparingLong((Deadline deadline) -> deadline.time));
+
+  synchronized int size() {
+    return deadlines.size();
+  }
+
+  synchronized void update(DatabaseKey key, DatabaseValue value) {
+    if (value == null || !value.isVolatile()) {
+      deadlines.remove(key);
+      return;
+    }
+    update(key, value.getExpiredAtMillis());
+  }
+
+  synchronized void update(DatabaseKey key, long time) {
+    Deadline current = deadlines.get(key);
+    if (current == null || current.time != time) {
+      Deadline deadline = new Deadline(time, key);
+      deadlines.put(key, deadline);
+      queue.add(deadline);
+      compact();
+    }
+  }
+
+  synchronized List<DatabaseKey> keys() {
+    return new ArrayList<>(deadlines.keySet());
+  }
+
+  synchronized boolean isExpired(DatabaseKey key, long now) {
+    Deadline deadline = deadlines.get(key);
+    return deadline != null && now > deadline.time;
+  }
+
+  synchronized void remove(DatabaseKey key) {
+    deadlines.remove(key);
+  }
+
+  synchronized void clear() {
+    deadlines.clear();
+    queue.clear();
+  }
+
+  List<DatabaseKey> pollExpired(Instant now) {
+    return pollExpired(now, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Removes from the index and returns up to limit keys that expired before the given instant.
+   */
+  synchronized List<DatabaseKey> pollExpired(Instant now, int limit) {
+    List<DatabaseKey> expired = new ArrayList<>();
+    long time = now.toEpochMilli();
+    while (expired.size() < limit && !queue.isEmpty() && queue.peek().time < time) {
+      Deadline deadline = queue.poll();
+      if (deadlines.get(deadline.key) == deadline) {
+        deadlines.remove(deadline.key);
+        expired.add(deadline.key);
+      }
+    }
+    return expired;
+  }
+
+  private void compact() {
+    if (queue.size() > MIN_COMPACT_SIZE && queue.size() > deadlines.size() * 2) {
+      queue.clear();
+      queue.addAll(deadlines.values());
+    }
+  }
+
+  private static final class Deadline {
+
+    private final long time;
+    private final DatabaseKey key;
+
+    private Deadline(long time, DatabaseKey key) {
+      this.time = time;
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Cursor of the scans of hash tables whose bucket is given by the low bits of the hash. As in
+ * the dict of redis, the cursor is the next bucket with its bits reversed, so when the table
+ * grows or shrinks between two calls the buckets already visited map to buckets that are not
+ * visited again, and an element present during the whole scan is returned at least once.
+ * Only the buckets from the cursor on are visited, so a whole scan costs O(n).
+ */
+final class HashCursor {
+
+  private static final int EMPTY_VISITS = 10;
+
+  private HashCursor() {}
+
+  /**
+   * Applies the visitor to the buckets from the cursor on, until count elements are visited or
+   * count * 10 empty buckets are found, and returns the cursor of the next call, zero after the
+   * last bucket. The visitor returns the number of elements of the bucket.
+   */
+  static long scan(long cursor, int count, int mask, IntUnaryOperator visitor) {
+    int bucket = (int) cursor;
+    int visited = 0;
+    int emptyVisits = Math.max(1, count) * EMPTY_VISITS;
+    do {
+      int elements = visitor.applyAsInt(bucket & mask);
+      if (elements == 0 && --emptyVisits == 0) {
+        break;
+      }
+      visited += elements;
+      bucket = next(bucket, mask);
+    } while (bucket != 0 && visited < count);
+    return bucket & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Scan of an open addressing table with linear probing, where a removal moves back the
+   * following slots instead of leaving a tombstone. The elements of a bucket are in the run of
+   * full slots that starts at the bucket, so the run is walked and only the elements whose home
+   * is the bucket are applied to the action. The table must have at least an empty slot.
+   */
+  static long scanSlots(long cursor, int count, int slots, IntPredicate full, IntUnaryOperator hash,
+      IntConsumer action) {
+    int mask = slots - 1;
+    return scan(cursor, count, mask, bucket -> {
+      int visited = 0;
+      for (int slot = bucket; full.test(slot); slot = (slot + 1) & mask) {
+        if ((hash.applyAsInt(slot) & mask) == bucket) {
+          action.accept(slot);
+          visited++;
+        }
+      }
+      return visited;
+    });
+  }
+
+  /**
+   * Increments the reversed bits of the bucket, so the order does not depend on the size.
+   */
+  static int next(int bucket, int mask) {
+    return Integer.reverse(Integer.reverse(bucket | ~mask) + 1);
+  }
+}
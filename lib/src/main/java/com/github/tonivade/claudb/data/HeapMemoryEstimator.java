@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Estimates the object graph of every encoding as it is laid out in the heap, see
+ * {@link HeapSize}.
+ */
+final class HeapMemoryEstimator implements MemoryEstimator {
+
+  // DatabaseKey: value and hash
+  private static final long DATABASE_KEY = HeapSize.object(HeapSize.REFERENCE + Integer.BYTES);
+
+  @Override
+  public long keySize(DatabaseKey key) {
+    // the node of the hash map plus its slot in the table
+    return HeapSize.HASH_NODE + HeapSize.REFERENCE + DATABASE_KEY + HeapSize.string(key.getValue());
+  }
+
+  @Override
+  public long valueSize(DatabaseValue value, int samples) {
+    return value.memoryUsage(samples);
+  }
+}
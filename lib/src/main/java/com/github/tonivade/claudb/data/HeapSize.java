@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Shallow sizes of the objects used to store the values in the heap, as they are laid out
+ * by a 64 bits JVM with compressed references: 12 bytes of header, 4 bytes per reference
+ * and every object aligned to 8 bytes.
+ */
+final class HeapSize {
+
+  static final int HEADER = 12;
+  static final int REFERENCE = 4;
+  static final int ARRAY_HEADER = 16;
+
+  // HashMap.Node: hash, key, value and next
+  static final long HASH_NODE = object(Integer.BYTES + 3 * REFERENCE);
+  // HashMap: table, entrySet, keySet, values, size, modCount, threshold and loadFactor
+  static final long HASH_MAP = object(4 * REFERENCE + 4 * Integer.BYTES);
+  // HashSet: map
+  static final long HASH_SET = object(REFERENCE) + HASH_MAP;
+  // ConcurrentSkipListMap.Node: key, value and next, and an Index of node, down and right
+  // for every three nodes on average
+  static final long SKIP_LIST_NODE = object(3 * REFERENCE) + object(3 * REFERENCE) / 3;
+  // HeapByteBuffer: mark, position, limit, capacity, address, hb, offset, isReadOnly, bigEndian...
+  static final long BYTE_BUFFER = 48;
+  // SafeString: buffer
+  static final long SAFE_STRING = object(REFERENCE) + BYTE_BUFFER;
+
+  private HeapSize() {}
+
+  static long align(long size) {
+    return (size + 7) & ~7L;
+  }
+
+  static long object(int fields) {
+    return align(HEADER + fields);
+  }
+
+  static long array(long length, int elementSize) {
+    return align(ARRAY_HEADER + length * elementSize);
+  }
+
+  static long string(SafeString value) {
+    return SAFE_STRING + array(value.length(), Byte.BYTES);
+  }
+
+  /**
+   * Table of a HashMap with the given number of entries and the default load factor.
+   */
+  static long hashTable(int size) {
+    int capacity = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+    return array(Math.max(16, capacity), REFERENCE);
+  }
+
+  /**
+   * Returns the total cost of size elements, estimated from the first samples elements, or all
+   * of them if samples is zero.
+   */
+  static <T> long sampled(Iterator<T> iterator, int size, int samples, ToLongFunction<T> cost) {
+    int limit = samples > 0 ? Math.min(samples, size) : size;
+    long total = 0;
+    int count = 0;
+    while (count < limit && iterator.hasNext()) {
+      total += cost.applyAsLong(iterator.next());
+      count++;
+    }
+    return count > 0 ? total * size / count : 0;
+  }
+}
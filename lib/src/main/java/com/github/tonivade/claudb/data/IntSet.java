@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Sorted integers packed in a byte array, every value uses the same width (2, 4 or 8 bytes),
+ * it grows to a wider encoding when a value does not fit in the current one.
+ */
+final class IntSet implements Serializable {
+
+  private static final long serialVersionUID = -6480231734609821127L;
+
+  private byte[] contents = new byte[0];
+  private int width = Short.BYTES;
+  private int length;
+
+  int size() {
+    return length;
+  }
+
+  int bytes() {
+    return contents.length;
+  }
+
+  long memoryUsage() {
+    return HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES) + HeapSize.array(contents.length, Byte.BYTES);
+  }
+
+  long get(int index) {
+    return read(index);
+  }
+
+  boolean contains(long value) {
+    return widthOf(value) <= width && search(value) >= 0;
+  }
+
+  boolean add(long value) {
+    if (widthOf(value) > width) {
+      upgrade(widthOf(value));
+    }
+    int index = search(value);
+    if (index >= 0) {
+      return false;
+    }
+    int position = -(index + 1);
+    contents = Arrays.copyOf(contents, (length + 1) * width);
+    System.arraycopy(contents, position * width, contents, (position + 1) * width, (length - position) * width);
+    length++;
+    write(position, value);
+    return true;
+  }
+
+  boolean remove(long value) {
+    if (widthOf(value) > width) {
+      return false;
+    }
+    int index = search(value);
+    if (index < 0) {
+      return false;
+    }
+    System.arraycopy(contents, (index + 1) * width, contents, index * width, (length - index - 1) * width);
+    length--;
+    contents = Arrays.copyOf(contents, length * width);
+    return true;
+  }
+
+  private int search(long value) {
+    int low = 0;
+    int high = length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long current = read(middle);
+      if (current < value) {
+        low = middle + 1;
+      } else if (current > value) {
+        high = middle - 1;
+      } else {
+        return middle;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private void upgrade(int newWidth) {
+    long[] values = new long[length];
+    for (int i = 0; i < length; i++) {
+      values[i] = read(i);
+    }
+    width = newWidth;
+    contents = new byte[length * width];
+    for (int i = 0; i < length; i++) {
+      write(i, values[i]);
+    }
+  }
+
+  private long read(int index) {
+    int offset = index * width;
+    long value = 0;
+    for (int i = width - 1; i >= 0; i--) {
+      value = (value << 8) | (contents[offset + i] & 0xFF);
+    }
+    // sign extension
+    int shift = 64 - width * 8;
+    return (value << shift) >> shift;
+  }
+
+  private void write(int index, long value) {
+    int offset = index * width;
+    for (int i = 0; i < width; i++) {
+      contents[offset + i] = (byte) (value >>> (i * 8));
+    }
+  }
+
+  private static int widthOf(long value) {
+    if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      return Short.BYTES;
+    }
+    if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+      return Integer.BYTES;
+    }
+    return Long.BYTES;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+
+/**
+ * Random keys taken from a snapshot of the keys of a database, to choose the keys to evict.
+ * The snapshot is taken again once as many keys as it has have been sampled, keys added in
+ * the meantime are not sampled until then and removed keys are skipped.
+ */
+final class KeySampler {
+
+  private DatabaseKey[] keys = new DatabaseKey[0];
+  private int sampled;
+
+  synchronized List<Tuple2<DatabaseKey, DatabaseValue>> sample(Supplier<Collection<DatabaseKey>> source,
+      Function<DatabaseKey, DatabaseValue> lookup, int count) {
+    if (sampled >= keys.length) {
+      keys = source.get().toArray(new DatabaseKey[0]);
+      sampled = 0;
+    }
+    List<Tuple2<DatabaseKey, DatabaseValue>> sample = new ArrayList<>(count);
+    for (int i = 0; i < count && keys.length > 0; i++) {
+      DatabaseKey key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+      DatabaseValue value = lookup.apply(key);
+      if (value != null) {
+        sample.add(Tuple.of(key, value));
+      }
+    }
+    sampled += count;
+    return sample;
+  }
+
+  synchronized void clear() {
+    keys = new DatabaseKey[0];
+    sampled = 0;
+  }
+}
@@ -0,0 +1,670 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Hash for hashes with many fields. Fields and values are packed in byte slabs, in the heap or
+ * off heap, and an open addressing table keeps the location and the hash of every field, so
+ * the table only has two arrays of primitives. The table grows, or shrinks, incrementally:
+ * a new table is allocated and every write moves a few slots of the old one, copying the
+ * entries to the slabs of the new table, that also compacts the bytes of deleted entries.
+ * Until all the slots are moved, lookups check both tables.
+ *
+ * The home slot of a field is given by the high bits of its hash, so the slots are ordered
+ * by hash, and {@link #scan(long, int, BiConsumer)} returns the entries of a range of hashes,
+ * whatever the size of the table.
+ *
+ * A copy shares the slabs and the pages of the tables with the hash it is copied from. The
+ * slabs are not modified once shared, both hashes append new records to slabs of their own,
+ * and a page of slots is copied by the first write of each hash, so a write after a copy costs
+ * a page of slots, not the whole hash.
+ *
+ * Off heap slabs are direct buffers, released by the cleaner of the JDK once the GC finds them
+ * unreachable, so a removed hash never frees them in the command and {@link LazyFree} has
+ * nothing to do for them. The JDK runs a GC when a new buffer would exceed the maximum direct
+ * memory, so the slabs waiting to be released do not make the server run out of it.
+ */
+public final class LargeHash extends AbstractMap<SafeString, SafeString> implements Serializable {
+
+  private static final long serialVersionUID = -2374094317712416498L;
+
+  private static final int MIN_CAPACITY = 16;
+  private static final int REHASH_STEP = 64;
+  private static final int PAGE_SHIFT = 10;
+  private static final int SLAB_SIZE = 64 * 1024;
+  private static final int RECORD_HEADER = 2 * Integer.BYTES;
+  private static final long EMPTY = -1;
+  private static final long DELETED = -2;
+  private static final long HASH_RANGE = 1L << 32;
+
+  private final boolean direct;
+
+  private transient Table table;
+  private transient Table rehashing;
+  private transient int rehashIndex;
+  private transient int size;
+
+  public LargeHash(boolean direct) {
+    this.direct = direct;
+    this.table = new Table(MIN_CAPACITY, direct);
+  }
+
+  /**
+   * Copy that shares the slabs and the pages of slots with the other hash, see the doc of the class.
+   */
+  public LargeHash(LargeHash other) {
+    this.direct = other.direct;
+    this.table = new Table(other.table);
+    this.rehashing = other.rehashing != null ? new Table(other.rehashing) : null;
+    this.rehashIndex = other.rehashIndex;
+    this.size = other.size;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof SafeString && get(key) != null;
+  }
+
+  @Override
+  public SafeString get(Object key) {
+    if (!(key instanceof SafeString)) {
+      return null;
+    }
+    ByteBuffer field = ((SafeString) key).getBuffer();
+    int hash = hash(field);
+    int slot = table.find(hash, field);
+    if (slot >= 0) {
+      return table.slabs.value(table.ref(slot));
+    }
+    if (rehashing != null) {
+      slot = rehashing.find(hash, field);
+      if (slot >= 0) {
+        return rehashing.slabs.value(rehashing.ref(slot));
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public SafeString put(SafeString key, SafeString value) {
+    rehashStep();
+    ByteBuffer field = key.getBuffer();
+    ByteBuffer bytes = value.getBuffer();
+    int hash = hash(field);
+    int slot = table.find(hash, field);
+    if (slot >= 0) {
+      return table.replace(slot, bytes);
+    }
+    SafeString previous = null;
+    if (rehashing != null) {
+      slot = rehashing.find(hash, field);
+      if (slot >= 0) {
+        previous = rehashing.slabs.value(rehashing.ref(slot));
+        rehashing.delete(slot);
+        size--;
+      }
+    }
+    if (table.isFull()) {
+      startRehash(capacityFor(size + 1));
+    }
+    table.insert(hash, table.slabs.append(field, bytes));
+    size++;
+    compactIfNeeded();
+    return previous;
+  }
+
+  @Override
+  public SafeString remove(Object key) {
+    if (!(key instanceof SafeString)) {
+      return null;
+    }
+    rehashStep();
+    ByteBuffer field = ((SafeString) key).getBuffer();
+    int hash = hash(field);
+    SafeString previous = remove(table, hash, field);
+    if (previous == null && rehashing != null) {
+      previous = remove(rehashing, hash, field);
+    }
+    if (previous != null) {
+      size--;
+      shrinkIfNeeded();
+      compactIfNeeded();
+    }
+    return previous;
+  }
+
+  @Override
+  public void clear() {
+    table = new Table(MIN_CAPACITY, direct);
+    rehashing = null;
+    size = 0;
+  }
+
+  @Override
+  public Set<Entry<SafeString, SafeString>> entrySet() {
+    return new EntrySet();
+  }
+
+  /**
+   * Applies the action to the entries with a hash in a range that starts at the cursor and
+   * covers about count slots, and returns the cursor where the next range starts, or zero
+   * after the last one. An entry that exists during the whole scan is returned once, even if
+   * the table is resized between two calls.
+   */
+  public long scan(long cursor, int count, BiConsumer<SafeString, SafeString> action) {
+    long end = Math.min(HASH_RANGE, cursor + ((long) Math.max(1, count) << table.shift));
+    table.scan(cursor, end, action);
+    if (rehashing != null) {
+      rehashing.scan(cursor, end, action);
+    }
+    return end == HASH_RANGE ? 0 : end;
+  }
+
+  /**
+   * Estimated bytes used by the tables and the slabs, off heap slabs included.
+   */
+  long memoryUsage() {
+    long usage = HeapSize.object(4 * HeapSize.REFERENCE + 2 * Integer.BYTES + 1) + table.memoryUsage();
+    if (rehashing != null) {
+      usage += rehashing.memoryUsage();
+    }
+    return usage;
+  }
+
+  boolean isRehashing() {
+    return rehashing != null;
+  }
+
+  private SafeString remove(Table from, int hash, ByteBuffer field) {
+    int slot = from.find(hash, field);
+    if (slot < 0) {
+      return null;
+    }
+    SafeString previous = from.slabs.value(from.ref(slot));
+    from.delete(slot);
+    return previous;
+  }
+
+  private void shrinkIfNeeded() {
+    if (rehashing == null && table.capacity() > MIN_CAPACITY && size < table.capacity() / 8) {
+      startRehash(capacityFor(size));
+    }
+  }
+
+  /**
+   * More than half of the slabs are deleted entries, the table is rebuilt with the same size.
+   */
+  private void compactIfNeeded() {
+    if (rehashing == null && table.slabs.garbage > SLAB_SIZE && table.slabs.garbage > table.slabs.live) {
+      startRehash(table.capacity());
+    }
+  }
+
+  /**
+   * A rehash in progress is finished before starting a new one.
+   */
+  private void startRehash(int capacity) {
+    while (rehashing != null) {
+      rehashStep();
+    }
+    rehashing = table;
+    rehashIndex = 0;
+    table = new Table(capacity, direct);
+  }
+
+  private void rehashStep() {
+    if (rehashing == null) {
+      return;
+    }
+    int end = Math.min(rehashing.capacity(), rehashIndex + REHASH_STEP);
+    for (; rehashIndex < end; rehashIndex++) {
+      long ref = rehashing.ref(rehashIndex);
+      if (ref >= 0) {
+        table.insert(rehashing.hash(rehashIndex), table.slabs.copy(rehashing.slabs, ref));
+        // the slot is not emptied, so the probe sequences of the old table do not change
+        rehashing.setRef(rehashIndex, DELETED);
+      }
+    }
+    if (rehashIndex == rehashing.capacity()) {
+      rehashing = null;
+    }
+  }
+
+  /**
+   * The new table is at most four times smaller than the current one, so it does not fill up
+   * before all the slots are moved.
+   */
+  private int capacityFor(int size) {
+    int capacity = Math.max(MIN_CAPACITY, table.capacity() / 4);
+    while (capacity < size * 2) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Fibonacci hashing spreads the bytes of the field to the high bits, that choose the slot.
+   */
+  private static int hash(ByteBuffer field) {
+    int hash = 1;
+    for (int i = field.position(); i < field.limit(); i++) {
+      hash = 31 * hash + field.get(i);
+    }
+    return hash * 0x9E3779B9;
+  }
+
+  private void writeObject(ObjectOutputStream output) throws IOException {
+    output.defaultWriteObject();
+    output.writeInt(size);
+    for (Entry<SafeString, SafeString> entry : entrySet()) {
+      output.writeInt(entry.getKey().length());
+      output.write(entry.getKey().getBytes());
+      output.writeInt(entry.getValue().length());
+      output.write(entry.getValue().getBytes());
+    }
+  }
+
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
+    this.table = new Table(MIN_CAPACITY, direct);
+    int entries = input.readInt();
+    for (int i = 0; i < entries; i++) {
+      byte[] field = new byte[input.readInt()];
+      input.readFully(field);
+      byte[] value = new byte[input.readInt()];
+      input.readFully(value);
+      put(new SafeString(field), new SafeString(value));
+    }
+  }
+
+  /**
+   * The slots are kept in pages of up to 1024 slots, a page is written only by the table that
+   * owns it, the pages of a copied table are copied by the first write.
+   */
+  private static final class Table {
+
+    private final long[][] refs;
+    private final int[][] hashes;
+    private final boolean[] owned;
+    private final int shift;
+    private final int mask;
+    private final int pageShift;
+    private final int pageMask;
+    private final Slabs slabs;
+    // slots that are not empty, deleted ones included
+    private int used;
+
+    private Table(int capacity, boolean direct) {
+      int pageSize = Math.min(capacity, 1 << PAGE_SHIFT);
+      this.refs = new long[capacity / pageSize][pageSize];
+      this.hashes = new int[capacity / pageSize][pageSize];
+      this.owned = new boolean[capacity / pageSize];
+      this.shift = Integer.numberOfLeadingZeros(capacity) + 1;
+      this.mask = capacity - 1;
+      this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+      this.pageMask = pageSize - 1;
+      this.slabs = new Slabs(direct);
+      for (long[] page : refs) {
+        Arrays.fill(page, EMPTY);
+      }
+      Arrays.fill(owned, true);
+    }
+
+    private Table(Table other) {
+      this.refs = other.refs.clone();
+      this.hashes = other.hashes.clone();
+      this.owned = new boolean[other.owned.length];
+      this.shift = other.shift;
+      this.mask = other.mask;
+      this.pageShift = other.pageShift;
+      this.pageMask = other.pageMask;
+      this.slabs = new Slabs(other.slabs);
+      this.used = other.used;
+      Arrays.fill(other.owned, false);
+    }
+
+    private int capacity() {
+      return mask + 1;
+    }
+
+    private boolean isFull() {
+      return (used + 1) * 4L > capacity() * 3L;
+    }
+
+    private int home(long hash) {
+      return (int) (hash >>> shift);
+    }
+
+    private long ref(int slot) {
+      return refs[slot >>> pageShift][slot & pageMask];
+    }
+
+    private int hash(int slot) {
+      return hashes[slot >>> pageShift][slot & pageMask];
+    }
+
+    private void setRef(int slot, long ref) {
+      writable(slot >>> pageShift);
+      refs[slot >>> pageShift][slot & pageMask] = ref;
+    }
+
+    private void writable(int page) {
+      if (!owned[page]) {
+        refs[page] = refs[page].clone();
+        hashes[page] = hashes[page].clone();
+        owned[page] = true;
+      }
+    }
+
+    private int find(int hash, ByteBuffer field) {
+      for (int slot = home(hash & 0xFFFFFFFFL); ref(slot) != EMPTY; slot = (slot + 1) & mask) {
+        long ref = ref(slot);
+        if (ref >= 0 && hash(slot) == hash && slabs.fieldEquals(ref, field)) {
+          return slot;
+        }
+      }
+      return -1;
+    }
+
+    private void insert(int hash, long ref) {
+      int slot = home(hash & 0xFFFFFFFFL);
+      while (ref(slot) >= 0) {
+        slot = (slot + 1) & mask;
+      }
+      if (ref(slot) == EMPTY) {
+        used++;
+      }
+      setRef(slot, ref);
+      hashes[slot >>> pageShift][slot & pageMask] = hash;
+    }
+
+    private SafeString replace(int slot, ByteBuffer value) {
+      long ref = ref(slot);
+      SafeString previous = slabs.value(ref);
+      if (!slabs.replaceValue(ref, value)) {
+        setRef(slot, slabs.append(slabs.field(ref), value));
+        slabs.release(ref);
+      }
+      return previous;
+    }
+
+    private void delete(int slot) {
+      slabs.release(ref(slot));
+      setRef(slot, DELETED);
+    }
+
+    /**
+     * The entries with a home slot in the range are between the first slot of the range and
+     * the first empty slot after the last one.
+     */
+    private void scan(long from, long to, BiConsumer<SafeString, SafeString> action) {
+      int first = home(from);
+      int last = home(to - 1);
+      for (int i = 0; i < capacity(); i++) {
+        int slot = (first + i) & mask;
+        long ref = ref(slot);
+        if (i > last - first && ref == EMPTY) {
+          break;
+        }
+        long hash = hash(slot) & 0xFFFFFFFFL;
+        if (ref >= 0 && hash >= from && hash < to) {
+          action.accept(slabs.key(ref), slabs.value(ref));
+        }
+      }
+    }
+
+    private long memoryUsage() {
+      return HeapSize.object(4 * HeapSize.REFERENCE + 5 * Integer.BYTES)
+          + HeapSize.array(refs.length, HeapSize.REFERENCE) * 2 + HeapSize.array(owned.length, 1)
+          + refs.length * (HeapSize.array(pageMask + 1, Long.BYTES) + HeapSize.array(pageMask + 1, Integer.BYTES))
+          + slabs.memoryUsage();
+    }
+  }
+
+  /**
+   * Records of field length, value length, field and value, appended to slabs of the same
+   * size, or to a slab of their own if they are bigger. A reference packs the slab in the high
+   * 32 bits and the offset in the low ones. The slabs of a copy are shared, and they are never
+   * written again, records are appended to new slabs and values are not replaced in place.
+   */
+  private static final class Slabs {
+
+    private final boolean direct;
+    private final List<ByteBuffer> slabs;
+    private ByteBuffer current;
+    private int currentIndex;
+    // the slabs before this index are shared with a copy
+    private int shared;
+    private long allocated;
+    private long live;
+    private long garbage;
+
+    private Slabs(boolean direct) {
+      this.direct = direct;
+      this.slabs = new ArrayList<>();
+    }
+
+    private Slabs(Slabs other) {
+      this.direct = other.direct;
+      this.slabs = new ArrayList<>(other.slabs);
+      this.shared = slabs.size();
+      this.allocated = other.allocated;
+      this.live = other.live;
+      this.garbage = other.garbage;
+      other.shared = other.slabs.size();
+      other.current = null;
+    }
+
+    private long append(ByteBuffer field, ByteBuffer value) {
+      int fieldLength = field.remaining();
+      int valueLength = value.remaining();
+      int size = RECORD_HEADER + fieldLength + valueLength;
+      int index = slabFor(size);
+      ByteBuffer slab = slabs.get(index);
+      int offset = slab.position();
+      slab.putInt(fieldLength).putInt(valueLength).put(field.duplicate()).put(value.duplicate());
+      live += size;
+      return ((long) index << 32) | offset;
+    }
+
+    private long copy(Slabs from, long ref) {
+      return append(from.field(ref), from.valueBuffer(ref));
+    }
+
+    private boolean replaceValue(long ref, ByteBuffer value) {
+      ByteBuffer slab = slab(ref);
+      int offset = offset(ref);
+      if ((int) (ref >>> 32) < shared || slab.getInt(offset + Integer.BYTES) != value.remaining()) {
+        return false;
+      }
+      ByteBuffer target = slab.duplicate();
+      target.position(offset + RECORD_HEADER + slab.getInt(offset));
+      target.put(value.duplicate());
+      return true;
+    }
+
+    private void release(long ref) {
+      ByteBuffer slab = slab(ref);
+      int offset = offset(ref);
+      int size = RECORD_HEADER + slab.getInt(offset) + slab.getInt(offset + Integer.BYTES);
+      live -= size;
+      garbage += size;
+    }
+
+    private boolean fieldEquals(long ref, ByteBuffer field) {
+      ByteBuffer slab = slab(ref);
+      int offset = offset(ref);
+      int length = slab.getInt(offset);
+      if (length != field.remaining()) {
+        return false;
+      }
+      int start = offset + RECORD_HEADER;
+      for (int i = 0; i < length; i++) {
+        if (slab.get(start + i) != field.get(field.position() + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private SafeString key(long ref) {
+      return toSafeString(field(ref));
+    }
+
+    private SafeString value(long ref) {
+      return toSafeString(valueBuffer(ref));
+    }
+
+    private ByteBuffer field(long ref) {
+      ByteBuffer slab = slab(ref);
+      int offset = offset(ref);
+      return range(slab, offset + RECORD_HEADER, slab.getInt(offset));
+    }
+
+    private ByteBuffer valueBuffer(long ref) {
+      ByteBuffer slab = slab(ref);
+      int offset = offset(ref);
+      int fieldLength = slab.getInt(offset);
+      return range(slab, offset + RECORD_HEADER + fieldLength, slab.getInt(offset + Integer.BYTES));
+    }
+
+    private long memoryUsage() {
+      long usage = HeapSize.object(3 * HeapSize.REFERENCE + 2 * Integer.BYTES + 3 * Long.BYTES)
+          + HeapSize.array(slabs.size(), HeapSize.REFERENCE) + slabs.size() * HeapSize.BYTE_BUFFER;
+      return usage + (direct ? allocated : allocated + slabs.size() * HeapSize.ARRAY_HEADER);
+    }
+
+    private int slabFor(int size) {
+      if (size > SLAB_SIZE) {
+        slabs.add(allocate(size));
+        return slabs.size() - 1;
+      }
+      if (current == null || current.remaining() < size) {
+        current = allocate(SLAB_SIZE);
+        slabs.add(current);
+        currentIndex = slabs.size() - 1;
+      }
+      return currentIndex;
+    }
+
+    private ByteBuffer allocate(int size) {
+      allocated += size;
+      return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
+    private ByteBuffer slab(long ref) {
+      return slabs.get((int) (ref >>> 32));
+    }
+
+    private static int offset(long ref) {
+      return (int) ref;
+    }
+
+    private static ByteBuffer range(ByteBuffer slab, int offset, int length) {
+      ByteBuffer range = slab.duplicate();
+      range.limit(offset + length);
+      range.position(offset);
+      return range;
+    }
+
+    private static SafeString toSafeString(ByteBuffer buffer) {
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.duplicate().get(bytes);
+      return new SafeString(bytes);
+    }
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<SafeString, SafeString>> {
+
+    @Override
+    public int size() {
+      return LargeHash.this.size();
+    }
+
+    @Override
+    public Iterator<Entry<SafeString, SafeString>> iterator() {
+      return new EntryIterator();
+    }
+  }
+
+  /**
+   * Iterates the slots of the table and then the slots of the table being rehashed, no slot
+   * is moved while iterating, as long as the hash is not modified but by the iterator.
+   */
+  private final class EntryIterator implements Iterator<Entry<SafeString, SafeString>> {
+
+    private Table current = table;
+    private int slot = -1;
+    private Table lastTable;
+    private int lastSlot = -1;
+
+    private EntryIterator() {
+      advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return current != null;
+    }
+
+    @Override
+    public Entry<SafeString, SafeString> next() {
+      if (current == null) {
+        throw new NoSuchElementException();
+      }
+      long ref = current.ref(slot);
+      Entry<SafeString, SafeString> entry =
+          new SimpleImmutableEntry<>(current.slabs.key(ref), current.slabs.value(ref));
+      lastTable = current;
+      lastSlot = slot;
+      advance();
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (lastSlot < 0) {
+        throw new IllegalStateException();
+      }
+      lastTable.delete(lastSlot);
+      size--;
+      lastSlot = -1;
+    }
+
+    private void advance() {
+      while (current != null) {
+        for (slot++; slot < current.capacity(); slot++) {
+          if (current.ref(slot) >= 0) {
+            return;
+          }
+        }
+        current = current == table ? rehashing : null;
+        slot = -1;
+      }
+    }
+  }
+}
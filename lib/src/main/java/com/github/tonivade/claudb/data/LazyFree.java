@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.tonivade.claudb.DBConfig;
+
+/**
+ * Background thread that releases the memory of the entries removed from the databases, so
+ * the command that removes them does not wait for it. Heap memory, and the direct buffers of
+ * {@link LargeHash}, are reclaimed by the GC, so only the memory of OHC is released here. The
+ * thread is started by the first release.
+ */
+public final class LazyFree {
+
+  private final LongAdder pending = new LongAdder();
+  private final LongAdder freed = new LongAdder();
+
+  private final int threshold;
+
+  private ExecutorService executor;
+
+  public LazyFree(DBConfig config) {
+    this.threshold = config.getLazyFreeThreshold();
+  }
+
+  public long getPending() {
+    return pending.sum();
+  }
+
+  public long getFreed() {
+    return freed.sum();
+  }
+
+  /**
+   * Entries up to the threshold are released by the command, it is not worth a task.
+   */
+  boolean isWorth(long entries) {
+    return entries > threshold;
+  }
+
+  void free(Runnable release) {
+    pending.increment();
+    executor().execute(() -> {
+      try {
+        release.run();
+      } finally {
+        pending.decrement();
+        freed.increment();
+      }
+    });
+  }
+
+  /**
+   * The releases already requested are done before the thread ends.
+   */
+  synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  private synchronized ExecutorService executor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "claudb-lazyfree");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return executor;
+  }
+}
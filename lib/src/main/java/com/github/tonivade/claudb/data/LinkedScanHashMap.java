@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Scan hash map that keeps its entries in access order, as a LinkedHashMap with access order,
+ * so the least recently used key is known. A get or a put of an existing key moves the entry
+ * to the end of the order, a scan or an iteration does not.
+ */
+final class LinkedScanHashMap<K, V> extends ScanHashMap<K, V> {
+
+  private LinkedNode<K, V> head;
+  private LinkedNode<K, V> tail;
+
+  /**
+   * Returns the least recently used key, or null if the map is empty.
+   */
+  K eldestKey() {
+    return head != null ? head.key : null;
+  }
+
+  /**
+   * The order links the entries of all the pages, so they can not be shared with a copy.
+   */
+  @Override
+  ScanHashMap<K, V> copy() {
+    throw new UnsupportedOperationException("an access ordered map can not be copied");
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    head = null;
+    tail = null;
+  }
+
+  @Override
+  Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+    LinkedNode<K, V> node = new LinkedNode<>(hash, key, value, next);
+    linkLast(node);
+    return node;
+  }
+
+  @Override
+  void afterNodeAccess(Node<K, V> node) {
+    if (node != tail) {
+      LinkedNode<K, V> linked = (LinkedNode<K, V>) node;
+      unlink(linked);
+      linkLast(linked);
+    }
+  }
+
+  @Override
+  void afterNodeRemoval(Node<K, V> node) {
+    unlink((LinkedNode<K, V>) node);
+  }
+
+  private void linkLast(LinkedNode<K, V> node) {
+    node.before = tail;
+    node.after = null;
+    if (tail == null) {
+      head = node;
+    } else {
+      tail.after = node;
+    }
+    tail = node;
+  }
+
+  private void unlink(LinkedNode<K, V> node) {
+    if (node.before == null) {
+      head = node.after;
+    } else {
+      node.before.after = node.after;
+    }
+    if (node.after == null) {
+      tail = node.before;
+    } else {
+      node.after.before = node.before;
+    }
+    node.before = null;
+    node.after = null;
+  }
+
+  private static final class LinkedNode<K, V> extends Node<K, V> {
+
+    private LinkedNode<K, V> before;
+    private LinkedNode<K, V> after;
+
+    private LinkedNode(int hash, K key, V value, Node<K, V> next) {
+      super(hash, key, value, next);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Entries packed one after another in a single byte array, every entry is prefixed with its
+ * length as a varint. Entries are addressed by the offset of their first byte, so access is
+ * sequential, it is meant only for small collections.
+ */
+final class ListPack implements Serializable {
+
+  private static final long serialVersionUID = 2391845720362873013L;
+
+  private byte[] data = new byte[16];
+  private int bytes;
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  int bytes() {
+    return bytes;
+  }
+
+  long memoryUsage() {
+    return HeapSize.object(HeapSize.REFERENCE + 2 * Integer.BYTES) + HeapSize.array(data.length, Byte.BYTES);
+  }
+
+  int next(int offset) {
+    return dataOffset(offset) + length(offset);
+  }
+
+  byte[] get(int offset) {
+    int from = dataOffset(offset);
+    return Arrays.copyOfRange(data, from, from + length(offset));
+  }
+
+  boolean equalsAt(int offset, byte[] value) {
+    int length = length(offset);
+    if (length != value.length) {
+      return false;
+    }
+    int from = dataOffset(offset);
+    for (int i = 0; i < length; i++) {
+      if (data[from + i] != value[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void insert(int offset, byte[] value) {
+    int header = headerSize(value.length);
+    ensureCapacity(header + value.length);
+    System.arraycopy(data, offset, data, offset + header + value.length, bytes - offset);
+    writeLength(offset, value.length);
+    System.arraycopy(value, 0, data, offset + header, value.length);
+    bytes += header + value.length;
+    size++;
+  }
+
+  void add(byte[] value) {
+    insert(bytes, value);
+  }
+
+  void remove(int offset) {
+    int next = next(offset);
+    System.arraycopy(data, next, data, offset, bytes - next);
+    bytes -= next - offset;
+    size--;
+  }
+
+  void replace(int offset, byte[] value) {
+    remove(offset);
+    insert(offset, value);
+  }
+
+  void clear() {
+    data = new byte[16];
+    bytes = 0;
+    size = 0;
+  }
+
+  private int length(int offset) {
+    int length = 0;
+    int shift = 0;
+    byte current;
+    do {
+      current = data[offset++];
+      length |= (current & 0x7F) << shift;
+      shift += 7;
+    } while ((current & 0x80) != 0);
+    return length;
+  }
+
+  private int dataOffset(int offset) {
+    while ((data[offset] & 0x80) != 0) {
+      offset++;
+    }
+    return offset + 1;
+  }
+
+  private void writeLength(int offset, int length) {
+    while ((length & ~0x7F) != 0) {
+      data[offset++] = (byte) ((length & 0x7F) | 0x80);
+      length >>>= 7;
+    }
+    data[offset] = (byte) length;
+  }
+
+  private static int headerSize(int length) {
+    int size = 1;
+    while ((length & ~0x7F) != 0) {
+      length >>>= 7;
+      size++;
+    }
+    return size;
+  }
+
+  private void ensureCapacity(int length) {
+    if (bytes + length > data.length) {
+      data = Arrays.copyOf(data, Math.max(data.length * 2, bytes + length));
+    }
+  }
+}
@@ -0,0 +1,683 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database stored in two memory mapped files, so it survives a restart without loading
+ * anything and it can be bigger than the heap. The index file is an open addressing table
+ * with the offset of every key, and the data file is a log where every put appends the key
+ * and the serialized value. When more than half of the log is garbage, the live entries are
+ * copied to a new log, named by its generation, and a new index is renamed over the old one,
+ * so a crash leaves either the old files or the new ones.
+ *
+ * <pre>
+ * index: magic (4) | version (4) | generation (8) | slots (8) | size (8) | dataEnd (8)
+ *        | liveBytes (8) | volatileKeys (8) | padding | (offset (8) | hash (4) | unused (4)) * slots
+ * data:  magic (4) | version (4) | (keyLength (4) | valueLength (4) | key | value) *
+ * </pre>
+ *
+ * As OnHeapDatabase, it must be used from the thread that owns the database.
+ */
+public class MappedDatabase implements Database, Closeable {
+
+  private static final int MAGIC = 0x636c6462;
+  private static final int VERSION = 2;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int GENERATION = 8;
+  private static final int SLOTS = 16;
+  private static final int SIZE = 24;
+  private static final int DATA_END = 32;
+  private static final int LIVE_BYTES = 40;
+  private static final int VOLATILE_KEYS = 48;
+  private static final int INDEX_HEADER = 64;
+
+  private static final int SLOT_SIZE = 16;
+  private static final int SLOT_HASH = 8;
+  private static final long EMPTY = 0;
+
+  private static final int DATA_START = 8;
+  private static final int RECORD_HEADER = 8;
+
+  private static final int INITIAL_SLOTS = 1024;
+  private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+
+  private final Path directory;
+  private final String name;
+  private final int regionSize;
+
+  private final ExpiryIndex expires = new ExpiryIndex();
+  private final KeySampler volatileKeys = new KeySampler();
+  private final MemoryGauge memory;
+
+  private MappedFile index;
+  private MappedFile data;
+
+  public MappedDatabase(Path directory, String name, int regionSize) {
+    this(directory, name, regionSize, new DatabaseContext());
+  }
+
+  public MappedDatabase(Path directory, String name, int regionSize, DatabaseContext context) {
+    this.directory = requireNonNull(directory);
+    this.name = requireNonNull(name);
+    this.regionSize = regionSize;
+    this.memory = new MemoryGauge(context);
+    if (regionSize % SLOT_SIZE != 0 || regionSize < INDEX_HEADER) {
+      throw new IllegalArgumentException("invalid region size: " + regionSize);
+    }
+    open();
+    memory.report(usedMemory());
+  }
+
+  @Override
+  public int size() {
+    return (int) header(SIZE);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return read(key, null, value -> value != null);
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    return read(key, null, value -> value != null ? ((SerializedValue) value).toValue() : null);
+  }
+
+  /**
+   * The reader works on the mapped bytes of the value, nothing is copied to the heap.
+   */
+  @Override
+  public <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    int slot = find(key, hash(key));
+    if (slot >= 0) {
+      SerializedValue value = valueAt(slotOffset(slot));
+      if (!value.isExpired(CoarseClock.millis())) {
+        return reader.apply(value);
+      }
+      remove(key);
+    }
+    return reader.apply(defaultValue);
+  }
+
+  @Override
+  public boolean isType(DatabaseKey key, DataType type) {
+    return read(key, null, value -> value == null || value.getType() == type);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    if (header(SIZE) + 1 > slots() / 4 * 3) {
+      resize(slots() * 2);
+    }
+    // the record is appended before the index points to it
+    long offset = append(key, value);
+    int hash = hash(key);
+    int slot = find(key, hash);
+    if (slot >= 0) {
+      removed(slotOffset(slot));
+      setSlot(slot, offset, hash);
+    } else {
+      setSlot(-slot - 1, offset, hash);
+      header(SIZE, header(SIZE) + 1);
+    }
+    added(offset);
+    expires.update(key, value);
+    compactIfNeeded();
+    memory.report(usedMemory());
+    return value;
+  }
+
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    DatabaseValue oldValue = get(key);
+    DatabaseValue newValue = remappingFunction.apply(key, oldValue);
+    if (newValue != null) {
+      put(key, newValue);
+    } else if (oldValue != null) {
+      remove(key);
+    }
+    return newValue;
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    int slot = find(key, hash(key));
+    if (slot < 0) {
+      return null;
+    }
+    long offset = slotOffset(slot);
+    DatabaseValue value = valueAt(offset).toValue();
+    deleteSlot(slot);
+    header(SIZE, header(SIZE) - 1);
+    removed(offset);
+    expires.remove(key);
+    compactIfNeeded();
+    memory.report(usedMemory());
+    return value.isExpired(CoarseClock.millis()) ? null : value;
+  }
+
+  /**
+   * The value is not read, only its expiration.
+   */
+  @Override
+  public boolean unlink(DatabaseKey key) {
+    int slot = find(key, hash(key));
+    if (slot < 0) {
+      return false;
+    }
+    long offset = slotOffset(slot);
+    boolean exists = !valueAt(offset).isExpired(CoarseClock.millis());
+    deleteSlot(slot);
+    header(SIZE, header(SIZE) - 1);
+    removed(offset);
+    expires.remove(key);
+    compactIfNeeded();
+    memory.report(usedMemory());
+    return exists;
+  }
+
+  @Override
+  public void clear() {
+    rewrite(INITIAL_SLOTS, false);
+    expires.clear();
+    volatileKeys.clear();
+    memory.report(usedMemory());
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    evictExpired(now, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    List<DatabaseKey> keys = expires.pollExpired(now, limit);
+    int expired = 0;
+    for (DatabaseKey key : keys) {
+      int slot = find(key, hash(key));
+      if (slot >= 0 && valueAt(slotOffset(slot)).isExpired(now.toEpochMilli())) {
+        remove(key);
+        expired++;
+      }
+    }
+    return Tuple.of(keys.size(), expired);
+  }
+
+  /**
+   * Bytes of the live entries and the index, the memory needed to keep all of them mapped.
+   */
+  @Override
+  public long usedMemory() {
+    return header(LIVE_BYTES) + (long) slots() * SLOT_SIZE;
+  }
+
+  @Override
+  public Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    int slot = find(key, hash(key));
+    return slot >= 0 ? Option.some((long) recordSize(slotOffset(slot)) + SLOT_SIZE) : Option.none();
+  }
+
+  /**
+   * Keys are chosen from random slots, there is no access metadata in the files.
+   */
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    if (onlyVolatile) {
+      return volatileKeys.sample(expires::keys, this::valueOf, count);
+    }
+    List<Tuple2<DatabaseKey, DatabaseValue>> sample = new ArrayList<>(count);
+    if (isEmpty()) {
+      return sample;
+    }
+    int mask = slots() - 1;
+    for (int i = 0; i < count; i++) {
+      int slot = ThreadLocalRandom.current().nextInt(slots());
+      while (slotOffset(slot) == EMPTY) {
+        slot = (slot + 1) & mask;
+      }
+      long offset = slotOffset(slot);
+      sample.add(Tuple.of(keyAt(offset), valueAt(offset).toValue()));
+    }
+    return sample;
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    Set<DatabaseKey> keys = new HashSet<>();
+    for (int slot = 0; slot < slots(); slot++) {
+      long offset = slotOffset(slot);
+      if (offset != EMPTY) {
+        keys.add(keyAt(offset));
+      }
+    }
+    return ImmutableSet.from(keys);
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>();
+    forEach((key, value) -> values.add(value));
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    Set<Tuple2<DatabaseKey, DatabaseValue>> entries = new HashSet<>();
+    forEach((key, value) -> entries.add(Tuple.of(key, value)));
+    return ImmutableSet.from(entries);
+  }
+
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    for (int slot = 0; slot < slots(); slot++) {
+      long offset = slotOffset(slot);
+      if (offset != EMPTY) {
+        action.accept(keyAt(offset), valueAt(offset).toValue());
+      }
+    }
+  }
+
+  /**
+   * Only the offsets of the records are copied. The log is never written before its end, and a
+   * compaction writes a new log, so the records stay in the regions mapped now, that are read
+   * and deserialized from the thread that exports the snapshot.
+   */
+  @Override
+  public Snapshot.Entries capture() {
+    long[] offsets = new long[size()];
+    int count = 0;
+    for (int slot = 0; slot < slots(); slot++) {
+      long offset = slotOffset(slot);
+      if (offset != EMPTY) {
+        offsets[count++] = offset;
+      }
+    }
+    MappedFile view = data.view();
+    return new Snapshot.Entries() {
+      @Override
+      public int size() {
+        return offsets.length;
+      }
+
+      @Override
+      public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+        for (long offset : offsets) {
+          action.accept(keyAt(view, offset), valueAt(view, offset).toValue());
+        }
+      }
+    };
+  }
+
+  /**
+   * The home of a key is given by the low bits of its hash and slots are moved back when a key
+   * is removed, so the cursor walks the slots of every home, see
+   * {@link HashCursor#scanSlots(long, int, int, java.util.function.IntPredicate, java.util.function.IntUnaryOperator, java.util.function.IntConsumer)}.
+   * Only the entries of the homes visited are read.
+   */
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    if (header(SIZE) == 0) {
+      return 0;
+    }
+    return HashCursor.scanSlots(cursor, count, slots(), slot -> slotOffset(slot) != EMPTY, this::slotHash,
+        slot -> action.accept(keyAt(slotOffset(slot)), valueAt(slotOffset(slot)).toValue()));
+  }
+
+  /**
+   * Writes the mapped pages to disk.
+   */
+  public void sync() {
+    data.force();
+    index.force();
+  }
+
+  @Override
+  public void close() {
+    data.close();
+    index.close();
+  }
+
+  private void open() {
+    try {
+      Files.createDirectories(directory);
+      Files.deleteIfExists(indexTempPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    index = new MappedFile(indexPath(), regionSize);
+    if (index.getInt(MAGIC_OFFSET) != MAGIC) {
+      initIndex(index, 0, INITIAL_SLOTS);
+    } else if (index.getInt(VERSION_OFFSET) != VERSION) {
+      throw new IllegalStateException("invalid version: " + index.getInt(VERSION_OFFSET));
+    }
+    data = openData(header(GENERATION));
+    deleteOldData(header(GENERATION));
+    if (header(VOLATILE_KEYS) > 0) {
+      loadExpires();
+    }
+  }
+
+  private MappedFile openData(long generation) {
+    MappedFile file = new MappedFile(dataPath(generation), regionSize);
+    file.putInt(MAGIC_OFFSET, MAGIC);
+    file.putInt(VERSION_OFFSET, VERSION);
+    return file;
+  }
+
+  private void initIndex(MappedFile file, long generation, int slots) {
+    file.ensureCapacity(INDEX_HEADER + (long) slots * SLOT_SIZE);
+    file.putInt(MAGIC_OFFSET, MAGIC);
+    file.putInt(VERSION_OFFSET, VERSION);
+    file.putLong(GENERATION, generation);
+    file.putLong(SLOTS, slots);
+    file.putLong(SIZE, 0);
+    file.putLong(DATA_END, DATA_START);
+    file.putLong(LIVE_BYTES, 0);
+    file.putLong(VOLATILE_KEYS, 0);
+  }
+
+  /**
+   * Logs with an older generation are left behind by a crash during a compaction.
+   */
+  private void deleteOldData(long generation) {
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, name + ".*.data")) {
+      for (Path file : files) {
+        if (!file.equals(dataPath(generation))) {
+          Files.delete(file);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long append(DatabaseKey key, DatabaseValue value) {
+    SafeString bytes = key.getValue();
+    int valueSize = SerializedValue.serializedSize(value);
+    long offset = allocate(data, header(DATA_END), RECORD_HEADER + bytes.length() + valueSize);
+    data.putInt(offset, bytes.length());
+    data.putInt(offset + Integer.BYTES, valueSize);
+    data.put(offset + RECORD_HEADER, bytes.getBuffer());
+    SerializedValue.serialize(value, data.slice(offset + RECORD_HEADER + bytes.length(), valueSize));
+    header(DATA_END, offset + RECORD_HEADER + bytes.length() + valueSize);
+    return offset;
+  }
+
+  /**
+   * Returns the offset where a record of the given size starts, records do not cross the end
+   * of a region, so they are moved to the next one.
+   */
+  private long allocate(MappedFile file, long offset, int size) {
+    if (size > file.regionSize()) {
+      throw new IllegalArgumentException("entry too large: " + size);
+    }
+    long start = file.remaining(offset) < size ? offset + file.remaining(offset) : offset;
+    file.ensureCapacity(start + size);
+    return start;
+  }
+
+  private void added(long offset) {
+    header(LIVE_BYTES, header(LIVE_BYTES) + recordSize(offset));
+    if (valueAt(offset).isVolatile()) {
+      header(VOLATILE_KEYS, header(VOLATILE_KEYS) + 1);
+    }
+  }
+
+  private void removed(long offset) {
+    header(LIVE_BYTES, header(LIVE_BYTES) - recordSize(offset));
+    if (valueAt(offset).isVolatile()) {
+      header(VOLATILE_KEYS, header(VOLATILE_KEYS) - 1);
+    }
+  }
+
+  private void compactIfNeeded() {
+    long garbage = header(DATA_END) - DATA_START - header(LIVE_BYTES);
+    if (garbage > MIN_COMPACT_BYTES && garbage > header(LIVE_BYTES)) {
+      rewrite(slots(), true);
+    }
+  }
+
+  /**
+   * Copies the live entries, if any, to a new log and a new index with the given slots.
+   */
+  private void rewrite(int slots, boolean keepEntries) {
+    long generation = header(GENERATION) + 1;
+    MappedFile newData = openData(generation);
+    MappedFile newIndex = new MappedFile(indexTempPath(), regionSize);
+    initIndex(newIndex, generation, slots);
+    long end = DATA_START;
+    if (keepEntries) {
+      for (int slot = 0; slot < slots(); slot++) {
+        long offset = slotOffset(slot);
+        if (offset != EMPTY) {
+          int size = recordSize(offset);
+          long start = allocate(newData, end, size);
+          newData.put(start, data.slice(offset, size));
+          insert(newIndex, start, slotHash(slot));
+          end = start + size;
+        }
+      }
+      copyHeader(newIndex, SIZE, LIVE_BYTES, VOLATILE_KEYS);
+    }
+    newIndex.putLong(DATA_END, end);
+    newData.force();
+    replaceIndex(newIndex);
+    data.close();
+    data = newData;
+    deleteOldData(generation);
+  }
+
+  /**
+   * Only the index is rebuilt, the log does not change.
+   */
+  private void resize(int slots) {
+    MappedFile newIndex = new MappedFile(indexTempPath(), regionSize);
+    initIndex(newIndex, header(GENERATION), slots);
+    for (int slot = 0; slot < slots(); slot++) {
+      long offset = slotOffset(slot);
+      if (offset != EMPTY) {
+        insert(newIndex, offset, slotHash(slot));
+      }
+    }
+    copyHeader(newIndex, SIZE, DATA_END, LIVE_BYTES, VOLATILE_KEYS);
+    replaceIndex(newIndex);
+  }
+
+  private void copyHeader(MappedFile target, int... fields) {
+    for (int field : fields) {
+      target.putLong(field, header(field));
+    }
+  }
+
+  /**
+   * The mapping of the new index is still valid after it is renamed.
+   */
+  private void replaceIndex(MappedFile newIndex) {
+    newIndex.force();
+    index.close();
+    try {
+      Files.move(indexTempPath(), indexPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    index = newIndex;
+  }
+
+  /**
+   * Returns the slot of the key, or -(slot + 1) where it would be inserted if it does not exist.
+   */
+  private int find(DatabaseKey key, int hash) {
+    int mask = slots() - 1;
+    for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+      long offset = slotOffset(slot);
+      if (offset == EMPTY) {
+        return -slot - 1;
+      }
+      if (slotHash(slot) == hash && keyEquals(offset, key)) {
+        return slot;
+      }
+    }
+  }
+
+  private static void insert(MappedFile file, long offset, int hash) {
+    int mask = (int) file.getLong(SLOTS) - 1;
+    int slot = hash & mask;
+    while (file.getLong(slotPosition(slot)) != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    file.putLong(slotPosition(slot), offset);
+    file.putInt(slotPosition(slot) + SLOT_HASH, hash);
+  }
+
+  /**
+   * Linear probing without tombstones, the entries after the deleted one are moved back if
+   * the hole is between them and their home slot.
+   */
+  private void deleteSlot(int slot) {
+    int mask = slots() - 1;
+    int hole = slot;
+    for (int i = (hole + 1) & mask; slotOffset(i) != EMPTY; i = (i + 1) & mask) {
+      int home = slotHash(i) & mask;
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        setSlot(hole, slotOffset(i), slotHash(i));
+        hole = i;
+      }
+    }
+    setSlot(hole, EMPTY, 0);
+  }
+
+  private boolean keyEquals(long offset, DatabaseKey key) {
+    ByteBuffer bytes = key.getValue().getBuffer();
+    int length = data.getInt(offset);
+    if (length != bytes.remaining()) {
+      return false;
+    }
+    ByteBuffer stored = data.slice(offset + RECORD_HEADER, length);
+    return stored.equals(bytes);
+  }
+
+  private DatabaseKey keyAt(long offset) {
+    return keyAt(data, offset);
+  }
+
+  private SerializedValue valueAt(long offset) {
+    return valueAt(data, offset);
+  }
+
+  private static DatabaseKey keyAt(MappedFile data, long offset) {
+    ByteBuffer stored = data.slice(offset + RECORD_HEADER, data.getInt(offset));
+    byte[] bytes = new byte[stored.remaining()];
+    stored.get(bytes);
+    return new DatabaseKey(new SafeString(bytes));
+  }
+
+  private static SerializedValue valueAt(MappedFile data, long offset) {
+    int keyLength = data.getInt(offset);
+    int valueLength = data.getInt(offset + Integer.BYTES);
+    return new SerializedValue(data.slice(offset + RECORD_HEADER + keyLength, valueLength));
+  }
+
+  private DatabaseValue valueOf(DatabaseKey key) {
+    int slot = find(key, hash(key));
+    return slot >= 0 ? valueAt(slotOffset(slot)).toValue() : null;
+  }
+
+  private int recordSize(long offset) {
+    return RECORD_HEADER + data.getInt(offset) + data.getInt(offset + Integer.BYTES);
+  }
+
+  /**
+   * Only the header of the values is read, and the key of the values with an expiration.
+   */
+  private void loadExpires() {
+    for (int slot = 0; slot < slots(); slot++) {
+      long offset = slotOffset(slot);
+      if (offset != EMPTY && valueAt(offset).isVolatile()) {
+        expires.update(keyAt(offset), valueAt(offset).getExpiredAtMillis());
+      }
+    }
+  }
+
+  private int slots() {
+    return (int) header(SLOTS);
+  }
+
+  private long slotOffset(int slot) {
+    return index.getLong(slotPosition(slot));
+  }
+
+  private int slotHash(int slot) {
+    return index.getInt(slotPosition(slot) + SLOT_HASH);
+  }
+
+  private void setSlot(int slot, long offset, int hash) {
+    index.putLong(slotPosition(slot), offset);
+    index.putInt(slotPosition(slot) + SLOT_HASH, hash);
+  }
+
+  private static long slotPosition(int slot) {
+    return INDEX_HEADER + (long) slot * SLOT_SIZE;
+  }
+
+  private long header(int field) {
+    return index.getLong(field);
+  }
+
+  private void header(int field, long value) {
+    index.putLong(field, value);
+  }
+
+  private Path indexPath() {
+    return directory.resolve(name + ".index");
+  }
+
+  private Path indexTempPath() {
+    return directory.resolve(name + ".index.tmp");
+  }
+
+  private Path dataPath(long generation) {
+    return directory.resolve(name + "." + generation + ".data");
+  }
+
+  private static int hash(DatabaseKey key) {
+    return SerializedValue.stableHash(key.getValue());
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Creates databases stored in memory mapped files in the given directory, one index and one
+ * data file for every database. Databases with the same name open the files left by the
+ * previous run.
+ */
+public class MappedDatabaseFactory implements DatabaseFactory {
+
+  private static final int DEFAULT_REGION_SIZE = 64 * 1024 * 1024;
+
+  private final List<MappedDatabase> databases = new CopyOnWriteArrayList<>();
+
+  private final Path directory;
+  private final int regionSize;
+  private final DatabaseContext context;
+
+  public MappedDatabaseFactory(Path directory) {
+    this(directory, DEFAULT_REGION_SIZE);
+  }
+
+  public MappedDatabaseFactory(Path directory, DatabaseContext context) {
+    this(directory, DEFAULT_REGION_SIZE, context);
+  }
+
+  public MappedDatabaseFactory(Path directory, int regionSize) {
+    this(directory, regionSize, new DatabaseContext());
+  }
+
+  /**
+   * Files are mapped in regions of the given size, that limits the size of a single entry.
+   */
+  public MappedDatabaseFactory(Path directory, int regionSize, DatabaseContext context) {
+    this.directory = requireNonNull(directory);
+    this.regionSize = regionSize;
+    this.context = requireNonNull(context);
+  }
+
+  @Override
+  public Database create(String name) {
+    MappedDatabase database = new MappedDatabase(directory, name, regionSize, context);
+    databases.add(database);
+    return database;
+  }
+
+  @Override
+  public DatabaseContext getContext() {
+    return context;
+  }
+
+  /**
+   * Files are closed, not deleted.
+   */
+  @Override
+  public void clear() {
+    for (MappedDatabase database : databases) {
+      database.close();
+    }
+    databases.clear();
+  }
+}
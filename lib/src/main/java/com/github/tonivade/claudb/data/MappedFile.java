@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File mapped in memory in regions of the same size, a buffer can only map 2 GB, so bigger
+ * files need more than one. The file grows a region at a time, and the values read or written
+ * must not cross the end of a region.
+ */
+final class MappedFile implements Closeable {
+
+  private final int regionSize;
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> regions = new ArrayList<>();
+
+  MappedFile(Path path, int regionSize) {
+    this.regionSize = regionSize;
+    try {
+      this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+      ensureCapacity(Math.max(channel.size(), 1));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private MappedFile(MappedFile other) {
+    this.regionSize = other.regionSize;
+    this.channel = null;
+    this.regions.addAll(other.regions);
+  }
+
+  /**
+   * Returns a file to read the regions mapped now, from any thread. A mapping does not depend
+   * on the channel, so it is still valid after this file is closed, or deleted, and until the
+   * view is garbage collected. It must not be written, nor grown, nor closed.
+   */
+  MappedFile view() {
+    return new MappedFile(this);
+  }
+
+  int regionSize() {
+    return regionSize;
+  }
+
+  long capacity() {
+    return (long) regions.size() * regionSize;
+  }
+
+  void ensureCapacity(long capacity) {
+    try {
+      while (capacity() < capacity) {
+        regions.add(channel.map(MapMode.READ_WRITE, capacity(), regionSize));
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the bytes remaining in the region of the offset.
+   */
+  int remaining(long offset) {
+    return regionSize - index(offset);
+  }
+
+  int getInt(long offset) {
+    return region(offset).getInt(index(offset));
+  }
+
+  long getLong(long offset) {
+    return region(offset).getLong(index(offset));
+  }
+
+  void putInt(long offset, int value) {
+    region(offset).putInt(index(offset), value);
+  }
+
+  void putLong(long offset, long value) {
+    region(offset).putLong(index(offset), value);
+  }
+
+  /**
+   * Returns a buffer that shares the mapped bytes, from offset to offset + length.
+   */
+  ByteBuffer slice(long offset, int length) {
+    ByteBuffer buffer = region(offset).duplicate();
+    buffer.position(index(offset));
+    buffer.limit(index(offset) + length);
+    return buffer.slice();
+  }
+
+  void put(long offset, ByteBuffer source) {
+    ByteBuffer buffer = region(offset).duplicate();
+    buffer.position(index(offset));
+    buffer.put(source);
+  }
+
+  void force() {
+    for (MappedByteBuffer region : regions) {
+      region.force();
+    }
+  }
+
+  /**
+   * Regions are unmapped when they are garbage collected, there is no way to unmap them before.
+   */
+  @Override
+  public void close() {
+    force();
+    regions.clear();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private MappedByteBuffer region(long offset) {
+    return regions.get((int) (offset / regionSize));
+  }
+
+  private int index(long offset) {
+    return (int) (offset % regionSize);
+  }
+}
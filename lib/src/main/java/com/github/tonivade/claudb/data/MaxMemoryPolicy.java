@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+public enum MaxMemoryPolicy {
+  NOEVICTION("noeviction"),
+  ALLKEYS_LRU("allkeys-lru"),
+  VOLATILE_LRU("volatile-lru"),
+  ALLKEYS_LFU("allkeys-lfu"),
+  VOLATILE_TTL("volatile-ttl"),
+  ALLKEYS_RANDOM("allkeys-random");
+
+  private final String text;
+
+  MaxMemoryPolicy(String text) {
+    this.text = requireNonNull(text);
+  }
+
+  public String text() {
+    return text;
+  }
+
+  public boolean isLru() {
+    return this == ALLKEYS_LRU || this == VOLATILE_LRU;
+  }
+
+  public boolean isLfu() {
+    return this == ALLKEYS_LFU;
+  }
+
+  /**
+   * Only keys with an expiration can be evicted.
+   */
+  public boolean isVolatile() {
+    return this == VOLATILE_LRU || this == VOLATILE_TTL;
+  }
+
+  public static MaxMemoryPolicy from(String text) {
+    for (MaxMemoryPolicy policy : values()) {
+      if (policy.text.equalsIgnoreCase(text)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("invalid maxmemory policy: " + text);
+  }
+}
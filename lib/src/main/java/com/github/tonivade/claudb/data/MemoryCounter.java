@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estimated memory used by a database, updated on every write. Every value remembers the
+ * size it was accounted with, so a value updated in place is discounted with its old size.
+ * Every change is also added to the total of the context of the database.
+ */
+final class MemoryCounter {
+
+  private final MemoryEstimator estimator;
+  private final DatabaseContext context;
+  private final LongAdder used = new LongAdder();
+
+  MemoryCounter(MemoryEstimator estimator, DatabaseContext context) {
+    this.estimator = requireNonNull(estimator);
+    this.context = requireNonNull(context);
+  }
+
+  long get() {
+    return used.sum();
+  }
+
+  void update(DatabaseKey key, DatabaseValue oldValue, DatabaseValue newValue) {
+    long delta = 0;
+    if (oldValue != null) {
+      delta -= oldValue.getFootprint();
+      if (newValue == null) {
+        delta -= estimator.keySize(key);
+      }
+    }
+    if (newValue != null) {
+      int footprint = (int) Math.min(Integer.MAX_VALUE,
+          estimator.valueSize(newValue, MemoryEstimator.DEFAULT_SAMPLES));
+      newValue.setFootprint(footprint);
+      delta += footprint;
+      if (oldValue == null) {
+        delta += estimator.keySize(key);
+      }
+    }
+    used.add(delta);
+    context.addMemory(delta);
+  }
+
+  void clear() {
+    context.addMemory(-used.sumThenReset());
+  }
+}
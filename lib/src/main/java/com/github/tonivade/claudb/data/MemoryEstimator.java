@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+/**
+ * Estimates the bytes used to store a key and its value. The elements of big collections
+ * are estimated from a sample, zero samples means that all the elements are checked.
+ */
+public interface MemoryEstimator {
+
+  int DEFAULT_SAMPLES = 5;
+
+  MemoryEstimator HEAP = new HeapMemoryEstimator();
+
+  /**
+   * Bytes used by the key, including the cost of the entry itself.
+   */
+  long keySize(DatabaseKey key);
+
+  long valueSize(DatabaseValue value, int samples);
+
+  default long entrySize(DatabaseKey key, DatabaseValue value, int samples) {
+    return keySize(key) + valueSize(value, samples);
+  }
+}
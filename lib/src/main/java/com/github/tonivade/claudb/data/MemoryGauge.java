@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory used by a database that counts it by itself. The database reports it after every
+ * write and only the difference with the last report is added to the total of the context.
+ */
+final class MemoryGauge {
+
+  private final DatabaseContext context;
+  private final AtomicLong reported = new AtomicLong();
+
+  MemoryGauge(DatabaseContext context) {
+    this.context = requireNonNull(context);
+  }
+
+  void report(long used) {
+    context.addMemory(used - reported.getAndSet(used));
+  }
+}
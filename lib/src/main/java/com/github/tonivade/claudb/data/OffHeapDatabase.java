@@ -9,25 +9,64 @@ import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableList;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
 import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.DirectValueAccess;
 import org.caffinitas.ohc.OHCache;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Database whose values are serialized out of the heap by OHC. OHC does not give access to its
+ * segments and buckets, so the keys are also kept in a {@link ScanHashMap} in the heap, only to
+ * scan them with a stable cursor, and its memory is added to the memory of the cache.
+ */
 public class OffHeapDatabase implements Database {
 
-  private final OHCache<DatabaseKey, DatabaseValue> cache;
+  private final Supplier<OHCache<DatabaseKey, DatabaseValue>> newCache;
+  private final Consumer<OHCache<DatabaseKey, DatabaseValue>> release;
+  private final LazyFree lazyFree;
+  // replaced by clearLazily, other threads like the expire cycle must see the new one
+  private volatile OHCache<DatabaseKey, DatabaseValue> cache;
+  private final ExpiryIndex expires = new ExpiryIndex();
+  private final ScanHashMap<DatabaseKey, Boolean> keys = new ScanHashMap<>();
+  private long keysMemory;
+  private final KeySampler volatileKeys = new KeySampler();
+  private final MemoryEstimator estimator;
+  private final MemoryGauge memory;
+  private CloseableIterator<DatabaseKey> sampleKeys;
+
+  public OffHeapDatabase(OHCache<DatabaseKey, DatabaseValue> cache, MemoryEstimator estimator) {
+    this(cache, estimator, null, null, new DatabaseContext());
+  }
 
-  public OffHeapDatabase(OHCache<DatabaseKey, DatabaseValue> cache) {
+  /**
+   * With a supplier of new caches, the cache is replaced by an empty one to clear the database
+   * lazily, when lazyFree says it is worth, and the old one is given to release.
+   */
+  OffHeapDatabase(OHCache<DatabaseKey, DatabaseValue> cache, MemoryEstimator estimator,
+      Supplier<OHCache<DatabaseKey, DatabaseValue>> newCache,
+      Consumer<OHCache<DatabaseKey, DatabaseValue>> release, DatabaseContext context) {
     this.cache = requireNonNull(cache);
+    this.estimator = requireNonNull(estimator);
+    this.newCache = newCache;
+    this.release = release;
+    this.lazyFree = context.getLazyFree();
+    this.memory = new MemoryGauge(context);
+    memory.report(usedMemory());
   }
 
   @Override
@@ -49,30 +88,238 @@ public class OffHeapDatabase implements Database {
   public DatabaseValue get(DatabaseKey key) {
     DatabaseValue value = cache.get(key);
     if (value != null) {
-      if (!value.isExpired(Instant.now())) {
+      if (!value.isExpired(CoarseClock.millis())) {
         return value;
       }
-      cache.remove(key);
+      remove(key);
     }
     return null;
   }
 
+  /**
+   * The reader works on the serialized value, so lengths and point lookups do not deserialize
+   * the value.
+   */
+  @Override
+  public <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    boolean expired = false;
+    try (DirectValueAccess access = cache.getDirect(key)) {
+      if (access != null) {
+        SerializedValue value = new SerializedValue(access.buffer());
+        if (!value.isExpired(CoarseClock.millis())) {
+          return reader.apply(value);
+        }
+        expired = true;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    if (expired) {
+      remove(key);
+    }
+    return reader.apply(defaultValue);
+  }
+
+  @Override
+  public boolean isType(DatabaseKey key, DataType type) {
+    return read(key, null, value -> value == null || value.getType() == type);
+  }
+
+  /**
+   * OHC never evicts, when the capacity is reached the write fails, and OHC may have removed the
+   * old value, so the indexes follow what is left in the cache.
+   */
   @Override
   public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
-    cache.put(key, value);
+    if (!cache.put(key, value)) {
+      if (!cache.containsKey(key)) {
+        expires.remove(key);
+        forget(key);
+        memory.report(usedMemory());
+      }
+      throw new IllegalStateException("off heap capacity reached writing key: " + key);
+    }
+    expires.update(key, value);
+    if (keys.put(key, Boolean.TRUE) == null) {
+      keysMemory += keyEntrySize(key);
+    }
+    memory.report(usedMemory());
     return value;
   }
 
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    // OHC has no compute, so it is a read and a write, but the value is deserialized only once
+    DatabaseValue current = cache.get(key);
+    DatabaseValue oldValue = current != null && current.isExpired(CoarseClock.millis()) ? null : current;
+    DatabaseValue newValue = remappingFunction.apply(key, oldValue);
+    if (newValue != null) {
+      put(key, newValue);
+    } else if (current != null) {
+      remove(key);
+    }
+    return newValue;
+  }
+
   @Override
   public DatabaseValue remove(DatabaseKey key) {
-    DatabaseValue value = get(key);
+    DatabaseValue value = cache.get(key);
+    expires.remove(key);
     cache.remove(key);
-    return value;
+    forget(key);
+    memory.report(usedMemory());
+    return value != null && value.isExpired(CoarseClock.millis()) ? null : value;
   }
 
   @Override
   public void clear() {
+    expires.clear();
+    closeSampleKeys();
     cache.clear();
+    volatileKeys.clear();
+    clearKeys();
+    memory.report(usedMemory());
+  }
+
+  /**
+   * The expiration is read from the serialized value, the value is never deserialized.
+   */
+  @Override
+  public boolean unlink(DatabaseKey key) {
+    boolean exists = false;
+    try (DirectValueAccess access = cache.getDirect(key)) {
+      if (access != null) {
+        exists = !new SerializedValue(access.buffer()).isExpired(CoarseClock.millis());
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    expires.remove(key);
+    cache.remove(key);
+    forget(key);
+    memory.report(usedMemory());
+    return exists;
+  }
+
+  /**
+   * OHC frees the memory of every entry one by one, so a large cache is replaced by a new one
+   * and the old one is cleared and closed in the background.
+   */
+  @Override
+  public void clearLazily() {
+    if (newCache == null || !lazyFree.isWorth(cache.size())) {
+      clear();
+      return;
+    }
+    OHCache<DatabaseKey, DatabaseValue> old = cache;
+    closeSampleKeys();
+    cache = newCache.get();
+    expires.clear();
+    volatileKeys.clear();
+    clearKeys();
+    memory.report(usedMemory());
+    release.accept(old);
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    evictExpired(now, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    List<DatabaseKey> keys = expires.pollExpired(now, limit);
+    int expired = 0;
+    for (DatabaseKey key : keys) {
+      if (isExpired(key, now.toEpochMilli())) {
+        cache.remove(key);
+        forget(key);
+        expired++;
+      }
+    }
+    if (expired > 0) {
+      memory.report(usedMemory());
+    }
+    return Tuple.of(keys.size(), expired);
+  }
+
+  private boolean isExpired(DatabaseKey key, long nowMillis) {
+    try (DirectValueAccess access = cache.getDirect(key)) {
+      return access != null && new SerializedValue(access.buffer()).isExpired(nowMillis);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * OHC already counts the bytes allocated for every entry, the keys kept to scan them are
+   * estimated.
+   */
+  @Override
+  public long usedMemory() {
+    return cache.memUsed() + keysMemory;
+  }
+
+  @Override
+  public Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    DatabaseValue value = get(key);
+    return value != null ? Option.some(estimator.entrySize(key, value, samples)) : Option.none();
+  }
+
+  /**
+   * Values are serialized without access metadata, so the keys are not chosen by the policy.
+   * Volatile keys are chosen at random from the expiry index. The other keys are the next ones
+   * of an iteration of OHC kept open between samples, like Redis samples consecutive buckets,
+   * so the keys are never copied and every key is sampled once per round.
+   */
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    if (onlyVolatile) {
+      return volatileKeys.sample(expires::keys, cache::get, count);
+    }
+    List<Tuple2<DatabaseKey, DatabaseValue>> sample = new ArrayList<>(count);
+    for (DatabaseKey key : nextSampleKeys(count)) {
+      DatabaseValue value = cache.get(key);
+      if (value != null) {
+        sample.add(Tuple.of(key, value));
+      }
+    }
+    return sample;
+  }
+
+  private synchronized List<DatabaseKey> nextSampleKeys(int count) {
+    List<DatabaseKey> keys = new ArrayList<>(count);
+    boolean restarted = false;
+    while (keys.size() < count) {
+      if (sampleKeys == null || !sampleKeys.hasNext()) {
+        if (restarted) {
+          break;
+        }
+        closeSampleKeys();
+        sampleKeys = cache.keyIterator();
+        restarted = true;
+        continue;
+      }
+      keys.add(sampleKeys.next());
+    }
+    return keys;
+  }
+
+  /**
+   * The iteration holds references to the entries of the cache, so it is closed before the
+   * cache is cleared or released.
+   */
+  private synchronized void closeSampleKeys() {
+    if (sampleKeys != null) {
+      try {
+        sampleKeys.close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      } finally {
+        sampleKeys = null;
+      }
+    }
   }
 
   @Override
@@ -90,15 +337,105 @@ public class OffHeapDatabase implements Database {
 
   @Override
   public Sequence<DatabaseValue> values() {
-    List<DatabaseValue> values = new LinkedList<>();
-    for (DatabaseKey key : keySet()) {
-      values.add(cache.get(key));
-    }
+    List<DatabaseValue> values = new ArrayList<>();
+    forEach((key, value) -> values.add(value));
     return ImmutableList.from(values);
   }
 
   @Override
   public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
-    return keySet().map(key -> Tuple.of(key, get(key)));
+    Set<Tuple2<DatabaseKey, DatabaseValue>> entries = new HashSet<>();
+    forEach((key, value) -> entries.add(Tuple.of(key, value)));
+    return ImmutableSet.from(entries);
+  }
+
+  /**
+   * OHC iterates the keys in batches of entries of a segment, so the keys are never copied
+   * at once. Keys removed during the iteration are skipped.
+   */
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    try (CloseableIterator<DatabaseKey> iterator = cache.keyIterator()) {
+      while (iterator.hasNext()) {
+        DatabaseKey key = iterator.next();
+        DatabaseValue value = cache.get(key);
+        if (value != null) {
+          action.accept(key, value);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Every entry is pinned, OHC does not free the memory of a pinned entry when it is replaced or
+   * removed, so the serialized values are not copied and they are deserialized from the thread
+   * that exports the snapshot. The entries are unpinned when the snapshot is closed.
+   */
+  @Override
+  public Snapshot.Entries capture() {
+    List<DatabaseKey> captured = new ArrayList<>(keys.size());
+    List<DirectValueAccess> values = new ArrayList<>(keys.size());
+    keys.forEach((key, present) -> {
+      DirectValueAccess access = cache.getDirect(key);
+      if (access != null) {
+        captured.add(key);
+        values.add(access);
+      }
+    });
+    return new Snapshot.Entries() {
+      @Override
+      public int size() {
+        return captured.size();
+      }
+
+      @Override
+      public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+        for (int i = 0; i < captured.size(); i++) {
+          action.accept(captured.get(i), new SerializedValue(values.get(i).buffer()).toValue());
+        }
+      }
+
+      @Override
+      public void release() {
+        for (DirectValueAccess access : values) {
+          try {
+            access.close();
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }
+      }
+    };
+  }
+
+  /**
+   * The cursor is the cursor of the keys kept in the heap, only the values of the keys visited
+   * are read.
+   */
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return keys.scan(cursor, count, (key, present) -> {
+      DatabaseValue value = cache.get(key);
+      if (value != null) {
+        action.accept(key, value);
+      }
+    });
+  }
+
+  private void forget(DatabaseKey key) {
+    if (keys.remove(key) != null) {
+      keysMemory -= keyEntrySize(key);
+    }
+  }
+
+  private void clearKeys() {
+    keys.clear();
+    keysMemory = 0;
+  }
+
+  private static long keyEntrySize(DatabaseKey key) {
+    return HeapSize.HASH_NODE + MemoryEstimator.HEAP.keySize(key);
   }
 }
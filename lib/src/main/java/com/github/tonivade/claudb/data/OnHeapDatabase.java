@@ -8,18 +8,32 @@ import com.github.tonivade.purefun.Tuple;
 import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.ImmutableSet;
 import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.resp.protocol.SafeString;
 
 import java.time.Instant;
-import java.util.Map;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import static java.util.Objects.requireNonNull;
 
 public class OnHeapDatabase implements Database {
 
-  private final Map<DatabaseKey, DatabaseValue> cache;
+  private final ScanHashMap<DatabaseKey, DatabaseValue> cache;
+  private final ExpiryIndex expires = new ExpiryIndex();
+  private final KeySampler allKeys = new KeySampler();
+  private final KeySampler volatileKeys = new KeySampler();
+  private final MemoryCounter memory;
+  private final DatabaseContext context;
 
-  public OnHeapDatabase(Map<DatabaseKey, DatabaseValue> cache) {
+  public OnHeapDatabase(ScanHashMap<DatabaseKey, DatabaseValue> cache) {
+    this(cache, new DatabaseContext());
+  }
+
+  public OnHeapDatabase(ScanHashMap<DatabaseKey, DatabaseValue> cache, DatabaseContext context) {
     this.cache = requireNonNull(cache);
+    this.context = requireNonNull(context);
+    this.memory = new MemoryCounter(MemoryEstimator.HEAP, context);
   }
 
   @Override
@@ -41,29 +55,100 @@ public class OnHeapDatabase implements Database {
   public DatabaseValue get(DatabaseKey key) {
     DatabaseValue value = cache.get(key);
     if (value != null) {
-      if (!value.isExpired(Instant.now())) {
+      if (!value.isExpired(CoarseClock.millis())) {
+        context.touch(value);
+        return value;
+      }
+      remove(key);
+    }
+    return null;
+  }
+
+  @Override
+  public DatabaseValue lookup(SafeString key) {
+    DatabaseValue value = cache.find(key, DatabaseKey::hasValue);
+    if (value != null) {
+      if (!value.isExpired(CoarseClock.millis())) {
+        context.touch(value);
         return value;
       }
-      cache.remove(key);
+      remove(DatabaseKey.safeKey(key));
     }
     return null;
   }
 
   @Override
   public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
-    DatabaseValue oldValue = cache.remove(key);
-    cache.put(key, value);
+    DatabaseValue stored = context.store(null, requireNonNull(value));
+    expires.update(key, stored);
+    DatabaseValue oldValue = cache.put(key, stored);
+    memory.update(key, oldValue, stored);
     return oldValue;
   }
 
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    long now = CoarseClock.millis();
+    DatabaseValue[] previous = new DatabaseValue[1];
+    DatabaseValue newValue = cache.compute(key, (k, oldValue) -> {
+      previous[0] = oldValue;
+      if (oldValue != null && oldValue.isExpired(now)) {
+        return context.store(null, remappingFunction.apply(k, null));
+      }
+      return context.store(oldValue, remappingFunction.apply(k, oldValue));
+    });
+    expires.update(key, newValue);
+    memory.update(key, previous[0], newValue);
+    return newValue;
+  }
+
   @Override
   public DatabaseValue remove(DatabaseKey key) {
-    return cache.remove(key);
+    expires.remove(key);
+    DatabaseValue value = cache.remove(key);
+    memory.update(key, value, null);
+    return value;
   }
 
   @Override
   public void clear() {
+    expires.clear();
     cache.clear();
+    memory.clear();
+    allKeys.clear();
+    volatileKeys.clear();
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    evictExpired(now, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    List<DatabaseKey> keys = expires.pollExpired(now, limit);
+    int expired = 0;
+    for (DatabaseKey key : keys) {
+      DatabaseValue value = cache.get(key);
+      if (value != null && value.isExpired(now)) {
+        cache.remove(key);
+        memory.update(key, value, null);
+        expired++;
+      }
+    }
+    return Tuple.of(keys.size(), expired);
+  }
+
+  @Override
+  public long usedMemory() {
+    return memory.get();
+  }
+
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    KeySampler sampler = onlyVolatile ? volatileKeys : allKeys;
+    return sampler.sample(onlyVolatile ? expires::keys : cache::keySet, cache::get, count);
   }
 
   @Override
@@ -80,4 +165,23 @@ public class OnHeapDatabase implements Database {
   public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
     return ImmutableSet.from(cache.entrySet()).map(Tuple::from);
   }
+
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    cache.forEach(action);
+  }
+
+  /**
+   * Only the references to the pages of buckets are copied, the entries are shared with the
+   * snapshot until a write copies a page, see {@link ScanHashMap#copy()}.
+   */
+  @Override
+  public Snapshot.Entries capture() {
+    return Snapshot.Entries.of(cache.copy());
+  }
+
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return cache.scan(cursor, count, action);
+  }
 }
@@ -4,13 +4,28 @@
  */
 package com.github.tonivade.claudb.data;
 
-import java.util.HashMap;
+import static java.util.Objects.requireNonNull;
 
 public class OnHeapDatabaseFactory implements DatabaseFactory {
 
+  private final DatabaseContext context;
+
+  public OnHeapDatabaseFactory() {
+    this(new DatabaseContext());
+  }
+
+  public OnHeapDatabaseFactory(DatabaseContext context) {
+    this.context = requireNonNull(context);
+  }
+
   @Override
   public Database create(String name) {
-    return new OnHeapDatabase(new HashMap<>());
+    return new OnHeapDatabase(new ScanHashMap<>(), context);
+  }
+
+  @Override
+  public DatabaseContext getContext() {
+    return context;
   }
 
   @Override
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableMap;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Database that keeps its keys sorted in a skip list besides the database, so the keys with a
+ * prefix are found without visiting the rest of the keys.
+ *
+ * Keys expired and removed by the database itself are not removed from the index at once,
+ * they are removed when they are found missing, and the index is rebuilt when there are more
+ * missing keys than keys in the database.
+ *
+ * The index is updated after the database, so the access must be serialized, it is not safe
+ * with the concurrent factory.
+ */
+public class PrefixIndexDatabase implements Database {
+
+  private static final int MIN_REBUILD = 1024;
+  private static final int CURSOR_BYTES = 7;
+
+  private final Database db;
+  private final NavigableSet<DatabaseKey> index = new ConcurrentSkipListSet<>();
+  private final AtomicInteger indexed = new AtomicInteger();
+  private final DatabaseContext context;
+  private final PrefixIndexStats stats;
+
+  public PrefixIndexDatabase(Database db) {
+    this(db, new DatabaseContext());
+  }
+
+  public PrefixIndexDatabase(Database db, DatabaseContext context) {
+    this.db = requireNonNull(db);
+    this.context = requireNonNull(context);
+    this.stats = context.getPrefixIndexStats();
+  }
+
+  @Override
+  public int size() {
+    return db.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return db.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return db.containsKey(key);
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    DatabaseValue value = db.get(key);
+    if (value == null && indexed.get() > db.size()) {
+      // it may have been expired by the database
+      unindex(key);
+    }
+    return value;
+  }
+
+  @Override
+  public DatabaseValue lookup(SafeString key) {
+    return db.lookup(key);
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    DatabaseValue oldValue = db.put(key, value);
+    index(key);
+    return oldValue;
+  }
+
+  @Override
+  public void store(DatabaseKey key, DatabaseValue value) {
+    db.store(key, value);
+    index(key);
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    DatabaseValue value = db.remove(key);
+    unindex(key);
+    return value;
+  }
+
+  @Override
+  public boolean unlink(DatabaseKey key) {
+    boolean exists = db.unlink(key);
+    unindex(key);
+    return exists;
+  }
+
+  @Override
+  public void clear() {
+    db.clear();
+    clearIndex();
+  }
+
+  @Override
+  public void clearLazily() {
+    db.clearLazily();
+    clearIndex();
+  }
+
+  @Override
+  public DatabaseValue putIfAbsent(DatabaseKey key, DatabaseValue value) {
+    DatabaseValue oldValue = db.putIfAbsent(key, value);
+    index(key);
+    return oldValue;
+  }
+
+  @Override
+  public DatabaseValue compute(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    return updated(key, db.compute(key, remappingFunction));
+  }
+
+  @Override
+  public DatabaseValue computeIfPresent(DatabaseKey key,
+      BiFunction<DatabaseKey, DatabaseValue, DatabaseValue> remappingFunction) {
+    return updated(key, db.computeIfPresent(key, remappingFunction));
+  }
+
+  @Override
+  public DatabaseValue merge(DatabaseKey key, DatabaseValue value,
+      BiFunction<DatabaseValue, DatabaseValue, DatabaseValue> remappingFunction) {
+    return updated(key, db.merge(key, value, remappingFunction));
+  }
+
+  @Override
+  public DatabaseValue getOrDefault(DatabaseKey key, DatabaseValue defaultValue) {
+    return db.getOrDefault(key, defaultValue);
+  }
+
+  @Override
+  public <T> T read(DatabaseKey key, ValueView defaultValue, Function<ValueView, T> reader) {
+    return db.read(key, defaultValue, reader);
+  }
+
+  @Override
+  public boolean isType(DatabaseKey key, DataType type) {
+    return db.isType(key, type);
+  }
+
+  @Override
+  public boolean rename(DatabaseKey from, DatabaseKey to) {
+    if (db.rename(from, to)) {
+      unindex(from);
+      index(to);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public void overrideAll(ImmutableMap<DatabaseKey, DatabaseValue> value) {
+    db.overrideAll(value);
+    rebuild();
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    return db.keySet();
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    return db.values();
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    return db.entrySet();
+  }
+
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    db.forEach(action);
+  }
+
+  @Override
+  public Snapshot.Entries capture() {
+    return db.capture();
+  }
+
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    return db.scan(cursor, count, action);
+  }
+
+  /**
+   * Only the keys of the index from the prefix on are visited, without a prefix all the
+   * entries of the database are visited as usual.
+   */
+  @Override
+  public void forEachWithPrefix(SafeString prefix, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    if (prefix.length() == 0) {
+      db.forEach(action);
+      return;
+    }
+    for (DatabaseKey key : index.tailSet(DatabaseKey.safeKey(prefix))) {
+      if (!key.startsWith(prefix)) {
+        break;
+      }
+      DatabaseValue value = valueOf(key);
+      if (value != null) {
+        action.accept(key, value);
+      }
+    }
+  }
+
+  /**
+   * The cursor holds the first 7 bytes after the prefix of the next key to visit and their
+   * number, so nothing is kept between calls and the next call goes on from that key, keys
+   * added or removed in the meantime do not make it skip keys. Keys whose first 7 bytes after
+   * the prefix are the same are visited in the same call, even beyond the count. Count is the
+   * number of keys with the prefix visited, an invalid cursor starts again from the prefix.
+   */
+  @Override
+  public long scanWithPrefix(SafeString prefix, long cursor, int count,
+      BiConsumer<DatabaseKey, DatabaseValue> action) {
+    if (prefix.length() == 0) {
+      return db.scan(cursor, count, action);
+    }
+    DatabaseKey from = cursor != 0 ? resumeKey(prefix, cursor) : null;
+    NavigableSet<DatabaseKey> keys =
+        index.tailSet(from != null ? from : DatabaseKey.safeKey(prefix), true);
+    int visited = 0;
+    long last = 0;
+    for (DatabaseKey key : keys) {
+      if (!key.startsWith(prefix)) {
+        break;
+      }
+      long next = cursorOf(prefix, key);
+      if (visited >= Math.max(1, count) && next != last) {
+        return next;
+      }
+      DatabaseValue value = valueOf(key);
+      if (value != null) {
+        action.accept(key, value);
+      }
+      visited++;
+      last = next;
+    }
+    return 0;
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    db.evictExpired(now);
+    rebuildIfNeeded();
+  }
+
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    Tuple2<Integer, Integer> result = db.evictExpired(now, limit);
+    rebuildIfNeeded();
+    return result;
+  }
+
+  /**
+   * Memory used by the database and the index.
+   */
+  @Override
+  public long usedMemory() {
+    return db.usedMemory() + indexed.get() * HeapSize.SKIP_LIST_NODE;
+  }
+
+  @Override
+  public Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    return db.memoryUsage(key, samples);
+  }
+
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    return db.sample(count, onlyVolatile);
+  }
+
+  int indexSize() {
+    return indexed.get();
+  }
+
+  /**
+   * The value of a key of the index, a missing key is removed from the index.
+   */
+  private DatabaseValue valueOf(DatabaseKey key) {
+    DatabaseValue value = db.get(key);
+    if (value == null) {
+      unindex(key);
+    }
+    return value;
+  }
+
+  private DatabaseValue updated(DatabaseKey key, DatabaseValue value) {
+    if (value != null) {
+      index(key);
+    } else {
+      unindex(key);
+    }
+    return value;
+  }
+
+  private void index(DatabaseKey key) {
+    if (index.add(key)) {
+      indexed.incrementAndGet();
+      added(1);
+    }
+  }
+
+  private void unindex(DatabaseKey key) {
+    if (index.remove(key)) {
+      indexed.decrementAndGet();
+      added(-1);
+    }
+  }
+
+  /**
+   * The first bytes of the key after the prefix in the high bytes and their number in the low
+   * byte, zero for the key equal to the prefix.
+   */
+  private static long cursorOf(SafeString prefix, DatabaseKey key) {
+    ByteBuffer buffer = key.getValue().getBuffer();
+    int start = buffer.position() + prefix.length();
+    int length = Math.min(CURSOR_BYTES, buffer.limit() - start);
+    long cursor = length;
+    for (int i = 0; i < length; i++) {
+      cursor |= (buffer.get(start + i) & 0xFFL) << (56 - 8 * i);
+    }
+    return cursor;
+  }
+
+  private static DatabaseKey resumeKey(SafeString prefix, long cursor) {
+    int length = (int) (cursor & 0xFF);
+    if (length > CURSOR_BYTES) {
+      return null;
+    }
+    byte[] bytes = Arrays.copyOf(prefix.getBytes(), prefix.length() + length);
+    for (int i = 0; i < length; i++) {
+      bytes[prefix.length() + i] = (byte) (cursor >>> (56 - 8 * i));
+    }
+    return DatabaseKey.safeKey(new SafeString(bytes));
+  }
+
+  private void rebuildIfNeeded() {
+    int size = db.size();
+    if (indexed.get() - size > Math.max(MIN_REBUILD, size)) {
+      rebuild();
+    }
+  }
+
+  private void rebuild() {
+    clearIndex();
+    db.forEach((key, value) -> index(key));
+  }
+
+  private void clearIndex() {
+    added(-indexed.getAndSet(0));
+    index.clear();
+  }
+
+  private void added(int keys) {
+    stats.added(keys);
+    context.addMemory((long) keys * HeapSize.SKIP_LIST_NODE);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Set;
+
+/**
+ * Adds a prefix index to the databases with the given numbers, the admin database and the
+ * others are created by the factory as they are.
+ */
+public class PrefixIndexDatabaseFactory implements DatabaseFactory {
+
+  private final DatabaseFactory factory;
+  private final Set<Integer> databases;
+
+  public PrefixIndexDatabaseFactory(DatabaseFactory factory, Set<Integer> databases) {
+    this.factory = requireNonNull(factory);
+    this.databases = requireNonNull(databases);
+  }
+
+  @Override
+  public Database create(String name) {
+    Database database = factory.create(name);
+    return isIndexed(name) ? new PrefixIndexDatabase(database, factory.getContext()) : database;
+  }
+
+  @Override
+  public void clear() {
+    factory.clear();
+  }
+
+  @Override
+  public long usedMemory() {
+    return factory.usedMemory();
+  }
+
+  @Override
+  public DatabaseContext getContext() {
+    return factory.getContext();
+  }
+
+  /**
+   * Databases are named db-N.
+   */
+  private boolean isIndexed(String name) {
+    for (Integer database : databases) {
+      if (name.equals("db-" + database)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keys in the prefix indexes of the databases of a server.
+ */
+public final class PrefixIndexStats {
+
+  private final LongAdder keys = new LongAdder();
+
+  public long getKeys() {
+    return keys.sum();
+  }
+
+  /**
+   * Estimated bytes used by the indexes, the keys are shared with the databases, so only the
+   * nodes of the indexes are counted.
+   */
+  public long getMemory() {
+    return getKeys() * HeapSize.SKIP_LIST_NODE;
+  }
+
+  void added(long count) {
+    keys.add(count);
+  }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Chunked list of values, every node packs up to {@code NODE_ENTRIES} values in a single byte array.
+ * Nodes are kept in a ring buffer with the virtual position of their first element, so push and
+ * pop at both ends are O(1) and access by index is a binary search over the nodes.
+ *
+ * A copy shares the nodes with the list it is copied from, only the ring buffer is copied. A node
+ * belongs to the list that created it, and the other list copies it before it is modified, so a
+ * write after a copy costs a node, not the whole list.
+ */
+public class QuickList extends AbstractList<SafeString> implements Serializable {
+
+  private static final long serialVersionUID = 4309215183520497611L;
+
+  private static final int NODE_ENTRIES = 128;
+  private static final int NODE_BYTES = 8192;
+  private static final int INITIAL_NODES = 4;
+
+  private transient Node[] nodes = new Node[INITIAL_NODES];
+  private transient long[] starts = new long[INITIAL_NODES];
+  // the nodes of a list are the ones with the same owner, a copy gives a new one to both lists
+  private transient Object owner = new Object();
+  private transient int first;
+  private transient int length;
+  private transient int size;
+
+  public QuickList() {
+    // empty list
+  }
+
+  public QuickList(Collection<SafeString> values) {
+    addAll(values);
+  }
+
+  /**
+   * Copy that shares the nodes with the other list, see the doc of the class.
+   */
+  public QuickList(QuickList other) {
+    this.nodes = other.nodes.clone();
+    this.starts = other.starts.clone();
+    this.first = other.first;
+    this.length = other.length;
+    this.size = other.size;
+    other.owner = new Object();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public SafeString get(int index) {
+    checkIndex(index);
+    int k = locate(index);
+    return node(k).get(positionOf(k, index));
+  }
+
+  @Override
+  public SafeString set(int index, SafeString element) {
+    checkIndex(index);
+    int k = locate(index);
+    Node node = writable(k);
+    int position = positionOf(k, index);
+    SafeString previous = node.remove(position);
+    node.insert(position, element.getBytes());
+    return previous;
+  }
+
+  @Override
+  public void add(int index, SafeString element) {
+    checkPosition(index);
+    byte[] value = element.getBytes();
+    if (length == 0) {
+      insertNode(0, new Node(owner), 0);
+    }
+    int k;
+    if (index == size) {
+      k = length - 1;
+      if (!node(k).fits(value.length)) {
+        insertNode(length, new Node(owner), start(k) + node(k).count);
+        k = length - 1;
+      }
+    } else if (index == 0) {
+      k = 0;
+      if (!node(k).fits(value.length)) {
+        insertNode(0, new Node(owner), start(k));
+      }
+    } else {
+      k = locate(index);
+      if (!node(k).fits(value.length)) {
+        splitNode(k);
+        k = locate(index);
+      }
+    }
+    writable(k).insert(positionOf(k, index), value);
+    if (k < length / 2) {
+      // elements before the new one move a position down
+      shift(0, k + 1, -1);
+    } else {
+      shift(k + 1, length, 1);
+    }
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public SafeString remove(int index) {
+    checkIndex(index);
+    int k = locate(index);
+    Node node = writable(k);
+    SafeString value = node.remove(positionOf(k, index));
+    if (k < length / 2) {
+      // elements before the removed one move a position up
+      shift(0, k + 1, 1);
+    } else {
+      shift(k + 1, length, -1);
+    }
+    if (node.count == 0) {
+      removeNode(k);
+    }
+    size--;
+    modCount++;
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    nodes = new Node[INITIAL_NODES];
+    starts = new long[INITIAL_NODES];
+    first = 0;
+    length = 0;
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public ListIterator<SafeString> listIterator(int index) {
+    checkPosition(index);
+    return new Itr(index);
+  }
+
+  /**
+   * Estimated bytes used in the heap, the nodes are estimated from the first samples nodes.
+   */
+  long memoryUsage(int samples) {
+    // nodes, starts, owner, first, length, size and modCount
+    return HeapSize.object(3 * HeapSize.REFERENCE + 4 * Integer.BYTES)
+        + HeapSize.array(nodes.length, HeapSize.REFERENCE) + HeapSize.array(starts.length, Long.BYTES)
+        + HeapSize.sampled(IntStream.range(0, length).mapToObj(this::node).iterator(), length, samples,
+            Node::memoryUsage);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+  }
+
+  private void checkPosition(int index) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+    }
+  }
+
+  private Node node(int k) {
+    return nodes[(first + k) & (nodes.length - 1)];
+  }
+
+  private long start(int k) {
+    return starts[(first + k) & (starts.length - 1)];
+  }
+
+  /**
+   * Returns the node, copied first if it belongs to another list.
+   */
+  private Node writable(int k) {
+    int slot = (first + k) & (nodes.length - 1);
+    if (nodes[slot].owner != owner) {
+      nodes[slot] = nodes[slot].copy(owner);
+    }
+    return nodes[slot];
+  }
+
+  private int locate(int index) {
+    long position = start(0) + index;
+    int low = 0;
+    int high = length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (start(middle) <= position) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  private int positionOf(int k, int index) {
+    return (int) (start(0) + index - start(k));
+  }
+
+  private void shift(int from, int to, int delta) {
+    int mask = starts.length - 1;
+    for (int k = from; k < to; k++) {
+      starts[(first + k) & mask] += delta;
+    }
+  }
+
+  private void splitNode(int k) {
+    Node node = writable(k);
+    if (node.count > 1) {
+      int count = node.count / 2;
+      insertNode(k + 1, node.split(count, owner), start(k) + count);
+    }
+  }
+
+  private void insertNode(int k, Node node, long start) {
+    if (length == nodes.length) {
+      grow();
+    }
+    int mask = nodes.length - 1;
+    if (k == 0) {
+      first = (first - 1) & mask;
+    } else {
+      for (int j = length; j > k; j--) {
+        nodes[(first + j) & mask] = nodes[(first + j - 1) & mask];
+        starts[(first + j) & mask] = starts[(first + j - 1) & mask];
+      }
+    }
+    nodes[(first + k) & mask] = node;
+    starts[(first + k) & mask] = start;
+    length++;
+  }
+
+  private void removeNode(int k) {
+    int mask = nodes.length - 1;
+    if (k == 0) {
+      nodes[first] = null;
+      first = (first + 1) & mask;
+    } else {
+      for (int j = k; j < length - 1; j++) {
+        nodes[(first + j) & mask] = nodes[(first + j + 1) & mask];
+        starts[(first + j) & mask] = starts[(first + j + 1) & mask];
+      }
+      nodes[(first + length - 1) & mask] = null;
+    }
+    length--;
+  }
+
+  private void grow() {
+    Node[] grown = new Node[nodes.length * 2];
+    long[] grownStarts = new long[grown.length];
+    for (int k = 0; k < length; k++) {
+      grown[k] = node(k);
+      grownStarts[k] = start(k);
+    }
+    nodes = grown;
+    starts = grownStarts;
+    first = 0;
+  }
+
+  private void writeObject(ObjectOutputStream output) throws IOException {
+    output.defaultWriteObject();
+    output.writeInt(size);
+    for (int k = 0; k < length; k++) {
+      node(k).write(output);
+    }
+  }
+
+  private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
+    this.nodes = new Node[INITIAL_NODES];
+    this.starts = new long[INITIAL_NODES];
+    this.owner = new Object();
+    int entries = input.readInt();
+    for (int i = 0; i < entries; i++) {
+      byte[] value = new byte[input.readInt()];
+      input.readFully(value);
+      add(new SafeString(value));
+    }
+  }
+
+  private static final class Node {
+
+    private final Object owner;
+    private int count;
+    private int[] offsets = new int[8];
+    private byte[] data = new byte[64];
+
+    private Node(Object owner) {
+      this.owner = owner;
+    }
+
+    private long memoryUsage() {
+      return HeapSize.object(Integer.BYTES + 3 * HeapSize.REFERENCE)
+          + HeapSize.array(offsets.length, Integer.BYTES) + HeapSize.array(data.length, Byte.BYTES);
+    }
+
+    private boolean fits(int length) {
+      return count == 0 || (count < NODE_ENTRIES && offsets[count] + length <= NODE_BYTES);
+    }
+
+    private SafeString get(int i) {
+      return new SafeString(Arrays.copyOfRange(data, offsets[i], offsets[i + 1]));
+    }
+
+    private void insert(int i, byte[] value) {
+      ensureCapacity(value.length);
+      int from = offsets[i];
+      System.arraycopy(data, from, data, from + value.length, offsets[count] - from);
+      System.arraycopy(value, 0, data, from, value.length);
+      System.arraycopy(offsets, i, offsets, i + 1, count + 1 - i);
+      for (int j = i + 1; j <= count + 1; j++) {
+        offsets[j] += value.length;
+      }
+      count++;
+    }
+
+    private SafeString remove(int i) {
+      int from = offsets[i];
+      int to = offsets[i + 1];
+      SafeString value = new SafeString(Arrays.copyOfRange(data, from, to));
+      System.arraycopy(data, to, data, from, offsets[count] - to);
+      System.arraycopy(offsets, i + 1, offsets, i, count - i);
+      for (int j = i; j < count; j++) {
+        offsets[j] -= to - from;
+      }
+      count--;
+      return value;
+    }
+
+    private Node copy(Object owner) {
+      Node copy = new Node(owner);
+      copy.count = count;
+      copy.offsets = Arrays.copyOf(offsets, count + 2);
+      copy.data = Arrays.copyOf(data, Math.max(offsets[count], 1));
+      return copy;
+    }
+
+    private Node split(int i, Object owner) {
+      Node other = new Node(owner);
+      for (int j = i; j < count; j++) {
+        other.insert(j - i, Arrays.copyOfRange(data, offsets[j], offsets[j + 1]));
+      }
+      count = i;
+      return other;
+    }
+
+    private void ensureCapacity(int length) {
+      int required = offsets[count] + length;
+      if (required > data.length) {
+        data = Arrays.copyOf(data, Math.max(data.length * 2, required));
+      }
+      if (count + 2 > offsets.length) {
+        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+      }
+    }
+
+    private void write(ObjectOutputStream output) throws IOException {
+      for (int i = 0; i < count; i++) {
+        output.writeInt(offsets[i + 1] - offsets[i]);
+        output.write(data, offsets[i], offsets[i + 1] - offsets[i]);
+      }
+    }
+  }
+
+  private final class Itr implements ListIterator<SafeString> {
+
+    private int cursor;
+    private int last = -1;
+    private int expectedModCount = modCount;
+    private int nodeIndex;
+    private int position;
+
+    private Itr(int index) {
+      this.cursor = index;
+      seek();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor < size;
+    }
+
+    @Override
+    public SafeString next() {
+      checkForModification();
+      if (cursor >= size) {
+        throw new NoSuchElementException();
+      }
+      Node node = node(nodeIndex);
+      SafeString value = node.get(position);
+      last = cursor++;
+      if (++position == node.count) {
+        nodeIndex++;
+        position = 0;
+      }
+      return value;
+    }
+
+    @Override
+    public boolean hasPrevious() {
+      return cursor > 0;
+    }
+
+    @Override
+    public SafeString previous() {
+      checkForModification();
+      if (cursor <= 0) {
+        throw new NoSuchElementException();
+      }
+      last = --cursor;
+      seek();
+      return get(cursor);
+    }
+
+    @Override
+    public int nextIndex() {
+      return cursor;
+    }
+
+    @Override
+    public int previousIndex() {
+      return cursor - 1;
+    }
+
+    @Override
+    public void remove() {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      checkForModification();
+      QuickList.this.remove(last);
+      if (last < cursor) {
+        cursor--;
+      }
+      last = -1;
+      expectedModCount = modCount;
+      seek();
+    }
+
+    @Override
+    public void set(SafeString value) {
+      if (last < 0) {
+        throw new IllegalStateException();
+      }
+      checkForModification();
+      QuickList.this.set(last, value);
+    }
+
+    @Override
+    public void add(SafeString value) {
+      checkForModification();
+      QuickList.this.add(cursor++, value);
+      last = -1;
+      expectedModCount = modCount;
+      seek();
+    }
+
+    private void seek() {
+      if (cursor < size) {
+        nodeIndex = locate(cursor);
+        position = positionOf(nodeIndex, cursor);
+      }
+    }
+
+    private void checkForModification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+}
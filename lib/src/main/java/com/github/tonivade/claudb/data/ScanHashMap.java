@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+/**
+ * Hash map with chained buckets, like HashMap, that can be scanned with a stateless cursor.
+ * The cursor is the next bucket with its bits reversed, as the dict of redis, so when the
+ * table grows or shrinks between two calls, the buckets already visited map to buckets that
+ * are not visited again, and every entry that exists during the whole scan is returned at
+ * least once.
+ *
+ * The buckets are kept in pages of up to 1024 buckets, so {@link #copy()} only copies the
+ * references to the pages. A page is shared by the map and its copy until one of them writes
+ * it, then that map copies the page and the entries of its buckets, so a write after a copy
+ * costs a page, not the whole map.
+ */
+public class ScanHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int PAGE_SHIFT = 10;
+
+  private Page<K, V>[] pages;
+  private int mask;
+  private int pageShift;
+  private int pageMask;
+  private int size;
+  private int modCount;
+  // the pages of a map are the ones with the same owner, a copy gives a new one to both maps
+  private Object owner;
+
+  public ScanHashMap() {
+    allocate(INITIAL_CAPACITY);
+  }
+
+  private ScanHashMap(ScanHashMap<K, V> other) {
+    this.pages = other.pages.clone();
+    this.mask = other.mask;
+    this.pageShift = other.pageShift;
+    this.pageMask = other.pageMask;
+    this.size = other.size;
+    this.owner = new Object();
+    other.owner = new Object();
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return node(key) != null;
+  }
+
+  @Override
+  public V get(Object key) {
+    Node<K, V> node = node(key);
+    if (node == null) {
+      return null;
+    }
+    afterNodeAccess(node);
+    return node.value;
+  }
+
+  /**
+   * Returns the value of the key matched by the probe, whose hash code must be the one of the
+   * key, so the map is read without building a key.
+   */
+  <T> V find(T probe, BiPredicate<K, T> matches) {
+    int hash = hash(probe);
+    for (Node<K, V> node = bucket(hash & mask); node != null; node = node.next) {
+      if (node.hash == hash && matches.test(node.key, probe)) {
+        afterNodeAccess(node);
+        return node.value;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    int hash = hash(key);
+    Node<K, V>[] buckets = writable(hash & mask);
+    int index = hash & pageMask;
+    for (Node<K, V> node = buckets[index]; node != null; node = node.next) {
+      if (node.hash == hash && Objects.equals(node.key, key)) {
+        V previous = node.value;
+        node.value = value;
+        afterNodeAccess(node);
+        return previous;
+      }
+    }
+    buckets[index] = newNode(hash, key, value, buckets[index]);
+    size++;
+    modCount++;
+    if (size > (mask + 1) / 4 * 3) {
+      resize((mask + 1) * 2);
+    }
+    return null;
+  }
+
+  @Override
+  public V remove(Object key) {
+    int hash = hash(key);
+    if (!isOwned(hash & mask) && node(key) == null) {
+      // a shared page is not copied if the key is not there
+      return null;
+    }
+    Node<K, V> removed = unlink(writable(hash & mask), hash, key);
+    if (removed == null) {
+      return null;
+    }
+    if (mask + 1 > INITIAL_CAPACITY && size < (mask + 1) / 8) {
+      resize((mask + 1) / 2);
+    }
+    return removed.value;
+  }
+
+  @Override
+  public void clear() {
+    allocate(INITIAL_CAPACITY);
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    for (Page<K, V> page : pages) {
+      for (Node<K, V> bucket : page.buckets) {
+        for (Node<K, V> node = bucket; node != null; node = node.next) {
+          action.accept(node.key, node.value);
+        }
+      }
+    }
+  }
+
+  @Override
+  public Set<Entry<K, V>> entrySet() {
+    return new EntrySet();
+  }
+
+  /**
+   * Applies the action to the entries of the buckets from the cursor on, see
+   * {@link HashCursor#scan(long, int, int, java.util.function.IntUnaryOperator)}, and returns the
+   * cursor of the next call, zero after the last bucket. The action must not modify the map.
+   */
+  public long scan(long cursor, int count, BiConsumer<? super K, ? super V> action) {
+    if (size == 0) {
+      return 0;
+    }
+    int mask = mask();
+    return HashCursor.scan(cursor, count, mask, bucket -> scanBucket(bucket, mask, action));
+  }
+
+  /**
+   * Returns a copy of this map that shares the pages of buckets with it, see the doc of the class.
+   * Once copied, a map and its copy can be modified independently, and a copy that is never
+   * modified can be read from another thread while this map keeps changing.
+   */
+  ScanHashMap<K, V> copy() {
+    return new ScanHashMap<>(this);
+  }
+
+  int mask() {
+    return mask;
+  }
+
+  /**
+   * Applies the action to the entries whose hash has the bits of the mask of the bucket, so
+   * several maps of any size can be scanned with the same cursor and the smaller mask. If the
+   * table is larger than the mask, the bucket is split in several buckets of the table, and if
+   * it is smaller, the bucket of the table has other entries that are skipped. Returns the
+   * number of entries applied to the action.
+   */
+  int scanBucket(int bucket, int mask, BiConsumer<? super K, ? super V> action) {
+    int tableMask = this.mask;
+    int visited = 0;
+    if (tableMask <= mask) {
+      for (Node<K, V> node = bucket(bucket & tableMask); node != null; node = node.next) {
+        if ((node.hash & mask) == (bucket & mask)) {
+          action.accept(node.key, node.value);
+          visited++;
+        }
+      }
+      return visited;
+    }
+    int index = bucket & mask;
+    do {
+      for (Node<K, V> node = bucket(index); node != null; node = node.next) {
+        action.accept(node.key, node.value);
+        visited++;
+      }
+      // increments the bits of the table that are not in the mask
+      index = (((index | mask) + 1) & ~mask) | (index & mask);
+    } while ((index & (tableMask ^ mask)) != 0);
+    return visited;
+  }
+
+  Node<K, V> newNode(int hash, K key, V value, Node<K, V> next) {
+    return new Node<>(hash, key, value, next);
+  }
+
+  /**
+   * Called when the value of an existing key is read or replaced.
+   */
+  void afterNodeAccess(Node<K, V> node) {
+    // nothing to do
+  }
+
+  void afterNodeRemoval(Node<K, V> node) {
+    // nothing to do
+  }
+
+  private Node<K, V> node(Object key) {
+    int hash = hash(key);
+    for (Node<K, V> node = bucket(hash & mask); node != null; node = node.next) {
+      if (node.hash == hash && Objects.equals(node.key, key)) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private Node<K, V> bucket(int index) {
+    return pages[index >>> pageShift].buckets[index & pageMask];
+  }
+
+  private boolean isOwned(int index) {
+    return pages[index >>> pageShift].owner == owner;
+  }
+
+  /**
+   * Returns the buckets of the page of the index, the page is copied if it is shared.
+   */
+  private Node<K, V>[] writable(int index) {
+    Page<K, V> page = pages[index >>> pageShift];
+    if (page.owner != owner) {
+      page = page.copy(owner);
+      pages[index >>> pageShift] = page;
+    }
+    return page.buckets;
+  }
+
+  private Node<K, V> unlink(Node<K, V>[] buckets, int hash, Object key) {
+    int index = hash & pageMask;
+    Node<K, V> previous = null;
+    for (Node<K, V> node = buckets[index]; node != null; previous = node, node = node.next) {
+      if (node.hash == hash && Objects.equals(node.key, key)) {
+        if (previous == null) {
+          buckets[index] = node.next;
+        } else {
+          previous.next = node.next;
+        }
+        size--;
+        modCount++;
+        afterNodeRemoval(node);
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private void allocate(int capacity) {
+    int pageSize = Math.min(capacity, 1 << PAGE_SHIFT);
+    this.pages = newPages(capacity / pageSize);
+    for (int i = 0; i < pages.length; i++) {
+      pages[i] = new Page<>(pageSize, owner);
+    }
+    this.mask = capacity - 1;
+    this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+    this.pageMask = pageSize - 1;
+  }
+
+  /**
+   * The entries of the pages of this map are moved to the new pages, the ones of shared pages
+   * are copied.
+   */
+  private void resize(int capacity) {
+    Page<K, V>[] old = pages;
+    allocate(capacity);
+    for (Page<K, V> page : old) {
+      boolean owned = page.owner == owner;
+      for (Node<K, V> bucket : page.buckets) {
+        Node<K, V> node = bucket;
+        while (node != null) {
+          Node<K, V> next = node.next;
+          Node<K, V> moved = owned ? node : new Node<>(node.hash, node.key, node.value, null);
+          Node<K, V>[] buckets = pages[(node.hash & mask) >>> pageShift].buckets;
+          int index = node.hash & pageMask;
+          moved.next = buckets[index];
+          buckets[index] = moved;
+          node = next;
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, V> Page<K, V>[] newPages(int length) {
+    return (Page<K, V>[]) new Page[length];
+  }
+
+  private static int hash(Object key) {
+    int hash = Objects.hashCode(key);
+    return hash ^ (hash >>> 16);
+  }
+
+  static class Node<K, V> implements Entry<K, V> {
+
+    final int hash;
+    final K key;
+    V value;
+    Node<K, V> next;
+
+    Node(int hash, K key, V value, Node<K, V> next) {
+      this.hash = hash;
+      this.key = key;
+      this.value = value;
+      this.next = next;
+    }
+
+    @Override
+    public K getKey() {
+      return key;
+    }
+
+    @Override
+    public V getValue() {
+      return value;
+    }
+
+    @Override
+    public V setValue(V value) {
+      V previous = this.value;
+      this.value = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> other = (Entry<?, ?>) obj;
+      return Objects.equals(key, other.getKey()) && Objects.equals(value, other.getValue());
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(key) ^ Objects.hashCode(value);
+    }
+  }
+
+  private static final class Page<K, V> {
+
+    private final Node<K, V>[] buckets;
+    private final Object owner;
+
+    @SuppressWarnings("unchecked")
+    private Page(int size, Object owner) {
+      this.buckets = (Node<K, V>[]) new Node[size];
+      this.owner = owner;
+    }
+
+    /**
+     * The entries are copied in the same order, so an iteration of the page is not altered.
+     */
+    private Page<K, V> copy(Object owner) {
+      Page<K, V> copy = new Page<>(buckets.length, owner);
+      for (int i = 0; i < buckets.length; i++) {
+        Node<K, V> last = null;
+        for (Node<K, V> node = buckets[i]; node != null; node = node.next) {
+          Node<K, V> copied = new Node<>(node.hash, node.key, node.value, null);
+          if (last == null) {
+            copy.buckets[i] = copied;
+          } else {
+            last.next = copied;
+          }
+          last = copied;
+        }
+      }
+      return copy;
+    }
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<K, V>> {
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public Iterator<Entry<K, V>> iterator() {
+      return new EntryIterator();
+    }
+  }
+
+  /**
+   * The entries of a shared page are returned as copies whose setValue writes to the map, so
+   * they do not modify the other map.
+   */
+  private final class EntryIterator implements Iterator<Entry<K, V>> {
+
+    private int index;
+    private Node<K, V> next;
+    private Page<K, V> nextPage;
+    private Node<K, V> last;
+    private int expectedModCount = modCount;
+
+    private EntryIterator() {
+      advance(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      last = next;
+      Entry<K, V> entry = nextPage.owner == owner ? next : new SharedEntry(next);
+      advance(next.next);
+      return entry;
+    }
+
+    /**
+     * The table is not shrunk by the iterator, so the remaining buckets do not move.
+     */
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      unlink(writable(last.hash & mask), last.hash, last.key);
+      expectedModCount = modCount;
+      last = null;
+    }
+
+    private void advance(Node<K, V> node) {
+      while (node == null && index <= mask) {
+        nextPage = pages[index >>> pageShift];
+        node = nextPage.buckets[index++ & pageMask];
+      }
+      next = node;
+    }
+  }
+
+  private final class SharedEntry extends SimpleEntry<K, V> {
+
+    private static final long serialVersionUID = 1L;
+
+    private SharedEntry(Node<K, V> node) {
+      super(node.key, node.value);
+    }
+
+    @Override
+    public V setValue(V value) {
+      put(getKey(), value);
+      return super.setValue(value);
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
+import static com.github.tonivade.claudb.data.DatabaseValue.set;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.claudb.data.DatabaseValue.zset;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Value serialized in a single buffer, as it is stored off heap. A fixed header is followed by
+ * the elements, lists keep the offset of every element and sets, hashes and sorted sets keep an
+ * open addressing table of offsets, so lengths, point lookups and scans are read from the buffer
+ * without deserializing the value. Offsets are relative to the start of the value, the offsets
+ * of the table of a sorted set point to the member, after the score.
+ *
+ * <pre>
+ * header: type (1) | expiredAt (8) | size (4), the number of bytes for strings
+ * string: bytes
+ * list:   offset (4) * size | (length (4) | bytes) * size
+ * set:    slots (4) | offset (4) * slots | (length (4) | bytes) * size
+ * hash:   slots (4) | offset (4) * slots | (length (4) | field | length (4) | value) * size
+ * zset:   slots (4) | offset (4) * slots | (score (8) | length (4) | bytes) * size
+ * </pre>
+ */
+final class SerializedValue implements ValueView {
+
+  private static final int TYPE = 0;
+  private static final int EXPIRED_AT = TYPE + Byte.BYTES;
+  private static final int SIZE = EXPIRED_AT + Long.BYTES;
+  private static final int HEADER = SIZE + Integer.BYTES;
+  private static final int TABLE = HEADER + Integer.BYTES;
+
+  private static final int EMPTY_SLOT = 0;
+  private static final long NO_EXPIRATION = Long.MIN_VALUE;
+
+  private final ByteBuffer buffer;
+
+  SerializedValue(ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+  }
+
+  @Override
+  public DataType getType() {
+    return DataType.values()[buffer.get(TYPE)];
+  }
+
+  public long getExpiredAtMillis() {
+    return buffer.getLong(EXPIRED_AT);
+  }
+
+  public boolean isVolatile() {
+    return getExpiredAtMillis() != NO_EXPIRATION;
+  }
+
+  public boolean isExpired(long nowMillis) {
+    return isVolatile() && nowMillis > getExpiredAtMillis();
+  }
+
+  @Override
+  public int size() {
+    return getType() == DataType.STRING ? 1 : buffer.getInt(SIZE);
+  }
+
+  @Override
+  public int getStringLength() {
+    requiredType(DataType.STRING);
+    return buffer.getInt(SIZE);
+  }
+
+  @Override
+  public SafeString getListElement(int index) {
+    requiredType(DataType.LIST);
+    if (index < 0 || index >= buffer.getInt(SIZE)) {
+      return null;
+    }
+    return readString(buffer.getInt(HEADER + index * Integer.BYTES));
+  }
+
+  @Override
+  public SafeString getHashField(SafeString field) {
+    requiredType(DataType.HASH);
+    int offset = find(field);
+    return offset != EMPTY_SLOT ? readString(offset + stringSize(buffer.getInt(offset))) : null;
+  }
+
+  @Override
+  public boolean hasSetMember(SafeString member) {
+    requiredType(DataType.SET);
+    return find(member) != EMPTY_SLOT;
+  }
+
+  @Override
+  public long scanSet(long cursor, int count, Consumer<SafeString> action) {
+    requiredType(DataType.SET);
+    return scanTable(cursor, count, offset -> action.accept(readString(offset)));
+  }
+
+  @Override
+  public long scanHash(long cursor, int count, BiConsumer<SafeString, SafeString> action) {
+    requiredType(DataType.HASH);
+    return scanTable(cursor, count, offset -> {
+      SafeString field = readString(offset);
+      action.accept(field, readString(offset + stringSize(field.length())));
+    });
+  }
+
+  @Override
+  public long scanSortedSet(long cursor, int count, BiConsumer<SafeString, Double> action) {
+    requiredType(DataType.ZSET);
+    return scanTable(cursor, count,
+        offset -> action.accept(readString(offset), buffer.getDouble(offset - Double.BYTES)));
+  }
+
+  /**
+   * Deserializes the whole value.
+   */
+  DatabaseValue toValue() {
+    int size = buffer.getInt(SIZE);
+    DatabaseValue value;
+    switch (getType()) {
+      case STRING:
+        value = string(readBytes(HEADER, size));
+        break;
+      case LIST:
+        value = list(readStrings(HEADER + size * Integer.BYTES, size));
+        break;
+      case SET:
+        value = set(readStrings(entries(), size));
+        break;
+      case HASH:
+        List<Tuple2<SafeString, SafeString>> hash = new ArrayList<>(size);
+        int offset = entries();
+        for (int i = 0; i < size; i++) {
+          SafeString field = readString(offset);
+          offset += stringSize(field.length());
+          SafeString fieldValue = readString(offset);
+          offset += stringSize(fieldValue.length());
+          hash.add(Tuple.of(field, fieldValue));
+        }
+        value = hash(hash);
+        break;
+      case ZSET:
+        List<Map.Entry<Double, SafeString>> zset = new ArrayList<>(size);
+        int position = entries();
+        for (int i = 0; i < size; i++) {
+          double score = buffer.getDouble(position);
+          SafeString member = readString(position + Double.BYTES);
+          position += Double.BYTES + stringSize(member.length());
+          zset.add(new SimpleEntry<>(score, member));
+        }
+        value = zset(zset);
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+    return value.expiredAtMillis(getExpiredAtMillis());
+  }
+
+  static int serializedSize(DatabaseValue value) {
+    switch (value.getType()) {
+      case STRING:
+        return HEADER + value.getString().length();
+      case LIST:
+        return HEADER + value.size() * Integer.BYTES + stringsSize(value.getList());
+      case SET:
+        return TABLE + slots(value.size()) * Integer.BYTES + stringsSize(value.getSet());
+      case HASH:
+        Map<SafeString, SafeString> hash = value.getHash();
+        return TABLE + slots(hash.size()) * Integer.BYTES + stringsSize(hash.keySet()) + stringsSize(hash.values());
+      case ZSET:
+        int size = TABLE + slots(value.size()) * Integer.BYTES;
+        for (Map.Entry<Double, SafeString> entry : value.getSortedSet()) {
+          size += Double.BYTES + stringSize(entry.getValue().length());
+        }
+        return size;
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  /**
+   * Writes the value at the position of the buffer, that must have serializedSize bytes
+   * remaining, and leaves the position after the value.
+   */
+  static void serialize(DatabaseValue value, ByteBuffer buf) {
+    ByteBuffer out = buf.slice();
+    out.put(TYPE, (byte) value.getType().ordinal());
+    out.putLong(EXPIRED_AT, value.getExpiredAtMillis());
+    int end;
+    switch (value.getType()) {
+      case STRING:
+        SafeString string = value.getString();
+        out.putInt(SIZE, string.length());
+        end = writeBytes(out, HEADER, string);
+        break;
+      case LIST:
+        List<SafeString> list = value.getList();
+        out.putInt(SIZE, list.size());
+        end = HEADER + list.size() * Integer.BYTES;
+        int index = HEADER;
+        for (SafeString element : list) {
+          out.putInt(index, end);
+          index += Integer.BYTES;
+          end = writeString(out, end, element);
+        }
+        break;
+      case SET:
+        Collection<SafeString> set = value.getSet();
+        out.putInt(SIZE, set.size());
+        end = writeTable(out, set.size());
+        for (SafeString member : set) {
+          insert(out, member, end);
+          end = writeString(out, end, member);
+        }
+        break;
+      case HASH:
+        Map<SafeString, SafeString> hash = value.getHash();
+        out.putInt(SIZE, hash.size());
+        end = writeTable(out, hash.size());
+        for (Map.Entry<SafeString, SafeString> entry : hash.entrySet()) {
+          insert(out, entry.getKey(), end);
+          end = writeString(out, end, entry.getKey());
+          end = writeString(out, end, entry.getValue());
+        }
+        break;
+      case ZSET:
+        out.putInt(SIZE, value.size());
+        end = writeTable(out, value.size());
+        for (Map.Entry<Double, SafeString> entry : value.getSortedSet()) {
+          out.putDouble(end, entry.getKey());
+          insert(out, entry.getValue(), end + Double.BYTES);
+          end = writeString(out, end + Double.BYTES, entry.getValue());
+        }
+        break;
+      default:
+        throw new IllegalStateException();
+    }
+    buf.position(buf.position() + end);
+  }
+
+  private int entries() {
+    return TABLE + buffer.getInt(HEADER) * Integer.BYTES;
+  }
+
+  /**
+   * Returns the offset of the element, or EMPTY_SLOT if it is not in the table.
+   */
+  private int find(SafeString element) {
+    int mask = buffer.getInt(HEADER) - 1;
+    for (int slot = stableHash(element) & mask; ; slot = (slot + 1) & mask) {
+      int offset = slotOffset(slot);
+      if (offset == EMPTY_SLOT || equalsAt(offset, element)) {
+        return offset;
+      }
+    }
+  }
+
+  /**
+   * The table is scanned with a {@link HashCursor}, the action takes the offset of every element
+   * visited.
+   */
+  private long scanTable(long cursor, int count, IntConsumer action) {
+    if (buffer.getInt(SIZE) == 0) {
+      return 0;
+    }
+    return HashCursor.scanSlots(cursor, count, buffer.getInt(HEADER),
+        slot -> slotOffset(slot) != EMPTY_SLOT,
+        slot -> hashAt(slotOffset(slot)),
+        slot -> action.accept(slotOffset(slot)));
+  }
+
+  private int slotOffset(int slot) {
+    return buffer.getInt(TABLE + slot * Integer.BYTES);
+  }
+
+  private int hashAt(int offset) {
+    int start = offset + Integer.BYTES;
+    return stableHash(buffer, start, start + buffer.getInt(offset));
+  }
+
+  private boolean equalsAt(int offset, SafeString element) {
+    int length = buffer.getInt(offset);
+    if (length != element.length()) {
+      return false;
+    }
+    ByteBuffer other = element.getBuffer();
+    int start = offset + Integer.BYTES;
+    for (int i = 0; i < length; i++) {
+      if (buffer.get(start + i) != other.get(other.position() + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private List<SafeString> readStrings(int offset, int size) {
+    List<SafeString> strings = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      SafeString string = readString(offset);
+      offset += stringSize(string.length());
+      strings.add(string);
+    }
+    return strings;
+  }
+
+  private SafeString readString(int offset) {
+    return readBytes(offset + Integer.BYTES, buffer.getInt(offset));
+  }
+
+  private SafeString readBytes(int offset, int length) {
+    ByteBuffer source = buffer.duplicate();
+    source.position(offset);
+    byte[] bytes = new byte[length];
+    source.get(bytes);
+    return new SafeString(bytes);
+  }
+
+  private void requiredType(DataType type) {
+    if (getType() != type) {
+      throw new IllegalStateException("invalid type: " + type);
+    }
+  }
+
+  private static int writeTable(ByteBuffer out, int size) {
+    int slots = slots(size);
+    out.putInt(HEADER, slots);
+    for (int slot = 0; slot < slots; slot++) {
+      out.putInt(TABLE + slot * Integer.BYTES, EMPTY_SLOT);
+    }
+    return TABLE + slots * Integer.BYTES;
+  }
+
+  /**
+   * Elements are unique, so it is stored in the first empty slot.
+   */
+  private static void insert(ByteBuffer out, SafeString element, int offset) {
+    int mask = out.getInt(HEADER) - 1;
+    int slot = stableHash(element) & mask;
+    while (out.getInt(TABLE + slot * Integer.BYTES) != EMPTY_SLOT) {
+      slot = (slot + 1) & mask;
+    }
+    out.putInt(TABLE + slot * Integer.BYTES, offset);
+  }
+
+  private static int writeString(ByteBuffer out, int offset, SafeString string) {
+    out.putInt(offset, string.length());
+    return writeBytes(out, offset + Integer.BYTES, string);
+  }
+
+  private static int writeBytes(ByteBuffer out, int offset, SafeString string) {
+    ByteBuffer target = out.duplicate();
+    target.position(offset);
+    target.put(string.getBuffer());
+    return offset + string.length();
+  }
+
+  /**
+   * At least half of the slots are empty, so a lookup finds an empty slot after a few probes.
+   */
+  private static int slots(int size) {
+    int slots = 2;
+    while (slots < size * 2) {
+      slots <<= 1;
+    }
+    return slots;
+  }
+
+  /**
+   * Values can be stored in files, so the hash only depends on the bytes.
+   */
+  static int stableHash(SafeString string) {
+    ByteBuffer bytes = string.getBuffer();
+    return stableHash(bytes, bytes.position(), bytes.limit());
+  }
+
+  private static int stableHash(ByteBuffer bytes, int from, int to) {
+    int hash = 1;
+    for (int i = from; i < to; i++) {
+      hash = 31 * hash + bytes.get(i);
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  private static int stringsSize(Collection<SafeString> strings) {
+    int size = 0;
+    for (SafeString string : strings) {
+      size += stringSize(string.length());
+    }
+    return size;
+  }
+
+  private static int stringSize(int length) {
+    return Integer.BYTES + length;
+  }
+}
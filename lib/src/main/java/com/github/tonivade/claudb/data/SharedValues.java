@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.tonivade.claudb.DBConfig;
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Pool of immutable values shared by all the keys, small integers and some common strings.
+ * The values are marked as shared, so they are copied before being modified. The pool is
+ * always used to create the values, but a server that does not share them copies the values
+ * before storing them.
+ */
+public final class SharedValues {
+
+  private static final int MAX_INTEGER = 10000;
+  private static final int MAX_STRING_LENGTH = 5;
+
+  private static final DatabaseValue[] INTEGERS = new DatabaseValue[MAX_INTEGER];
+  private static final Map<SafeString, DatabaseValue> STRINGS = new HashMap<>();
+
+  static {
+    for (int i = 0; i < MAX_INTEGER; i++) {
+      INTEGERS[i] = DatabaseValue.sharedNumber(i);
+    }
+    for (String value : new String[] { "", "OK", "true", "false", "yes", "no", "on", "off" }) {
+      STRINGS.put(safeString(value), DatabaseValue.sharedString(safeString(value)));
+    }
+  }
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  private final boolean active;
+
+  public SharedValues(DBConfig config) {
+    // shared values would share the access time too, so they are not used to evict by LRU or LFU
+    this(config.isSharedValuesActive() && !new Eviction(config).tracksAccess());
+  }
+
+  SharedValues(boolean active) {
+    this.active = active;
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRate() {
+    long total = getHits() + getMisses();
+    return total > 0 ? (double) getHits() / total : 0;
+  }
+
+  /**
+   * Returns the string value to store, a shared value is copied if this server does not share them.
+   */
+  DatabaseValue store(DatabaseValue value) {
+    if (value.getType() != DataType.STRING) {
+      return value;
+    }
+    if (!active) {
+      return value.isShared() ? value.copy() : value;
+    }
+    if (value.isShared()) {
+      hits.increment();
+    } else {
+      misses.increment();
+    }
+    return value;
+  }
+
+  static DatabaseValue number(long value) {
+    return value >= 0 && value < MAX_INTEGER ? INTEGERS[(int) value] : null;
+  }
+
+  static DatabaseValue string(SafeString value) {
+    return value.length() <= MAX_STRING_LENGTH ? STRINGS.get(value) : null;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+
+import com.github.tonivade.purefun.Tuple2;
+
+/**
+ * Point in time view of the databases that can be read from another thread while the
+ * commands keep executing. Every database captures its entries, see {@link Database#capture()},
+ * and the values that exist when the snapshot is opened are copied on the first write until it
+ * is closed, so they are never modified while the snapshot is read. The copy of a large
+ * collection shares the parts that are not written, so a write copies a part, not the whole
+ * collection.
+ *
+ * It must be opened and filled from the thread that owns the databases, and only one
+ * snapshot of the databases of a context can be open at a time.
+ */
+public final class Snapshot implements AutoCloseable {
+
+  private final Map<Integer, Entries> databases = new TreeMap<>();
+  private final Epochs epochs;
+
+  private Snapshot(Epochs epochs) {
+    this.epochs = epochs;
+  }
+
+  public static Snapshot open(DatabaseContext context) {
+    Epochs epochs = context.getEpochs();
+    if (epochs.open) {
+      throw new IllegalStateException("a snapshot is already open");
+    }
+    epochs.current = new Epoch(epochs);
+    epochs.open = true;
+    return new Snapshot(epochs);
+  }
+
+  /**
+   * Captures the entries of the database, the time it takes is reported as the stall of the
+   * last save.
+   */
+  public void add(int index, Database database) {
+    databases.put(index, database.capture());
+  }
+
+  public Map<Integer, Entries> getDatabases() {
+    return Collections.unmodifiableMap(databases);
+  }
+
+  /**
+   * Values are updated in place again once the snapshot is closed, and the databases release
+   * what they keep for the snapshot.
+   */
+  @Override
+  public void close() {
+    try {
+      databases.values().forEach(Entries::release);
+    } finally {
+      epochs.open = false;
+    }
+  }
+
+  /**
+   * Entries of a database captured by a snapshot, they are read from the thread that exports it.
+   */
+  public interface Entries {
+
+    int size();
+
+    void forEach(BiConsumer<DatabaseKey, DatabaseValue> action);
+
+    /**
+     * Called when the snapshot is closed.
+     */
+    default void release() {
+      // nothing to release
+    }
+
+    static Entries of(Collection<Tuple2<DatabaseKey, DatabaseValue>> entries) {
+      return new Entries() {
+        @Override
+        public int size() {
+          return entries.size();
+        }
+
+        @Override
+        public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+          entries.forEach(entry -> action.accept(entry.get1(), entry.get2()));
+        }
+      };
+    }
+
+    static Entries of(Map<DatabaseKey, DatabaseValue> entries) {
+      return new Entries() {
+        @Override
+        public int size() {
+          return entries.size();
+        }
+
+        @Override
+        public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+          entries.forEach(action);
+        }
+      };
+    }
+  }
+
+  /**
+   * The snapshots of the databases of a context, only the last one can be open.
+   */
+  static final class Epochs {
+
+    private volatile Epoch current = new Epoch(this);
+    private volatile boolean open;
+
+    Epoch current() {
+      return current;
+    }
+  }
+
+  /**
+   * Snapshot epoch when a value was stored, a reference so it takes the same space as an int.
+   */
+  static final class Epoch {
+
+    private final Epochs epochs;
+
+    private Epoch(Epochs epochs) {
+      this.epochs = epochs;
+    }
+
+    /**
+     * Values of a previous epoch are referenced by the open snapshot, they must be copied
+     * before they are modified.
+     */
+    boolean isFrozen() {
+      return epochs.open && epochs.current != this;
+    }
+  }
+}
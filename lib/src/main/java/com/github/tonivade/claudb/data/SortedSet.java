@@ -9,242 +9,435 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 import com.github.tonivade.resp.protocol.SafeString;
 
-public class SortedSet implements NavigableSet<Entry<Double, SafeString>>, Serializable {
+/**
+ * Members sorted by score, backed by a list of chunks of up to {@code CHUNK_ENTRIES} members, that
+ * knows the rank of the first member of every chunk, so rank, range by rank and range by score
+ * queries are a binary search over the chunks and then inside a chunk. Members are indexed in a
+ * hash map too, to get the score of a member in O(1). Small sets are stored as pairs of score and
+ * member packed in a single byte array, and promoted to the chunks when they grow past the limits
+ * of {@link CompactEncoding}.
+ *
+ * <p>A copy shares the chunks and the pages of the hash map with the set it is copied from, and
+ * a chunk is copied before it is modified by a set that did not create it, so a write after a
+ * copy costs a chunk, not the whole set.</p>
+ *
+ * <p>Sub sets (subSet, headSet, tailSet and descendingSet) are copies, not views.</p>
+ */
+public class SortedSet extends AbstractSet<Entry<Double, SafeString>>
+    implements NavigableSet<Entry<Double, SafeString>>, Serializable {
 
   private static final long serialVersionUID = -2221385877842299451L;
 
-  private transient Map<SafeString, Double> items = new HashMap<>();
+  private static final int CHUNK_ENTRIES = 128;
 
-  private transient NavigableSet<Entry<Double, SafeString>> scores = new TreeSet<>(this::compare);
+  private transient Members members;
+  private final boolean readOnly;
 
-  @Override
-  public int size() {
-    return scores.size();
+  public SortedSet() {
+    this.members = new Members();
+    this.readOnly = false;
   }
 
-  @Override
-  public boolean isEmpty() {
-    return scores.isEmpty();
+  public SortedSet(Collection<Entry<Double, SafeString>> entries) {
+    this();
+    addAll(entries);
   }
 
-  @SuppressWarnings("unchecked")
-  @Override
-  public boolean contains(Object o) {
-    if (o instanceof Entry) {
-      Entry<Double, SafeString> entry = Entry.class.cast(o);
-      return items.containsKey(entry.getValue());
+  /**
+   * A compact set is small and it is copied, the chunks and the hash map of a large set are
+   * shared with the copy, see the doc of the class.
+   */
+  public SortedSet(SortedSet other) {
+    this();
+    members.encoding = other.members.encoding;
+    if (other.isCompact()) {
+      addAll(other);
+    } else {
+      members.packed = null;
+      members.items = other.members.items.copy();
+      members.scores = new Scores(other.members.scores);
     }
-    return false;
   }
 
-  @Override
-  public Iterator<Entry<Double, SafeString>> iterator() {
-    return scores.iterator();
+  private SortedSet(SortedSet other, boolean readOnly) {
+    this.members = other.members;
+    this.readOnly = readOnly;
   }
 
-  @Override
-  public Object[] toArray() {
-    return scores.toArray();
+  /**
+   * Returns a read only view of this set, changes in this set are visible in the view.
+   */
+  public SortedSet unmodifiable() {
+    return readOnly ? this : new SortedSet(this, true);
+  }
+
+  public boolean isCompact() {
+    return members.packed != null;
   }
 
   @Override
-  public <T> T[] toArray(T[] a) {
-    return scores.toArray(a);
+  public int size() {
+    return isCompact() ? members.packed.size() / 2 : members.scores.size;
   }
 
   @Override
-  public boolean add(Entry<Double, SafeString> e) {
-    if (!items.containsKey(e.getValue())) {
-      items.put(e.getValue(), e.getKey());
-      scores.add(e);
-      return true;
-    }
-    return false;
+  public boolean isEmpty() {
+    return size() == 0;
   }
 
-  @SuppressWarnings("unchecked")
   @Override
-  public boolean remove(Object o) {
-    if (o instanceof Entry) {
-      Entry<Double, SafeString> entry = Entry.class.cast(o);
-      if (items.containsKey(entry.getValue())) {
-        double score = items.remove(entry.getValue());
-        scores.remove(DatabaseValue.score(score, entry.getValue()));
-        return true;
+  public boolean contains(Object o) {
+    if (o instanceof Entry && ((Entry<?, ?>) o).getValue() instanceof SafeString) {
+      SafeString member = (SafeString) ((Entry<?, ?>) o).getValue();
+      if (isCompact()) {
+        return findPacked(member.getBytes()) >= 0;
       }
+      return members.items.containsKey(member);
     }
     return false;
   }
 
   @Override
-  public boolean containsAll(Collection<?> c) {
-    boolean result = false;
-    for (Object object : c) {
-      result |= contains(object);
+  public Iterator<Entry<Double, SafeString>> iterator() {
+    if (isCompact()) {
+      return new PackedItr(packedEntries().iterator());
     }
-    return result;
+    return new Itr(0, false);
   }
 
   @Override
-  public boolean addAll(Collection<? extends Entry<Double, SafeString>> c) {
-    boolean result = false;
-    for (Entry<Double, SafeString> entry : c) {
-      result |= add(entry);
+  public Iterator<Entry<Double, SafeString>> descendingIterator() {
+    if (isCompact()) {
+      List<Entry<Double, SafeString>> entries = packedEntries();
+      Collections.reverse(entries);
+      return new PackedItr(entries.iterator());
     }
-    return result;
+    return new Itr(size() - 1, true);
   }
 
   @Override
-  public boolean retainAll(Collection<?> c) {
-    Set<SafeString> toRemove = new HashSet<>(items.keySet());
-    toRemove.removeAll(c);
-    boolean result = false;
-    for (SafeString key : toRemove) {
-      result |= remove(DatabaseValue.score(0, key));
+  public boolean add(Entry<Double, SafeString> e) {
+    checkWritable();
+    return insert(e);
+  }
+
+  private boolean insert(Entry<Double, SafeString> e) {
+    if (isCompact()) {
+      byte[] member = e.getValue().getBytes();
+      if (findPacked(member) >= 0) {
+        return false;
+      }
+      CompactEncoding limits = encoding();
+      if (member.length <= limits.zsetMaxValue() && size() < limits.zsetMaxEntries()) {
+        addPacked(e.getKey(), e.getValue(), member);
+        return true;
+      }
+      promote();
     }
-    return result;
+    if (!members.items.containsKey(e.getValue())) {
+      members.items.put(e.getValue(), members.scores.insert(new Node(e.getKey(), e.getValue())));
+      return true;
+    }
+    return false;
   }
 
   @Override
-  public boolean removeAll(Collection<?> c) {
-    boolean result = false;
-    for (Object object : c) {
-      result |= remove(object);
+  public boolean remove(Object o) {
+    checkWritable();
+    if (o instanceof Entry && ((Entry<?, ?>) o).getValue() instanceof SafeString) {
+      SafeString member = (SafeString) ((Entry<?, ?>) o).getValue();
+      if (isCompact()) {
+        int offset = findPacked(member.getBytes());
+        if (offset >= 0) {
+          members.packed.remove(offset);
+          members.packed.remove(offset);
+          return true;
+        }
+        return false;
+      }
+      Node node = members.items.remove(member);
+      if (node != null) {
+        members.scores.delete(node.score, node.getValue());
+        return true;
+      }
     }
-    return result;
+    return false;
   }
 
   @Override
   public void clear() {
-    items.clear();
-    scores.clear();
+    checkWritable();
+    members.packed = new ListPack();
+    members.items = null;
+    members.scores = null;
   }
 
   @Override
   public Comparator<? super Entry<Double, SafeString>> comparator() {
-    return scores.comparator();
+    return (o1, o2) -> compare(o1.getKey(), o1.getValue(), o2.getKey(), o2.getValue());
   }
 
   @Override
   public Entry<Double, SafeString> first() {
-    return scores.first();
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    if (isCompact()) {
+      return packedEntries().get(0);
+    }
+    return members.scores.get(0);
   }
 
   @Override
   public Entry<Double, SafeString> last() {
-    return scores.last();
+    if (isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    if (isCompact()) {
+      List<Entry<Double, SafeString>> entries = packedEntries();
+      return entries.get(entries.size() - 1);
+    }
+    return members.scores.get(size() - 1);
   }
 
   @Override
   public Entry<Double, SafeString> lower(Entry<Double, SafeString> e) {
-    return scores.lower(e);
+    if (isCompact()) {
+      return lastPackedBefore(e, false);
+    }
+    return members.scores.orNull(members.scores.countBefore(e.getKey(), e.getValue(), false) - 1);
   }
 
   @Override
   public Entry<Double, SafeString> floor(Entry<Double, SafeString> e) {
-    return scores.floor(e);
+    if (isCompact()) {
+      return lastPackedBefore(e, true);
+    }
+    return members.scores.orNull(members.scores.countBefore(e.getKey(), e.getValue(), true) - 1);
   }
 
   @Override
   public Entry<Double, SafeString> ceiling(Entry<Double, SafeString> e) {
-    return scores.ceiling(e);
+    if (isCompact()) {
+      return firstPackedAfter(e, true);
+    }
+    return members.scores.orNull(members.scores.countBefore(e.getKey(), e.getValue(), false));
   }
 
   @Override
   public Entry<Double, SafeString> higher(Entry<Double, SafeString> e) {
-    return scores.higher(e);
+    if (isCompact()) {
+      return firstPackedAfter(e, false);
+    }
+    return members.scores.orNull(members.scores.countBefore(e.getKey(), e.getValue(), true));
   }
 
   @Override
   public Entry<Double, SafeString> pollFirst() {
-    return scores.pollFirst();
+    if (isEmpty()) {
+      return null;
+    }
+    Entry<Double, SafeString> first = first();
+    remove(first);
+    return first;
   }
 
   @Override
   public Entry<Double, SafeString> pollLast() {
-    return scores.pollLast();
+    if (isEmpty()) {
+      return null;
+    }
+    Entry<Double, SafeString> last = last();
+    remove(last);
+    return last;
   }
 
   @Override
   public NavigableSet<Entry<Double, SafeString>> descendingSet() {
-    return scores.descendingSet();
-  }
-
-  @Override
-  public Iterator<Entry<Double, SafeString>> descendingIterator() {
-    return scores.descendingIterator();
+    NavigableSet<Entry<Double, SafeString>> descending = new TreeSet<>(comparator().reversed());
+    descending.addAll(this);
+    return descending;
   }
 
   @Override
   public NavigableSet<Entry<Double, SafeString>> subSet(Entry<Double, SafeString> fromElement,
       boolean fromInclusive, Entry<Double, SafeString> toElement, boolean toInclusive) {
-    return scores.subSet(fromElement, fromInclusive, toElement, toInclusive);
+    SortedSet result = new SortedSet();
+    Iterator<Entry<Double, SafeString>> iterator = iteratorFrom(fromElement, fromInclusive);
+    while (iterator.hasNext()) {
+      Entry<Double, SafeString> entry = iterator.next();
+      if (!isBefore(entry, toElement, toInclusive)) {
+        break;
+      }
+      result.add(entry);
+    }
+    return result;
   }
 
   @Override
   public NavigableSet<Entry<Double, SafeString>> headSet(Entry<Double, SafeString> toElement,
       boolean inclusive) {
-    return scores.headSet(toElement, inclusive);
+    SortedSet result = new SortedSet();
+    for (Entry<Double, SafeString> entry : this) {
+      if (!isBefore(entry, toElement, inclusive)) {
+        break;
+      }
+      result.add(entry);
+    }
+    return result;
   }
 
   @Override
   public NavigableSet<Entry<Double, SafeString>> tailSet(Entry<Double, SafeString> fromElement,
       boolean inclusive) {
-    return scores.tailSet(fromElement, inclusive);
+    SortedSet result = new SortedSet();
+    Iterator<Entry<Double, SafeString>> iterator = iteratorFrom(fromElement, inclusive);
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
   }
 
   @Override
   public java.util.SortedSet<Entry<Double, SafeString>> subSet(Entry<Double, SafeString> fromElement,
       Entry<Double, SafeString> toElement) {
-    return scores.subSet(fromElement, toElement);
+    return subSet(fromElement, true, toElement, false);
   }
 
   @Override
   public java.util.SortedSet<Entry<Double, SafeString>> headSet(Entry<Double, SafeString> toElement) {
-    return scores.headSet(toElement);
+    return headSet(toElement, false);
   }
 
   @Override
   public java.util.SortedSet<Entry<Double, SafeString>> tailSet(Entry<Double, SafeString> fromElement) {
-    return scores.tailSet(fromElement);
+    return tailSet(fromElement, true);
   }
 
   public double score(SafeString key) {
-    if (items.containsKey(key)) {
-      return items.get(key);
+    if (isCompact()) {
+      int offset = findPacked(key.getBytes());
+      if (offset >= 0) {
+        return toDouble(members.packed.get(offset));
+      }
+      return Double.MIN_VALUE;
+    }
+    Node node = members.items.get(key);
+    if (node != null) {
+      return node.score;
     }
     return Double.MIN_VALUE;
   }
 
   public int ranking(SafeString key) {
-    if (items.containsKey(key)) {
-      double score = items.get(key);
-
-      Set<Entry<Double, SafeString>> head = scores.headSet(DatabaseValue.score(score, key));
-
-      return head.size();
+    if (isCompact()) {
+      int rank = 0;
+      for (Entry<Double, SafeString> entry : packedEntries()) {
+        if (entry.getValue().equals(key)) {
+          return rank;
+        }
+        rank++;
+      }
+      return -1;
+    }
+    Node node = members.items.get(key);
+    if (node != null) {
+      return members.scores.rank(node.score, key);
     }
     return -1;
   }
 
-  @Override
-  public int hashCode() {
-    final int prime = 31;
-    int result = 1;
-    result = prime * result + ((items == null) ? 0 : items.hashCode());
+  /**
+   * Applies the action to a part of the members and returns the cursor of the next call, zero
+   * when all the members have been visited. The cursor is the cursor of the map of members, see
+   * {@link ScanHashMap#scan(long, int, BiConsumer)}, a compact set is small,
+   * so all the members are returned at once.
+   */
+  public long scan(long cursor, int count, BiConsumer<SafeString, Double> action) {
+    if (isCompact()) {
+      for (Entry<Double, SafeString> entry : packedEntries()) {
+        action.accept(entry.getValue(), entry.getKey());
+      }
+      return 0;
+    }
+    return members.items.scan(cursor, count, (member, node) -> action.accept(member, node.score));
+  }
+
+  /**
+   * Returns the elements between the given ranks, both inclusive.
+   */
+  public List<Entry<Double, SafeString>> range(int from, int to) {
+    List<Entry<Double, SafeString>> result = new ArrayList<>();
+    int first = Math.max(from, 0);
+    int last = Math.min(to, size() - 1);
+    if (first > last) {
+      return result;
+    }
+    if (isCompact()) {
+      result.addAll(packedEntries().subList(first, last + 1));
+      return result;
+    }
+    Iterator<Entry<Double, SafeString>> iterator = new Itr(first, false);
+    for (int i = first; i <= last; i++) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+  /**
+   * Returns the elements with a score between min and max, skipping the first offset elements.
+   * It stops after count elements, if count is negative it returns all of them.
+   */
+  public List<Entry<Double, SafeString>> rangeByScore(double min, boolean minInclusive,
+      double max, boolean maxInclusive, int offset, int count) {
+    List<Entry<Double, SafeString>> result = new ArrayList<>();
+    Iterator<Entry<Double, SafeString>> iterator;
+    if (isCompact()) {
+      List<Entry<Double, SafeString>> entries = packedEntries();
+      int from = 0;
+      for (Entry<Double, SafeString> entry : entries) {
+        if (!scoreBelow(entry.getKey(), min, minInclusive)) {
+          break;
+        }
+        from++;
+      }
+      iterator = entries.listIterator(Math.min(from + Math.max(offset, 0), entries.size()));
+    } else {
+      int from = members.scores.countBelow(min, minInclusive) + Math.max(offset, 0);
+      if (from >= size()) {
+        return result;
+      }
+      iterator = new Itr(from, false);
+    }
+    while (iterator.hasNext() && count != 0) {
+      Entry<Double, SafeString> entry = iterator.next();
+      if (maxInclusive ? entry.getKey() > max : entry.getKey() >= max) {
+        break;
+      }
+      result.add(entry);
+      count--;
+    }
     return result;
   }
 
@@ -253,49 +446,551 @@ public class SortedSet implements NavigableSet<Entry<Double, SafeString>>, Seria
     if (this == obj) {
       return true;
     }
-    if (obj == null) {
-      return false;
-    }
     if (obj instanceof Set) {
       Set<?> other = (Set<?>) obj;
-      if (scores != null) {
-        return scores.equals(other);
+      if (other.size() != size()) {
+        return false;
+      }
+      for (Object object : other) {
+        if (!contains(object)) {
+          return false;
+        }
+        Entry<?, ?> entry = (Entry<?, ?>) object;
+        if (!Double.valueOf(score((SafeString) entry.getValue())).equals(entry.getKey())) {
+          return false;
+        }
       }
+      return true;
     }
     return false;
   }
 
-  @Override
-  public String toString() {
-    return scores.toString();
+  /**
+   * Takes the limits of the database that stores the set, it is promoted if it does not fit.
+   */
+  void setEncoding(CompactEncoding encoding) {
+    if (members.encoding == encoding) {
+      return;
+    }
+    members.encoding = encoding;
+    if (isCompact()) {
+      boolean fits = size() <= encoding.zsetMaxEntries();
+      for (Iterator<Entry<Double, SafeString>> it = iterator(); fits && it.hasNext();) {
+        fits = it.next().getValue().length() <= encoding.zsetMaxValue();
+      }
+      if (!fits) {
+        promote();
+      }
+    }
+  }
+
+  private CompactEncoding encoding() {
+    return members.encoding != null ? members.encoding : CompactEncoding.DEFAULT;
   }
 
-  private int compare(Entry<Double, SafeString> o1, Entry<Double, SafeString> o2) {
-    int key = o1.getKey().compareTo(o2.getKey());
-    if (key != 0) {
-      return key;
+  private void checkWritable() {
+    if (readOnly) {
+      throw new UnsupportedOperationException();
     }
-    if (SafeString.EMPTY_STRING.equals(o1.getValue())) {
-      return 0;
+  }
+
+  private Iterator<Entry<Double, SafeString>> iteratorFrom(Entry<Double, SafeString> element, boolean inclusive) {
+    if (isCompact()) {
+      List<Entry<Double, SafeString>> entries = packedEntries();
+      int from = 0;
+      while (from < entries.size() && isBefore(entries.get(from), element, !inclusive)) {
+        from++;
+      }
+      return entries.listIterator(from);
     }
-    if (SafeString.EMPTY_STRING.equals(o2.getValue())) {
-      return 0;
+    return new Itr(members.scores.countBefore(element.getKey(), element.getValue(), !inclusive), false);
+  }
+
+  private static boolean scoreBelow(double score, double min, boolean inclusive) {
+    return inclusive ? score < min : score <= min;
+  }
+
+  private static boolean isBefore(Entry<Double, SafeString> entry, Entry<Double, SafeString> element, boolean inclusive) {
+    int compare = compare(entry.getKey(), entry.getValue(), element.getKey(), element.getValue());
+    return inclusive ? compare <= 0 : compare < 0;
+  }
+
+  private static int compare(double score1, SafeString member1, double score2, SafeString member2) {
+    int compare = Double.compare(score1, score2);
+    if (compare != 0) {
+      return compare;
+    }
+    return member1.compareTo(member2);
+  }
+
+  private Entry<Double, SafeString> lastPackedBefore(Entry<Double, SafeString> element, boolean inclusive) {
+    Entry<Double, SafeString> last = null;
+    for (Entry<Double, SafeString> entry : packedEntries()) {
+      if (!isBefore(entry, element, inclusive)) {
+        break;
+      }
+      last = entry;
+    }
+    return last;
+  }
+
+  private Entry<Double, SafeString> firstPackedAfter(Entry<Double, SafeString> element, boolean inclusive) {
+    for (Entry<Double, SafeString> entry : packedEntries()) {
+      if (!isBefore(entry, element, !inclusive)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  // packed entries are pairs of score and member sorted by score
+  private List<Entry<Double, SafeString>> packedEntries() {
+    ListPack packed = members.packed;
+    List<Entry<Double, SafeString>> entries = new ArrayList<>(packed.size() / 2);
+    int offset = 0;
+    for (int i = 0; i < packed.size(); i += 2) {
+      int member = packed.next(offset);
+      entries.add(new SimpleImmutableEntry<>(toDouble(packed.get(offset)), new SafeString(packed.get(member))));
+      offset = packed.next(member);
+    }
+    return entries;
+  }
+
+  private int findPacked(byte[] member) {
+    ListPack packed = members.packed;
+    int offset = 0;
+    for (int i = 0; i < packed.size(); i += 2) {
+      int next = packed.next(offset);
+      if (packed.equalsAt(next, member)) {
+        return offset;
+      }
+      offset = packed.next(next);
+    }
+    return -1;
+  }
+
+  private void addPacked(double score, SafeString member, byte[] bytes) {
+    ListPack packed = members.packed;
+    int offset = 0;
+    for (int i = 0; i < packed.size(); i += 2) {
+      int next = packed.next(offset);
+      if (compare(toDouble(packed.get(offset)), new SafeString(packed.get(next)), score, member) > 0) {
+        break;
+      }
+      offset = packed.next(next);
+    }
+    packed.insert(offset, bytes);
+    packed.insert(offset, toBytes(score));
+  }
+
+  /**
+   * Estimated bytes used in the heap, the members are estimated from the first samples members.
+   */
+  long memoryUsage(int samples) {
+    long size = HeapSize.object(HeapSize.REFERENCE + 1) + HeapSize.object(4 * HeapSize.REFERENCE);
+    if (isCompact()) {
+      return size + members.packed.memoryUsage();
+    }
+    int length = members.scores.size;
+    return size + HeapSize.HASH_MAP + HeapSize.hashTable(length) + members.scores.memoryUsage()
+        + HeapSize.sampled(members.items.values().iterator(), length, samples,
+            node -> HeapSize.HASH_NODE + node.memoryUsage());
+  }
+
+  private void promote() {
+    List<Entry<Double, SafeString>> entries = packedEntries();
+    members.items = new ScanHashMap<>();
+    members.scores = new Scores();
+    members.packed = null;
+    for (Entry<Double, SafeString> entry : entries) {
+      members.items.put(entry.getValue(), members.scores.insert(new Node(entry.getKey(), entry.getValue())));
     }
-    return o1.getValue().compareTo(o2.getValue());
   }
-  
+
+  private static byte[] toBytes(double score) {
+    long bits = Double.doubleToLongBits(score);
+    byte[] bytes = new byte[Long.BYTES];
+    for (int i = 0; i < Long.BYTES; i++) {
+      bytes[i] = (byte) (bits >>> (i * 8));
+    }
+    return bytes;
+  }
+
+  private static double toDouble(byte[] bytes) {
+    long bits = 0;
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      bits = (bits << 8) | (bytes[i] & 0xFF);
+    }
+    return Double.longBitsToDouble(bits);
+  }
+
   private void writeObject(ObjectOutputStream out) throws IOException {
-    out.writeObject(items);
+    out.defaultWriteObject();
+    Map<SafeString, Double> entries = new HashMap<>();
+    for (Entry<Double, SafeString> entry : this) {
+      entries.put(entry.getValue(), entry.getKey());
+    }
+    out.writeObject(entries);
   }
-  
+
   @SuppressWarnings("unchecked")
   private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+    input.defaultReadObject();
     Map<SafeString, Double> entries = (Map<SafeString, Double>) input.readObject();
-    this.items = new HashMap<>();
-    this.scores = new TreeSet<>(this::compare);
+    this.members = new Members();
     for (Entry<SafeString, Double> entry : entries.entrySet()) {
-      items.put(entry.getKey(), entry.getValue());
-      scores.add(new AbstractMap.SimpleEntry<>(entry.getValue(), entry.getKey()));
+      insert(new SimpleImmutableEntry<>(entry.getValue(), entry.getKey()));
+    }
+  }
+
+  /**
+   * Shared with the read only views, so a view sees the promotion to the chunks.
+   */
+  private static final class Members {
+
+    private ListPack packed = new ListPack();
+    private ScanHashMap<SafeString, Node> items;
+    private Scores scores;
+    private CompactEncoding encoding;
+  }
+
+  /**
+   * Nodes are immutable, so they are shared by the chunks of a set and its copies.
+   */
+  private static final class Node extends AbstractMap.SimpleImmutableEntry<Double, SafeString> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double score;
+
+    private Node(double score, SafeString member) {
+      super(score, member);
+      this.score = score;
+    }
+
+    private long memoryUsage() {
+      // key, value and score, plus the boxed score
+      return HeapSize.object(2 * HeapSize.REFERENCE + Double.BYTES) + HeapSize.object(Double.BYTES)
+          + HeapSize.string(getValue());
+    }
+  }
+
+  /**
+   * Sorted list of chunks of nodes, the rank of the first node of every chunk is kept in an
+   * array of the list, as it changes when the chunks before it are modified.
+   */
+  private static final class Scores {
+
+    private Chunk[] chunks = new Chunk[4];
+    private int[] starts = new int[4];
+    // the chunks of a list are the ones with the same owner, a copy gives a new one to both lists
+    private Object owner = new Object();
+    private int length;
+    private int size;
+
+    private Scores() {
+      // empty list
+    }
+
+    private Scores(Scores other) {
+      this.chunks = other.chunks.clone();
+      this.starts = other.starts.clone();
+      this.length = other.length;
+      this.size = other.size;
+      other.owner = new Object();
+    }
+
+    private Node insert(Node node) {
+      int rank = countBefore(node.score, node.getValue(), false);
+      if (length == 0) {
+        insertChunk(0, new Chunk(owner), 0);
+      }
+      int k = rank == size ? length - 1 : locate(rank);
+      if (chunks[k].count == CHUNK_ENTRIES) {
+        splitChunk(k);
+        k = rank == size ? length - 1 : locate(rank);
+      }
+      writable(k).insert(rank - starts[k], node);
+      shift(k + 1, 1);
+      size++;
+      return node;
+    }
+
+    private void delete(double score, SafeString member) {
+      int rank = countBefore(score, member, false);
+      if (rank == size || !get(rank).getValue().equals(member)) {
+        return;
+      }
+      int k = locate(rank);
+      Chunk chunk = writable(k);
+      chunk.remove(rank - starts[k]);
+      shift(k + 1, -1);
+      size--;
+      if (chunk.count == 0) {
+        removeChunk(k);
+      } else if (k + 1 < length && chunk.count + chunks[k + 1].count <= CHUNK_ENTRIES / 2) {
+        mergeChunks(k);
+      } else if (k > 0 && chunk.count + chunks[k - 1].count <= CHUNK_ENTRIES / 2) {
+        mergeChunks(k - 1);
+      }
+    }
+
+    private Node get(int rank) {
+      int k = locate(rank);
+      return chunks[k].nodes[rank - starts[k]];
+    }
+
+    private Node orNull(int rank) {
+      return rank >= 0 && rank < size ? get(rank) : null;
+    }
+
+    private int rank(double score, SafeString member) {
+      int rank = countBefore(score, member, false);
+      return rank < size && get(rank).getValue().equals(member) ? rank : -1;
+    }
+
+    private int countBelow(double min, boolean inclusive) {
+      return countWhile(node -> scoreBelow(node.score, min, inclusive));
+    }
+
+    private int countBefore(double score, SafeString member, boolean inclusive) {
+      return countWhile(node -> {
+        int compare = compare(node.score, node.getValue(), score, member);
+        return inclusive ? compare <= 0 : compare < 0;
+      });
+    }
+
+    /**
+     * Returns the number of nodes from the first one that match the predicate, that matches
+     * all the nodes before a node that matches it.
+     */
+    private int countWhile(Predicate<Node> before) {
+      int low = 0;
+      int high = length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        if (before.test(chunks[middle].nodes[0])) {
+          low = middle + 1;
+        } else {
+          high = middle - 1;
+        }
+      }
+      if (high < 0) {
+        return 0;
+      }
+      Chunk chunk = chunks[high];
+      int from = 1;
+      int to = chunk.count - 1;
+      while (from <= to) {
+        int middle = (from + to) >>> 1;
+        if (before.test(chunk.nodes[middle])) {
+          from = middle + 1;
+        } else {
+          to = middle - 1;
+        }
+      }
+      return starts[high] + from;
+    }
+
+    private int locate(int rank) {
+      int low = 0;
+      int high = length - 1;
+      while (low < high) {
+        int middle = (low + high + 1) >>> 1;
+        if (starts[middle] <= rank) {
+          low = middle;
+        } else {
+          high = middle - 1;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Returns the chunk, copied first if it belongs to another list.
+     */
+    private Chunk writable(int k) {
+      if (chunks[k].owner != owner) {
+        chunks[k] = chunks[k].copy(owner);
+      }
+      return chunks[k];
+    }
+
+    private void shift(int from, int delta) {
+      for (int k = from; k < length; k++) {
+        starts[k] += delta;
+      }
+    }
+
+    private void splitChunk(int k) {
+      Chunk chunk = writable(k);
+      int count = chunk.count / 2;
+      insertChunk(k + 1, chunk.split(count, owner), starts[k] + count);
+    }
+
+    private void mergeChunks(int k) {
+      Chunk chunk = writable(k);
+      Chunk next = chunks[k + 1];
+      for (int i = 0; i < next.count; i++) {
+        chunk.insert(chunk.count, next.nodes[i]);
+      }
+      removeChunk(k + 1);
+    }
+
+    private void insertChunk(int k, Chunk chunk, int start) {
+      if (length == chunks.length) {
+        chunks = Arrays.copyOf(chunks, length * 2);
+        starts = Arrays.copyOf(starts, length * 2);
+      }
+      System.arraycopy(chunks, k, chunks, k + 1, length - k);
+      System.arraycopy(starts, k, starts, k + 1, length - k);
+      chunks[k] = chunk;
+      starts[k] = start;
+      length++;
+    }
+
+    private void removeChunk(int k) {
+      System.arraycopy(chunks, k + 1, chunks, k, length - k - 1);
+      System.arraycopy(starts, k + 1, starts, k, length - k - 1);
+      chunks[--length] = null;
+    }
+
+    private long memoryUsage() {
+      // chunks, starts, owner, length and size, and every chunk with its array of nodes
+      return HeapSize.object(3 * HeapSize.REFERENCE + 2 * Integer.BYTES)
+          + HeapSize.array(chunks.length, HeapSize.REFERENCE) + HeapSize.array(starts.length, Integer.BYTES)
+          + (long) length * (HeapSize.object(2 * HeapSize.REFERENCE + Integer.BYTES)
+              + HeapSize.array(CHUNK_ENTRIES, HeapSize.REFERENCE));
+    }
+  }
+
+  private static final class Chunk {
+
+    private final Object owner;
+    private final Node[] nodes = new Node[CHUNK_ENTRIES];
+    private int count;
+
+    private Chunk(Object owner) {
+      this.owner = owner;
+    }
+
+    private Chunk copy(Object owner) {
+      Chunk copy = new Chunk(owner);
+      System.arraycopy(nodes, 0, copy.nodes, 0, count);
+      copy.count = count;
+      return copy;
+    }
+
+    private void insert(int i, Node node) {
+      System.arraycopy(nodes, i, nodes, i + 1, count - i);
+      nodes[i] = node;
+      count++;
+    }
+
+    private void remove(int i) {
+      System.arraycopy(nodes, i + 1, nodes, i, count - i - 1);
+      nodes[--count] = null;
+    }
+
+    private Chunk split(int i, Object owner) {
+      Chunk other = new Chunk(owner);
+      System.arraycopy(nodes, i, other.nodes, 0, count - i);
+      Arrays.fill(nodes, i, count, null);
+      other.count = count - i;
+      count = i;
+      return other;
+    }
+  }
+
+  private final class PackedItr implements Iterator<Entry<Double, SafeString>> {
+
+    private final Iterator<Entry<Double, SafeString>> entries;
+    private Entry<Double, SafeString> last;
+
+    private PackedItr(Iterator<Entry<Double, SafeString>> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return entries.hasNext();
+    }
+
+    @Override
+    public Entry<Double, SafeString> next() {
+      last = entries.next();
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      SortedSet.this.remove(last);
+      last = null;
+    }
+  }
+
+  private final class Itr implements Iterator<Entry<Double, SafeString>> {
+
+    private final boolean descending;
+    private int cursor;
+    private int chunk;
+    private int position;
+    private Node last;
+
+    private Itr(int cursor, boolean descending) {
+      this.cursor = cursor;
+      this.descending = descending;
+      seek();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor >= 0 && cursor < members.scores.size;
+    }
+
+    @Override
+    public Entry<Double, SafeString> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Chunk[] chunks = members.scores.chunks;
+      last = chunks[chunk].nodes[position];
+      if (descending) {
+        cursor--;
+        if (--position < 0 && --chunk >= 0) {
+          position = chunks[chunk].count - 1;
+        }
+      } else {
+        cursor++;
+        if (++position == chunks[chunk].count) {
+          chunk++;
+          position = 0;
+        }
+      }
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      if (last == null) {
+        throw new IllegalStateException();
+      }
+      SortedSet.this.remove(last);
+      if (!descending) {
+        cursor--;
+      }
+      last = null;
+      seek();
+    }
+
+    private void seek() {
+      if (hasNext()) {
+        chunk = members.scores.locate(cursor);
+        position = cursor - members.scores.starts[chunk];
+      }
     }
   }
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.purefun.data.ImmutableList;
+import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.purefun.data.Sequence;
+import com.github.tonivade.purefun.type.Option;
+
+/**
+ * Database with two tiers, the recently used entries are kept in the heap and, when they use
+ * more than hotMemory bytes, the least recently used ones are spilled to a log on disk. Only
+ * the key and the location of the value are kept in memory for cold entries, so a get of a
+ * cold key is a single read, and the value is recalled to the heap.
+ *
+ * As OnHeapDatabase, it must be used from the thread that owns the database.
+ */
+public class TieredDatabase implements Database, Closeable {
+
+  private static final long MIN_COMPACT_BYTES = 64 * 1024 * 1024;
+  // entry of the hash map and the boxed location
+  private static final long COLD_ENTRY_SIZE = 32 + 16;
+
+  private final long hotMemory;
+  private final LinkedScanHashMap<DatabaseKey, DatabaseValue> hotEntries = new LinkedScanHashMap<>();
+  private final OnHeapDatabase hot;
+  private final TieredStats stats;
+  private final DatabaseContext context;
+
+  private final ScanHashMap<DatabaseKey, Long> cold = new ScanHashMap<>();
+  private final ExpiryIndex coldExpires = new ExpiryIndex();
+  private final DiskLog log;
+  private long coldMemory;
+
+  public TieredDatabase(Path file, long hotMemory) {
+    this(file, hotMemory, new DatabaseContext());
+  }
+
+  public TieredDatabase(Path file, long hotMemory, DatabaseContext context) {
+    this(file, hotMemory, MIN_COMPACT_BYTES, context);
+  }
+
+  TieredDatabase(Path file, long hotMemory, long minCompactBytes, DatabaseContext context) {
+    this.log = new DiskLog(file, minCompactBytes);
+    this.hotMemory = hotMemory;
+    this.hot = new OnHeapDatabase(hotEntries, context);
+    this.stats = context.getTieredStats();
+    this.context = context;
+  }
+
+  /**
+   * The cold keys already expired are removed before they are counted, without reading them.
+   */
+  @Override
+  public int size() {
+    removeExpiredCold();
+    return hot.size() + cold.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(DatabaseKey key) {
+    return hot.containsKey(key)
+        || (cold.containsKey(key) && !coldExpires.isExpired(key, CoarseClock.millis()));
+  }
+
+  @Override
+  public DatabaseValue get(DatabaseKey key) {
+    DatabaseValue value = hot.get(key);
+    if (value == null && cold.containsKey(key)) {
+      value = recall(key);
+    }
+    return value;
+  }
+
+  @Override
+  public DatabaseValue put(DatabaseKey key, DatabaseValue value) {
+    DatabaseValue oldValue = cold.containsKey(key) ? removeCold(key) : null;
+    DatabaseValue hotValue = hot.put(key, value);
+    spillIfNeeded();
+    return oldValue != null ? oldValue : hotValue;
+  }
+
+  /**
+   * The old cold value is released without reading it from the log.
+   */
+  @Override
+  public void store(DatabaseKey key, DatabaseValue value) {
+    unlinkCold(key);
+    hot.put(key, value);
+    spillIfNeeded();
+  }
+
+  @Override
+  public DatabaseValue remove(DatabaseKey key) {
+    DatabaseValue value = hot.remove(key);
+    if (value == null && cold.containsKey(key)) {
+      value = removeCold(key);
+    }
+    return value;
+  }
+
+  /**
+   * Cold values are released without reading them from the log.
+   */
+  @Override
+  public boolean unlink(DatabaseKey key) {
+    return hot.unlink(key) || unlinkCold(key);
+  }
+
+  @Override
+  public void clear() {
+    hot.clear();
+    cold.clear();
+    coldExpires.clear();
+    context.addMemory(-coldMemory);
+    coldMemory = 0;
+    log.clear();
+  }
+
+  @Override
+  public void evictExpired(Instant now) {
+    evictExpired(now, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Cold values do not change, so they are expired with the time in the index, without
+   * reading them.
+   */
+  @Override
+  public Tuple2<Integer, Integer> evictExpired(Instant now, int limit) {
+    Tuple2<Integer, Integer> result = hot.evictExpired(now, limit);
+    int checked = result.get1();
+    int expired = result.get2();
+    for (DatabaseKey key : coldExpires.pollExpired(now, Math.max(0, limit - checked))) {
+      checked++;
+      Long location = cold.remove(key);
+      if (location != null) {
+        released(key, location);
+        expired++;
+      }
+    }
+    compactIfNeeded();
+    return Tuple.of(checked, expired);
+  }
+
+  /**
+   * Memory used by the hot entries and the index of the cold ones.
+   */
+  @Override
+  public long usedMemory() {
+    return hot.usedMemory() + coldMemory;
+  }
+
+  @Override
+  public Option<Long> memoryUsage(DatabaseKey key, int samples) {
+    Long location = cold.get(key);
+    if (location != null) {
+      return Option.some(MemoryEstimator.HEAP.keySize(key) + COLD_ENTRY_SIZE + DiskLog.length(location));
+    }
+    return hot.memoryUsage(key, samples);
+  }
+
+  /**
+   * Only hot entries are sampled, cold ones do not use memory.
+   */
+  @Override
+  public List<Tuple2<DatabaseKey, DatabaseValue>> sample(int count, boolean onlyVolatile) {
+    return hot.sample(count, onlyVolatile);
+  }
+
+  @Override
+  public ImmutableSet<DatabaseKey> keySet() {
+    Set<DatabaseKey> keys = new HashSet<>(hotEntries.keySet());
+    long now = CoarseClock.millis();
+    cold.forEach((key, location) -> {
+      if (!coldExpires.isExpired(key, now)) {
+        keys.add(key);
+      }
+    });
+    return ImmutableSet.from(keys);
+  }
+
+  @Override
+  public Sequence<DatabaseValue> values() {
+    List<DatabaseValue> values = new ArrayList<>();
+    forEach((key, value) -> values.add(value));
+    return ImmutableList.from(values);
+  }
+
+  @Override
+  public ImmutableSet<Tuple2<DatabaseKey, DatabaseValue>> entrySet() {
+    Set<Tuple2<DatabaseKey, DatabaseValue>> entries = new HashSet<>();
+    forEach((key, value) -> entries.add(Tuple.of(key, value)));
+    return ImmutableSet.from(entries);
+  }
+
+  /**
+   * Cold values are read but not recalled.
+   */
+  @Override
+  public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+    hot.forEach(action);
+    cold.forEach((key, location) -> action.accept(key, log.read(location).toValue()));
+  }
+
+  /**
+   * The references to the hot entries are copied, there are as many as fit in hotMemory, the
+   * map of cold locations is shared with the snapshot, see {@link ScanHashMap#copy()}, and the
+   * log is pinned until the snapshot is closed, so cold values are read from the thread that
+   * exports the snapshot.
+   */
+  @Override
+  public Snapshot.Entries capture() {
+    List<Tuple2<DatabaseKey, DatabaseValue>> hotCaptured = new ArrayList<>(hotEntries.size());
+    hotEntries.forEach((key, value) -> hotCaptured.add(Tuple.of(key, value)));
+    ScanHashMap<DatabaseKey, Long> coldCaptured = cold.copy();
+    log.pin();
+    return new Snapshot.Entries() {
+      @Override
+      public int size() {
+        return hotCaptured.size() + coldCaptured.size();
+      }
+
+      @Override
+      public void forEach(BiConsumer<DatabaseKey, DatabaseValue> action) {
+        hotCaptured.forEach(entry -> action.accept(entry.get1(), entry.get2()));
+        coldCaptured.forEach((key, location) -> action.accept(key, log.read(location).toValue()));
+      }
+
+      @Override
+      public void release() {
+        log.unpin();
+      }
+    };
+  }
+
+  /**
+   * The hot and the cold maps are scanned with the same cursor, with the mask of the smaller
+   * one, so every call visits the same bucket in both and a key moved from one to the other
+   * between two calls is not lost. Only the cold values of the keys visited are read and hot
+   * entries are not moved in the access order.
+   */
+  @Override
+  public long scan(long cursor, int count, BiConsumer<DatabaseKey, DatabaseValue> action) {
+    if (isEmpty()) {
+      return 0;
+    }
+    int mask = Math.min(hotEntries.mask(), cold.mask());
+    return HashCursor.scan(cursor, count, mask, bucket ->
+        hotEntries.scanBucket(bucket, mask, action)
+          + cold.scanBucket(bucket, mask, (key, location) -> action.accept(key, log.read(location).toValue())));
+  }
+
+  /**
+   * Deletes the log.
+   */
+  @Override
+  public void close() {
+    log.close();
+  }
+
+  int hotSize() {
+    return hot.size();
+  }
+
+  int coldSize() {
+    return cold.size();
+  }
+
+  private DatabaseValue recall(DatabaseKey key) {
+    long start = System.nanoTime();
+    DatabaseValue value = removeCold(key);
+    if (value.isExpired(CoarseClock.millis())) {
+      return null;
+    }
+    hot.put(key, value);
+    stats.recalled(System.nanoTime() - start);
+    spillIfNeeded();
+    return value;
+  }
+
+  /**
+   * Removes the cold key without reading its value, returns false if it was missing or
+   * expired.
+   */
+  private boolean unlinkCold(DatabaseKey key) {
+    Long location = cold.remove(key);
+    if (location == null) {
+      return false;
+    }
+    boolean expired = coldExpires.isExpired(key, CoarseClock.millis());
+    coldExpires.remove(key);
+    released(key, location);
+    compactIfNeeded();
+    return !expired;
+  }
+
+  private void removeExpiredCold() {
+    for (DatabaseKey key : coldExpires.pollExpired(Instant.ofEpochMilli(CoarseClock.millis()))) {
+      Long location = cold.remove(key);
+      if (location != null) {
+        released(key, location);
+      }
+    }
+  }
+
+  private DatabaseValue removeCold(DatabaseKey key) {
+    long location = cold.remove(key);
+    DatabaseValue value = log.read(location).toValue();
+    coldExpires.remove(key);
+    released(key, location);
+    compactIfNeeded();
+    return value;
+  }
+
+  /**
+   * The least recently used entry is the eldest of the map, the last one is never spilled.
+   */
+  private void spillIfNeeded() {
+    int attempts = hotEntries.size() - 1;
+    while (hot.usedMemory() > hotMemory && attempts-- > 0) {
+      DatabaseKey key = hotEntries.eldestKey();
+      if (!DiskLog.fits(hotEntries.get(key))) {
+        // too large for the log, it is moved to the end of the map by the get
+        continue;
+      }
+      spill(key);
+    }
+  }
+
+  private void spill(DatabaseKey key) {
+    long start = System.nanoTime();
+    DatabaseValue value = hot.remove(key);
+    if (value.isExpired(CoarseClock.millis())) {
+      return;
+    }
+    long location = log.append(value);
+    cold.put(key, location);
+    coldMemory(MemoryEstimator.HEAP.keySize(key) + COLD_ENTRY_SIZE);
+    if (value.isVolatile()) {
+      coldExpires.update(key, value.getExpiredAtMillis());
+    }
+    stats.spilled(System.nanoTime() - start);
+  }
+
+  private void released(DatabaseKey key, long location) {
+    log.release(location);
+    coldMemory(-(MemoryEstimator.HEAP.keySize(key) + COLD_ENTRY_SIZE));
+  }
+
+  private void coldMemory(long delta) {
+    coldMemory += delta;
+    context.addMemory(delta);
+  }
+
+  private void compactIfNeeded() {
+    if (log.needsCompaction()) {
+      log.compact(cold);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Creates tiered databases that keep up to hotMemory bytes of every database in the heap and
+ * spill the rest to a log in the given directory.
+ */
+public class TieredDatabaseFactory implements DatabaseFactory {
+
+  private final List<TieredDatabase> databases = new CopyOnWriteArrayList<>();
+
+  private final Path directory;
+  private final long hotMemory;
+  private final DatabaseContext context;
+
+  public TieredDatabaseFactory(Path directory, long hotMemory) {
+    this(directory, hotMemory, new DatabaseContext());
+  }
+
+  public TieredDatabaseFactory(Path directory, long hotMemory, DatabaseContext context) {
+    this.directory = requireNonNull(directory);
+    this.hotMemory = hotMemory;
+    this.context = requireNonNull(context);
+  }
+
+  @Override
+  public Database create(String name) {
+    try {
+      Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    TieredDatabase database = new TieredDatabase(directory.resolve(name + ".cold"), hotMemory, context);
+    databases.add(database);
+    return database;
+  }
+
+  @Override
+  public DatabaseContext getContext() {
+    return context;
+  }
+
+  /**
+   * Cold entries only live while the server is running, the logs are deleted.
+   */
+  @Override
+  public void clear() {
+    for (TieredDatabase database : databases) {
+      database.close();
+    }
+    databases.clear();
+  }
+}
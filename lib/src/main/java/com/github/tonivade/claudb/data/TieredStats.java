@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Values moved between the memory and the disk by the tiered databases of a server.
+ */
+public final class TieredStats {
+
+  private final LongAdder spilled = new LongAdder();
+  private final LongAdder spillTime = new LongAdder();
+  private final LongAdder recalled = new LongAdder();
+  private final LongAdder recallTime = new LongAdder();
+
+  public long getSpilled() {
+    return spilled.sum();
+  }
+
+  public long getSpillTimeMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(spillTime.sum());
+  }
+
+  public long getRecalled() {
+    return recalled.sum();
+  }
+
+  public long getRecallTimeMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(recallTime.sum());
+  }
+
+  public double getRecallAverageMicros() {
+    long count = getRecalled();
+    return count > 0 ? (double) getRecallTimeMicros() / count : 0;
+  }
+
+  void spilled(long timeNanos) {
+    spilled.increment();
+    spillTime.add(timeNanos);
+  }
+
+  void recalled(long timeNanos) {
+    recalled.increment();
+    recallTime.add(timeNanos);
+  }
+}
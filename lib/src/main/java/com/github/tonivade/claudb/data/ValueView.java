@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Read only access to a value for commands that only need its length or a single element,
+ * so a database can answer them without materializing the whole value.
+ */
+public interface ValueView {
+
+  DataType getType();
+
+  /**
+   * Number of elements of the collection, 1 for strings.
+   */
+  int size();
+
+  int getStringLength();
+
+  /**
+   * Returns the element at the given position, or null if it is out of range.
+   */
+  SafeString getListElement(int index);
+
+  /**
+   * Returns the value of the field, or null if the hash does not contain the field.
+   */
+  SafeString getHashField(SafeString field);
+
+  boolean hasSetMember(SafeString member);
+
+  /**
+   * Applies the action to a part of the members of the set and returns the cursor of the next
+   * call, zero when all the members have been visited. A member present during the whole scan
+   * is visited at least once.
+   */
+  long scanSet(long cursor, int count, Consumer<SafeString> action);
+
+  /**
+   * As {@link #scanSet(long, int, Consumer)}, for the fields and values of a hash.
+   */
+  long scanHash(long cursor, int count, BiConsumer<SafeString, SafeString> action);
+
+  /**
+   * As {@link #scanSet(long, int, Consumer)}, for the members and scores of a sorted set.
+   */
+  long scanSortedSet(long cursor, int count, BiConsumer<SafeString, Double> action);
+}
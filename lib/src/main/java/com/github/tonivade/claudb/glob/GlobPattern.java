@@ -4,27 +4,364 @@
  */
 package com.github.tonivade.claudb.glob;
 
-import static java.util.regex.Pattern.compile;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
-public class GlobPattern {
-  
+import com.github.tonivade.resp.protocol.SafeString;
+
+/**
+ * Glob pattern matched against the bytes of the value, as redis does: * any bytes, ? any
+ * byte, [abc], [a-z] and [^abc] a byte of the class, and \ escapes the next character.
+ * Literal patterns, prefixes like abc* and suffixes like *abc are matched comparing the
+ * bytes. Patterns with alternatives like {a,b} are matched with a regular expression.
+ */
+public final class GlobPattern {
+
+  private static final int CACHE_SIZE = 1024;
+  private static final Map<SafeString, GlobPattern> CACHE = new ConcurrentHashMap<>();
+
+  private static final byte LITERAL = 0;
+  private static final byte ANY = 1;
+  private static final byte ANY_SEQUENCE = 2;
+  private static final byte CLASS = 3;
+
+  private final Kind kind;
+  private final byte[] literal;
+  private final byte[] tokens;
+  private final byte[] bytes;
+  private final long[][] classes;
   private final Pattern pattern;
-  
+  private final SafeString prefix;
+
   public GlobPattern(String pattern) {
-    this.pattern = compile(convertGlobToRegEx(pattern));
+    this(safeString(pattern));
   }
-  
+
+  public GlobPattern(SafeString pattern) {
+    byte[] source = pattern.getBytes();
+    if (indexOf(source, (byte) '{') >= 0) {
+      this.kind = Kind.REGEX;
+      this.pattern = Pattern.compile(convertGlobToRegEx(pattern.toString()));
+      this.literal = null;
+      this.tokens = null;
+      this.bytes = null;
+      this.classes = null;
+      this.prefix = SafeString.EMPTY_STRING;
+      return;
+    }
+    Parser parser = new Parser(source);
+    parser.parse();
+    this.tokens = parser.tokens();
+    this.bytes = parser.bytes();
+    this.classes = parser.classes.toArray(new long[0][]);
+    this.pattern = null;
+    this.kind = Kind.of(tokens);
+    this.literal = kind.literal(tokens, bytes);
+    this.prefix = literalPrefix(tokens, bytes);
+  }
+
+  public static GlobPattern compile(String pattern) {
+    return compile(safeString(pattern));
+  }
+
+  /**
+   * Returns the compiled pattern, up to 1024 patterns are cached by their bytes, so commands
+   * and pattern subscriptions do not compile the same pattern again and again. A hit does not
+   * take a lock, when the cache is full a pattern is evicted for the new one.
+   */
+  public static GlobPattern compile(SafeString pattern) {
+    GlobPattern glob = CACHE.get(pattern);
+    if (glob == null) {
+      glob = new GlobPattern(pattern);
+      if (CACHE.size() >= CACHE_SIZE) {
+        evictOne();
+      }
+      CACHE.put(pattern, glob);
+    }
+    return glob;
+  }
+
+  static int cacheSize() {
+    return CACHE.size();
+  }
+
+  private static void evictOne() {
+    Iterator<SafeString> keys = CACHE.keySet().iterator();
+    if (keys.hasNext()) {
+      keys.next();
+      keys.remove();
+    }
+  }
+
+  /**
+   * Literal bytes every matching value starts with, empty if the pattern starts with a
+   * wildcard.
+   */
+  public SafeString prefix() {
+    return prefix;
+  }
+
   public boolean match(String value) {
-    return pattern.matcher(value).matches();
+    if (kind == Kind.REGEX) {
+      return pattern.matcher(value).matches();
+    }
+    return match(safeString(value));
+  }
+
+  public boolean match(SafeString value) {
+    ByteBuffer buffer = value.getBuffer();
+    int start = buffer.position();
+    int length = buffer.remaining();
+    switch (kind) {
+    case ALL:
+      return true;
+    case LITERAL:
+      return length == literal.length && regionMatches(buffer, start, literal);
+    case PREFIX:
+      return length >= literal.length && regionMatches(buffer, start, literal);
+    case SUFFIX:
+      return length >= literal.length && regionMatches(buffer, start + length - literal.length, literal);
+    case GLOB:
+      return matchGlob(buffer, start, length);
+    default:
+      return pattern.matcher(value.toString()).matches();
+    }
+  }
+
+  /**
+   * Tokens are matched one by one, when a token fails after a *, the * takes one more
+   * byte and the tokens after it are tried again, so there is no recursion.
+   */
+  private boolean matchGlob(ByteBuffer buffer, int start, int length) {
+    int token = 0;
+    int position = 0;
+    int star = -1;
+    int starPosition = 0;
+    while (position < length) {
+      if (token < tokens.length && tokens[token] == ANY_SEQUENCE) {
+        star = ++token;
+        starPosition = position;
+      } else if (token < tokens.length && matchToken(token, buffer.get(start + position))) {
+        token++;
+        position++;
+      } else if (star >= 0) {
+        token = star;
+        position = ++starPosition;
+      } else {
+        return false;
+      }
+    }
+    while (token < tokens.length && tokens[token] == ANY_SEQUENCE) {
+      token++;
+    }
+    return token == tokens.length;
+  }
+
+  private boolean matchToken(int token, byte value) {
+    switch (tokens[token]) {
+    case LITERAL:
+      return bytes[token] == value;
+    case CLASS:
+      int unsigned = value & 0xFF;
+      return (classes[bytes[token] & 0xFF][unsigned >>> 6] & (1L << unsigned)) != 0;
+    default:
+      return true;
+    }
+  }
+
+  private static int indexOf(byte[] bytes, byte value) {
+    for (int i = 0; i < bytes.length; i++) {
+      if (bytes[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static SafeString literalPrefix(byte[] tokens, byte[] bytes) {
+    int length = 0;
+    while (length < tokens.length && tokens[length] == LITERAL) {
+      length++;
+    }
+    byte[] prefix = new byte[length];
+    System.arraycopy(bytes, 0, prefix, 0, length);
+    return new SafeString(prefix);
+  }
+
+  private static boolean regionMatches(ByteBuffer buffer, int start, byte[] literal) {
+    for (int i = 0; i < literal.length; i++) {
+      if (buffer.get(start + i) != literal[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private enum Kind {
+    ALL, LITERAL, PREFIX, SUFFIX, GLOB, REGEX;
+
+    static Kind of(byte[] tokens) {
+      int stars = 0;
+      for (byte token : tokens) {
+        if (token == ANY || token == CLASS) {
+          return GLOB;
+        }
+        if (token == ANY_SEQUENCE) {
+          stars++;
+        }
+      }
+      if (stars == 0) {
+        return LITERAL;
+      }
+      if (stars == tokens.length) {
+        return ALL;
+      }
+      if (stars == 1 && tokens[tokens.length - 1] == ANY_SEQUENCE) {
+        return PREFIX;
+      }
+      if (stars == 1 && tokens[0] == ANY_SEQUENCE) {
+        return SUFFIX;
+      }
+      return GLOB;
+    }
+
+    byte[] literal(byte[] tokens, byte[] bytes) {
+      if (this == LITERAL || this == PREFIX || this == SUFFIX) {
+        byte[] literal = new byte[tokens.length - (this == LITERAL ? 0 : 1)];
+        System.arraycopy(bytes, this == SUFFIX ? 1 : 0, literal, 0, literal.length);
+        return literal;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * A token per byte of the value, the byte of a literal or the index of a class.
+   */
+  private static final class Parser {
+
+    private final byte[] pattern;
+    private final List<long[]> classes = new ArrayList<>();
+    private final ByteBuffer tokens;
+    private final ByteBuffer bytes;
+    private int position;
+
+    Parser(byte[] pattern) {
+      this.pattern = pattern;
+      this.tokens = ByteBuffer.allocate(pattern.length);
+      this.bytes = ByteBuffer.allocate(pattern.length);
+    }
+
+    void parse() {
+      while (position < pattern.length) {
+        byte current = pattern[position++];
+        if (current == '*') {
+          // consecutive stars are the same as one
+          if (tokens.position() == 0 || tokens.get(tokens.position() - 1) != ANY_SEQUENCE) {
+            add(ANY_SEQUENCE, (byte) 0);
+          }
+        } else if (current == '?') {
+          add(ANY, (byte) 0);
+        } else if (current == '[' && closes()) {
+          parseClass();
+        } else if (current == '\\' && position < pattern.length) {
+          add(LITERAL, pattern[position++]);
+        } else {
+          add(LITERAL, current);
+        }
+      }
+    }
+
+    byte[] tokens() {
+      return copy(tokens);
+    }
+
+    byte[] bytes() {
+      return copy(bytes);
+    }
+
+    private void parseClass() {
+      long[] bits = new long[4];
+      boolean negated = pattern[position] == '^';
+      if (negated) {
+        position++;
+      }
+      boolean first = true;
+      while (pattern[position] != ']' || first) {
+        first = false;
+        int from = next();
+        int to = from;
+        if (pattern[position] == '-' && pattern[position + 1] != ']') {
+          position++;
+          to = next();
+        }
+        for (int i = Math.min(from, to); i <= Math.max(from, to); i++) {
+          bits[i >>> 6] |= 1L << i;
+        }
+      }
+      position++;
+      if (negated) {
+        for (int i = 0; i < bits.length; i++) {
+          bits[i] = ~bits[i];
+        }
+      }
+      if (classes.size() > 0xFF) {
+        throw new IllegalArgumentException("too many classes in pattern");
+      }
+      add(CLASS, (byte) classes.size());
+      classes.add(bits);
+    }
+
+    private int next() {
+      if (pattern[position] == '\\') {
+        position++;
+      }
+      return pattern[position++] & 0xFF;
+    }
+
+    /**
+     * An unclosed [ is a literal.
+     */
+    private boolean closes() {
+      int i = position;
+      if (i < pattern.length && pattern[i] == '^') {
+        i++;
+      }
+      // the first character of the class can be ]
+      for (i++; i < pattern.length; i++) {
+        if (pattern[i] == '\\') {
+          i++;
+        } else if (pattern[i] == ']') {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private void add(byte token, byte value) {
+      tokens.put(token);
+      bytes.put(value);
+    }
+
+    private static byte[] copy(ByteBuffer buffer) {
+      byte[] copy = new byte[buffer.position()];
+      System.arraycopy(buffer.array(), 0, copy, 0, copy.length);
+      return copy;
+    }
   }
 
   /*
    * taken from
    * http://stackoverflow.com/questions/1247772/is-there-an-equivalent-of-java-util-regex-for-glob-type-patterns
    */
-  private String convertGlobToRegEx(String line) {
+  static String convertGlobToRegEx(String line) {
     int strLen = line.length();
     StringBuilder sb = new StringBuilder(strLen);
     boolean escaping = false;
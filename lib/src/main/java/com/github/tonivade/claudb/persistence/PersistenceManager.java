@@ -19,6 +19,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -30,6 +37,7 @@ import com.github.tonivade.claudb.DBConfig;
 import com.github.tonivade.claudb.DBServerContext;
 import com.github.tonivade.claudb.DBSessionState;
 import com.github.tonivade.claudb.command.DBCommandProcessor;
+import com.github.tonivade.claudb.data.Snapshot;
 import com.github.tonivade.resp.command.DefaultSession;
 import com.github.tonivade.resp.command.Session;
 import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
@@ -44,27 +52,41 @@ public class PersistenceManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceManager.class);
 
   private static final int MAX_FRAME_SIZE = 1024 * 1024 * 100;
+  private static final int STOP_TIMEOUT = 60;
 
   private OutputStream output;
   private final DBServerContext server;
   private final DBCommandProcessor processor;
   private final String dumpFile;
   private final String redoFile;
+  private final String oldRedoFile;
   private final int syncPeriod;
+  private final boolean backgroundSave;
+  private final SaveStats stats;
 
   private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-
-  public PersistenceManager(DBServerContext server, DBConfig config) {
+  // writes the RDB file, in the background or not, so two saves never write it at the same time
+  private final ExecutorService saver = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "claudb-bgsave");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  public PersistenceManager(DBServerContext server, DBConfig config, SaveStats stats) {
     this.server = requireNonNull(server);
+    this.stats = requireNonNull(stats);
     this.dumpFile = config.getRdbFile();
     this.redoFile = config.getAofFile();
+    this.oldRedoFile = redoFile + ".old";
     this.syncPeriod = config.getSyncPeriod();
+    this.backgroundSave = config.isBackgroundSaveActive();
     this.processor = new DBCommandProcessor(server, newDummySession());
   }
 
   public void start() {
     importRDB();
-    importRedo();
+    importRedo(oldRedoFile);
+    importRedo(redoFile);
     createRedo();
     executor.scheduleWithFixedDelay(this::run, syncPeriod, syncPeriod, TimeUnit.SECONDS);
     LOGGER.info("Persistence manager started");
@@ -72,14 +94,38 @@ public class PersistenceManager {
 
   public void stop() {
     executor.shutdown();
+    await(executor);
+    saver.shutdown();
+    await(saver);
     closeRedo();
     exportRDB();
     LOGGER.info("Persistence manager stopped");
   }
 
+  /**
+   * Nothing is saved while a save started by BGSAVE is still in progress.
+   */
   void run() {
-    exportRDB();
-    createRedo();
+    if (!stats.start()) {
+      return;
+    }
+    if (backgroundSave) {
+      saveInBackground();
+    } else {
+      saveInForeground();
+    }
+  }
+
+  /**
+   * Returns false if there is a save in progress already, the snapshot is taken later by
+   * the thread of the redo file.
+   */
+  public boolean backgroundSave() {
+    if (!stats.start()) {
+      return false;
+    }
+    executor.execute(this::saveInBackground);
+    return true;
   }
 
   public void append(RedisToken command) {
@@ -100,7 +146,7 @@ public class PersistenceManager {
     }
   }
 
-  private void importRedo() {
+  private void importRedo(String redoFile) {
     File file = new File(redoFile);
     if (file.exists()) {
       try (FileInputStream redo = new FileInputStream(file)) {
@@ -148,12 +194,111 @@ public class PersistenceManager {
     }
   }
 
-  private void exportRDB() {
+  /**
+   * The RDB file is written by the thread of the saves in the background, and the redo file
+   * is created again only when it is written.
+   */
+  private void saveInForeground() {
+    try {
+      if (saver.submit(this::exportRDB).get()) {
+        createRedo();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      LOGGER.error("error writing to RDB file", e.getCause());
+    } finally {
+      stats.finished();
+    }
+  }
+
+  private boolean exportRDB() {
+    long start = System.nanoTime();
     try (FileOutputStream rdb = new FileOutputStream(dumpFile)) {
       server.exportRDB(rdb);
+      deleteOldRedo();
+      stats.saved(System.nanoTime() - start);
       LOGGER.info("RDB file exported");
+      return true;
     } catch (IOException e) {
       LOGGER.error("error writing to RDB file", e);
+      return false;
+    } finally {
+      stats.stalled(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * The commands executed after the snapshot go to a new redo file, and the previous one is
+   * kept until the RDB file is written, so nothing is lost if the server stops before.
+   */
+  private void saveInBackground() {
+    Snapshot snapshot;
+    try {
+      snapshot = server.snapshot();
+    } catch (RuntimeException e) {
+      LOGGER.error("error taking snapshot", e);
+      stats.finished(false);
+      return;
+    }
+    try {
+      rotateRedo();
+      saver.execute(() -> writeSnapshot(snapshot));
+    } catch (RuntimeException e) {
+      snapshot.close();
+      LOGGER.error("error rotating AOF file", e);
+      stats.finished(false);
+    }
+  }
+
+  private void writeSnapshot(Snapshot snapshot) {
+    long start = System.nanoTime();
+    Path temp = Paths.get(dumpFile + ".tmp");
+    boolean ok = false;
+    try (Snapshot current = snapshot) {
+      try (OutputStream rdb = Files.newOutputStream(temp)) {
+        server.exportRDB(current, rdb);
+      }
+      Files.move(temp, Paths.get(dumpFile), StandardCopyOption.REPLACE_EXISTING);
+      deleteOldRedo();
+      stats.saved(System.nanoTime() - start);
+      ok = true;
+      LOGGER.info("RDB file exported in background");
+    } catch (IOException | RuntimeException e) {
+      LOGGER.error("error writing to RDB file in background", e);
+    } finally {
+      stats.finished(ok);
+    }
+  }
+
+  private void rotateRedo() {
+    closeRedo();
+    try {
+      Path redo = Paths.get(redoFile);
+      Path old = Paths.get(oldRedoFile);
+      if (Files.exists(old) && Files.exists(redo)) {
+        // the last save failed, the old file still has commands that are not in the RDB file
+        try (OutputStream output = Files.newOutputStream(old, StandardOpenOption.APPEND)) {
+          Files.copy(redo, output);
+        }
+      } else if (Files.exists(redo)) {
+        Files.move(redo, old);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    createRedo();
+  }
+
+  private void deleteOldRedo() throws IOException {
+    Files.deleteIfExists(Paths.get(oldRedoFile));
+  }
+
+  private void await(ExecutorService service) {
+    try {
+      service.awaitTermination(STOP_TIMEOUT, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
     }
   }
 
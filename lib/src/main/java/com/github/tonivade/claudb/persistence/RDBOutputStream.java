@@ -10,20 +10,23 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.zip.CheckedOutputStream;
 
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
-import com.github.tonivade.purefun.Tuple2;
-import com.github.tonivade.purefun.data.ImmutableList;
-import com.github.tonivade.purefun.data.ImmutableMap;
-import com.github.tonivade.purefun.data.ImmutableSet;
+import com.github.tonivade.claudb.data.Snapshot;
 import com.github.tonivade.resp.protocol.SafeString;
 
 public class RDBOutputStream {
@@ -59,8 +62,24 @@ public class RDBOutputStream {
   }
 
   public void dabatase(Database db) throws IOException {
-    for (Tuple2<DatabaseKey, DatabaseValue> entry : db.entrySet()) {
-      value(entry.get1(), entry.get2());
+    entries(db::forEach);
+  }
+
+  public void dabatase(Snapshot.Entries entries) throws IOException {
+    entries(entries::forEach);
+  }
+
+  private void entries(Consumer<BiConsumer<DatabaseKey, DatabaseValue>> entries) throws IOException {
+    try {
+      entries.accept((key, value) -> {
+        try {
+          value(key, value);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
     }
   }
 
@@ -139,22 +158,22 @@ public class RDBOutputStream {
     string(String.valueOf(value));
   }
 
-  private void list(ImmutableList<SafeString> value) throws IOException {
+  private void list(List<SafeString> value) throws IOException {
     length(value.size());
     for (SafeString item : value) {
       string(item);
     }
   }
 
-  private void hash(ImmutableMap<SafeString, SafeString> value) throws IOException {
+  private void hash(Map<SafeString, SafeString> value) throws IOException {
     length(value.size());
-    for (Tuple2<SafeString, SafeString> entry : value.entries()) {
-      string(entry.get1());
-      string(entry.get2());
+    for (Entry<SafeString, SafeString> entry : value.entrySet()) {
+      string(entry.getKey());
+      string(entry.getValue());
     }
   }
 
-  private void set(ImmutableSet<SafeString> value) throws IOException {
+  private void set(Set<SafeString> value) throws IOException {
     length(value.size());
     for (SafeString item : value) {
       string(item);
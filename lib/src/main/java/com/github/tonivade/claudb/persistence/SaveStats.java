@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.persistence;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Saves of the RDB file of a server, the stall is the time the commands were stopped to take
+ * it, all of it for a save in the foreground and only the snapshot for one in the background.
+ * Only one save, in the foreground or in the background, is in progress at a time.
+ */
+public final class SaveStats {
+
+  private final AtomicBoolean inProgress = new AtomicBoolean();
+
+  private volatile long lastSave = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+  private volatile boolean lastBackgroundOk = true;
+  private volatile long lastDuration = -1;
+  private volatile long lastStall = -1;
+
+  public boolean isInProgress() {
+    return inProgress.get();
+  }
+
+  /**
+   * Unix time of the last successful save, or of the start of the server.
+   */
+  public long getLastSave() {
+    return lastSave;
+  }
+
+  public boolean isLastBackgroundOk() {
+    return lastBackgroundOk;
+  }
+
+  public long getLastDurationMillis() {
+    return lastDuration < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(lastDuration);
+  }
+
+  public long getLastStallMicros() {
+    return lastStall < 0 ? -1 : TimeUnit.NANOSECONDS.toMicros(lastStall);
+  }
+
+  public void stalled(long nanos) {
+    lastStall = nanos;
+  }
+
+  /**
+   * Returns false if there is a save in progress already.
+   */
+  boolean start() {
+    return inProgress.compareAndSet(false, true);
+  }
+
+  void saved(long nanos) {
+    lastDuration = nanos;
+    lastSave = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+  }
+
+  void finished(boolean ok) {
+    lastBackgroundOk = ok;
+    inProgress.set(false);
+  }
+
+  /**
+   * The status of the last save in the background is kept.
+   */
+  void finished() {
+    inProgress.set(false);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.data.Database;
+import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.MaxMemoryPolicy;
+import com.github.tonivade.claudb.data.OnHeapDatabaseFactory;
+
+public class DBServerStateTest {
+
+  private final DBServerState state = new DBServerState(new OnHeapDatabaseFactory(), 2);
+  private final List<DatabaseKey> evicted = new ArrayList<>();
+
+  @Test
+  public void expireCycle() {
+    Database database = state.getDatabase(1);
+    for (int i = 0; i < 50; i++) {
+      database.put(safeKey("key" + i), string("value").expiredAt(Instant.ofEpochMilli(10)));
+    }
+    database.put(safeKey("other"), string("value"));
+
+    state.expireCycle(Instant.ofEpochMilli(20), 1_000_000);
+
+    assertThat(database.size(), is(1));
+    assertThat(state.getExpireStats().getCycles(), is(1L));
+    assertThat(state.getExpireStats().getLastScanned(), is(50));
+    assertThat(state.getExpireStats().getLastExpired(), is(50));
+  }
+
+  @Test
+  public void expireCycleWithoutBudget() {
+    Database database = state.getDatabase(0);
+    for (int i = 0; i < 50; i++) {
+      database.put(safeKey("key" + i), string("value").expiredAt(Instant.ofEpochMilli(10)));
+    }
+
+    state.expireCycle(Instant.ofEpochMilli(20), 0);
+
+    assertThat(database.size(), is(50));
+    assertThat(state.getExpireStats().getLastExpired(), is(0));
+  }
+
+  @Test
+  public void freeMemory() {
+    Database database = state.getDatabase(0);
+    for (int i = 0; i < 20; i++) {
+      database.put(safeKey("key" + (10 + i)), string("value"));
+    }
+    state.setMaxMemory(database.usedMemory() / 2, MaxMemoryPolicy.ALLKEYS_RANDOM, 5);
+
+    assertThat(state.freeMemory((db, key) -> evicted.add(key)), is(true));
+    assertThat(database.size(), is(10));
+    assertThat(state.getEvictedKeys(), is(10L));
+    assertThat(evicted.size(), is(10));
+    for (DatabaseKey key : evicted) {
+      assertThat(database.containsKey(key), is(false));
+    }
+  }
+
+  @Test
+  public void freeMemoryOnlyVolatile() {
+    Database database = state.getDatabase(0);
+    for (int i = 0; i < 10; i++) {
+      database.put(safeKey("key" + i), string("value"));
+      database.put(safeKey("tmp" + i), string("value").expiredAt(3600));
+    }
+    long entrySize = database.usedMemory() / 20;
+    state.setMaxMemory(entrySize * 15, MaxMemoryPolicy.VOLATILE_TTL, 5);
+
+    assertThat(state.freeMemory((db, key) -> evicted.add(key)), is(true));
+    assertThat(database.size(), is(15));
+    for (int i = 0; i < 10; i++) {
+      assertThat(database.containsKey(safeKey("key" + i)), is(true));
+    }
+
+    state.setMaxMemory(entrySize * 5, MaxMemoryPolicy.VOLATILE_TTL, 5);
+
+    assertThat(state.freeMemory((db, key) -> evicted.add(key)), is(false));
+    assertThat(database.size(), is(10));
+  }
+
+  @Test
+  public void noEviction() {
+    Database database = state.getDatabase(0);
+    for (int i = 0; i < 20; i++) {
+      database.put(safeKey("key" + (10 + i)), string("value"));
+    }
+    state.setMaxMemory(database.usedMemory() / 2, MaxMemoryPolicy.NOEVICTION, 5);
+
+    assertThat(state.freeMemory((db, key) -> evicted.add(key)), is(false));
+    assertThat(database.size(), is(20));
+  }
+
+  @Test
+  public void usedMemoryDataset() {
+    state.getDatabase(0).put(safeKey("a"), string("value"));
+    state.getDatabase(1).put(safeKey("b"), string("value"));
+
+    state.getAdminDatabase().put(safeKey("c"), string("value"));
+
+    assertThat(state.getUsedMemoryDataset(),
+        is(state.getDatabase(0).usedMemory() + state.getDatabase(1).usedMemory()));
+
+    state.getDatabase(0).clear();
+
+    assertThat(state.getUsedMemoryDataset(), is(state.getDatabase(1).usedMemory()));
+  }
+}
@@ -5,6 +5,8 @@
 
 package com.github.tonivade.claudb.command;
 
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.resp.protocol.RedisToken.error;
 import static com.github.tonivade.resp.protocol.RedisToken.responseOk;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
@@ -12,6 +14,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import org.junit.Before;
@@ -27,6 +31,7 @@ import com.github.tonivade.claudb.command.annotation.ParamType;
 import com.github.tonivade.claudb.data.DataType;
 import com.github.tonivade.claudb.data.Database;
 import com.github.tonivade.claudb.data.DatabaseKey;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.purefun.type.Option;
 import com.github.tonivade.resp.annotation.Command;
 import com.github.tonivade.resp.annotation.ParamLength;
@@ -114,6 +119,21 @@ public class CommandWrapperTest {
     RedisToken response = wrapper.execute(request);
 
     assertThat(response, equalTo(error("WRONGTYPE Operation against a key holding the wrong kind of value")));
+    verify(db, never()).put(any(DatabaseKey.class), any(DatabaseValue.class));
+  }
+
+  @Test
+  public void testTypeCheckedInCommandLookup() {
+    when(db.get(any(DatabaseKey.class))).thenReturn(string("value"));
+    when(request.getParam(0)).thenReturn(safeString("test"));
+
+    DBCommandWrapper wrapper = new DBCommandWrapper(new HashCommand());
+
+    RedisToken response = wrapper.execute(request);
+
+    assertThat(response, equalTo(error("WRONGTYPE Operation against a key holding the wrong kind of value")));
+    verify(db, never()).isType(any(DatabaseKey.class), any(DataType.class));
+    verify(serverState).recordCommand("hash", 1);
   }
 
   @Command("test")
@@ -133,11 +153,24 @@ public class CommandWrapperTest {
     }
   }
 
+  @Command("hash")
+  @ParamType(DataType.HASH)
+  private static class HashCommand implements DBCommand {
+    @Override
+    public RedisToken execute(Database db, Request request) {
+      db.get(safeKey(request.getParam(0)));
+      return responseOk();
+    }
+  }
+
   @Command("test")
   @ParamType(DataType.STRING)
   private static class TypeCommand implements DBCommand {
     @Override
     public RedisToken execute(Database db, Request request) {
+      // another key is updated before the command key is read
+      db.put(safeKey("other"), string("value"));
+      db.get(safeKey(request.getParam(0)));
       return responseOk();
     }
   }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.hash;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.entry;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+
+@CommandUnderTest(HashScanCommand.class)
+public class HashScanCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    rule.withData("key", hash(entry("a", "1"), entry("b", "2")))
+    .withParams("key", "0", "MATCH", "a")
+    .execute()
+    .assertThat(array(string("0"), array(string("a"), string("1"))));
+  }
+
+  @Test
+  public void testExecuteNotExists() {
+    rule.withParams("key", "0")
+    .execute()
+    .assertThat(array(string("0"), array()));
+  }
+
+  @Test
+  public void testExecuteType() {
+    rule.withData("key", hash(entry("a", "1")))
+    .withParams("key", "0", "TYPE", "hash")
+    .execute()
+    .assertThat(error("syntax error"));
+  }
+}
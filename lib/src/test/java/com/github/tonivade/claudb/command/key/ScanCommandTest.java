@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.key;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.entry;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@CommandUnderTest(ScanCommand.class)
+public class ScanCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    for (int i = 0; i < 100; i++) {
+      rule.withData("key" + i, string("value" + i));
+    }
+
+    Set<RedisToken> keys = new HashSet<>();
+    String cursor = "0";
+    do {
+      List<RedisToken> response = ((ArrayRedisToken) rule.withParams(cursor, "COUNT", "10")
+          .execute().getResponse()).getValue().asList().toList();
+      cursor = ((StringRedisToken) response.get(0)).getValue().toString();
+      ((ArrayRedisToken) response.get(1)).getValue().forEach(keys::add);
+    } while (!cursor.equals("0"));
+
+    assertThat(keys.size(), is(100));
+  }
+
+  @Test
+  public void testExecuteMatchAndType() {
+    rule.withData("abc", string("1"))
+    .withData("abd", hash(entry("a", "1")))
+    .withData("c", string("3"))
+    .withParams("0", "MATCH", "ab*", "TYPE", "string")
+    .execute()
+    .assertThat(array(RedisToken.string("0"), array(RedisToken.string("abc"))));
+  }
+
+  @Test
+  public void testExecuteInvalidCursor() {
+    rule.withParams("abc")
+    .execute()
+    .assertThat(error("invalid cursor"));
+  }
+
+  @Test
+  public void testExecuteSyntaxError() {
+    rule.withParams("0", "COUNT")
+    .execute()
+    .assertThat(error("syntax error"));
+  }
+
+  @Test
+  public void testExecuteInvalidCount() {
+    rule.withParams("0", "COUNT", "a")
+    .execute()
+    .assertThat(error("value is not an integer or out of range"));
+  }
+}
@@ -5,6 +5,7 @@
 
 package com.github.tonivade.claudb.command.server;
 
+import static com.github.tonivade.resp.protocol.RedisToken.string;
 import static org.hamcrest.Matchers.any;
 
 import org.junit.Rule;
@@ -26,4 +27,13 @@ public class InfoCommandTest {
     .execute()
     .assertThat(any(RedisToken.class));
   }
+
+  @Test
+  public void testCommandStats()  {
+    rule.getServerState().recordCommand("hset", 1);
+
+    rule.withParams("commandstats")
+    .execute()
+    .assertThat(string("#commandstats\r\ncmdstat_hset:calls=1,lookups=1,lookups_per_call=1.00\r\n\r\n\r\n"));
+  }
 }
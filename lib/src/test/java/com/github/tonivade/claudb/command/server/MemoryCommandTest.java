@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.server;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.RedisToken.error;
+import static com.github.tonivade.resp.protocol.RedisToken.integer;
+import static com.github.tonivade.resp.protocol.RedisToken.nullString;
+import static org.hamcrest.Matchers.any;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.claudb.data.MemoryEstimator;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@CommandUnderTest(MemoryCommand.class)
+public class MemoryCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testUsage() {
+    long expected = MemoryEstimator.HEAP.entrySize(safeKey("key"), string("value"), MemoryEstimator.DEFAULT_SAMPLES);
+
+    rule.withData("key", string("value"))
+        .withParams("usage", "key")
+        .execute()
+        .assertThat(integer((int) expected));
+  }
+
+  @Test
+  public void testUsageNotExists() {
+    rule.withParams("usage", "key")
+        .execute()
+        .assertThat(nullString());
+  }
+
+  @Test
+  public void testUsageSamples() {
+    rule.withData("key", string("value"))
+        .withParams("usage", "key", "samples", "-1")
+        .execute()
+        .assertThat(error("ERR value is out of range, must be positive"));
+  }
+
+  @Test
+  public void testStats() {
+    rule.withData("key", string("value"))
+        .withParams("stats")
+        .execute()
+        .assertThat(any(RedisToken.class));
+  }
+
+  @Test
+  public void testUnknown() {
+    rule.withParams("doctor")
+        .execute()
+        .assertThat(error("Unknown MEMORY subcommand: doctor"));
+  }
+}
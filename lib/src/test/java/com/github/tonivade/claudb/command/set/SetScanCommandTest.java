@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.set;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.set;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisToken;
+
+@CommandUnderTest(SetScanCommand.class)
+public class SetScanCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    rule.withData("key", set("a", "b", "c"))
+    .withParams("key", "0", "MATCH", "b")
+    .execute()
+    .assertThat(array(string("0"), array(string("b"))));
+  }
+
+  @Test
+  public void testExecuteCount() {
+    rule.withData("key", set(members(0, 100)));
+
+    Set<RedisToken> members = new HashSet<>();
+    String cursor = "0";
+    int calls = 0;
+    do {
+      cursor = scan(cursor, members);
+      calls++;
+    } while (!cursor.equals("0"));
+
+    assertThat(members.size(), is(100));
+    assertThat(calls, greaterThan(1));
+  }
+
+  @Test
+  public void testExecuteWhileRemoved() {
+    rule.withData("key", set(members(0, 100)));
+
+    Set<RedisToken> members = new HashSet<>();
+    String cursor = scan("0", members);
+    // the members already returned are removed and the set is rebuilt with a smaller table
+    List<String> remaining = new ArrayList<>();
+    for (String member : members(0, 100)) {
+      if (!members.contains(string(member))) {
+        remaining.add(member);
+      }
+    }
+    rule.withData("key", set(remaining.toArray(new String[0])));
+    while (!cursor.equals("0")) {
+      cursor = scan(cursor, members);
+    }
+
+    assertThat(members.size(), is(100));
+  }
+
+  private String scan(String cursor, Set<RedisToken> members) {
+    List<RedisToken> response = ((ArrayRedisToken) rule.withParams("key", cursor, "COUNT", "10")
+        .execute().getResponse()).getValue().asList().toList();
+    ((ArrayRedisToken) response.get(1)).getValue().forEach(members::add);
+    return ((StringRedisToken) response.get(0)).getValue().toString();
+  }
+
+  private static String[] members(int from, int to) {
+    String[] members = new String[to - from];
+    for (int i = from; i < to; i++) {
+      members[i - from] = "member" + i;
+    }
+    return members;
+  }
+}
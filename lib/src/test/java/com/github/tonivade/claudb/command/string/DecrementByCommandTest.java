@@ -32,4 +32,22 @@ public class DecrementByCommandTest {
     .assertThat(RedisToken.integer(-25));
   }
 
+  @Test
+  public void testExecuteOutOfRange() {
+    rule.withParams("a", "2147483648")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+
+    rule.withParams("a", "-2147483648")
+    .execute()
+    .assertThat(RedisToken.error("ERR increment or decrement would overflow"));
+
+    rule.withParams("a", "2147483647")
+    .execute()
+    .assertThat(RedisToken.integer(-2147483647));
+
+    rule.withParams("a", "2")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+  }
 }
@@ -5,10 +5,13 @@
 
 package com.github.tonivade.claudb.command.string;
 
+import static org.hamcrest.Matchers.equalTo;
+
 import org.junit.Rule;
 import org.junit.Test;
 import com.github.tonivade.claudb.command.CommandRule;
 import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.claudb.data.DatabaseValue;
 import com.github.tonivade.resp.protocol.RedisToken;
 
 @CommandUnderTest(IncrementByCommand.class)
@@ -32,4 +35,33 @@ public class IncrementByCommandTest {
     .assertThat(RedisToken.integer(25));
   }
 
+  @Test
+  public void testExecuteOutOfRange() {
+    rule.withParams("a", "2147483646")
+    .execute()
+    .assertThat(RedisToken.integer(2147483646));
+
+    rule.withParams("a", "1")
+    .execute()
+    .assertThat(RedisToken.integer(2147483647));
+
+    rule.withParams("a", "1")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+
+    rule.withParams("a", "9223372036854775807")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+
+    rule.assertValue("a", equalTo(DatabaseValue.number(2147483647)));
+  }
+
+  @Test
+  public void testExecuteNotInteger() {
+    rule.withData("a", DatabaseValue.string("abc"))
+    .withParams("a", "1")
+    .execute()
+    .assertThat(RedisToken.error("ERR value is not an integer or out of range"));
+  }
+
 }
@@ -48,6 +48,14 @@ public class SortedSetRangeByScoreCommandTest {
     .assertThat(array(string("b"), string("c")));
   }
 
+  @Test
+  public void testExecuteWithScoresAndLimit()  {
+    rule.withData("key", zset(score(1, "a"), score(2, "b"), score(3, "c")))
+    .withParams("key", "1", "3", "WITHSCORES", "LIMIT", "1", "1")
+    .execute()
+    .assertThat(array(string("b"), string("2.0")));
+  }
+
   @Test
   public void testExecuteExclusive()  {
     rule.withData("key", zset(score(1, "a"), score(2, "b"), score(3, "c")))
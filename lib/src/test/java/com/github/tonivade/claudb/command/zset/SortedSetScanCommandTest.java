@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.command.zset;
+
+import static com.github.tonivade.claudb.DatabaseValueMatchers.score;
+import static com.github.tonivade.claudb.data.DatabaseValue.zset;
+import static com.github.tonivade.resp.protocol.RedisToken.array;
+import static com.github.tonivade.resp.protocol.RedisToken.string;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.github.tonivade.claudb.command.CommandRule;
+import com.github.tonivade.claudb.command.CommandUnderTest;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.ArrayRedisToken;
+import com.github.tonivade.resp.protocol.AbstractRedisToken.StringRedisToken;
+import com.github.tonivade.resp.protocol.RedisToken;
+import com.github.tonivade.resp.protocol.SafeString;
+
+@CommandUnderTest(SortedSetScanCommand.class)
+public class SortedSetScanCommandTest {
+
+  @Rule
+  public final CommandRule rule = new CommandRule(this);
+
+  @Test
+  public void testExecute() {
+    rule.withData("key", zset(score(1, "a"), score(2, "b"), score(3, "c")))
+    .withParams("key", "0")
+    .execute()
+    .assertThat(array(string("0"), array(string("a"), string("1.0"),
+        string("b"), string("2.0"), string("c"), string("3.0"))));
+  }
+
+  @Test
+  public void testExecuteCompact() {
+    // a compact sorted set is returned at once, whatever the count
+    rule.withData("key", zset(score(1, "a"), score(2, "b"), score(3, "c")))
+    .withParams("key", "0", "COUNT", "1")
+    .execute()
+    .assertThat(array(string("0"), array(string("a"), string("1.0"),
+        string("b"), string("2.0"), string("c"), string("3.0"))));
+  }
+
+  @Test
+  public void testExecuteCount() {
+    List<Entry<Double, SafeString>> entries = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      entries.add(score(i, "member" + i));
+    }
+    rule.withData("key", zset(entries));
+
+    Set<RedisToken> members = new HashSet<>();
+    String cursor = "0";
+    int calls = 0;
+    do {
+      List<RedisToken> response = ((ArrayRedisToken) rule.withParams("key", cursor, "COUNT", "10")
+          .execute().getResponse()).getValue().asList().toList();
+      cursor = ((StringRedisToken) response.get(0)).getValue().toString();
+      List<RedisToken> items = ((ArrayRedisToken) response.get(1)).getValue().asList().toList();
+      for (int i = 0; i < items.size(); i += 2) {
+        members.add(items.get(i));
+      }
+      calls++;
+    } while (!cursor.equals("0"));
+
+    assertThat(members.size(), is(1000));
+    assertThat(calls, greaterThan(1));
+  }
+}
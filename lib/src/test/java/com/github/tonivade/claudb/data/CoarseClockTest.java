@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class CoarseClockTest {
+
+  @Test
+  public void tickerRunsWhileStarted() {
+    CoarseClock.start();
+    CoarseClock.start();
+    try {
+      assertThat(CoarseClock.isStarted(), is(true));
+
+      CoarseClock.stop();
+
+      assertThat(CoarseClock.isStarted(), is(true));
+    } finally {
+      CoarseClock.stop();
+    }
+
+    assertThat(CoarseClock.isStarted(), is(false));
+  }
+
+  @Test
+  public void systemClockWhenStopped() {
+    long before = System.currentTimeMillis();
+
+    assertThat(CoarseClock.millis(), greaterThanOrEqualTo(before));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.DBConfig;
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class CompactHashTest {
+
+  @Test
+  public void testCompact() {
+    CompactHash hash = new CompactHash();
+
+    assertThat(hash.put(safeString("a"), safeString("1")), nullValue());
+    assertThat(hash.put(safeString("b"), safeString("2")), nullValue());
+    assertThat(hash.put(safeString("a"), safeString("3")), is(safeString("1")));
+
+    assertThat(hash.isCompact(), is(true));
+    assertThat(hash.size(), is(2));
+    assertThat(hash.get(safeString("a")), is(safeString("3")));
+    assertThat(hash.containsKey(safeString("b")), is(true));
+    assertThat(hash.remove(safeString("b")), is(safeString("2")));
+    assertThat(hash.containsKey(safeString("b")), is(false));
+    assertThat(hash.size(), is(1));
+  }
+
+  @Test
+  public void testPromoteByEntries() {
+    CompactHash hash = new CompactHash();
+    Map<SafeString, SafeString> expected = new HashMap<>();
+
+    for (int i = 0; i < 200; i++) {
+      hash.put(safeString("key" + i), safeString("value" + i));
+      expected.put(safeString("key" + i), safeString("value" + i));
+    }
+
+    assertThat(hash.isCompact(), is(false));
+    assertThat(hash, is(expected));
+  }
+
+  @Test
+  public void testPromoteByEncoding() {
+    CompactHash hash = new CompactHash();
+    hash.put(safeString("a"), safeString("1"));
+    hash.put(safeString("b"), safeString("2"));
+
+    hash.setEncoding(new CompactEncoding(DBConfig.builder().withHashMaxListpack(4, 64).build()));
+    assertThat(hash.isCompact(), is(true));
+
+    hash.put(safeString("c"), safeString("3"));
+    hash.setEncoding(new CompactEncoding(DBConfig.builder().withHashMaxListpack(2, 64).build()));
+    assertThat(hash.isCompact(), is(false));
+    assertThat(hash.size(), is(3));
+  }
+
+  @Test
+  public void testPromoteByValue() {
+    CompactHash hash = new CompactHash();
+
+    hash.put(safeString("a"), safeString(new String(new char[100])));
+
+    assertThat(hash.isCompact(), is(false));
+    assertThat(hash.size(), is(1));
+  }
+
+  @Test
+  public void testIteratorRemove() {
+    CompactHash hash = new CompactHash();
+    hash.put(safeString("a"), safeString("1"));
+    hash.put(safeString("b"), safeString("2"));
+    hash.put(safeString("c"), safeString("3"));
+
+    Iterator<Map.Entry<SafeString, SafeString>> iterator = hash.entrySet().iterator();
+    iterator.next();
+    iterator.next();
+    iterator.remove();
+
+    assertThat(hash.size(), is(2));
+    assertThat(hash.containsKey(safeString("b")), is(false));
+    assertThat(iterator.next().getKey(), is(safeString("c")));
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class CompactSetTest {
+
+  @Test
+  public void testIntegers() {
+    CompactSet set = new CompactSet();
+
+    assertThat(set.add(safeString("10")), is(true));
+    assertThat(set.add(safeString("-5")), is(true));
+    assertThat(set.add(safeString("100000")), is(true));
+    assertThat(set.add(safeString("9223372036854775807")), is(true));
+    assertThat(set.add(safeString("10")), is(false));
+
+    assertThat(set.isCompact(), is(true));
+    assertThat(set.size(), is(4));
+    assertThat(set.contains(safeString("100000")), is(true));
+    assertThat(set.contains(safeString("7")), is(false));
+    assertThat(set.remove(safeString("-5")), is(true));
+    assertThat(set.size(), is(3));
+    assertThat(set.iterator().next(), is(safeString("10")));
+  }
+
+  @Test
+  public void testPromoteNonInteger() {
+    CompactSet set = new CompactSet();
+    set.add(safeString("1"));
+    set.add(safeString("01"));
+
+    assertThat(set.isCompact(), is(false));
+    assertThat(set.contains(safeString("1")), is(true));
+    assertThat(set.contains(safeString("01")), is(true));
+  }
+
+  @Test
+  public void testPromoteByEntries() {
+    CompactSet set = new CompactSet();
+    Set<SafeString> expected = new HashSet<>();
+
+    for (int i = 0; i < 1000; i++) {
+      set.add(safeString(String.valueOf(i)));
+      expected.add(safeString(String.valueOf(i)));
+    }
+
+    assertThat(set.isCompact(), is(false));
+    assertThat(set, is(expected));
+  }
+
+  @Test
+  public void testCanonicalIntegers() {
+    assertThat(CompactEncoding.toLong(safeString("-0")), nullValue());
+    assertThat(CompactEncoding.toLong(safeString("+1")), nullValue());
+    assertThat(CompactEncoding.toLong(safeString("9223372036854775808")), nullValue());
+    assertThat(CompactEncoding.toLong(safeString("-9223372036854775808")), is(Long.MIN_VALUE));
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.github.tonivade.purefun.Tuple;
+
+public class ConcurrentOnHeapDatabaseTest {
+
+  private final Database database = new ConcurrentOnHeapDatabaseFactory().create("test");
+
+  @Test
+  public void putIfAbsent() {
+    assertThat(database.putIfAbsent(safeKey("a"), string("1")), nullValue());
+    assertThat(database.putIfAbsent(safeKey("a"), string("2")), is(string("1")));
+    assertThat(database.get(safeKey("a")), is(string("1")));
+  }
+
+  @Test
+  public void putIfAbsentExpired() {
+    database.put(safeKey("a"), string("1").expiredAt(Instant.now().minusSeconds(10)));
+
+    assertThat(database.putIfAbsent(safeKey("a"), string("2")), nullValue());
+    assertThat(database.get(safeKey("a")), is(string("2")));
+  }
+
+  @Test
+  public void rename() {
+    database.put(safeKey("a"), string("1"));
+
+    assertThat(database.rename(safeKey("a"), safeKey("b")), is(true));
+    assertThat(database.rename(safeKey("a"), safeKey("b")), is(false));
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.get(safeKey("b")), is(string("1")));
+  }
+
+  @Test
+  public void concurrentMerge() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(() -> database.merge(safeKey("counter"), string("1"),
+          (oldValue, newValue) -> string(String.valueOf(Integer.parseInt(oldValue.getString().toString()) + 1))));
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(database.get(safeKey("counter")).getString(), is(safeString("1000")));
+  }
+
+  @Test
+  public void updateInPlace() {
+    DatabaseValue list = DatabaseValue.list(safeString("a"));
+    database.put(safeKey("list"), list);
+
+    DatabaseValue updated = database.compute(safeKey("list"),
+        (key, value) -> value.updateList(items -> items.add(safeString("b"))));
+
+    assertThat(updated, sameInstance(list));
+    assertThat(database.read(safeKey("list"), DatabaseValue.EMPTY_LIST, ValueView::size), is(2));
+  }
+
+  @Test
+  public void concurrentReadWhileUpdate() throws InterruptedException {
+    database.put(safeKey("list"), DatabaseValue.list(safeString("0")));
+    AtomicBoolean consistent = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int i = 0; i < 1000; i++) {
+      executor.execute(() -> database.compute(safeKey("list"),
+          (key, value) -> value.updateList(items -> items.add(safeString("1")))));
+      executor.execute(() -> database.read(safeKey("list"), DatabaseValue.EMPTY_LIST, value -> {
+        // the size can not change while the reader runs
+        int size = value.size();
+        if (value.size() != size) {
+          consistent.set(false);
+        }
+        return size;
+      }));
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertThat(consistent.get(), is(true));
+    assertThat(database.get(safeKey("list")).size(), is(1001));
+  }
+
+  @Test
+  public void getRemovesExpiredFromIndex() {
+    database.put(safeKey("a"), string("1").expiredAt(Instant.now().minusSeconds(10)));
+
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(database.evictExpired(Instant.now(), 10), is(Tuple.of(0, 0)));
+  }
+
+  @Test
+  public void scanAllSegments() {
+    for (int i = 0; i < 1000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    long cursor = 0;
+    do {
+      cursor = database.scan(cursor, 10, (key, value) -> assertThat(keys.add(key), is(true)));
+    } while (cursor != 0);
+
+    assertThat(keys.size(), is(1000));
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import com.github.tonivade.claudb.DBConfig;
+
+public class DatabaseContextTest {
+
+  @Test
+  public void statsPerContext() {
+    DatabaseContext first = new DatabaseContext();
+    DatabaseContext second = new DatabaseContext();
+
+    new OnHeapDatabaseFactory(first).create("test").put(safeKey("a"), string("1"));
+
+    assertThat(first.getSharedValues().getHits(), is(1L));
+    assertThat(second.getSharedValues().getHits(), is(0L));
+  }
+
+  @Test
+  public void notSharedWhenAccessIsTracked() {
+    DatabaseContext context = new DatabaseContext(
+        DBConfig.builder().withMaxMemory(1024 * 1024, MaxMemoryPolicy.ALLKEYS_LRU).build());
+    Database database = new OnHeapDatabaseFactory(context).create("test");
+    Database other = new OnHeapDatabaseFactory().create("test");
+
+    database.put(safeKey("a"), string("1"));
+    other.put(safeKey("a"), string("1"));
+
+    assertThat(database.get(safeKey("a")).isShared(), is(false));
+    assertThat(database.get(safeKey("a")), is(string("1")));
+    assertThat(other.get(safeKey("a")).isShared(), is(true));
+  }
+
+  @Test
+  public void collectionTakesTheEncodingOfTheDatabase() {
+    DatabaseContext context = new DatabaseContext(DBConfig.builder().withSetMaxIntsetEntries(2).build());
+    Database database = new OnHeapDatabaseFactory(context).create("test");
+
+    // created with the default limits
+    database.put(safeKey("a"), DatabaseValue.set(safeString("1"), safeString("2"), safeString("3")));
+
+    assertThat(database.get(safeKey("a")).getSet().size(), is(3));
+    assertThat(database.compute(safeKey("a"), (key, value) -> value.updateSet(members -> {
+      assertThat(((CompactSet) members).isCompact(), is(false));
+    })).getSet().size(), is(3));
+  }
+}
@@ -13,6 +13,9 @@ import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.claudb.data.DatabaseValue.zset;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -59,6 +62,18 @@ public class DatabaseValueTest {
     assertThat(expiredValue.timeToLiveSeconds(expired), is(-1));
   }
 
+  @Test
+  public void testExpiredAtMillis() {
+    DatabaseValue value = string("hola").expiredAtMillis(1000L);
+
+    assertThat(value.isVolatile(), is(true));
+    assertThat(value.getExpiredAt(), is(Instant.ofEpochMilli(1000L)));
+    assertThat(value.isExpired(1000L), is(false));
+    assertThat(value.isExpired(1001L), is(true));
+    assertThat(value.noExpire().isVolatile(), is(false));
+    assertThat(value.noExpire().getExpiredAt(), is(nullValue()));
+  }
+
   @Test
   public void getValue() {
     assertThat(string("hola").getString(), is(safeString("hola")));
@@ -78,6 +93,88 @@ public class DatabaseValueTest {
     sortedSet.add(score(1.0, safeString("d")));
   }
 
+  @Test
+  public void updateInPlace() {
+    DatabaseValue value = list(safeString("a"));
+
+    DatabaseValue result = value.updateList(list -> list.add(safeString("b")));
+
+    assertThat(result, sameInstance(value));
+    assertThat(value, equalTo(list(safeString("a"), safeString("b"))));
+  }
+
+  @Test
+  public void updateSharedValue() {
+    DatabaseValue result = DatabaseValue.EMPTY_SET.updateSet(set -> set.add(safeString("a")));
+
+    assertThat(result, equalTo(set(safeString("a"))));
+    assertThat(DatabaseValue.EMPTY_SET.size(), is(0));
+  }
+
+  @Test
+  public void updateToEmpty() {
+    DatabaseValue value = hash(entry(safeString("key"), safeString("value")));
+
+    assertThat(value.updateHash(hash -> hash.remove(safeString("key"))), nullValue());
+  }
+
+  @Test
+  public void copyIsIndependent() {
+    DatabaseValue value = zset(score(1.0, safeString("a")));
+
+    DatabaseValue copy = value.copy();
+    copy.updateSortedSet(zset -> zset.add(score(2.0, safeString("b"))));
+
+    assertThat(value.size(), is(1));
+    assertThat(copy.size(), is(2));
+  }
+
+  @Test
+  public void integerEncoding() {
+    DatabaseValue value = string("10");
+
+    assertThat(value.isInteger(), is(true));
+    assertThat(value.getString(), equalTo(safeString("10")));
+    assertThat(string("010").isInteger(), is(false));
+    assertThat(string("abc").isInteger(), is(false));
+  }
+
+  @Test
+  public void incrementInPlace() {
+    DatabaseValue value = string("100000");
+
+    assertThat(value.incrementBy(Long.MAX_VALUE - 100000), sameInstance(value));
+    assertThat(value.getInteger(), is(Long.MAX_VALUE));
+  }
+
+  @Test(expected = ArithmeticException.class)
+  public void incrementOverflow() {
+    string(String.valueOf(Long.MAX_VALUE)).incrementBy(1);
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void incrementNotInteger() {
+    string("abc").incrementBy(1);
+  }
+
+  @Test
+  public void sharedValues() {
+    assertThat(string("1"), sameInstance(string("1")));
+    assertThat(string("OK"), sameInstance(string("OK")));
+    assertThat(string("10000"), not(sameInstance(string("10000"))));
+  }
+
+  @Test
+  public void incrementSharedValue() {
+    DatabaseValue value = string("1");
+
+    DatabaseValue incremented = value.incrementBy(1);
+
+    assertThat(incremented, not(sameInstance(value)));
+    assertThat(incremented.getInteger(), is(2L));
+    assertThat(string("1").getInteger(), is(1L));
+  }
+
   @Test
   public void serializableTest() throws IOException, ClassNotFoundException {
     verifySerializable(list(safeString("hello world!")));
@@ -85,6 +182,18 @@ public class DatabaseValueTest {
     verifySerializable(hash(entry(safeString("key"), safeString("value"))));
     verifySerializable(zset(score(1., safeString("value"))));
     verifySerializable(string("hello world!"));
+    verifySerializable(string("1234"));
+  }
+
+  @Test
+  public void serializablePromotedSet() throws IOException, ClassNotFoundException {
+    DatabaseValue value = set(safeString("a"));
+    for (int i = 0; i < 1000; i++) {
+      SafeString member = safeString("member" + i);
+      value = value.updateSet(set -> set.add(member));
+    }
+
+    verifySerializable(value);
   }
 
   private void verifySerializable(DatabaseValue value) throws IOException, ClassNotFoundException {
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.time.Instant;
+
+import org.junit.Test;
+
+public class EvictionTest {
+
+  @Test
+  public void idleTime() {
+    int tenSecondsAgo = (int) (CoarseClock.millis() / 1000 - 10) & 0xFFFFFF;
+
+    assertThat(Eviction.idleTime(tenSecondsAgo), greaterThanOrEqualTo(10L));
+    assertThat(Eviction.idleTime(tenSecondsAgo), lessThanOrEqualTo(11L));
+  }
+
+  @Test
+  public void frequencyDecay() {
+    int minutes = (int) (CoarseClock.millis() / 60000);
+    int now = ((minutes & 0xFFFF) << 8) | 20;
+    int threeMinutesAgo = (((minutes - 3) & 0xFFFF) << 8) | 20;
+    int longAgo = (((minutes - 100) & 0xFFFF) << 8) | 20;
+
+    assertThat(Eviction.frequency(now), greaterThanOrEqualTo(19));
+    assertThat(Eviction.frequency(threeMinutesAgo), lessThanOrEqualTo(17));
+    assertThat(Eviction.frequency(longAgo), is(0));
+  }
+
+  @Test
+  public void volatileTtlScore() {
+    DatabaseValue sooner = string("a").expiredAt(Instant.ofEpochMilli(1000));
+    DatabaseValue later = string("a").expiredAt(Instant.ofEpochMilli(2000));
+
+    assertThat(Eviction.score(MaxMemoryPolicy.VOLATILE_TTL, sooner),
+        greaterThan(Eviction.score(MaxMemoryPolicy.VOLATILE_TTL, later)));
+  }
+
+  @Test
+  public void policyFromText() {
+    assertThat(MaxMemoryPolicy.from("allkeys-lru"), is(MaxMemoryPolicy.ALLKEYS_LRU));
+    assertThat(MaxMemoryPolicy.from("VOLATILE-TTL"), is(MaxMemoryPolicy.VOLATILE_TTL));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidPolicy() {
+    MaxMemoryPolicy.from("allkeys-nothing");
+  }
+}
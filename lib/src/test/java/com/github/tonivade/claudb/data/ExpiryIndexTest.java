@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+
+import org.junit.Test;
+
+public class ExpiryIndexTest {
+
+  private final ExpiryIndex index = new ExpiryIndex();
+
+  @Test
+  public void pollExpired() {
+    index.update(safeKey("a"), string("1").expiredAt(Instant.ofEpochMilli(30)));
+    index.update(safeKey("b"), string("1").expiredAt(Instant.ofEpochMilli(10)));
+    index.update(safeKey("c"), string("1").expiredAt(Instant.ofEpochMilli(20)));
+    index.update(safeKey("d"), string("1"));
+
+    assertThat(index.size(), is(3));
+    assertThat(index.pollExpired(Instant.ofEpochMilli(25)), is(asList(safeKey("b"), safeKey("c"))));
+    assertThat(index.size(), is(1));
+    assertThat(index.pollExpired(Instant.ofEpochMilli(25)), is(emptyList()));
+  }
+
+  @Test
+  public void updateAndRemove() {
+    index.update(safeKey("a"), string("1").expiredAt(Instant.ofEpochMilli(10)));
+    index.update(safeKey("a"), string("1").expiredAt(Instant.ofEpochMilli(30)));
+    index.update(safeKey("b"), string("1").expiredAt(Instant.ofEpochMilli(10)));
+    index.remove(safeKey("b"));
+    index.update(safeKey("c"), string("1").expiredAt(Instant.ofEpochMilli(10)));
+    index.update(safeKey("c"), string("1"));
+
+    assertThat(index.size(), is(1));
+    assertThat(index.pollExpired(Instant.ofEpochMilli(20)), is(emptyList()));
+    assertThat(index.pollExpired(Instant.ofEpochMilli(40)), is(asList(safeKey("a"))));
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class HashCursorTest {
+
+  @Test
+  public void bucketsInReversedOrder() {
+    List<Integer> buckets = new ArrayList<>();
+    int bucket = 0;
+    do {
+      buckets.add(bucket);
+      bucket = HashCursor.next(bucket, 7);
+    } while (bucket != 0);
+
+    assertThat(buckets, contains(0, 4, 2, 6, 1, 5, 3, 7));
+  }
+
+  @Test
+  public void stopsAfterCount() {
+    List<Integer> visited = new ArrayList<>();
+
+    long cursor = HashCursor.scan(0, 2, 7, bucket -> {
+      visited.add(bucket);
+      return 1;
+    });
+
+    assertThat(visited, contains(0, 4));
+    assertThat(cursor, is(2L));
+  }
+
+  @Test
+  public void stopsAfterEmptyBuckets() {
+    List<Integer> visited = new ArrayList<>();
+
+    long cursor = HashCursor.scan(0, 1, 1023, bucket -> {
+      visited.add(bucket);
+      return 0;
+    });
+
+    assertThat(visited.size(), is(10));
+    assertThat(cursor, is((long) visited.get(9)));
+  }
+
+  @Test
+  public void scanSlotsOfProbeRuns() {
+    // slot 1 holds an element of home 0 moved by a collision
+    int[] hashes = { 8, 16, 0, 3 };
+    boolean[] full = { true, true, false, true };
+    List<Integer> visited = new ArrayList<>();
+
+    long cursor = HashCursor.scanSlots(0, 10, 4, slot -> full[slot], slot -> hashes[slot], visited::add);
+
+    assertThat(visited, containsInAnyOrder(0, 1, 3));
+    assertThat(cursor, is(0L));
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class LargeHashTest {
+
+  @Test
+  public void putGetRemove() {
+    LargeHash hash = new LargeHash(false);
+
+    assertThat(hash.put(safeString("a"), safeString("1")), nullValue());
+    assertThat(hash.put(safeString("a"), safeString("2")), is(safeString("1")));
+    assertThat(hash.put(safeString("a"), safeString("longer")), is(safeString("2")));
+
+    assertThat(hash.get(safeString("a")), is(safeString("longer")));
+    assertThat(hash.containsKey(safeString("b")), is(false));
+    assertThat(hash.remove(safeString("a")), is(safeString("longer")));
+    assertThat(hash.remove(safeString("a")), nullValue());
+    assertThat(hash.isEmpty(), is(true));
+  }
+
+  @Test
+  public void incrementalRehash() {
+    LargeHash hash = new LargeHash(false);
+    Map<SafeString, SafeString> expected = new HashMap<>();
+
+    boolean rehashed = false;
+    for (int i = 0; i < 100000; i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+      expected.put(safeString("field" + i), safeString("value" + i));
+      rehashed |= hash.isRehashing();
+      if (hash.isRehashing()) {
+        // fields are found while the table is rehashed
+        assertThat(hash.get(safeString("field" + i / 2)), is(safeString("value" + i / 2)));
+      }
+    }
+
+    assertThat(rehashed, is(true));
+    assertThat(hash.size(), is(100000));
+    assertThat(hash, is(expected));
+  }
+
+  @Test
+  public void removeAndShrink() {
+    LargeHash hash = new LargeHash(true);
+    for (int i = 0; i < 10000; i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+    }
+    long usage = hash.memoryUsage();
+
+    for (int i = 0; i < 10000; i++) {
+      if (i % 100 != 0) {
+        assertThat(hash.remove(safeString("field" + i)), is(safeString("value" + i)));
+      }
+    }
+    for (int i = 0; i < 1000; i++) {
+      hash.put(safeString("other" + i), safeString("value" + i));
+    }
+
+    assertThat(hash.size(), is(1100));
+    assertThat(hash.get(safeString("field500")), is(safeString("value500")));
+    assertThat(hash.get(safeString("field501")), nullValue());
+    assertThat(hash.memoryUsage(), lessThan(usage));
+  }
+
+  @Test
+  public void scan() {
+    LargeHash hash = new LargeHash(false);
+    for (int i = 0; i < 1000; i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+    }
+
+    Map<SafeString, SafeString> scanned = new HashMap<>();
+    long cursor = 0;
+    do {
+      cursor = hash.scan(cursor, 10, (field, value) -> assertThat(scanned.put(field, value), nullValue()));
+      // the table grows in the middle of the scan
+      hash.put(safeString("new" + cursor), safeString("value"));
+    } while (cursor != 0);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(scanned.get(safeString("field" + i)), is(safeString("value" + i)));
+    }
+  }
+
+  @Test
+  public void iteratorRemove() {
+    LargeHash hash = new LargeHash(false);
+    for (int i = 0; i < 100; i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+    }
+
+    Iterator<Map.Entry<SafeString, SafeString>> iterator = hash.entrySet().iterator();
+    while (iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+
+    assertThat(hash.isEmpty(), is(true));
+    assertThat(hash.get(safeString("field1")), nullValue());
+  }
+
+  @Test
+  public void copyWhileRehashing() {
+    LargeHash hash = new LargeHash(false);
+    Map<SafeString, SafeString> expected = new HashMap<>();
+    for (int i = 0; hash.size() < 5000 || !hash.isRehashing(); i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+      expected.put(safeString("field" + i), safeString("value" + i));
+    }
+    Map<SafeString, SafeString> copied = new HashMap<>(expected);
+
+    LargeHash copy = new LargeHash(hash);
+    for (int i = 0; i < 3000; i++) {
+      // values of the same length are replaced in place when the slab is not shared
+      copy.put(safeString("field" + i), safeString("other" + i));
+      copied.put(safeString("field" + i), safeString("other" + i));
+      copy.remove(safeString("field" + (i + 3000)));
+      copied.remove(safeString("field" + (i + 3000)));
+      hash.put(safeString("new" + i), safeString("value" + i));
+      expected.put(safeString("new" + i), safeString("value" + i));
+    }
+
+    assertThat(copy, is(copied));
+    assertThat(hash, is(expected));
+  }
+
+  @Test
+  public void serialization() throws IOException, ClassNotFoundException {
+    LargeHash hash = new LargeHash(false);
+    for (int i = 0; i < 1000; i++) {
+      hash.put(safeString("field" + i), safeString("value" + i));
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ObjectOutputStream objects = new ObjectOutputStream(output)) {
+      objects.writeObject(hash);
+    }
+    try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+      assertThat(objects.readObject(), is(hash));
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class LinkedScanHashMapTest {
+
+  @Test
+  public void eldestInAccessOrder() {
+    LinkedScanHashMap<String, Integer> map = new LinkedScanHashMap<>();
+    map.put("a", 1);
+    map.put("b", 2);
+    map.put("c", 3);
+
+    assertThat(map.eldestKey(), is("a"));
+
+    map.get("a");
+
+    assertThat(map.eldestKey(), is("b"));
+
+    map.put("b", 4);
+    map.remove("c");
+
+    assertThat(map.eldestKey(), is("a"));
+
+    map.clear();
+
+    assertThat(map.eldestKey(), nullValue());
+  }
+
+  @Test
+  public void scanDoesNotChangeTheOrder() {
+    LinkedScanHashMap<String, Integer> map = new LinkedScanHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put("key" + i, i);
+    }
+
+    Set<String> scanned = new HashSet<>();
+    long cursor = 0;
+    do {
+      cursor = map.scan(cursor, 10, (key, value) -> scanned.add(key));
+    } while (cursor != 0);
+
+    assertThat(scanned.size(), is(100));
+    assertThat(map.eldestKey(), is("key0"));
+  }
+}
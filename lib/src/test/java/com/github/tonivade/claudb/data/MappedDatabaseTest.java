@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.github.tonivade.purefun.Tuple;
+import com.github.tonivade.purefun.Tuple2;
+
+public class MappedDatabaseTest {
+
+  private static final int REGION_SIZE = 64 * 1024;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private Path directory;
+  private MappedDatabase database;
+
+  @Before
+  public void setUp() {
+    directory = folder.getRoot().toPath();
+    database = new MappedDatabase(directory, "test", REGION_SIZE);
+  }
+
+  @After
+  public void tearDown() {
+    database.close();
+  }
+
+  @Test
+  public void putAndGet() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), list(safeString("x"), safeString("y")));
+    database.put(safeKey("a"), string("2"));
+
+    assertThat(database.size(), is(2));
+    assertThat(database.get(safeKey("a")), is(string("2")));
+    assertThat(database.get(safeKey("b")), is(list(safeString("x"), safeString("y"))));
+    assertThat(database.read(safeKey("b"), DatabaseValue.EMPTY_LIST, value -> value.getListElement(1)),
+               is(safeString("y")));
+    assertThat(database.get(safeKey("c")), nullValue());
+  }
+
+  @Test
+  public void remove() {
+    for (int i = 0; i < 500; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    for (int i = 0; i < 500; i += 2) {
+      assertThat(database.remove(safeKey("key" + i)), is(string("value" + i)));
+    }
+
+    assertThat(database.size(), is(250));
+    for (int i = 0; i < 500; i++) {
+      assertThat(database.containsKey(safeKey("key" + i)), is(i % 2 != 0));
+    }
+  }
+
+  @Test
+  public void resize() {
+    for (int i = 0; i < 5000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(database.size(), is(5000));
+    for (int i = 0; i < 5000; i++) {
+      assertThat(database.get(safeKey("key" + i)), is(string("value" + i)));
+    }
+  }
+
+  @Test
+  public void compaction() {
+    database.put(safeKey("other"), string("1"));
+    for (int i = 0; i < 3000; i++) {
+      database.put(safeKey("key"), string(repeat('a', 1000) + i));
+    }
+
+    assertThat(database.size(), is(2));
+    assertThat(database.get(safeKey("key")), is(string(repeat('a', 1000) + 2999)));
+    assertThat(database.get(safeKey("other")), is(string("1")));
+    assertThat(dataFiles(), is(1));
+  }
+
+  @Test
+  public void captureWhileCompacted() {
+    database.put(safeKey("other"), string("1"));
+    database.put(safeKey("key"), string("a"));
+    Snapshot.Entries entries = database.capture();
+
+    for (int i = 0; i < 3000; i++) {
+      database.put(safeKey("key"), string(repeat('a', 1000) + i));
+    }
+    database.clear();
+
+    Set<Tuple2<DatabaseKey, DatabaseValue>> captured = new HashSet<>();
+    entries.forEach((key, value) -> captured.add(Tuple.of(key, value)));
+    assertThat(captured, containsInAnyOrder(Tuple.of(safeKey("other"), string("1")), Tuple.of(safeKey("key"), string("a"))));
+  }
+
+  @Test
+  public void reopen() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), hash(Tuple.of(safeString("field"), safeString("value"))));
+    database.put(safeKey("c"), string("3").expiredAt(Instant.now().plusSeconds(3600)));
+    database.close();
+
+    database = new MappedDatabase(directory, "test", REGION_SIZE);
+
+    assertThat(database.size(), is(3));
+    assertThat(database.get(safeKey("a")), is(string("1")));
+    assertThat(database.read(safeKey("b"), DatabaseValue.EMPTY_HASH, value -> value.getHashField(safeString("field"))),
+               is(safeString("value")));
+    assertThat(database.sample(1, true).get(0).get1(), is(safeKey("c")));
+    assertThat(database.evictExpired(Instant.now().plusSeconds(7200), 10), is(Tuple.of(1, 1)));
+    assertThat(database.size(), is(2));
+  }
+
+  @Test
+  public void clear() {
+    database.put(safeKey("a"), string("1"));
+    database.clear();
+
+    assertThat(database.isEmpty(), is(true));
+    assertThat(database.get(safeKey("a")), nullValue());
+    assertThat(dataFiles(), is(1));
+  }
+
+  @Test
+  public void forEach() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(database.entrySet(), containsInAnyOrder(Tuple.of(safeKey("a"), string("1")),
+                                                       Tuple.of(safeKey("b"), string("2"))));
+  }
+
+  @Test
+  public void scanWhileRemoved() {
+    for (int i = 0; i < 100; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    Set<DatabaseKey> visited = new HashSet<>();
+    long cursor = 0;
+    do {
+      List<DatabaseKey> keys = new ArrayList<>();
+      cursor = database.scan(cursor, 10, (key, value) -> keys.add(key));
+      keys.forEach(database::remove);
+      visited.addAll(keys);
+    } while (cursor != 0);
+
+    assertThat(visited.size(), is(100));
+    assertThat(database.isEmpty(), is(true));
+  }
+
+  private int dataFiles() {
+    File[] files = directory.toFile().listFiles((dir, name) -> name.endsWith(".data"));
+    return files.length;
+  }
+
+  private static String repeat(char c, int times) {
+    StringBuilder builder = new StringBuilder(times);
+    for (int i = 0; i < times; i++) {
+      builder.append(c);
+    }
+    return builder.toString();
+  }
+}
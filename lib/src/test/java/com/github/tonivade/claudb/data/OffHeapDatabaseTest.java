@@ -5,17 +5,35 @@
 package com.github.tonivade.claudb.data;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.hash;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
+import static com.github.tonivade.claudb.data.DatabaseValue.score;
+import static com.github.tonivade.claudb.data.DatabaseValue.set;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.claudb.data.DatabaseValue.zset;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.Before;
 import org.junit.Test;
+import com.github.tonivade.claudb.DBConfig;
 import com.github.tonivade.purefun.Tuple;
 import com.github.tonivade.purefun.Tuple2;
+import com.github.tonivade.resp.protocol.SafeString;
 
 public class OffHeapDatabaseTest {
 
-  private Database database = new OffHeapDatabaseFactory().create("test");
+  private final DatabaseContext context = new DatabaseContext();
+  private Database database = new OffHeapDatabaseFactory(context).create("test");
 
   @Before
   public void setUp() {
@@ -51,6 +69,267 @@ public class OffHeapDatabaseTest {
                                                        entry(safeKey("c"), string("3"))));
   }
 
+  @Test
+  public void serializedValues() {
+    List<Tuple2<SafeString, SafeString>> fields = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      fields.add(Tuple.of(safeString("field" + i), safeString("value" + i)));
+    }
+    DatabaseValue hash = hash(fields);
+    DatabaseValue list = list(safeString("a"), safeString("b"), safeString("c"));
+    DatabaseValue set = set(safeString("a"), safeString("b"));
+    DatabaseValue zset = zset(score(1.0, safeString("a")), score(2.5, safeString("b")));
+    DatabaseValue string = string("hola").expiredAt(3600);
+
+    database.put(safeKey("hash"), hash);
+    database.put(safeKey("list"), list);
+    database.put(safeKey("set"), set);
+    database.put(safeKey("zset"), zset);
+    database.put(safeKey("string"), string);
+
+    assertThat(database.get(safeKey("hash")), is(hash));
+    assertThat(database.get(safeKey("list")), is(list));
+    assertThat(database.get(safeKey("set")), is(set));
+    assertThat(database.get(safeKey("zset")), is(zset));
+    assertThat(database.get(safeKey("string")), is(string));
+    assertThat(database.get(safeKey("string")).getExpiredAtMillis(), is(string.getExpiredAtMillis()));
+  }
+
+  @Test
+  public void readHash() {
+    List<Tuple2<SafeString, SafeString>> fields = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      fields.add(Tuple.of(safeString("field" + i), safeString("value" + i)));
+    }
+    database.put(safeKey("a"), hash(fields));
+
+    assertThat(database.read(safeKey("a"), DatabaseValue.EMPTY_HASH, ValueView::size), is(100));
+    assertThat(database.read(safeKey("a"), DatabaseValue.EMPTY_HASH,
+        hash -> hash.getHashField(safeString("field42"))), is(safeString("value42")));
+    assertThat(database.read(safeKey("a"), DatabaseValue.EMPTY_HASH,
+        hash -> hash.getHashField(safeString("field100"))), nullValue());
+    assertThat(database.read(safeKey("b"), DatabaseValue.EMPTY_HASH, ValueView::size), is(0));
+  }
+
+  @Test
+  public void scanSerializedValues() {
+    List<SafeString> members = new ArrayList<>();
+    List<Tuple2<SafeString, SafeString>> fields = new ArrayList<>();
+    List<Map.Entry<Double, SafeString>> scores = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      members.add(safeString("member" + i));
+      fields.add(Tuple.of(safeString("field" + i), safeString("value" + i)));
+      scores.add(score(i, safeString("member" + i)));
+    }
+    database.put(safeKey("set"), set(members));
+    database.put(safeKey("hash"), hash(fields));
+    database.put(safeKey("zset"), zset(scores));
+
+    Set<SafeString> scannedMembers = new HashSet<>();
+    Map<SafeString, SafeString> scannedFields = new HashMap<>();
+    Map<SafeString, Double> scannedScores = new HashMap<>();
+    long cursor = 0;
+    do {
+      long current = cursor;
+      cursor = database.read(safeKey("set"), DatabaseValue.EMPTY_SET,
+          set -> set.scanSet(current, 10, scannedMembers::add));
+    } while (cursor != 0);
+    do {
+      long current = cursor;
+      cursor = database.read(safeKey("hash"), DatabaseValue.EMPTY_HASH,
+          hash -> hash.scanHash(current, 10, scannedFields::put));
+    } while (cursor != 0);
+    do {
+      long current = cursor;
+      cursor = database.read(safeKey("zset"), DatabaseValue.EMPTY_ZSET,
+          zset -> zset.scanSortedSet(current, 10, scannedScores::put));
+    } while (cursor != 0);
+
+    assertThat(scannedMembers.size(), is(100));
+    assertThat(scannedFields.size(), is(100));
+    assertThat(scannedFields.get(safeString("field42")), is(safeString("value42")));
+    assertThat(scannedScores.size(), is(100));
+    assertThat(scannedScores.get(safeString("member42")), is(42.0));
+  }
+
+  @Test
+  public void scanWhileRemoved() {
+    for (int i = 0; i < 1000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    long cursor = 0;
+    do {
+      cursor = database.scan(cursor, 10, (key, value) -> keys.add(key));
+      for (DatabaseKey key : keys) {
+        database.remove(key);
+      }
+    } while (cursor != 0);
+
+    assertThat(keys.size(), is(1000));
+    assertThat(context.getUsedMemory(), is(database.usedMemory()));
+  }
+
+  @Test
+  public void readValues() {
+    database.put(safeKey("list"), list(safeString("a"), safeString("b"), safeString("c")));
+    database.put(safeKey("set"), set(safeString("a"), safeString("b")));
+    database.put(safeKey("string"), string("hola"));
+
+    assertThat(database.read(safeKey("list"), null, list -> list.getListElement(2)), is(safeString("c")));
+    assertThat(database.read(safeKey("list"), null, list -> list.getListElement(3)), nullValue());
+    assertThat(database.read(safeKey("set"), null, set -> set.hasSetMember(safeString("b"))), is(true));
+    assertThat(database.read(safeKey("set"), null, set -> set.hasSetMember(safeString("c"))), is(false));
+    assertThat(database.read(safeKey("string"), null, ValueView::getStringLength), is(4));
+    assertThat(database.isType(safeKey("set"), DataType.SET), is(true));
+    assertThat(database.isType(safeKey("set"), DataType.HASH), is(false));
+  }
+
+  @Test
+  public void readExpired() {
+    database.put(safeKey("a"), string("hola").expiredAt(Instant.ofEpochMilli(1)));
+
+    assertThat(database.read(safeKey("a"), DatabaseValue.EMPTY_STRING, ValueView::getStringLength), is(0));
+    assertThat(database.size(), is(0));
+  }
+
+  @Test
+  public void forEach() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+    database.put(safeKey("c"), string("3").expiredAt(Instant.ofEpochMilli(1)));
+
+    List<Tuple2<DatabaseKey, DatabaseValue>> entries = new ArrayList<>();
+    database.forEach((key, value) -> entries.add(entry(key, value)));
+
+    assertThat(entries, containsInAnyOrder(entry(safeKey("a"), string("1")),
+                                           entry(safeKey("b"), string("2")),
+                                           entry(safeKey("c"), string("3").expiredAt(Instant.ofEpochMilli(1)))));
+  }
+
+  @Test
+  public void configured() {
+    DBConfig config = DBConfig.builder()
+        .withOffHeapSegments(4, 64)
+        .withOffHeapCapacity(1024 * 1024)
+        .build();
+    Database configured = new OffHeapDatabaseFactory(config).create("test");
+
+    for (int i = 0; i < 1000; i++) {
+      configured.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(configured.size(), is(1000));
+    assertThat(configured.get(safeKey("key500")), is(string("value500")));
+  }
+
+  @Test
+  public void writeFailsWhenFull() {
+    DBConfig config = DBConfig.builder()
+        .withOffHeapSegments(1, 64)
+        .withOffHeapCapacity(64 * 1024)
+        .build();
+    Database configured = new OffHeapDatabaseFactory(config).create("test");
+
+    int written = 0;
+    try {
+      for (; written < 10000; written++) {
+        configured.put(safeKey("key" + written), string("value" + written));
+      }
+    } catch (IllegalStateException e) {
+      // capacity reached
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    long cursor = 0;
+    do {
+      cursor = configured.scan(cursor, 100, (key, value) -> keys.add(key));
+    } while (cursor != 0);
+
+    assertThat(written < 10000, is(true));
+    assertThat(configured.size(), is(written));
+    assertThat(keys.size(), is(written));
+    assertThat(configured.get(safeKey("key0")), is(string("value0")));
+  }
+
+  @Test
+  public void unlink() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2").expiredAt(Instant.ofEpochMilli(1)));
+
+    assertThat(database.unlink(safeKey("a")), is(true));
+    assertThat(database.unlink(safeKey("b")), is(false));
+    assertThat(database.unlink(safeKey("c")), is(false));
+    assertThat(database.isEmpty(), is(true));
+  }
+
+  @Test
+  public void clearLazily() throws InterruptedException {
+    for (int i = 0; i < 1000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    database.clearLazily();
+    database.put(safeKey("a"), string("1"));
+
+    assertThat(database.size(), is(1));
+    assertThat(database.get(safeKey("key1")), nullValue());
+    for (int i = 0; i < 100 && context.getLazyFree().getFreed() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertThat(context.getLazyFree().getFreed(), is(1L));
+    assertThat(context.getUsedMemory(), is(database.usedMemory()));
+  }
+
+  @Test
+  public void sampleEveryKeyOncePerRound() {
+    for (int i = 0; i < 10; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    Set<DatabaseKey> sampled = new HashSet<>();
+    for (int i = 0; i < 5; i++) {
+      database.sample(2, false).forEach(entry -> sampled.add(entry.get1()));
+    }
+
+    assertThat(sampled.size(), is(10));
+    assertThat(database.sample(20, false).size(), is(10));
+  }
+
+  @Test
+  public void usedMemory() {
+    database.put(safeKey("a"), string("1"));
+    database.put(safeKey("b"), string("2"));
+
+    assertThat(context.getUsedMemory(), is(database.usedMemory()));
+
+    database.remove(safeKey("a"));
+
+    assertThat(context.getUsedMemory(), is(database.usedMemory()));
+  }
+
+  @Test
+  public void captureWhileRemoved() {
+    for (int i = 0; i < 100; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+    Snapshot.Entries entries = database.capture();
+
+    for (int i = 0; i < 100; i += 2) {
+      database.remove(safeKey("key" + i));
+      database.put(safeKey("key" + (i + 1)), string("other"));
+    }
+    database.clear();
+
+    Map<DatabaseKey, DatabaseValue> captured = new HashMap<>();
+    entries.forEach(captured::put);
+    entries.release();
+    assertThat(captured.size(), is(100));
+    assertThat(captured.get(safeKey("key0")), is(string("value0")));
+    assertThat(captured.get(safeKey("key1")), is(string("value1")));
+  }
+
   private Tuple2<DatabaseKey, DatabaseValue> entry(DatabaseKey key, DatabaseValue value) {
     return Tuple.of(key, value);
   }
@@ -5,10 +5,15 @@
 package com.github.tonivade.claudb.data;
 
 import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
 import static com.github.tonivade.claudb.data.DatabaseValue.string;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Instant;
+
 import org.junit.Test;
 import com.github.tonivade.purefun.Tuple2;
 import com.github.tonivade.purefun.data.Sequence;
@@ -46,4 +51,52 @@ public class OnHeapDatabaseTest {
     assertThat(entry.get1(), is(safeKey("a")));
     assertThat(entry.get2(), is(string("value")));
   }
+
+  @Test
+  public void testEvictExpired()  {
+    database.put(safeKey("a"), string("value").expiredAt(Instant.ofEpochMilli(10)));
+    database.put(safeKey("b"), string("value").expiredAt(Instant.ofEpochMilli(10)));
+    database.put(safeKey("b"), string("value"));
+    database.put(safeKey("c"), string("value").expiredAt(Instant.ofEpochMilli(30)));
+
+    database.evictExpired(Instant.ofEpochMilli(20));
+
+    assertThat(database.size(), is(2));
+    assertThat(database.containsKey(safeKey("a")), is(false));
+    assertThat(database.containsKey(safeKey("b")), is(true));
+  }
+
+  @Test
+  public void testLookup()  {
+    database.put(safeKey("a"), string("value"));
+    database.put(safeKey("c"), string("value").expiredAt(Instant.ofEpochMilli(10)));
+
+    assertThat(database.lookup(safeString("a")).getString(), is(safeString("value")));
+    assertThat(database.lookup(safeString("b")), is(nullValue()));
+    assertThat(database.lookup(safeString("c")), is(nullValue()));
+    assertThat(database.containsKey(safeKey("c")), is(false));
+    assertThat(safeKey("a").hasValue(safeString("a")), is(true));
+  }
+
+  @Test
+  public void testUsedMemory()  {
+    DatabaseKey key = safeKey("a");
+    database.put(key, list(safeString("1")));
+
+    assertThat(database.usedMemory(), is(entrySize(key)));
+
+    database.merge(key, list(safeString("2")),
+        (oldValue, newValue) -> oldValue.updateList(list -> list.addAll(newValue.getList())));
+
+    assertThat(database.get(key).size(), is(2));
+    assertThat(database.usedMemory(), is(entrySize(key)));
+
+    database.remove(key);
+
+    assertThat(database.usedMemory(), is(0L));
+  }
+
+  private long entrySize(DatabaseKey key) {
+    return MemoryEstimator.HEAP.entrySize(key, database.get(key), MemoryEstimator.DEFAULT_SAMPLES);
+  }
 }
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class PrefixIndexDatabaseTest {
+
+  private final DatabaseContext context = new DatabaseContext();
+  private final PrefixIndexStats stats = context.getPrefixIndexStats();
+  private final PrefixIndexDatabase database =
+      new PrefixIndexDatabase(new OnHeapDatabaseFactory(context).create("test"), context);
+
+  @Test
+  public void forEachWithPrefix() {
+    fill();
+    database.remove(safeKey("session:1:b"));
+    database.rename(safeKey("session:2:a"), safeKey("session:1:c"));
+
+    List<String> keys = new ArrayList<>();
+    database.forEachWithPrefix(safeString("session:1:"), (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys, containsInAnyOrder("session:1:a", "session:1:c"));
+    assertThat(database.indexSize(), is(database.size()));
+  }
+
+  @Test
+  public void scanWithPrefix() {
+    for (int i = 0; i < 100; i++) {
+      database.put(safeKey("user:" + i), string("value"));
+      database.put(safeKey("other:" + i), string("value"));
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    int calls = 0;
+    long cursor = 0;
+    do {
+      cursor = database.scanWithPrefix(safeString("user:"), cursor, 10, (key, value) -> keys.add(key));
+      calls++;
+    } while (cursor != 0);
+
+    assertThat(keys.size(), is(100));
+    assertThat(calls, is(10));
+  }
+
+  @Test
+  public void scanWithPrefixWhileRemoved() {
+    for (int i = 0; i < 100; i++) {
+      database.put(safeKey("user:" + i), string("value"));
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    long cursor = 0;
+    do {
+      List<DatabaseKey> visited = new ArrayList<>();
+      cursor = database.scanWithPrefix(safeString("user:"), cursor, 10, (key, value) -> visited.add(key));
+      visited.forEach(database::remove);
+      keys.addAll(visited);
+    } while (cursor != 0);
+
+    assertThat(keys.size(), is(100));
+    assertThat(database.isEmpty(), is(true));
+  }
+
+  @Test
+  public void scanWithUnknownCursor() {
+    fill();
+
+    List<String> keys = new ArrayList<>();
+    long cursor = database.scanWithPrefix(safeString("session:1:"), 12345, 10,
+        (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys, containsInAnyOrder("session:1:a", "session:1:b"));
+    assertThat(cursor, is(0L));
+  }
+
+  @Test
+  public void scanWithCountZero() {
+    fill();
+
+    List<String> keys = new ArrayList<>();
+    long cursor = 0;
+    do {
+      cursor = database.scanWithPrefix(safeString("session:"), cursor, 0, (key, value) -> keys.add(key.toString()));
+    } while (cursor != 0);
+
+    assertThat(keys, containsInAnyOrder("session:1:a", "session:1:b", "session:2:a", "session:10:a"));
+  }
+
+  @Test
+  public void scanAfterNextKeyRemoved() {
+    fill();
+
+    List<String> keys = new ArrayList<>();
+    long cursor = database.scanWithPrefix(safeString("session:"), 0, 2, (key, value) -> keys.add(key.toString()));
+    database.remove(safeKey("session:1:b"));
+    database.put(safeKey("session:0:a"), string("value"));
+    cursor = database.scanWithPrefix(safeString("session:"), cursor, 10, (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys, containsInAnyOrder("session:1:a", "session:10:a", "session:2:a"));
+    assertThat(cursor, is(0L));
+  }
+
+  @Test
+  public void scanKeysWithLongCommonPart() {
+    for (int i = 0; i < 20; i++) {
+      database.put(safeKey("user:abcdefgh:" + i), string("value"));
+    }
+    database.put(safeKey("user:b"), string("value"));
+
+    List<String> keys = new ArrayList<>();
+    long cursor = database.scanWithPrefix(safeString("user:"), 0, 5, (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys.size(), is(20));
+    assertThat(keys.contains("user:b"), is(false));
+
+    cursor = database.scanWithPrefix(safeString("user:"), cursor, 5, (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys.size(), is(21));
+    assertThat(cursor, is(0L));
+  }
+
+  @Test
+  public void expiredKeysAreUnindexed() {
+    fill();
+    database.put(safeKey("session:1:x"), string("value").expiredAt(Instant.now().minusSeconds(10)));
+    database.evictExpired(Instant.now());
+
+    List<String> keys = new ArrayList<>();
+    database.forEachWithPrefix(safeString("session:1:x"), (key, value) -> keys.add(key.toString()));
+
+    assertThat(keys.isEmpty(), is(true));
+    assertThat(database.indexSize(), is(database.size()));
+  }
+
+  @Test
+  public void clear() {
+    fill();
+    assertThat(stats.getKeys(), is(4L));
+
+    database.clear();
+
+    assertThat(database.indexSize(), is(0));
+    assertThat(stats.getKeys(), is(0L));
+  }
+
+  private void fill() {
+    database.put(safeKey("session:1:a"), string("value"));
+    database.put(safeKey("session:1:b"), string("value"));
+    database.put(safeKey("session:2:a"), string("value"));
+    database.put(safeKey("session:10:a"), string("value"));
+  }
+}
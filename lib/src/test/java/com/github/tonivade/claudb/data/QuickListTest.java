@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.tonivade.resp.protocol.SafeString;
+
+public class QuickListTest {
+
+  @Test
+  public void testPushAndPop() {
+    QuickList list = new QuickList();
+
+    for (int i = 0; i < 1000; i++) {
+      list.add(0, safeString("left" + i));
+      list.add(safeString("right" + i));
+    }
+
+    assertThat(list.size(), is(2000));
+    assertThat(list.get(0), is(safeString("left999")));
+    assertThat(list.get(999), is(safeString("left0")));
+    assertThat(list.get(1000), is(safeString("right0")));
+    assertThat(list.get(1999), is(safeString("right999")));
+
+    for (int i = 999; i >= 0; i--) {
+      assertThat(list.remove(0), is(safeString("left" + i)));
+      assertThat(list.remove(list.size() - 1), is(safeString("right" + i)));
+    }
+
+    assertThat(list.isEmpty(), is(true));
+  }
+
+  @Test
+  public void testSetAndInsert() {
+    QuickList list = new QuickList(values(300));
+
+    list.set(150, safeString("changed"));
+    list.add(200, safeString("inserted"));
+
+    assertThat(list.get(150), is(safeString("changed")));
+    assertThat(list.get(200), is(safeString("inserted")));
+    assertThat(list.get(201), is(safeString("200")));
+    assertThat(list.size(), is(301));
+  }
+
+  @Test
+  public void testRange() {
+    QuickList list = new QuickList(values(500));
+
+    assertThat(list.subList(250, 253), is(Arrays.asList(safeString("250"), safeString("251"), safeString("252"))));
+  }
+
+  @Test
+  public void testIterator() {
+    QuickList list = new QuickList(values(500));
+
+    Iterator<SafeString> iterator = list.iterator();
+    for (int i = 0; i < 500; i++) {
+      SafeString next = iterator.next();
+      if (i % 2 == 0) {
+        iterator.remove();
+      } else {
+        assertThat(next, is(safeString(String.valueOf(i))));
+      }
+    }
+
+    assertThat(iterator.hasNext(), is(false));
+    assertThat(list.size(), is(250));
+    assertThat(list.get(0), is(safeString("1")));
+  }
+
+  @Test
+  public void testSameAsArrayList() {
+    Random random = new Random(1);
+    List<SafeString> expected = new ArrayList<>();
+    QuickList list = new QuickList();
+
+    for (int i = 0; i < 10000; i++) {
+      SafeString value = safeString(String.valueOf(i));
+      int operation = random.nextInt(4);
+      if (operation == 0 || expected.isEmpty()) {
+        int index = random.nextInt(expected.size() + 1);
+        expected.add(index, value);
+        list.add(index, value);
+      } else if (operation == 1) {
+        int index = random.nextInt(expected.size());
+        assertThat(list.remove(index), is(expected.remove(index)));
+      } else if (operation == 2) {
+        expected.add(0, value);
+        list.add(0, value);
+      } else {
+        expected.add(value);
+        list.add(value);
+      }
+    }
+
+    assertThat(list, is(expected));
+  }
+
+  @Test
+  public void testCopySharesNodes() {
+    Random random = new Random(1);
+    List<SafeString> values = values(5000);
+    List<SafeString> expected = new ArrayList<>(values);
+    QuickList original = new QuickList(values);
+    QuickList list = new QuickList(original);
+
+    for (int i = 0; i < 5000; i++) {
+      SafeString value = safeString("new" + i);
+      int operation = random.nextInt(4);
+      if (operation == 0) {
+        int index = random.nextInt(expected.size() + 1);
+        expected.add(index, value);
+        list.add(index, value);
+      } else if (operation == 1) {
+        int index = random.nextInt(expected.size());
+        assertThat(list.remove(index), is(expected.remove(index)));
+      } else if (operation == 2) {
+        int index = random.nextInt(expected.size());
+        assertThat(list.set(index, value), is(expected.set(index, value)));
+      } else {
+        expected.add(0, value);
+        list.add(0, value);
+      }
+    }
+
+    assertThat(list, is(expected));
+    assertThat(original, is(values));
+  }
+
+  @Test
+  public void testSerializable() throws IOException, ClassNotFoundException {
+    QuickList list = new QuickList(values(1000));
+
+    ByteArrayOutputStream array = new ByteArrayOutputStream();
+    ObjectOutputStream output = new ObjectOutputStream(array);
+    output.writeObject(list);
+    output.flush();
+
+    ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(array.toByteArray()));
+    assertThat(input.readObject(), is(list));
+  }
+
+  private List<SafeString> values(int size) {
+    List<SafeString> values = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      values.add(safeString(String.valueOf(i)));
+    }
+    return values;
+  }
+}
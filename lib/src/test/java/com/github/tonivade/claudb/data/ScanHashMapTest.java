@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ScanHashMapTest {
+
+  @Test
+  public void putGetRemove() {
+    Map<String, Integer> map = new ScanHashMap<>();
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put("key" + i, i);
+      expected.put("key" + i, i);
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      assertThat(map.remove("key" + i), is(i));
+      expected.remove("key" + i);
+    }
+
+    assertThat(map.put("key1", -1), is(1));
+    assertThat(map.get("key0"), nullValue());
+    assertThat(map.size(), is(500));
+    expected.put("key1", -1);
+    assertThat(map, is(expected));
+  }
+
+  @Test
+  public void scanWhileGrowing() {
+    ScanHashMap<String, Integer> map = new ScanHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      map.put("key" + i, i);
+    }
+
+    Set<String> scanned = new HashSet<>();
+    long cursor = 0;
+    int added = 0;
+    do {
+      cursor = map.scan(cursor, 10, (key, value) -> scanned.add(key));
+      // the table is resized twice in the middle of the scan
+      for (int i = 0; i < 10 && added < 3000; i++) {
+        map.put("new" + added++, 0);
+      }
+    } while (cursor != 0);
+
+    for (int i = 0; i < 1000; i++) {
+      assertThat(scanned.contains("key" + i), is(true));
+    }
+  }
+
+  @Test
+  public void scanWhileShrinking() {
+    ScanHashMap<String, Integer> map = new ScanHashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      map.put("key" + i, i);
+    }
+
+    Set<String> scanned = new HashSet<>();
+    long cursor = 0;
+    int removed = 100;
+    do {
+      cursor = map.scan(cursor, 10, (key, value) -> scanned.add(key));
+      for (int i = 0; i < 100 && removed < 10000; i++) {
+        map.remove("key" + removed++);
+      }
+    } while (cursor != 0);
+
+    for (int i = 0; i < 100; i++) {
+      assertThat(scanned.contains("key" + i), is(true));
+    }
+  }
+
+  @Test
+  public void scanTwoMapsWithTheSameCursor() {
+    ScanHashMap<String, Integer> large = new ScanHashMap<>();
+    ScanHashMap<String, Integer> small = new ScanHashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      large.put("key" + i, i);
+    }
+
+    Set<String> scanned = new HashSet<>();
+    long cursor = 0;
+    int moved = 0;
+    do {
+      int mask = Math.min(large.mask(), small.mask());
+      cursor = HashCursor.scan(cursor, 10, mask, bucket ->
+          large.scanBucket(bucket, mask, (key, value) -> scanned.add(key))
+            + small.scanBucket(bucket, mask, (key, value) -> scanned.add(key)));
+      // keys are moved from one map to the other in the middle of the scan
+      for (int i = 0; i < 10 && moved < 1000; i++, moved++) {
+        small.put("key" + moved, large.remove("key" + moved));
+      }
+    } while (cursor != 0);
+
+    assertThat(scanned.size(), is(1000));
+  }
+
+  @Test
+  public void iteratorRemove() {
+    Map<String, Integer> map = new ScanHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put("key" + i, i);
+    }
+
+    Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().getValue() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+
+    assertThat(map.size(), is(50));
+    assertThat(map.get("key1"), is(1));
+    assertThat(map.get("key2"), nullValue());
+  }
+
+  @Test
+  public void copySharesThePagesUntilWritten() {
+    ScanHashMap<String, Integer> map = new ScanHashMap<>();
+    Map<String, Integer> expected = new HashMap<>();
+    for (int i = 0; i < 5000; i++) {
+      map.put("key" + i, i);
+      expected.put("key" + i, i);
+    }
+
+    ScanHashMap<String, Integer> copy = map.copy();
+    for (int i = 0; i < 5000; i += 2) {
+      map.remove("key" + i);
+      map.put("key" + (i + 1), -1);
+    }
+    for (int i = 0; i < 2000; i++) {
+      // grows the copy while it shares pages with the map
+      copy.put("new" + i, i);
+    }
+
+    assertThat(map.size(), is(2500));
+    assertThat(map.get("key1"), is(-1));
+    assertThat(map.get("new1"), nullValue());
+    assertThat(copy.size(), is(7000));
+    for (int i = 0; i < 2000; i++) {
+      expected.put("new" + i, i);
+    }
+    assertThat(copy, is(expected));
+  }
+
+  @Test
+  public void setValueOfSharedEntries() {
+    ScanHashMap<String, Integer> map = new ScanHashMap<>();
+    for (int i = 0; i < 100; i++) {
+      map.put("key" + i, i);
+    }
+
+    ScanHashMap<String, Integer> copy = map.copy();
+    for (Map.Entry<String, Integer> entry : map.entrySet()) {
+      entry.setValue(-entry.getValue());
+    }
+
+    assertThat(map.get("key10"), is(-10));
+    assertThat(copy.get("key10"), is(10));
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.list;
+import static com.github.tonivade.claudb.data.DatabaseValue.number;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+
+public class SnapshotTest {
+
+  private final DatabaseContext context = new DatabaseContext();
+  private final Database database = new OnHeapDatabaseFactory(context).create("test");
+
+  @Test
+  public void valuesAreCopiedOnWrite() {
+    database.put(safeKey("list"), list(safeString("a")));
+    database.put(safeKey("counter"), number(1000000));
+    database.put(safeKey("string"), string("a"));
+
+    Map<DatabaseKey, DatabaseValue> captured;
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+
+      database.merge(safeKey("list"), list(safeString("b")),
+          (oldValue, newValue) -> oldValue.updateList(list -> list.addAll(newValue.getList())));
+      database.merge(safeKey("counter"), number(1), (oldValue, newValue) -> oldValue.incrementBy(1));
+      database.put(safeKey("string"), string("b"));
+      database.put(safeKey("other"), string("c"));
+
+      captured = entries(snapshot);
+    }
+
+    assertThat(captured.size(), is(3));
+    assertThat(captured.get(safeKey("list")), is(list(safeString("a"))));
+    assertThat(captured.get(safeKey("counter")), is(number(1000000)));
+    assertThat(captured.get(safeKey("string")), is(string("a")));
+    assertThat(database.get(safeKey("list")), is(list(safeString("a"), safeString("b"))));
+    assertThat(database.get(safeKey("counter")), is(number(1000001)));
+  }
+
+  @Test
+  public void copiedOnlyOnce() {
+    database.put(safeKey("list"), list(safeString("a")));
+
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+
+      DatabaseValue first = database.get(safeKey("list")).updateList(list -> list.add(safeString("b")));
+      DatabaseValue second = first.updateList(list -> list.add(safeString("c")));
+
+      assertThat(first, not(sameInstance(database.get(safeKey("list")))));
+      assertThat(second, sameInstance(first));
+    }
+
+    DatabaseValue value = database.get(safeKey("list"));
+    assertThat(value.updateList(list -> list.add(safeString("b"))), sameInstance(value));
+  }
+
+  @Test
+  public void expirationKeepsTheValueFrozen() {
+    database.put(safeKey("list"), list(safeString("a")));
+
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+
+      DatabaseValue volatileValue = database.get(safeKey("list")).expiredAt(60);
+      volatileValue.updateList(list -> list.add(safeString("b")));
+
+      assertThat(entries(snapshot).get(safeKey("list")), is(list(safeString("a"))));
+    }
+  }
+
+  @Test
+  public void keysChangedAfterTheCapture() {
+    keysChangedAfterTheCapture(database);
+    keysChangedAfterTheCapture(new ConcurrentOnHeapDatabaseFactory(new DatabaseContext()).create("test"));
+  }
+
+  private void keysChangedAfterTheCapture(Database database) {
+    for (int i = 0; i < 3000; i++) {
+      database.put(safeKey("key" + i), string("a"));
+    }
+
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+
+      for (int i = 0; i < 3000; i += 2) {
+        database.remove(safeKey("key" + i));
+        database.put(safeKey("new" + i), string("b"));
+      }
+
+      Map<DatabaseKey, DatabaseValue> captured = entries(snapshot);
+      assertThat(snapshot.getDatabases().get(0).size(), is(3000));
+      assertThat(captured.size(), is(3000));
+      assertThat(captured.get(safeKey("key0")), is(string("a")));
+      assertThat(captured.containsKey(safeKey("new0")), is(false));
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void onlyOneOpen() {
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      Snapshot.open(context);
+    }
+  }
+
+  @Test
+  public void oneOpenByContext() {
+    database.put(safeKey("list"), list(safeString("a")));
+
+    try (Snapshot snapshot = Snapshot.open(context)) {
+      snapshot.add(0, database);
+      Snapshot.open(new DatabaseContext()).close();
+
+      database.get(safeKey("list")).updateList(list -> list.add(safeString("b")));
+
+      assertThat(entries(snapshot).get(safeKey("list")), is(list(safeString("a"))));
+    }
+  }
+
+  private static Map<DatabaseKey, DatabaseValue> entries(Snapshot snapshot) {
+    Map<DatabaseKey, DatabaseValue> entries = new HashMap<>();
+    snapshot.getDatabases().get(0).forEach(entries::put);
+    return entries;
+  }
+}
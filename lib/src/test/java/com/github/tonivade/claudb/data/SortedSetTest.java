@@ -6,12 +6,23 @@ package com.github.tonivade.claudb.data;
 
 import static com.github.tonivade.claudb.data.DatabaseValue.score;
 import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableSet;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeSet;
 import org.junit.Test;
 
+import com.github.tonivade.resp.protocol.SafeString;
+
 public class SortedSetTest {
 
   @Test
@@ -79,4 +90,115 @@ public class SortedSetTest {
 
     assertThat(set.headSet(score(4, safeString(""))).last(), is(score(3.0, safeString("c"))));
   }
+
+  @Test
+  public void testRange() {
+    SortedSet set = new SortedSet();
+    for (int i = 0; i < 1000; i++) {
+      set.add(score(i, safeString("m" + i)));
+    }
+
+    assertThat(set.ranking(safeString("m500")), is(500));
+    assertThat(set.range(10, 12),
+        is(asList(score(10.0, safeString("m10")), score(11.0, safeString("m11")), score(12.0, safeString("m12")))));
+    assertThat(set.range(998, 2000).size(), is(2));
+    assertThat(set.rangeByScore(100, false, 200, true, 5, 2),
+        is(asList(score(106.0, safeString("m106")), score(107.0, safeString("m107")))));
+    assertThat(set.rangeByScore(990, true, Double.POSITIVE_INFINITY, true, 0, -1).size(), is(10));
+  }
+
+  @Test
+  public void testRankingAfterRemove() {
+    SortedSet set = new SortedSet();
+    Random random = new Random(1);
+    List<Integer> values = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      values.add(i);
+    }
+    Collections.shuffle(values, random);
+    for (Integer value : values) {
+      set.add(score(value, safeString("m" + value)));
+    }
+    for (int i = 0; i < 1000; i += 2) {
+      set.remove(score(0, safeString("m" + i)));
+    }
+
+    assertThat(set.size(), is(500));
+    assertThat(set.first(), is(score(1.0, safeString("m1"))));
+    assertThat(set.last(), is(score(999.0, safeString("m999"))));
+    for (int i = 1; i < 1000; i += 2) {
+      assertThat(set.ranking(safeString("m" + i)), is(i / 2));
+    }
+  }
+
+  @Test
+  public void testCompact() {
+    SortedSet compact = new SortedSet();
+    SortedSet promoted = new SortedSet();
+    for (int i = 0; i < 200; i++) {
+      promoted.add(score(i, safeString("m" + i)));
+    }
+    for (int i = 0; i < 10; i++) {
+      compact.add(score(10 - i, safeString("m" + (10 - i))));
+      promoted.remove(score(0, safeString("m" + (i + 100))));
+    }
+
+    assertThat(compact.isCompact(), is(true));
+    assertThat(promoted.isCompact(), is(false));
+    assertThat(compact.first(), is(score(1.0, safeString("m1"))));
+    assertThat(compact.ranking(safeString("m5")), is(promoted.ranking(safeString("m5")) - 1));
+    assertThat(compact.range(0, 2), is(promoted.range(1, 3)));
+    assertThat(compact.rangeByScore(2, false, 5, true, 1, 2), is(promoted.rangeByScore(2, false, 5, true, 1, 2)));
+    assertThat(compact.score(safeString("m3")), is(3.0));
+    assertThat(compact.tailSet(score(9, safeString(""))).size(), is(2));
+  }
+
+  @Test
+  public void testSameAsTreeSet() {
+    Random random = new Random(1);
+    SortedSet set = new SortedSet();
+    TreeSet<Entry<Double, SafeString>> expected = new TreeSet<>(set.comparator());
+    for (int i = 0; i < 20000; i++) {
+      SafeString member = safeString("m" + random.nextInt(5000));
+      double value = random.nextInt(100);
+      if (random.nextInt(3) == 0) {
+        Entry<Double, SafeString> entry = score(set.score(member), member);
+        assertThat(set.remove(entry), is(expected.remove(entry)));
+      } else if (!set.contains(score(0, member))) {
+        set.add(score(value, member));
+        expected.add(score(value, member));
+      }
+    }
+
+    assertThat(new ArrayList<>(set), is(new ArrayList<>(expected)));
+    assertThat(set.range(100, 199), is(new ArrayList<>(expected).subList(100, 200)));
+    assertThat(set.ranking(expected.last().getValue()), is(expected.size() - 1));
+    assertThat(set.higher(score(50, safeString(""))), is(expected.higher(score(50, safeString("")))));
+    assertThat(set.lower(score(50, safeString(""))), is(expected.lower(score(50, safeString("")))));
+    Iterator<Entry<Double, SafeString>> descending = set.descendingIterator();
+    for (Entry<Double, SafeString> entry : expected.descendingSet()) {
+      assertThat(descending.next(), is(entry));
+    }
+  }
+
+  @Test
+  public void testCopySharesChunks() {
+    SortedSet original = new SortedSet();
+    for (int i = 0; i < 5000; i++) {
+      original.add(score(i, safeString("m" + i)));
+    }
+    List<Entry<Double, SafeString>> before = new ArrayList<>(original);
+
+    SortedSet copy = new SortedSet(original);
+    for (int i = 0; i < 5000; i += 3) {
+      copy.remove(score(i, safeString("m" + i)));
+      copy.add(score(i + 0.5, safeString("n" + i)));
+    }
+
+    assertThat(new ArrayList<>(original), is(before));
+    assertThat(copy.size(), is(5000));
+    assertThat(copy.ranking(safeString("n3")), is(3));
+    assertThat(copy.score(safeString("m3")), is(Double.MIN_VALUE));
+    assertThat(original.ranking(safeString("m3")), is(3));
+  }
 }
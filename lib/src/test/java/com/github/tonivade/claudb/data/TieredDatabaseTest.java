@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.data;
+
+import static com.github.tonivade.claudb.data.DatabaseKey.safeKey;
+import static com.github.tonivade.claudb.data.DatabaseValue.string;
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import com.github.tonivade.purefun.Tuple;
+
+public class TieredDatabaseTest {
+
+  private static final long HOT_MEMORY = 16 * 1024;
+
+  @Rule
+  public final TemporaryFolder folder = new TemporaryFolder();
+
+  private final DatabaseContext context = new DatabaseContext();
+
+  private Path file;
+  private TieredDatabase database;
+
+  @Before
+  public void setUp() {
+    file = folder.getRoot().toPath().resolve("test.cold");
+    database = new TieredDatabase(file, HOT_MEMORY, 0, context);
+  }
+
+  @After
+  public void tearDown() {
+    database.close();
+  }
+
+  @Test
+  public void spillAndRecall() {
+    long recalled = context.getTieredStats().getRecalled();
+    Database onHeap = new OnHeapDatabaseFactory().create("test");
+    for (int i = 0; i < 1000; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+      onHeap.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(database.size(), is(1000));
+    assertThat(database.coldSize(), greaterThan(0));
+    assertThat(database.usedMemory(), lessThan(onHeap.usedMemory()));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(database.get(safeKey("key" + i)), is(string("value" + i)));
+    }
+    assertThat(database.size(), is(1000));
+    assertThat(context.getTieredStats().getRecalled(), greaterThan(recalled));
+  }
+
+  @Test
+  public void leastRecentlyUsedAreSpilled() {
+    database.put(safeKey("a"), string("1"));
+    for (int i = 0; i < 1000; i++) {
+      database.get(safeKey("a"));
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+
+    assertThat(database.coldSize(), greaterThan(0));
+    long recalled = context.getTieredStats().getRecalled();
+    assertThat(database.get(safeKey("a")), is(string("1")));
+    assertThat(context.getTieredStats().getRecalled(), is(recalled));
+    assertThat(database.get(safeKey("key0")), is(string("value0")));
+    assertThat(context.getTieredStats().getRecalled(), is(recalled + 1));
+  }
+
+  @Test
+  public void recallWithLookup() {
+    fill(1000);
+
+    assertThat(database.getString(safeString("key0")), is(safeString("value0")));
+    assertThat(database.getString(safeString("key1")), is(safeString("value1")));
+    assertThat(database.get(safeKey("key1")), is(string("value1")));
+    assertThat(database.get(safeKey("key0")), is(string("value0")));
+    assertThat(database.remove(safeKey("key0")), is(string("value0")));
+    assertThat(database.containsKey(safeKey("key0")), is(false));
+    assertThat(database.size(), is(999));
+  }
+
+  @Test
+  public void putAndRemoveCold() {
+    fill(1000);
+
+    assertThat(database.put(safeKey("key0"), string("other")), is(string("value0")));
+    assertThat(database.get(safeKey("key0")), is(string("other")));
+    assertThat(database.remove(safeKey("key1")), is(string("value1")));
+    assertThat(database.get(safeKey("key1")), nullValue());
+    assertThat(database.size(), is(999));
+  }
+
+  @Test
+  public void storeCold() {
+    fill(1000);
+
+    database.store(safeKey("key0"), string("other"));
+
+    long recalled = context.getTieredStats().getRecalled();
+    assertThat(database.get(safeKey("key0")), is(string("other")));
+    assertThat(context.getTieredStats().getRecalled(), is(recalled));
+    assertThat(database.size(), is(1000));
+  }
+
+  @Test
+  public void unlinkCold() {
+    fill(1000);
+
+    assertThat(database.unlink(safeKey("key0")), is(true));
+    assertThat(database.unlink(safeKey("key0")), is(false));
+    assertThat(database.get(safeKey("key0")), nullValue());
+    assertThat(database.size(), is(999));
+  }
+
+  @Test
+  public void expireCold() {
+    database.put(safeKey("volatile"), string("1").expiredAt(Instant.now().plusSeconds(3600)));
+    fill(1000);
+
+    assertThat(database.evictExpired(Instant.now().plusSeconds(7200), 10), is(Tuple.of(1, 1)));
+    assertThat(database.get(safeKey("volatile")), nullValue());
+    assertThat(database.size(), is(1000));
+  }
+
+  @Test
+  public void expiredColdKeysAreMissing() throws InterruptedException {
+    database.put(safeKey("volatile"), string("1").expiredAt(Instant.now().plusMillis(100)));
+    fill(1000);
+    assertThat(database.containsKey(safeKey("volatile")), is(true));
+
+    Thread.sleep(200);
+
+    assertThat(database.containsKey(safeKey("volatile")), is(false));
+    assertThat(database.keySet().contains(safeKey("volatile")), is(false));
+    assertThat(database.size(), is(1000));
+  }
+
+  @Test
+  public void forEach() {
+    fill(1000);
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    database.forEach((key, value) -> keys.add(key));
+
+    assertThat(keys.size(), is(1000));
+    assertThat(database.keySet().size(), is(1000));
+    assertThat(database.hotSize(), lessThan(1000));
+  }
+
+  @Test
+  public void scanWhileRecalled() {
+    fill(1000);
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    long cursor = 0;
+    int recalled = 0;
+    do {
+      cursor = database.scan(cursor, 10, (key, value) -> keys.add(key));
+      // cold keys are moved to the hot map and hot keys are spilled between the calls
+      for (int i = 0; i < 10; i++) {
+        database.get(safeKey("key" + recalled++ % 1000));
+      }
+    } while (cursor != 0);
+
+    assertThat(keys.size(), is(1000));
+  }
+
+  @Test
+  public void compaction() {
+    fill(1000);
+    long size = file.toFile().length();
+    for (int i = 0; i < 1000; i++) {
+      database.get(safeKey("key" + i));
+    }
+    fill(1000);
+
+    assertThat(file.toFile().length(), lessThan(size * 2));
+    for (int i = 0; i < 1000; i++) {
+      assertThat(database.get(safeKey("key" + i)), is(string("value" + i)));
+    }
+  }
+
+  @Test
+  public void captureWhileCleared() {
+    fill(1000);
+    Snapshot.Entries entries = database.capture();
+
+    database.clear();
+    fill(500);
+    for (int i = 0; i < 500; i++) {
+      database.get(safeKey("key" + i));
+    }
+
+    Set<DatabaseKey> keys = new HashSet<>();
+    entries.forEach((key, value) -> {
+      keys.add(key);
+      assertThat(value, is(string("value" + key.getValue().toString().substring(3))));
+    });
+    entries.release();
+    assertThat(keys.size(), is(1000));
+  }
+
+  @Test
+  public void clear() {
+    fill(1000);
+    database.clear();
+
+    assertThat(database.isEmpty(), is(true));
+    assertThat(database.get(safeKey("key0")), nullValue());
+    assertThat(file.toFile().length(), is(0L));
+  }
+
+  private void fill(int keys) {
+    for (int i = 0; i < keys; i++) {
+      database.put(safeKey("key" + i), string("value" + i));
+    }
+  }
+}
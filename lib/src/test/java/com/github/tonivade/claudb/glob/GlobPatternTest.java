@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015-2022, Antonio Gabriel Muñoz Conejo <antoniogmc at gmail dot com>
+ * Distributed under the terms of the MIT License
+ */
+package com.github.tonivade.claudb.glob;
+
+import static com.github.tonivade.resp.protocol.SafeString.safeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class GlobPatternTest {
+
+  private static final String[] PATTERNS = {
+      "", "*", "**", "abc", "abc*", "*abc", "a*c", "a?c", "*b*", "a\\*c", "[abc]*",
+      "[a-c]?[x-z]", "a.c", "user:*:name", "*:[0-9]", "[]]"
+  };
+
+  private static final String[] VALUES = {
+      "", "a", "abc", "abcd", "xabc", "a*c", "adc", "bbc", "cbc", "a.c", "abz", "user:1:name",
+      "user:name", "key:7", "key:x", "a[b", "]", "[a]", "a"
+  };
+
+  @Test
+  public void sameAsRegex() {
+    for (String glob : PATTERNS) {
+      GlobPattern pattern = new GlobPattern(glob);
+      Pattern regex = Pattern.compile(GlobPattern.convertGlobToRegEx(glob));
+      for (String value : VALUES) {
+        boolean expected = regex.matcher(value).matches();
+        assertThat(glob + " " + value, pattern.match(safeString(value)), is(expected));
+        assertThat(glob + " " + value, pattern.match(value), is(expected));
+      }
+    }
+  }
+
+  @Test
+  public void backtracking() {
+    GlobPattern pattern = new GlobPattern("*a*b*c");
+
+    assertThat(pattern.match("xxaxxbxxcxxc"), is(true));
+    assertThat(pattern.match("xxaxxcxxbxx"), is(false));
+  }
+
+  @Test
+  public void negatedClass() {
+    GlobPattern pattern = new GlobPattern("[^a]bc");
+
+    assertThat(pattern.match("bbc"), is(true));
+    assertThat(pattern.match("abc"), is(false));
+  }
+
+  @Test
+  public void unclosedClass() {
+    GlobPattern pattern = new GlobPattern("a[b");
+
+    assertThat(pattern.match("a[b"), is(true));
+    assertThat(pattern.match("ab"), is(false));
+    assertThat(new GlobPattern("\\[a]").match("[a]"), is(true));
+  }
+
+  @Test
+  public void alternatives() {
+    GlobPattern pattern = new GlobPattern("key:{a,b}");
+
+    assertThat(pattern.match(safeString("key:a")), is(true));
+    assertThat(pattern.match(safeString("key:c")), is(false));
+  }
+
+  @Test
+  public void prefix() {
+    assertThat(new GlobPattern("session:1:*").prefix(), is(safeString("session:1:")));
+    assertThat(new GlobPattern("a\\*b?").prefix(), is(safeString("a*b")));
+    assertThat(new GlobPattern("*:name").prefix(), is(safeString("")));
+  }
+
+  @Test
+  public void cached() {
+    assertThat(GlobPattern.compile("cached:*"), sameInstance(GlobPattern.compile("cached:*")));
+    assertThat(GlobPattern.compile("cached:*"),
+        sameInstance(GlobPattern.compile(safeString("cached:*"))));
+  }
+
+  @Test
+  public void cacheIsBounded() {
+    for (int i = 0; i < 2048; i++) {
+      GlobPattern.compile("other:" + i);
+    }
+    GlobPattern last = GlobPattern.compile("last:*");
+
+    assertThat(GlobPattern.cacheSize(), lessThanOrEqualTo(1024));
+    assertThat(GlobPattern.compile("last:*"), sameInstance(last));
+  }
+}
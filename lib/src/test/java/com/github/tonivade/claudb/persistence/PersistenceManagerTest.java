@@ -14,6 +14,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -36,8 +37,10 @@ import org.mockito.stubbing.Answer;
 
 import com.github.tonivade.claudb.DBConfig;
 import com.github.tonivade.claudb.DBServerContext;
+import com.github.tonivade.claudb.data.DatabaseContext;
 import com.github.tonivade.claudb.data.DatabaseKey;
 import com.github.tonivade.claudb.data.DatabaseValue;
+import com.github.tonivade.claudb.data.Snapshot;
 import com.github.tonivade.resp.command.RespCommand;
 import com.github.tonivade.resp.protocol.RedisToken;
 
@@ -46,16 +49,18 @@ public class PersistenceManagerTest {
 
   private static final String COMMAND = "*4\r\n$1\r\n0\r\n$3\r\nset\r\n$1\r\na\r\n$1\r\n1\r\n";
   private static final String REDO_FILE = "redo.aof";
+  private static final String OLD_REDO_FILE = "redo.aof.old";
   private static final String DUMP_FILE = "dump.rdb";
 
   @Mock
   private DBServerContext server;
 
+  private final SaveStats stats = new SaveStats();
   private PersistenceManager manager;
 
   @Before
   public void setUp() {
-    this.manager = new PersistenceManager(server, DBConfig.builder().withPersistence().build());
+    this.manager = new PersistenceManager(server, DBConfig.builder().withPersistence().build(), stats);
     deleteFiles();
   }
 
@@ -75,6 +80,51 @@ public class PersistenceManagerTest {
     assertThat(databases, notNullValue());
   }
 
+  @Test
+  public void runSkippedWhileSaveInProgress() throws IOException {
+    stats.start();
+
+    manager.run();
+
+    verify(server, never()).exportRDB(any());
+    assertThat(new File(DUMP_FILE).exists(), is(false));
+    assertThat(stats.isInProgress(), is(true));
+  }
+
+  @Test
+  public void testBackgroundSave() throws IOException, InterruptedException {
+    PersistenceManager background =
+        new PersistenceManager(server, DBConfig.builder().withPersistence().withBackgroundSave().build(), stats);
+    when(server.snapshot()).thenAnswer(invocation -> Snapshot.open(new DatabaseContext()));
+    doAnswer(new ExportSnapshot()).when(server).exportRDB(any(Snapshot.class), any());
+    writeAOF();
+
+    background.run();
+    for (int i = 0; i < 100 && stats.isInProgress(); i++) {
+      Thread.sleep(10);
+    }
+
+    RDBInputStream input = new RDBInputStream(new FileInputStream(DUMP_FILE));
+    assertThat(input.parse(), notNullValue());
+    assertThat(stats.isInProgress(), is(false));
+    assertThat(stats.isLastBackgroundOk(), is(true));
+    assertThat(new File(REDO_FILE).length(), is(0L));
+    assertThat(new File(OLD_REDO_FILE).exists(), is(false));
+  }
+
+  @Test
+  public void testStartWithOldRedo() throws IOException {
+    RespCommand cmd = stubCommand();
+
+    writeAOF();
+    new File(REDO_FILE).renameTo(new File(OLD_REDO_FILE));
+    writeAOF();
+
+    manager.start();
+
+    verify(cmd, times(4)).execute(any());
+  }
+
   @Test
   public void testStop() throws IOException {
     manager.stop();
@@ -112,6 +162,7 @@ public class PersistenceManagerTest {
   private void deleteFiles() {
     deleteFile(DUMP_FILE);
     deleteFile(REDO_FILE);
+    deleteFile(OLD_REDO_FILE);
   }
 
   private void deleteFile(String name) {
@@ -157,6 +208,15 @@ public class PersistenceManagerTest {
     return array(string("0"), string("set"), string("a"), string("1"));
   }
 
+  private static class ExportSnapshot implements Answer<Void> {
+    @Override
+    public Void answer(InvocationOnMock invocation) throws Throwable {
+      OutputStream output = (OutputStream) invocation.getArguments()[1];
+      output.write(fromHexString("524544495330303033fe00ff77de0394ac9d23ea").getBytes());
+      return null;
+    }
+  }
+
   private static class ExportRDB implements Answer<Void> {
     @Override
     public Void answer(InvocationOnMock invocation) throws Throwable {